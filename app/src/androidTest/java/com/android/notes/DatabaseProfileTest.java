@@ -0,0 +1,130 @@
+package com.android.notes;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.room.RoomDatabase;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.android.notes.models.Note;
+import com.android.notes.persistence.DatabaseProfile;
+import com.android.notes.persistence.NoteDatabase;
+import com.android.notes.util.TestUtil;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+// WAL needs a database file, an in-memory database ignores the journal mode
+public class DatabaseProfileTest {
+
+    private static final String DATABASE_NAME = "database_profile_test.db";
+
+    private Context context;
+
+    //system under test
+    private NoteDatabase noteDatabase;
+
+    @Before
+    public void init(){
+        context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    @After
+    public void finish(){
+        if(noteDatabase != null){
+            noteDatabase.close();
+        }
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    private NoteDatabase open(DatabaseProfile profile){
+        return profile.applyTo(Room.databaseBuilder(context, NoteDatabase.class, DATABASE_NAME)).build();
+    }
+
+    // read on the primary connection (inside a transaction), the one the profile configures
+    private static String pragma(SupportSQLiteDatabase db, String name){
+        db.beginTransactionNonExclusive();
+        try{
+            Cursor cursor = db.query("PRAGMA " + name);
+            try{
+                assertTrue(cursor.moveToFirst());
+                return cursor.getString(0);
+            }finally {
+                cursor.close();
+            }
+        }finally {
+            db.endTransaction();
+        }
+    }
+
+    /*
+        open with the default profile
+        WAL, synchronous NORMAL (1) and the cache size are set
+     */
+
+    @Test
+    public void open_defaultProfile_pragmasApplied() throws Exception {
+        // Act
+        noteDatabase = open(DatabaseProfile.DEFAULT);
+        SupportSQLiteDatabase db = noteDatabase.getOpenHelper().getWritableDatabase();
+
+        // Assert
+        assertEquals("wal", pragma(db, "journal_mode").toLowerCase());
+        assertEquals("1", pragma(db, "synchronous"));
+        assertEquals(String.valueOf(-DatabaseProfile.DEFAULT_CACHE_SIZE_KIB), pragma(db, "cache_size"));
+    }
+
+    /*
+        truncate journal, synchronous FULL
+        the profile's values are set
+     */
+
+    @Test
+    public void open_customProfile_pragmasApplied() throws Exception {
+        // Arrange
+        DatabaseProfile profile = new DatabaseProfile(RoomDatabase.JournalMode.TRUNCATE, DatabaseProfile.Synchronous.FULL, 512, 0, 0);
+
+        // Act
+        noteDatabase = open(profile);
+        SupportSQLiteDatabase db = noteDatabase.getOpenHelper().getWritableDatabase();
+
+        // Assert
+        assertEquals("truncate", pragma(db, "journal_mode").toLowerCase());
+        assertEquals("2", pragma(db, "synchronous"));
+        assertEquals("-512", pragma(db, "cache_size"));
+    }
+
+    /*
+        warm up a database with notes
+        it opens the database, the notes are still there
+     */
+
+    @Test
+    public void warmUp_withNotes_databaseOpen() throws Exception {
+        // Arrange
+        noteDatabase = open(DatabaseProfile.DEFAULT);
+        List<Note> notes = new ArrayList<>();
+        for(int i = 0; i < DatabaseProfile.DEFAULT_WARM_UP_ROWS * 2; i++){
+            notes.add(new Note("title " + i, "content " + i, TestUtil.TIMESTAMP_1));
+        }
+        noteDatabase.getNoteDao().insertNotes(notes).blockingGet();
+        noteDatabase.close();
+        noteDatabase = open(DatabaseProfile.DEFAULT);
+
+        // Act
+        DatabaseProfile.DEFAULT.warmUp(noteDatabase);
+
+        // Assert
+        assertTrue(noteDatabase.isOpen());
+        assertEquals(notes.size(), noteDatabase.getNoteDao().getNotesInRange(0, Integer.MAX_VALUE).size());
+    }
+}
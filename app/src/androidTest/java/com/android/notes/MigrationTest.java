@@ -0,0 +1,215 @@
+package com.android.notes;
+
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.room.migration.Migration;
+import androidx.room.testing.MigrationTestHelper;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.android.notes.models.Note;
+import com.android.notes.models.NoteRevision;
+import com.android.notes.models.NoteSearchResult;
+import com.android.notes.persistence.NoteContentCodec;
+import com.android.notes.persistence.NoteDatabase;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.List;
+
+import static com.android.notes.persistence.NoteDatabase.MIGRATION_1_2;
+import static com.android.notes.persistence.NoteDatabase.MIGRATION_2_3;
+import static com.android.notes.persistence.NoteDatabase.MIGRATION_3_4;
+import static com.android.notes.persistence.NoteDatabase.MIGRATION_4_5;
+import static com.android.notes.persistence.NoteDatabase.MIGRATION_5_6;
+import static com.android.notes.persistence.NoteDatabase.MIGRATION_6_7;
+import static com.android.notes.persistence.NoteDatabase.MIGRATION_7_8;
+import static org.junit.Assert.*;
+
+/*
+* every migration from a database created with the exported schema of its version (app/schemas),
+* validated by room against the schema of the next one.*/
+public class MigrationTest {
+
+    private static final String TEST_DB = "migration_test.db";
+
+    private static final Migration[] ALL_MIGRATIONS = {
+            MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4, MIGRATION_4_5, MIGRATION_5_6, MIGRATION_6_7, MIGRATION_7_8
+    };
+
+    private static final String TEST_TITLE = "garbage day";
+    private static final String TEST_CONTENT = "take the bins out";
+    private static final long TEST_TIMESTAMP = 1533081600000L; // 08-2018
+
+    @Rule
+    public MigrationTestHelper helper = new MigrationTestHelper(
+            InstrumentationRegistry.getInstrumentation(),
+            NoteDatabase.class.getCanonicalName(),
+            new FrameworkSQLiteOpenHelperFactory());
+
+    private static long queryLong(SupportSQLiteDatabase db, String sql, Object... args){
+        Cursor cursor = db.query(sql, args);
+        try{
+            assertTrue(sql, cursor.moveToFirst());
+            return cursor.getLong(0);
+        }finally {
+            cursor.close();
+        }
+    }
+
+    private static long matches(SupportSQLiteDatabase db, String query){
+        return queryLong(db, "SELECT COUNT(*) FROM notes_fts WHERE notes_fts MATCH ?", query);
+    }
+
+    /*
+    * 1 -> 2: the existing notes are indexed*/
+    @Test
+    public void migrate1To2_existingNotesIndexed() throws Exception{
+        SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 1);
+        db.execSQL("INSERT INTO notes (title, content, timestamp) VALUES (?, ?, ?)", new Object[]{TEST_TITLE, TEST_CONTENT, "08-2018"});
+        db.close();
+
+        db = helper.runMigrationsAndValidate(TEST_DB, 2, true, MIGRATION_1_2);
+
+        assertEquals(1, matches(db, "garbage"));
+        assertEquals(1, matches(db, "bins"));
+    }
+
+    /*
+    * 2 -> 3: "MM-yyyy" strings become epoch millis, ids are kept, the index still matches them
+    * and its triggers are back on the rebuilt table*/
+    @Test
+    public void migrate2To3_timestampsRewrittenTriggersRecreated() throws Exception{
+        SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 2);
+        db.execSQL("INSERT INTO notes (id, title, content, timestamp) VALUES (?, ?, ?, ?)", new Object[]{3, TEST_TITLE, TEST_CONTENT, "08-2018"});
+        db.execSQL("INSERT INTO notes (id, title, content, timestamp) VALUES (?, ?, ?, ?)", new Object[]{7, "no date", null, "garbage"});
+        db.execSQL("INSERT INTO notes_fts(notes_fts) VALUES('rebuild')");
+        db.close();
+
+        db = helper.runMigrationsAndValidate(TEST_DB, 3, true, MIGRATION_2_3);
+
+        //timestamps, unparsable ones become 0
+        assertEquals(TEST_TIMESTAMP, queryLong(db, "SELECT timestamp FROM notes WHERE id = 3"));
+        assertEquals(0, queryLong(db, "SELECT timestamp FROM notes WHERE id = 7"));
+
+        //existing index, keyed by id
+        assertEquals(3, queryLong(db, "SELECT docid FROM notes_fts WHERE notes_fts MATCH 'bins'"));
+
+        //triggers: insert, update and delete keep the index in sync
+        db.execSQL("INSERT INTO notes (title, content, timestamp) VALUES (?, ?, ?)", new Object[]{"anniversary", "buy a gift", TEST_TIMESTAMP});
+        assertEquals(1, matches(db, "gift"));
+        db.execSQL("UPDATE notes SET content = ? WHERE id = 3", new Object[]{"call the plumber"});
+        assertEquals(0, matches(db, "bins"));
+        assertEquals(1, matches(db, "plumber"));
+        db.execSQL("DELETE FROM notes WHERE id = 3");
+        assertEquals(0, matches(db, "plumber"));
+    }
+
+    /*
+    * 3 -> 4 -> 5 -> 6: new column and tables, the notes are left as they are*/
+    @Test
+    public void migrate3To6_notesKept() throws Exception{
+        SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 3);
+        db.execSQL("INSERT INTO notes (id, title, content, timestamp) VALUES (?, ?, ?, ?)", new Object[]{1, TEST_TITLE, TEST_CONTENT, TEST_TIMESTAMP});
+        db.close();
+
+        db = helper.runMigrationsAndValidate(TEST_DB, 4, true, MIGRATION_3_4);
+        assertEquals(1, queryLong(db, "SELECT COUNT(*) FROM notes WHERE content_deflated IS NULL"));
+        db.close();
+
+        db = helper.runMigrationsAndValidate(TEST_DB, 5, true, MIGRATION_4_5);
+        assertEquals(0, queryLong(db, "SELECT COUNT(*) FROM note_chunks"));
+        db.close();
+
+        db = helper.runMigrationsAndValidate(TEST_DB, 6, true, MIGRATION_5_6);
+        assertEquals(0, queryLong(db, "SELECT COUNT(*) FROM note_revisions"));
+        assertEquals(TEST_TIMESTAMP, queryLong(db, "SELECT timestamp FROM notes WHERE id = 1"));
+    }
+
+    /*
+    * 6 -> 7: compressed and chunked notes get their search_text and are indexed by it,
+    * the recreated triggers index it for new notes*/
+    @Test
+    public void migrate6To7_encodedNotesIndexed() throws Exception{
+        StringBuilder text = new StringBuilder();
+        while(text.length() < 2 * NoteContentCodec.SEARCH_TEXT_HEAD_CHARS){
+            text.append(TEST_CONTENT).append(' ');
+        }
+        String compressed = text + "zebra";
+        String chunked = text + "giraffe";
+
+        SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 6);
+        db.execSQL("INSERT INTO notes (id, title, content, content_deflated, timestamp) VALUES (?, ?, ?, ?, ?)",
+                new Object[]{1, TEST_TITLE, TEST_CONTENT, null, TEST_TIMESTAMP});
+        db.execSQL("INSERT INTO notes (id, title, content, content_deflated, timestamp) VALUES (?, ?, ?, ?, ?)",
+                new Object[]{2, "compressed", null, NoteContentCodec.deflate(compressed), TEST_TIMESTAMP});
+        db.execSQL("INSERT INTO notes (id, title, content, content_deflated, timestamp) VALUES (?, ?, ?, ?, ?)",
+                new Object[]{3, "chunked", null, null, TEST_TIMESTAMP});
+        int half = chunked.length() / 2;
+        db.execSQL("INSERT INTO note_chunks (note_id, seq, hash, length, data) VALUES (?, ?, ?, ?, ?)",
+                new Object[]{3, 1, 0, chunked.length() - half, chunked.substring(half)});
+        db.execSQL("INSERT INTO note_chunks (note_id, seq, hash, length, data) VALUES (?, ?, ?, ?, ?)",
+                new Object[]{3, 0, 0, half, chunked.substring(0, half)});
+        db.close();
+
+        db = helper.runMigrationsAndValidate(TEST_DB, 7, true, MIGRATION_6_7);
+
+        //search_text only for the notes stored without content
+        assertEquals(0, queryLong(db, "SELECT COUNT(*) FROM notes WHERE id = 1 AND search_text IS NOT NULL"));
+        assertEquals(1, queryLong(db, "SELECT COUNT(*) FROM notes WHERE id = 2 AND search_text = ?", NoteContentCodec.searchTextOf(compressed)));
+        assertEquals(1, queryLong(db, "SELECT COUNT(*) FROM notes WHERE id = 3 AND search_text = ?", NoteContentCodec.searchTextOf(chunked)));
+
+        //index
+        assertEquals(3, matches(db, "bins"));
+        assertEquals(2, queryLong(db, "SELECT docid FROM notes_fts WHERE notes_fts MATCH 'zebra'"));
+        assertEquals(3, queryLong(db, "SELECT docid FROM notes_fts WHERE notes_fts MATCH 'giraffe'"));
+
+        //triggers
+        db.execSQL("INSERT INTO notes (title, content, search_text, timestamp) VALUES (?, ?, ?, ?)",
+                new Object[]{"new", null, "elephant", TEST_TIMESTAMP});
+        assertEquals(1, matches(db, "elephant"));
+        db.execSQL("DELETE FROM notes WHERE id = 2");
+        assertEquals(0, matches(db, "zebra"));
+    }
+
+    /*
+    * 7 -> 8: existing revisions are kept, with no deflated content*/
+    @Test
+    public void migrate7To8_revisionsKept() throws Exception{
+        SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 7);
+        db.execSQL("INSERT INTO notes (id, title, content, timestamp) VALUES (?, ?, ?, ?)",
+                new Object[]{1, TEST_TITLE, TEST_CONTENT, TEST_TIMESTAMP});
+        db.execSQL("INSERT INTO note_revisions (note_id, revision, timestamp, title, kind, content, prefix_length, suffix_length, inserted) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)", new Object[]{1, 1, TEST_TIMESTAMP, TEST_TITLE, NoteRevision.SNAPSHOT, TEST_CONTENT, 0, 0, null});
+        db.close();
+
+        db = helper.runMigrationsAndValidate(TEST_DB, 8, true, MIGRATION_7_8);
+
+        assertEquals(1, queryLong(db, "SELECT COUNT(*) FROM note_revisions WHERE note_id = 1 AND content = ? AND content_deflated IS NULL", TEST_CONTENT));
+    }
+
+    /*
+    * 1 -> 8 in one go, then opened by room: the last schema matches the entities*/
+    @Test
+    public void migrateAll_openedByRoom() throws Exception{
+        SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 1);
+        db.execSQL("INSERT INTO notes (title, content, timestamp) VALUES (?, ?, ?)", new Object[]{TEST_TITLE, TEST_CONTENT, "08-2018"});
+        db.close();
+
+        NoteDatabase noteDatabase = Room.databaseBuilder(ApplicationProvider.getApplicationContext(), NoteDatabase.class, TEST_DB)
+                .addMigrations(ALL_MIGRATIONS)
+                .build();
+        helper.closeWhenFinished(noteDatabase);
+
+        Note note = noteDatabase.getNoteDao().getNoteById(1).blockingGet();
+        assertEquals(TEST_TITLE, note.getTitle());
+        assertEquals(TEST_CONTENT, note.getContent());
+        assertEquals(TEST_TIMESTAMP, note.getTimestamp());
+        List<NoteSearchResult> results = noteDatabase.getNoteDao().search("bins*", 10).blockingFirst();
+        assertEquals(1, results.size());
+    }
+}
@@ -0,0 +1,170 @@
+package com.android.notes;
+
+import com.android.notes.backup.NoteExporter;
+import com.android.notes.backup.NoteImporter;
+import com.android.notes.backup.ProgressListener;
+import com.android.notes.metrics.MetricsRegistry;
+import com.android.notes.models.Note;
+import com.android.notes.persistence.DatabaseSchedulers;
+import com.android.notes.persistence.NoteContentCodec;
+import com.android.notes.repository.NoteCache;
+import com.android.notes.repository.NoteRepository;
+import com.android.notes.util.TestUtil;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class NoteBackupTest extends NoteDatabaseTest {
+
+    private static final int NOTE_COUNT = 1_250;
+
+    private final DatabaseSchedulers databaseSchedulers = DatabaseSchedulers.create();
+
+    private NoteExporter createExporter(){
+        return new NoteExporter(getNoteDao(), getNoteChunkDao(), databaseSchedulers);
+    }
+
+    private NoteImporter createImporter(NoteContentCodec codec){
+        NoteRepository noteRepository = new NoteRepository(getNoteDao(), getNoteChunkDao(), getNoteRevisionDao(),
+                new NoteCache(NoteCache.DEFAULT_MAX_BYTES), databaseSchedulers, new MetricsRegistry(), codec);
+        return new NoteImporter(noteRepository, codec, 100);
+    }
+
+    private static List<Note> createNotes(int count){
+        List<Note> notes = new ArrayList<>();
+        for(int i = 0; i < count; i++){
+            notes.add(new Note("title " + i, i % 10 == 0 ? null : "content \"" + i + "\"\nsecond line", TestUtil.TIMESTAMP_1 + i));
+        }
+        return notes;
+    }
+
+    private static void assertSameNotes(List<Note> expected, List<Note> actual){
+        assertEquals(expected.size(), actual.size());
+        for(int i = 0; i < expected.size(); i++){
+            assertEquals(expected.get(i).getTitle(), actual.get(i).getTitle());
+            assertEquals(expected.get(i).getContent(), actual.get(i).getContent());
+            assertEquals(expected.get(i).getTimestamp(), actual.get(i).getTimestamp());
+        }
+    }
+
+    private List<Note> readAllNotes() throws Exception{
+        List<Note> notes = getNoteDao().getNotesAfter(0, Integer.MAX_VALUE).blockingGet();
+        NoteContentCodec.decode(notes);
+        getNoteChunkDao().loadContent(notes);
+        return notes;
+    }
+
+    private void deleteAllNotes() throws Exception{
+        getNoteDao().deleteNotes(getNoteDao().getNotesAfter(0, Integer.MAX_VALUE).blockingGet()).blockingGet();
+    }
+
+    /*
+    * Export, empty the database, import, same notes (plain and gzipped)*/
+    @Test
+    public void exportImport_sameNotes() throws Exception{
+        List<Note> notes = createNotes(NOTE_COUNT);
+        getNoteDao().insertNotes(notes).blockingGet();
+
+        for(boolean gzip : new boolean[]{false, true}){
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            assertEquals(NOTE_COUNT, createExporter().exportNotes(out, gzip, null));
+            deleteAllNotes();
+
+            long imported = createImporter(NoteContentCodec.DISABLED).importNotes(new ByteArrayInputStream(out.toByteArray()), null);
+
+            assertEquals(NOTE_COUNT, imported);
+            assertSameNotes(notes, readAllNotes());
+        }
+    }
+
+    /*
+    * Compressed and chunked notes are exported with their full content, and stored the same way on import*/
+    @Test
+    public void exportImport_compressedAndChunkedNotes() throws Exception{
+        StringBuilder content = new StringBuilder();
+        while(content.length() < 300_000){
+            content.append("It's garbage day tomorrow. ").append(content.length());
+        }
+        NoteContentCodec codec = new NoteContentCodec(NoteContentCodec.DEFAULT_THRESHOLD_CHARS, 100_000);
+        Note compressed = new Note("compressed", content.substring(0, 10_000), TestUtil.TIMESTAMP_1);
+        Note chunked = new Note("chunked", content.toString(), TestUtil.TIMESTAMP_2);
+        getNoteDao().insertNote(codec.encode(compressed)).blockingGet();
+        getNoteChunkDao().insertChunkedNote(NoteContentCodec.withoutContent(chunked), chunked.getContent());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        createExporter().exportNotes(out, true, null);
+        deleteAllNotes();
+        createImporter(codec).importNotes(new ByteArrayInputStream(out.toByteArray()), null);
+
+        List<Note> stored = getNoteDao().getNotesAfter(0, Integer.MAX_VALUE).blockingGet();
+        assertNotNull(stored.get(0).getContentDeflated());
+        assertFalse(getNoteChunkDao().getChunks(stored.get(1).getId()).isEmpty());
+        List<Note> expected = new ArrayList<>();
+        expected.add(compressed);
+        expected.add(chunked);
+        assertSameNotes(expected, readAllNotes());
+    }
+
+    /*
+    * Imported notes get no revision, like notes inserted from the app: the row is their only version*/
+    @Test
+    public void importNotes_noRevisions() throws Exception{
+        String backup = "{\"title\":\"one\",\"content\":\"1\",\"timestamp\":5}\n";
+
+        createImporter(NoteContentCodec.DISABLED).importNotes(new ByteArrayInputStream(backup.getBytes("UTF-8")), null);
+
+        Note stored = readAllNotes().get(0);
+        assertTrue(getNoteRevisionDao().observeRevisions(stored.getId()).blockingFirst().isEmpty());
+    }
+
+    /*
+    * Progress is reported while importing, rows only go up*/
+    @Test
+    public void importNotes_reportsProgress() throws Exception{
+        getNoteDao().insertNotes(createNotes(NOTE_COUNT)).blockingGet();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        createExporter().exportNotes(out, false, null);
+        final List<Long> reported = new ArrayList<>();
+
+        createImporter(NoteContentCodec.DISABLED).importNotes(new ByteArrayInputStream(out.toByteArray()), new ProgressListener() {
+            @Override
+            public void onProgress(long rows, long rowsPerSecond) {
+                reported.add(rows);
+            }
+        });
+
+        // one report per batch of 100, and one at the end
+        assertEquals(NOTE_COUNT / 100 + 1, reported.size());
+        for(int i = 1; i < reported.size(); i++){
+            assertTrue(reported.get(i) >= reported.get(i - 1));
+        }
+        assertEquals(NOTE_COUNT, (long) reported.get(reported.size() - 1));
+    }
+
+    /*
+    * Unknown fields and blank lines are skipped, a note without title fails the import*/
+    @Test
+    public void importNotes_lenientButNeedsTitle() throws Exception{
+        String backup = "{\"id\":7,\"title\":\"one\",\"content\":\"1\",\"timestamp\":5,\"color\":\"red\"}\n\n" +
+                "{\"title\":\"two\",\"content\":null}\n";
+
+        assertEquals(2, createImporter(NoteContentCodec.DISABLED).importNotes(new ByteArrayInputStream(backup.getBytes("UTF-8")), null));
+
+        List<Note> stored = readAllNotes();
+        assertEquals("one", stored.get(0).getTitle());
+        assertEquals(5, stored.get(0).getTimestamp());
+        assertNull(stored.get(1).getContent());
+        try{
+            createImporter(NoteContentCodec.DISABLED).importNotes(new ByteArrayInputStream("{\"content\":\"x\"}".getBytes("UTF-8")), null);
+            fail("note without title imported");
+        }catch (Exception expected){
+            // expected
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.android.notes;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.android.notes.models.Note;
+import com.android.notes.persistence.NoteChangeLog;
+import com.android.notes.persistence.NoteDatabase;
+import com.android.notes.util.TestUtil;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class NoteChangeLogTest {
+
+    private NoteDatabase noteDatabase;
+
+    //system under test
+    private NoteChangeLog changeLog;
+
+    @Before
+    public void init(){
+        noteDatabase = Room.inMemoryDatabaseBuilder(
+                ApplicationProvider.getApplicationContext(),
+                NoteDatabase.class
+        ).addCallback(NoteChangeLog.CALLBACK).build();
+        changeLog = new NoteChangeLog(noteDatabase);
+    }
+
+    @After
+    public void finish(){
+        noteDatabase.close();
+    }
+
+    /*
+    * Insert, update and delete notes, every row is logged once and drained once*/
+    @Test
+    public void insertUpdateDelete_drained() throws Exception{
+        int id = (int) (long) noteDatabase.getNoteDao().insertNote(new Note(TestUtil.TEST_NOTE_1)).blockingGet();
+        Note note = new Note(TestUtil.TEST_NOTE_1);
+        note.setId(id);
+        note.setTimestamp(TestUtil.TIMESTAMP_2);
+        noteDatabase.getNoteDao().updateNote(note).blockingGet();
+
+        assertEquals(Arrays.asList(
+                new NoteChangeLog.Change(id, TestUtil.TEST_NOTE_1.getTimestamp()),
+                new NoteChangeLog.Change(id, TestUtil.TIMESTAMP_2)), changeLog.drain());
+        assertTrue(changeLog.drain().isEmpty());
+
+        noteDatabase.getNoteDao().deleteNote(note).blockingGet();
+        assertEquals(Collections.singletonList(NoteChangeLog.Change.deleted(id)), changeLog.drain());
+    }
+}
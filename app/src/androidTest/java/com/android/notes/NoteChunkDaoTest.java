@@ -0,0 +1,193 @@
+package com.android.notes;
+
+import android.database.Cursor;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import com.android.notes.models.Note;
+import com.android.notes.models.NoteChunk;
+import com.android.notes.persistence.NoteContentCodec;
+import com.android.notes.util.TestUtil;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class NoteChunkDaoTest extends NoteDatabaseTest {
+
+    private static final String[] WORDS = {"the", "quick", "brown", "fox", "jumps", "over", "lazy", "dog"};
+
+    private static String createContent(int length){
+        Random random = new Random(3);
+        StringBuilder content = new StringBuilder(length);
+        while(content.length() < length){
+            content.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+        }
+        content.setLength(length);
+        return content.toString();
+    }
+
+    private int insertChunkedNote(String content){
+        Note note = new Note(TestUtil.TEST_NOTE_1.getTitle(), content, TestUtil.TIMESTAMP_1);
+        return (int) getNoteChunkDao().insertChunkedNote(NoteContentCodec.withoutContent(note), content);
+    }
+
+    /*
+    * Insert a chunked note, read it back*/
+    @Test
+    public void insertReadChunked() throws Exception{
+        String content = createContent(200_000);
+
+        int id = insertChunkedNote(content);
+
+        //row without content, content put back together from the chunks
+        Note stored = getNoteDao().getNoteById(id).blockingGet();
+        assertNull(stored.getContent());
+        assertEquals(content, getNoteChunkDao().loadContent(id));
+        getNoteChunkDao().loadContent(Collections.singletonList(stored));
+        assertEquals(content, stored.getContent());
+    }
+
+    /*
+    * Edit the middle of a chunked note, only the chunks around the edit are rewritten*/
+    @Test
+    public void saveContent_smallEdit_rewritesFewChunks() throws Exception{
+        String content = createContent(200_000);
+        int id = insertChunkedNote(content);
+        int chunkCount = getNoteChunkDao().getChunks(id).size();
+
+        //one char inserted, one removed
+        String edited = content.substring(0, 100_000) + "X" + content.substring(100_000);
+        int written = getNoteChunkDao().saveContent(id, edited);
+        assertTrue("written chunks: " + written, written <= 2);
+        assertEquals(edited, getNoteChunkDao().loadContent(id));
+
+        edited = edited.substring(0, 50_000) + edited.substring(50_001);
+        written = getNoteChunkDao().saveContent(id, edited);
+        assertTrue("written chunks: " + written, written <= 2);
+        assertEquals(edited, getNoteChunkDao().loadContent(id));
+        assertTrue(chunkCount > 10);
+
+        //nothing changed
+        assertEquals(0, getNoteChunkDao().saveContent(id, edited));
+    }
+
+    /*
+    * Repeated edits at the same place, the seq gaps run out and the note is renumbered*/
+    @Test
+    public void saveContent_repeatedEditsSamePlace_contentStaysIntact() throws Exception{
+        String content = createContent(100_000);
+        int id = insertChunkedNote(content);
+
+        for(int i = 0; i < 40; i++){
+            content = content.substring(0, 50_000) + createContent(3_000) + content.substring(50_000);
+            getNoteChunkDao().saveContent(id, content);
+            assertEquals(content, getNoteChunkDao().loadContent(id));
+        }
+        List<Long> seqs = new ArrayList<>();
+        for(NoteChunk chunk : getNoteChunkDao().getChunks(id)){
+            seqs.add(chunk.getSeq());
+        }
+        List<Long> sorted = new ArrayList<>(seqs);
+        Collections.sort(sorted);
+        assertEquals(sorted, seqs);
+    }
+
+    /*
+    * Delete a chunked note, its chunks are deleted with it*/
+    @Test
+    public void deleteNote_chunksDeleted() throws Exception{
+        int id = insertChunkedNote(createContent(50_000));
+        Note note = getNoteDao().getNoteById(id).blockingGet();
+
+        getNoteDao().deleteNote(note).blockingGet();
+
+        assertTrue(getNoteChunkDao().getChunks(id).isEmpty());
+    }
+
+    /*
+    * Edit a chunked note without changing its words, search_text isn't written.
+    * then add a word, it is*/
+    @Test
+    public void updateChunkedNote_sameWords_searchTextNotWritten() throws Exception{
+        int id = insertChunkedNote(createContent(50_000));
+        SupportSQLiteDatabase db = getNoteDatabase().getOpenHelper().getWritableDatabase();
+        db.execSQL("CREATE TEMP TABLE search_text_writes (note_id INTEGER)");
+        db.execSQL("CREATE TEMP TRIGGER search_text_written AFTER UPDATE OF search_text ON notes " +
+                "BEGIN INSERT INTO search_text_writes VALUES (NEW.id); END");
+        Note note = getNoteDao().getNoteById(id).blockingGet();
+        String content = getNoteChunkDao().loadContent(id);
+
+        String edited = content + " fox";
+        note.setContent(edited);
+        note.setTimestamp(TestUtil.TIMESTAMP_2);
+        assertEquals(1, getNoteChunkDao().updateChunkedNote(NoteContentCodec.withoutContent(note), edited));
+
+        assertEquals(0, countRows(db, "SELECT COUNT(*) FROM search_text_writes"));
+        assertEquals(edited, getNoteChunkDao().loadContent(id));
+        assertEquals(TestUtil.TIMESTAMP_2, getNoteDao().getNoteById(id).blockingGet().getTimestamp());
+
+        edited = edited + " zebra";
+        note.setContent(edited);
+        assertEquals(1, getNoteChunkDao().updateChunkedNote(NoteContentCodec.withoutContent(note), edited));
+
+        assertEquals(1, countRows(db, "SELECT COUNT(*) FROM search_text_writes"));
+        assertTrue(getNoteDao().getNoteById(id).blockingGet().getSearchText().endsWith("zebra "));
+    }
+
+    private static long countRows(SupportSQLiteDatabase db, String sql){
+        Cursor cursor = db.query(sql);
+        try{
+            assertTrue(cursor.moveToFirst());
+            return cursor.getLong(0);
+        }finally {
+            cursor.close();
+        }
+    }
+
+    /*
+    * Update a chunked note with short content, its chunks are dropped*/
+    @Test
+    public void updateChunkedNote_notChunkedAnymore_chunksDeleted() throws Exception{
+        int id = insertChunkedNote(createContent(50_000));
+        Note note = getNoteDao().getNoteById(id).blockingGet();
+        note.setContent("short");
+
+        assertEquals(1, getNoteChunkDao().updateChunkedNote(note, null));
+
+        assertTrue(getNoteChunkDao().getChunks(id).isEmpty());
+        assertEquals("short", getNoteDao().getNoteById(id).blockingGet().getContent());
+    }
+
+    /*
+    * Insert a batch with a chunked and a plain note, then update it with the chunked one shrunk:
+    * its chunks are dropped, the plain note is untouched*/
+    @Test
+    public void insertUpdateChunkedNotes_batch() throws Exception{
+        String content = createContent(50_000);
+        Note huge = new Note(TestUtil.TEST_NOTE_1.getTitle(), content, TestUtil.TIMESTAMP_1);
+        Note small = new Note(TestUtil.TEST_NOTE_2.getTitle(), "small", TestUtil.TIMESTAMP_2);
+        List<Long> rowIds = getNoteChunkDao().insertChunkedNotes(
+                Arrays.asList(NoteContentCodec.withoutContent(huge), small), Arrays.asList(content, null));
+        int hugeId = (int) (long) rowIds.get(0);
+        int smallId = (int) (long) rowIds.get(1);
+
+        assertEquals(content, getNoteChunkDao().loadContent(hugeId));
+        assertTrue(getNoteChunkDao().getChunks(smallId).isEmpty());
+
+        Note shrunk = getNoteDao().getNoteById(hugeId).blockingGet();
+        shrunk.setContent("shrunk");
+        Note stillSmall = getNoteDao().getNoteById(smallId).blockingGet();
+        assertEquals(2, getNoteChunkDao().updateChunkedNotes(Arrays.asList(shrunk, stillSmall), Arrays.<String>asList(null, null)));
+
+        assertTrue(getNoteChunkDao().getChunks(hugeId).isEmpty());
+        assertEquals("shrunk", getNoteDao().getNoteById(hugeId).blockingGet().getContent());
+        assertEquals("small", getNoteDao().getNoteById(smallId).blockingGet().getContent());
+    }
+}
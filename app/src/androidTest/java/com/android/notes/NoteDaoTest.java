@@ -5,6 +5,9 @@ import android.database.sqlite.SQLiteConstraintException;
 import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
 
 import com.android.notes.models.Note;
+import com.android.notes.models.NoteSearchResult;
+import com.android.notes.models.NoteSummary;
+import com.android.notes.persistence.NoteContentCodec;
 import com.android.notes.util.LiveDataTestUtil;
 import com.android.notes.util.TestUtil;
 
@@ -22,7 +25,7 @@ public class NoteDaoTest extends NoteDatabaseTest {
 
     public static final String TEST_TITLE = "This is a test title";
     public static final String TEST_CONTENT = "This is some test content";
-    public static final String TEST_TIMESTAMP = "08-2018";
+    public static final long TEST_TIMESTAMP = 1533081600000L; // 08-2018
 
     @Rule
     public InstantTaskExecutorRule rule = new InstantTaskExecutorRule();
@@ -141,4 +144,121 @@ public class NoteDaoTest extends NoteDatabaseTest {
         note.setTitle(null);
         getNoteDao().updateNote(note).blockingGet();
     }
+
+    /*
+    * Insert notes, read them back one keyset page at a time*/
+    @Test
+    public void insertReadKeysetPages() throws Exception{
+        getNoteDao().insertNote(new Note(TestUtil.TEST_NOTE_1)).blockingGet();
+        getNoteDao().insertNote(new Note(TestUtil.TEST_NOTE_2)).blockingGet();
+        getNoteDao().insertNote(new Note(TestUtil.TEST_NOTE_1)).blockingGet();
+
+        //first page
+        List<Note> firstPage = getNoteDao().getNotesAfter(0, 2).blockingGet();
+        assertEquals(2, firstPage.size());
+        assertEquals(TestUtil.TEST_NOTE_1.getTitle(), firstPage.get(0).getTitle());
+        assertEquals(TestUtil.TEST_NOTE_2.getTitle(), firstPage.get(1).getTitle());
+
+        //second page starts after the last id of the first one
+        List<Note> secondPage = getNoteDao().getNotesAfter(firstPage.get(1).getId(), 2).blockingGet();
+        assertEquals(1, secondPage.size());
+        assertTrue(secondPage.get(0).getId() > firstPage.get(1).getId());
+
+        //nothing after the last note
+        List<Note> emptyPage = getNoteDao().getNotesAfter(secondPage.get(0).getId(), 2).blockingGet();
+        assertEquals(0, emptyPage.size());
+    }
+
+    /*
+    * Insert notes, full-text search by title and content*/
+    @Test
+    public void insertSearch() throws Exception{
+        getNoteDao().insertNote(new Note(TestUtil.TEST_NOTE_1)).blockingGet();
+        getNoteDao().insertNote(new Note(TestUtil.TEST_NOTE_2)).blockingGet();
+
+        //content match
+        List<NoteSearchResult> results = getNoteDao().search("garbage*", 10).blockingFirst();
+        assertEquals(1, results.size());
+        assertEquals(TestUtil.TEST_NOTE_1.getTitle(), results.get(0).getTitle());
+        assertTrue(results.get(0).getSnippet().contains("[garbage]"));
+        assertNotNull(results.get(0).getMatchInfo());
+
+        //title and content match
+        results = getNoteDao().search("anniversary*", 10).blockingFirst();
+        assertEquals(1, results.size());
+        assertEquals(TestUtil.TEST_NOTE_2.getTitle(), results.get(0).getTitle());
+
+        //no match
+        results = getNoteDao().search("birthday*", 10).blockingFirst();
+        assertEquals(0, results.size());
+    }
+
+    /*
+    * Insert notes, read them by modified time range and most recent first*/
+    @Test
+    public void insertReadByTimestamp() throws Exception{
+        Note older = new Note(TestUtil.TEST_NOTE_1);
+        older.setTimestamp(TEST_TIMESTAMP);
+        getNoteDao().insertNote(older).blockingGet();
+        getNoteDao().insertNote(new Note(TestUtil.TEST_NOTE_1)).blockingGet();
+        getNoteDao().insertNote(new Note(TestUtil.TEST_NOTE_2)).blockingGet();
+
+        //range
+        List<NoteSummary> inRange = getNoteDao().getNoteSummariesModifiedBetween(
+                TestUtil.TIMESTAMP_1, TestUtil.TIMESTAMP_2, NoteSummary.PREVIEW_LENGTH).blockingFirst();
+        assertEquals(2, inRange.size());
+        assertEquals(TestUtil.TIMESTAMP_2, inRange.get(0).getTimestamp());
+        assertEquals(TestUtil.TIMESTAMP_1, inRange.get(1).getTimestamp());
+
+        //most recent
+        List<NoteSummary> recent = getNoteDao().getRecentNoteSummaries(1, NoteSummary.PREVIEW_LENGTH).blockingFirst();
+        assertEquals(1, recent.size());
+        assertEquals(TestUtil.TEST_NOTE_2.getTitle(), recent.get(0).getTitle());
+    }
+
+    /*
+    * Insert a compressed note, read it back and decode it*/
+    @Test
+    public void insertReadCompressed() throws Exception{
+        StringBuilder content = new StringBuilder();
+        while(content.length() < NoteContentCodec.DEFAULT_THRESHOLD_CHARS){
+            content.append(TEST_CONTENT);
+        }
+        Note note = new Note(TEST_TITLE, content.toString(), TEST_TIMESTAMP);
+        NoteContentCodec codec = new NoteContentCodec(NoteContentCodec.DEFAULT_THRESHOLD_CHARS);
+
+        int id = (int) (long) getNoteDao().insertNote(codec.encode(note)).blockingGet();
+
+        //stored deflated, content column empty
+        Note stored = getNoteDao().getNoteById(id).blockingGet();
+        assertNull(stored.getContent());
+        assertNotNull(stored.getContentDeflated());
+        assertTrue(stored.getContentDeflated().length < content.length());
+
+        //decoded
+        assertEquals(content.toString(), NoteContentCodec.decode(stored).getContent());
+        assertNull(stored.getContentDeflated());
+    }
+
+    /*
+    * Insert a compressed note, full-text search a word past the start of it and read its preview*/
+    @Test
+    public void insertSearchCompressed() throws Exception{
+        StringBuilder content = new StringBuilder();
+        while(content.length() < NoteContentCodec.DEFAULT_THRESHOLD_CHARS){
+            content.append(TEST_CONTENT).append(' ');
+        }
+        content.append("zebra");
+        NoteContentCodec codec = new NoteContentCodec(NoteContentCodec.DEFAULT_THRESHOLD_CHARS);
+        getNoteDao().insertNote(codec.encode(new Note(TEST_TITLE, content.toString(), TEST_TIMESTAMP))).blockingGet();
+
+        //content match, from search_text
+        List<NoteSearchResult> results = getNoteDao().search("zebra*", 10).blockingFirst();
+        assertEquals(1, results.size());
+        assertEquals(TEST_TITLE, results.get(0).getTitle());
+
+        //preview from the start of the content
+        List<NoteSummary> recent = getNoteDao().getRecentNoteSummaries(1, NoteSummary.PREVIEW_LENGTH).blockingFirst();
+        assertEquals(content.substring(0, NoteSummary.PREVIEW_LENGTH), recent.get(0).getPreview());
+    }
 }
@@ -5,8 +5,10 @@ import android.app.Application;
 import androidx.room.Room;
 import androidx.test.core.app.ApplicationProvider;
 
+import com.android.notes.persistence.NoteChunkDao;
 import com.android.notes.persistence.NoteDao;
 import com.android.notes.persistence.NoteDatabase;
+import com.android.notes.persistence.NoteRevisionDao;
 
 import org.junit.After;
 import org.junit.Before;
@@ -16,10 +18,22 @@ public abstract class NoteDatabaseTest {
     //system under test
     private NoteDatabase noteDatabase;
 
+    public NoteDatabase getNoteDatabase(){
+        return noteDatabase;
+    }
+
     public NoteDao getNoteDao(){
         return noteDatabase.getNoteDao();
     }
 
+    public NoteChunkDao getNoteChunkDao(){
+        return noteDatabase.getNoteChunkDao();
+    }
+
+    public NoteRevisionDao getNoteRevisionDao(){
+        return noteDatabase.getNoteRevisionDao();
+    }
+
     @Before
     public  void init(){
         noteDatabase = Room.inMemoryDatabaseBuilder(
@@ -0,0 +1,224 @@
+package com.android.notes;
+
+import android.database.Cursor;
+
+import com.android.notes.models.Note;
+import com.android.notes.models.NoteRevision;
+import com.android.notes.models.NoteRevisionInfo;
+import com.android.notes.persistence.NoteContentCodec;
+import com.android.notes.persistence.NoteRevisionDao;
+import com.android.notes.util.TestUtil;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class NoteRevisionDaoTest extends NoteDatabaseTest {
+
+    private int insertNote() throws Exception{
+        return getNoteDao().insertNote(new Note(TestUtil.TEST_NOTE_1)).blockingGet().intValue();
+    }
+
+    // content of revision "revision", a few words changed every time
+    private static String contentOf(int revision){
+        return "It's garbage day tomorrow. " + revision + " bags, take them out before " + (revision % 12 + 1) + " am.";
+    }
+
+    /*
+    * Add revisions, rebuild each of them*/
+    @Test
+    public void addRevisions_rebuildEveryRevision() throws Exception{
+        int id = insertNote();
+        int count = NoteRevisionDao.SNAPSHOT_INTERVAL * 2 + 3;
+
+        for(int i = 1; i <= count; i++){
+            getNoteRevisionDao().addRevision(id, "title " + i, contentOf(i), TestUtil.TIMESTAMP_1 + i);
+        }
+
+        for(int i = 1; i <= count; i++){
+            NoteRevision revision = getNoteRevisionDao().getRevision(id, i);
+            assertNotNull(revision);
+            assertTrue(revision.isSnapshot());
+            assertEquals("title " + i, revision.getTitle());
+            assertEquals(contentOf(i), revision.getContent());
+            assertEquals(TestUtil.TIMESTAMP_1 + i, revision.getTimestamp());
+        }
+        assertNull(getNoteRevisionDao().getRevision(id, count + 1));
+    }
+
+    /*
+    * Revisions between snapshots are stored as deltas*/
+    @Test
+    public void addRevisions_snapshotEveryInterval() throws Exception{
+        int id = insertNote();
+
+        for(int i = 1; i <= NoteRevisionDao.SNAPSHOT_INTERVAL + 1; i++){
+            NoteRevision added = getNoteRevisionDao().addRevision(id, "title", contentOf(i), TestUtil.TIMESTAMP_1);
+
+            boolean snapshot = i == 1 || i == NoteRevisionDao.SNAPSHOT_INTERVAL + 1;
+            assertEquals("revision " + i, snapshot, added.isSnapshot());
+        }
+    }
+
+    /*
+    * Same title and content as the last revision, nothing added*/
+    @Test
+    public void addRevision_unchanged_returnNull() throws Exception{
+        int id = insertNote();
+        getNoteRevisionDao().addRevision(id, "title", "content", TestUtil.TIMESTAMP_1);
+
+        assertNull(getNoteRevisionDao().addRevision(id, "title", "content", TestUtil.TIMESTAMP_2));
+
+        List<NoteRevisionInfo> revisions = getNoteRevisionDao().observeRevisions(id).blockingFirst();
+        assertEquals(1, revisions.size());
+    }
+
+    /*
+    * Add revisions keeping the latest one between saves, every revision is rebuilt the same.
+    * A latest revision that isn't the latest anymore is ignored*/
+    @Test
+    public void addRevision_latestRevisions_usedWhileCurrent() throws Exception{
+        int id = insertNote();
+        final NoteRevision[] kept = new NoteRevision[1];
+        NoteRevisionDao.LatestRevisions latestRevisions = new NoteRevisionDao.LatestRevisions() {
+            @Override
+            public NoteRevision get(int noteId) {
+                return kept[0];
+            }
+
+            @Override
+            public void put(NoteRevision latest) {
+                kept[0] = latest;
+            }
+        };
+        int count = NoteRevisionDao.SNAPSHOT_INTERVAL + 3;
+        for(int i = 1; i <= count; i++){
+            getNoteRevisionDao().addRevision(id, "title", contentOf(i), TestUtil.TIMESTAMP_1 + i, latestRevisions);
+            assertEquals(contentOf(i), kept[0].getContent());
+        }
+        // stale: same revision number, from another time
+        kept[0] = NoteRevision.snapshot(id, count, TestUtil.TIMESTAMP_2, "title", "stale");
+        getNoteRevisionDao().addRevision(id, "title", contentOf(count + 1), TestUtil.TIMESTAMP_1 + count + 1, latestRevisions);
+
+        for(int i = 1; i <= count + 1; i++){
+            assertEquals(contentOf(i), getNoteRevisionDao().getRevision(id, i).getContent());
+        }
+    }
+
+    /*
+    * Add the revisions of several notes at once, unchanged notes get none*/
+    @Test
+    public void addRevisions_batch() throws Exception{
+        int first = insertNote();
+        int second = insertNote();
+        getNoteRevisionDao().addRevision(second, "title", "content", TestUtil.TIMESTAMP_1);
+
+        List<NoteRevision> added = getNoteRevisionDao().addRevisions(Arrays.asList(
+                new Note(first, "title", "first", TestUtil.TIMESTAMP_2),
+                new Note(second, "title", "content", TestUtil.TIMESTAMP_2)
+        ), NoteRevisionDao.NO_LATEST_REVISIONS);
+
+        assertEquals(1, added.size());
+        assertEquals(first, added.get(0).getNoteId());
+        assertEquals("first", getNoteRevisionDao().getRevision(first, 1).getContent());
+        assertEquals(1, getNoteRevisionDao().observeRevisions(second).blockingFirst().size());
+    }
+
+    /*
+    * Many revisions a day apart, old deltas are compacted away and recent revisions stay complete*/
+    @Test
+    public void compact_keepRecentRevisions() throws Exception{
+        int id = insertNote();
+        int count = NoteRevisionDao.KEEP_RECENT_REVISIONS + NoteRevisionDao.SNAPSHOT_INTERVAL * 2 + 5;
+        for(int i = 1; i <= count; i++){
+            getNoteRevisionDao().addRevision(id, "title", contentOf(i), TestUtil.TIMESTAMP_1 + i * NoteRevisionDao.THIN_INTERVAL_MILLIS);
+        }
+
+        int deleted = getNoteRevisionDao().compact(id, 0);
+
+        int keepFrom = count - NoteRevisionDao.KEEP_RECENT_REVISIONS + 1;
+        for(int i = keepFrom; i <= count; i++){
+            assertEquals(contentOf(i), getNoteRevisionDao().getRevision(id, i).getContent());
+        }
+        // deltas before the kept revisions are gone, older snapshots stay
+        assertTrue(deleted > 0);
+        assertNull(getNoteRevisionDao().getRevision(id, 2));
+        assertEquals(contentOf(1), getNoteRevisionDao().getRevision(id, 1).getContent());
+        List<NoteRevisionInfo> revisions = getNoteRevisionDao().observeRevisions(id).blockingFirst();
+        assertEquals(count, revisions.get(0).getRevision());
+    }
+
+    /*
+    * Old snapshots from the same day are thinned out to the last one of that day*/
+    @Test
+    public void compact_sameDaySnapshots_thinned() throws Exception{
+        int id = insertNote();
+        int count = NoteRevisionDao.KEEP_RECENT_REVISIONS + NoteRevisionDao.SNAPSHOT_INTERVAL * 2 + 5;
+        for(int i = 1; i <= count; i++){
+            getNoteRevisionDao().addRevision(id, "title", contentOf(i), TestUtil.TIMESTAMP_1);
+        }
+
+        getNoteRevisionDao().compact(id, 0);
+
+        int lastOld = NoteRevisionDao.SNAPSHOT_INTERVAL * 2 + 1;
+        assertNull(getNoteRevisionDao().getRevision(id, 1));
+        assertNull(getNoteRevisionDao().getRevision(id, NoteRevisionDao.SNAPSHOT_INTERVAL + 1));
+        assertEquals(contentOf(lastOld), getNoteRevisionDao().getRevision(id, lastOld).getContent());
+        assertEquals(contentOf(count), getNoteRevisionDao().getRevision(id, count).getContent());
+    }
+
+    /*
+    * Snapshots past the codec's threshold are stored deflated and rebuilt the same*/
+    @Test
+    public void addRevision_codec_snapshotDeflated() throws Exception{
+        int id = insertNote();
+        NoteContentCodec codec = new NoteContentCodec(8);
+
+        getNoteRevisionDao().addRevision(id, "title", contentOf(1), TestUtil.TIMESTAMP_1, NoteRevisionDao.NO_LATEST_REVISIONS, codec);
+        getNoteRevisionDao().addRevision(id, "title", contentOf(2), TestUtil.TIMESTAMP_2, NoteRevisionDao.NO_LATEST_REVISIONS, codec);
+
+        Cursor cursor = getNoteDatabase().query("SELECT content, content_deflated FROM note_revisions WHERE note_id = ? AND revision = 1",
+                new Object[]{id});
+        try{
+            assertTrue(cursor.moveToFirst());
+            assertTrue(cursor.isNull(0));
+            assertNotNull(cursor.getBlob(1));
+        }finally {
+            cursor.close();
+        }
+        assertEquals(contentOf(1), getNoteRevisionDao().getRevision(id, 1).getContent());
+        assertEquals(contentOf(2), getNoteRevisionDao().getRevision(id, 2).getContent());
+    }
+
+    /*
+    * Compaction also drops snapshots past the retention time*/
+    @Test
+    public void compact_oldSnapshots_deleted() throws Exception{
+        int id = insertNote();
+        int count = NoteRevisionDao.KEEP_RECENT_REVISIONS + NoteRevisionDao.SNAPSHOT_INTERVAL * 2;
+        for(int i = 1; i <= count; i++){
+            getNoteRevisionDao().addRevision(id, "title", contentOf(i), TestUtil.TIMESTAMP_1);
+        }
+
+        getNoteRevisionDao().compactAll(TestUtil.TIMESTAMP_2);
+
+        List<NoteRevisionInfo> revisions = getNoteRevisionDao().observeRevisions(id).blockingFirst();
+        assertEquals(NoteRevisionDao.KEEP_RECENT_REVISIONS, revisions.size());
+    }
+
+    /*
+    * Delete a note, its history is deleted with it*/
+    @Test
+    public void deleteNote_revisionsDeleted() throws Exception{
+        int id = insertNote();
+        getNoteRevisionDao().addRevision(id, "title", "content", TestUtil.TIMESTAMP_1);
+        Note note = getNoteDao().getNoteById(id).blockingGet();
+
+        getNoteDao().deleteNote(note).blockingGet();
+
+        assertTrue(getNoteRevisionDao().observeRevisions(id).blockingFirst().isEmpty());
+    }
+}
@@ -0,0 +1,26 @@
+package com.android.notes.benchmark;
+
+import java.io.File;
+
+// switches and defaults shared by the benchmarks. set from app/build.gradle (testOptions.unitTests)
+public class BenchmarkConfig {
+
+    // table sizes every benchmark is run at
+    public static final int[] ROW_COUNTS = {1_000, 10_000, 100_000};
+
+    public static final int WARMUP_ITERATIONS = 2;
+    public static final int MEASURED_ITERATIONS = 5;
+
+    private static final String ENABLED_PROPERTY = "notes.benchmark";
+    private static final String OUTPUT_PROPERTY = "notes.benchmark.output";
+    private static final String DEFAULT_OUTPUT = "build/benchmark-results";
+
+    // benchmarks are slow, they only run with -Pbenchmark
+    public static boolean isEnabled(){
+        return Boolean.parseBoolean(System.getProperty(ENABLED_PROPERTY));
+    }
+
+    public static File getOutputDirectory(){
+        return new File(System.getProperty(OUTPUT_PROPERTY, DEFAULT_OUTPUT));
+    }
+}
@@ -0,0 +1,73 @@
+package com.android.notes.benchmark;
+
+import com.android.notes.models.Note;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// fixed-seed note lists for the benchmarks, so every run works on the same data
+public class BenchmarkData {
+
+    public static final int CONTENT_LENGTH = 512;
+
+    private static final long SEED = 42;
+    private static final String WORDS = "the quick brown fox jumps over the lazy dog garbage day anniversary gift ";
+
+    public static List<Note> createNotes(int count){
+        return createNotes(count, CONTENT_LENGTH);
+    }
+
+    public static List<Note> createNotes(int count, int contentLength){
+        Random random = new Random(SEED);
+        List<Note> notes = new ArrayList<>(count);
+        long timestamp = 1556668800000L;
+        for(int i = 0; i < count; i++){
+            notes.add(new Note("Note #" + i, createContent(random, contentLength), timestamp + i * 60_000L));
+        }
+        return notes;
+    }
+
+    /*
+    * a note collection shaped like a real one: mostly short notes, some pages long and
+    * a few very long ones (pasted articles, logs). same seed, same corpus.*/
+    public static List<Note> createCorpus(int count){
+        Random random = new Random(SEED);
+        List<Note> notes = new ArrayList<>(count);
+        long timestamp = 1556668800000L;
+        for(int i = 0; i < count; i++){
+            int kind = random.nextInt(100);
+            int length;
+            if(kind < 70){
+                length = 64 + random.nextInt(448);
+            }else if(kind < 95){
+                length = 1024 + random.nextInt(3 * 1024);
+            }else{
+                length = 8 * 1024 + random.nextInt(56 * 1024);
+            }
+            notes.add(new Note("Note #" + i, createContent(random, length), timestamp + i * 60_000L));
+        }
+        return notes;
+    }
+
+    private static String createContent(Random random, int length){
+        StringBuilder content = new StringBuilder(length);
+        while(content.length() < length){
+            int start = random.nextInt(WORDS.length());
+            content.append(WORDS, start, Math.min(WORDS.length(), start + 1 + random.nextInt(20)));
+        }
+        content.setLength(length);
+        return content.toString();
+    }
+
+    // copies of "notes" with the ids returned by the insert
+    public static List<Note> withIds(List<Note> notes, List<Long> rowIds){
+        List<Note> inserted = new ArrayList<>(notes.size());
+        for(int i = 0; i < notes.size(); i++){
+            Note note = new Note(notes.get(i));
+            note.setId((int) (long) rowIds.get(i));
+            inserted.add(note);
+        }
+        return inserted;
+    }
+}
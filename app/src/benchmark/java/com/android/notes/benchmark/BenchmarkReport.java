@@ -0,0 +1,60 @@
+package com.android.notes.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+// collects the results of a benchmark suite and writes them as json to build/benchmark-results/<suite>.json
+public class BenchmarkReport {
+
+    private final String suite;
+    private final List<BenchmarkResult> results = new ArrayList<>();
+    private final List<String> sizes = new ArrayList<>();
+
+    public BenchmarkReport(String suite) {
+        this.suite = suite;
+    }
+
+    public void add(BenchmarkResult result){
+        results.add(result);
+        System.out.println(result);
+    }
+
+    // a size measurement (database file, cache...), reported next to the timings
+    public void addSize(String name, int rows, long bytes){
+        sizes.add("{\"name\":\"" + name + "\",\"rows\":" + rows + ",\"bytes\":" + bytes + "}");
+        System.out.println(name + " (" + rows + " rows): " + bytes + " bytes");
+    }
+
+    public List<BenchmarkResult> getResults() {
+        return results;
+    }
+
+    public File write() throws IOException {
+        File directory = BenchmarkConfig.getOutputDirectory();
+        if(!directory.isDirectory() && !directory.mkdirs()){
+            throw new IOException("Can't create " + directory);
+        }
+        File file = new File(directory, suite + ".json");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), Charset.forName("UTF-8"))) {
+            writer.write("{\"suite\":\"" + suite + "\",\"timestamp\":" + System.currentTimeMillis() + ",\"results\":[\n");
+            for(int i = 0; i < results.size(); i++){
+                writer.write(results.get(i).toJson());
+                writer.write(i < results.size() - 1 ? ",\n" : "\n");
+            }
+            writer.write("],\"sizes\":[\n");
+            for(int i = 0; i < sizes.size(); i++){
+                writer.write(sizes.get(i));
+                writer.write(i < sizes.size() - 1 ? ",\n" : "\n");
+            }
+            writer.write("]}\n");
+        }
+        System.out.println("benchmark results: " + file.getAbsolutePath());
+        return file;
+    }
+}
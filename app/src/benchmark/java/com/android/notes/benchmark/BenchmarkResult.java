@@ -0,0 +1,84 @@
+package com.android.notes.benchmark;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+// timings of one benchmark at one table size
+public class BenchmarkResult {
+
+    private final String name;
+    private final int rows;
+    private final int opsPerIteration;
+    private final long[] samplesNanos;
+
+    public BenchmarkResult(String name, int rows, int opsPerIteration, long[] samplesNanos) {
+        this.name = name;
+        this.rows = rows;
+        this.opsPerIteration = opsPerIteration;
+        this.samplesNanos = samplesNanos.clone();
+        Arrays.sort(this.samplesNanos);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getOpsPerIteration() {
+        return opsPerIteration;
+    }
+
+    public int getIterations() {
+        return samplesNanos.length;
+    }
+
+    public double getMeanMillis(){
+        if(samplesNanos.length == 0){
+            return 0;
+        }
+        double total = 0;
+        for(long sample : samplesNanos){
+            total += sample;
+        }
+        return total / samplesNanos.length / 1_000_000.0;
+    }
+
+    public double getMinMillis(){
+        return samplesNanos.length == 0 ? 0 : samplesNanos[0] / 1_000_000.0;
+    }
+
+    // nearest-rank percentile, "percentile" in [0, 100]
+    public double getPercentileMillis(double percentile){
+        if(samplesNanos.length == 0){
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100.0 * samplesNanos.length);
+        int index = Math.min(samplesNanos.length - 1, Math.max(0, rank - 1));
+        return samplesNanos[index] / 1_000_000.0;
+    }
+
+    public double getOpsPerSecond(){
+        double meanMillis = getMeanMillis();
+        if(meanMillis == 0){
+            return 0;
+        }
+        return opsPerIteration / (meanMillis / 1000.0);
+    }
+
+    public String toJson(){
+        return String.format(Locale.ROOT,
+                "{\"name\":\"%s\",\"rows\":%d,\"opsPerIteration\":%d,\"iterations\":%d," +
+                        "\"meanMs\":%.4f,\"minMs\":%.4f,\"p50Ms\":%.4f,\"p95Ms\":%.4f,\"opsPerSecond\":%.2f}",
+                name, rows, opsPerIteration, getIterations(),
+                getMeanMillis(), getMinMillis(), getPercentileMillis(50), getPercentileMillis(95), getOpsPerSecond());
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%-40s rows=%-7d mean=%10.3fms p95=%10.3fms %12.1f ops/s",
+                name, rows, getMeanMillis(), getPercentileMillis(95), getOpsPerSecond());
+    }
+}
@@ -0,0 +1,46 @@
+package com.android.notes.benchmark;
+
+// minimal JMH-style loop: untimed setup, warmup iterations, then timed iterations
+public class BenchmarkRunner {
+
+    public interface Setup {
+        // runs before every iteration (warmup included), not timed
+        void run() throws Exception;
+    }
+
+    public interface Operation {
+        // the timed part of one iteration
+        void run() throws Exception;
+    }
+
+    public static final Setup NO_SETUP = new Setup() {
+        @Override
+        public void run() throws Exception {
+        }
+    };
+
+    public static BenchmarkResult measure(String name, int rows, int opsPerIteration,
+                                          Setup setup, Operation operation) throws Exception{
+        return measure(name, rows, opsPerIteration,
+                BenchmarkConfig.WARMUP_ITERATIONS, BenchmarkConfig.MEASURED_ITERATIONS,
+                setup, operation);
+    }
+
+    public static BenchmarkResult measure(String name, int rows, int opsPerIteration,
+                                          int warmupIterations, int measuredIterations,
+                                          Setup setup, Operation operation) throws Exception{
+        for(int i = 0; i < warmupIterations; i++){
+            setup.run();
+            operation.run();
+        }
+
+        long[] samples = new long[measuredIterations];
+        for(int i = 0; i < measuredIterations; i++){
+            setup.run();
+            long start = System.nanoTime();
+            operation.run();
+            samples[i] = System.nanoTime() - start;
+        }
+        return new BenchmarkResult(name, rows, opsPerIteration, samples);
+    }
+}
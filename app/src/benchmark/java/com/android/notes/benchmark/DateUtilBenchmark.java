@@ -0,0 +1,116 @@
+package com.android.notes.benchmark;
+
+import com.android.notes.util.DateUtil;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+/*
+* DateUtil.formatTimestamp/appendTimestamp against what they replaced (a SimpleDateFormat and a
+* Date per call): same output, time and bytes allocated per call.
+*
+* the parity check is cheap and always runs, the measurements only with -Pbenchmark. bytes are read
+* from the allocation counter of the current thread (com.sun.management.ThreadMXBean), skipped on
+* JVMs that don't have it.*/
+public class DateUtilBenchmark {
+
+    private static final int CALLS = 100_000;
+
+    // timestamps from 1970 to about 2100, in no particular order
+    private static long[] timestamps(int count){
+        Random random = new Random(42);
+        long[] timestamps = new long[count];
+        for(int i = 0; i < count; i++){
+            timestamps[i] = (long) (random.nextDouble() * 4_100_000_000_000L);
+        }
+        return timestamps;
+    }
+
+    private static String legacyFormat(long timestamp){
+        SimpleDateFormat dateFormat = new SimpleDateFormat(DateUtil.DATE_FORMAT);
+        return dateFormat.format(new Date(timestamp));
+    }
+
+    @Test
+    public void sameOutputAsSimpleDateFormat() throws Exception {
+        TimeZone defaultZone = TimeZone.getDefault();
+        try{
+            for(String zone : new String[]{"UTC", "Pacific/Kiritimati", "America/Los_Angeles"}){
+                TimeZone.setDefault(TimeZone.getTimeZone(zone));
+                for(long timestamp : timestamps(10_000)){
+                    String expected = legacyFormat(timestamp);
+                    assertEquals(zone + " " + timestamp, expected, DateUtil.formatTimestamp(timestamp));
+                    assertEquals(zone + " " + timestamp, expected,
+                            DateUtil.appendTimestamp(timestamp, new StringBuilder()).toString());
+                }
+            }
+        }finally {
+            TimeZone.setDefault(defaultZone);
+        }
+    }
+
+    @Test
+    public void formatCost() throws Exception {
+        assumeTrue(BenchmarkConfig.isEnabled());
+        BenchmarkReport report = new BenchmarkReport("DateUtil");
+        final long[] timestamps = timestamps(CALLS);
+        final String[] sink = new String[1];
+        final StringBuilder builder = new StringBuilder(16);
+
+        BenchmarkRunner.Operation legacy = new BenchmarkRunner.Operation() {
+            @Override
+            public void run() throws Exception {
+                for(long timestamp : timestamps){
+                    sink[0] = legacyFormat(timestamp);
+                }
+            }
+        };
+        BenchmarkRunner.Operation format = new BenchmarkRunner.Operation() {
+            @Override
+            public void run() throws Exception {
+                for(long timestamp : timestamps){
+                    sink[0] = DateUtil.formatTimestamp(timestamp);
+                }
+            }
+        };
+        BenchmarkRunner.Operation append = new BenchmarkRunner.Operation() {
+            @Override
+            public void run() throws Exception {
+                for(long timestamp : timestamps){
+                    builder.setLength(0);
+                    DateUtil.appendTimestamp(timestamp, builder);
+                }
+            }
+        };
+
+        report.add(BenchmarkRunner.measure("SimpleDateFormat per call", CALLS, CALLS, BenchmarkRunner.NO_SETUP, legacy));
+        report.add(BenchmarkRunner.measure("formatTimestamp", CALLS, CALLS, BenchmarkRunner.NO_SETUP, format));
+        report.add(BenchmarkRunner.measure("appendTimestamp", CALLS, CALLS, BenchmarkRunner.NO_SETUP, append));
+
+        if(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean){
+            report.addSize("SimpleDateFormat per call bytes/call", CALLS, bytesPerCall(legacy));
+            report.addSize("formatTimestamp bytes/call", CALLS, bytesPerCall(format));
+            report.addSize("appendTimestamp bytes/call", CALLS, bytesPerCall(append));
+        }
+        report.write();
+    }
+
+    // after a warm up run, so class loading and the thread locals aren't counted
+    private static long bytesPerCall(BenchmarkRunner.Operation operation) throws Exception{
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        operation.run();
+        long before = threads.getThreadAllocatedBytes(thread);
+        operation.run();
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+        return allocated / CALLS;
+    }
+}
@@ -0,0 +1,126 @@
+package com.android.notes.benchmark;
+
+import androidx.room.Room;
+import androidx.room.RoomDatabase;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.android.notes.models.Note;
+import com.android.notes.persistence.NoteContentCodec;
+import com.android.notes.persistence.NoteDao;
+import com.android.notes.persistence.NoteDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assume.assumeTrue;
+
+/*
+* plain vs compressed note content (NoteContentCodec) on the same corpus:
+* database file size, full-note reads (decoded) and inserts (encoded).
+* runs against a database file, not in memory, so the size on disk can be compared.*/
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class NoteCompressionBenchmark {
+
+    // the long notes of a big corpus take a while to generate and insert
+    private static final int[] ROW_COUNTS = {1_000, 10_000};
+    private static final int SINGLE_ROW_OPS = 1_000;
+    private static final int PAGE_SIZE = 50;
+
+    private File databaseFile;
+
+    @Before
+    public void init(){
+        assumeTrue(BenchmarkConfig.isEnabled());
+        databaseFile = ApplicationProvider.getApplicationContext().getDatabasePath("compression_benchmark.db");
+    }
+
+    @After
+    public void finish(){
+        if(databaseFile != null){
+            ApplicationProvider.getApplicationContext().deleteDatabase(databaseFile.getName());
+        }
+    }
+
+    @Test
+    public void compressionSizeAndReads() throws Exception {
+        BenchmarkReport report = new BenchmarkReport("NoteCompression");
+        for(int rows : ROW_COUNTS){
+            List<Note> corpus = BenchmarkData.createCorpus(rows);
+            runWithCodec(report, "plain", NoteContentCodec.DISABLED, corpus);
+            runWithCodec(report, "deflated", new NoteContentCodec(NoteContentCodec.DEFAULT_THRESHOLD_CHARS), corpus);
+        }
+        report.write();
+    }
+
+    private void runWithCodec(BenchmarkReport report, String mode, final NoteContentCodec codec, List<Note> corpus) throws Exception {
+        final int rows = corpus.size();
+        ApplicationProvider.getApplicationContext().deleteDatabase(databaseFile.getName());
+        NoteDatabase noteDatabase = Room.databaseBuilder(
+                ApplicationProvider.getApplicationContext(),
+                NoteDatabase.class,
+                databaseFile.getName()
+        )
+                // no -wal file, everything is in the database file when it's measured
+                .setJournalMode(RoomDatabase.JournalMode.TRUNCATE)
+                .allowMainThreadQueries()
+                .build();
+        try{
+            final NoteDao noteDao = noteDatabase.getNoteDao();
+            final List<Note> inserted = BenchmarkData.withIds(corpus, noteDao.insertNotes(codec.encode(corpus)).blockingGet());
+            report.addSize("database file (" + mode + ")", rows, databaseFile.length());
+
+            final Random random = new Random(rows);
+            report.add(BenchmarkRunner.measure("getNoteById + decode (" + mode + ")", rows, SINGLE_ROW_OPS,
+                    BenchmarkRunner.NO_SETUP,
+                    new BenchmarkRunner.Operation() {
+                        @Override
+                        public void run() throws Exception {
+                            for(int i = 0; i < SINGLE_ROW_OPS; i++){
+                                int id = inserted.get(random.nextInt(inserted.size())).getId();
+                                NoteContentCodec.decode(noteDao.getNoteById(id).blockingGet());
+                            }
+                        }
+                    }));
+
+            report.add(BenchmarkRunner.measure("getNotesAfter + decode, keyset scan (" + mode + ")", rows, rows,
+                    BenchmarkRunner.NO_SETUP,
+                    new BenchmarkRunner.Operation() {
+                        @Override
+                        public void run() throws Exception {
+                            int afterId = 0;
+                            List<Note> page;
+                            do {
+                                page = NoteContentCodec.decode(noteDao.getNotesAfter(afterId, PAGE_SIZE).blockingGet());
+                                if(!page.isEmpty()){
+                                    afterId = page.get(page.size() - 1).getId();
+                                }
+                            } while(page.size() == PAGE_SIZE);
+                        }
+                    }));
+
+            report.add(BenchmarkRunner.measure("insertNote + encode (" + mode + ")", rows, SINGLE_ROW_OPS,
+                    BenchmarkRunner.NO_SETUP,
+                    new BenchmarkRunner.Operation() {
+                        @Override
+                        public void run() throws Exception {
+                            for(int i = 0; i < SINGLE_ROW_OPS; i++){
+                                Note note = new Note(inserted.get(random.nextInt(inserted.size())));
+                                note.setId(0);
+                                noteDao.insertNote(codec.encode(note)).blockingGet();
+                            }
+                        }
+                    }));
+        }finally {
+            noteDatabase.close();
+        }
+    }
+}
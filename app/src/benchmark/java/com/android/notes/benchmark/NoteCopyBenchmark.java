@@ -0,0 +1,64 @@
+package com.android.notes.benchmark;
+
+import android.os.Parcel;
+
+import com.android.notes.models.Note;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+
+import static org.junit.Assume.assumeTrue;
+
+/*
+* cost of copying notes (copy constructor, used on every edit) and of a parcel round trip
+* (what passing a note in an intent costs), for every note of a list of each size.*/
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class NoteCopyBenchmark {
+
+    @Before
+    public void init(){
+        assumeTrue(BenchmarkConfig.isEnabled());
+    }
+
+    @Test
+    public void noteCopyCost() throws Exception {
+        BenchmarkReport report = new BenchmarkReport("NoteCopy");
+        for(final int rows : BenchmarkConfig.ROW_COUNTS){
+            final List<Note> notes = BenchmarkData.createNotes(rows);
+            final Note[] sink = new Note[1];
+
+            report.add(BenchmarkRunner.measure("copy constructor", rows, rows,
+                    BenchmarkRunner.NO_SETUP,
+                    new BenchmarkRunner.Operation() {
+                        @Override
+                        public void run() throws Exception {
+                            for(Note note : notes){
+                                sink[0] = new Note(note);
+                            }
+                        }
+                    }));
+
+            report.add(BenchmarkRunner.measure("parcel round trip", rows, rows,
+                    BenchmarkRunner.NO_SETUP,
+                    new BenchmarkRunner.Operation() {
+                        @Override
+                        public void run() throws Exception {
+                            for(Note note : notes){
+                                Parcel parcel = Parcel.obtain();
+                                note.writeToParcel(parcel, 0);
+                                parcel.setDataPosition(0);
+                                sink[0] = Note.CREATOR.createFromParcel(parcel);
+                                parcel.recycle();
+                            }
+                        }
+                    }));
+        }
+        report.write();
+    }
+}
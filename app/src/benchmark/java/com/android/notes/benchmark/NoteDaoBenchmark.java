@@ -0,0 +1,166 @@
+package com.android.notes.benchmark;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.android.notes.models.Note;
+import com.android.notes.persistence.NoteDao;
+import com.android.notes.persistence.NoteDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assume.assumeTrue;
+
+/*
+* NoteDao throughput against an in-memory room database (robolectric sqlite),
+* at every size in BenchmarkConfig.ROW_COUNTS. single-row operations run
+* SINGLE_ROW_OPS times against a table of that size, batch operations touch every row.*/
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class NoteDaoBenchmark {
+
+    private static final int SINGLE_ROW_OPS = 1_000;
+    private static final int PAGE_SIZE = 50;
+
+    private NoteDatabase noteDatabase;
+    private NoteDao noteDao;
+
+    @Before
+    public void init(){
+        assumeTrue(BenchmarkConfig.isEnabled());
+        noteDatabase = Room.inMemoryDatabaseBuilder(
+                ApplicationProvider.getApplicationContext(),
+                NoteDatabase.class
+        ).allowMainThreadQueries().build();
+        noteDao = noteDatabase.getNoteDao();
+    }
+
+    @After
+    public void finish(){
+        if(noteDatabase != null){
+            noteDatabase.close();
+        }
+    }
+
+    @Test
+    public void noteDaoThroughput() throws Exception {
+        BenchmarkReport report = new BenchmarkReport("NoteDao");
+        for(int rows : BenchmarkConfig.ROW_COUNTS){
+            runAtSize(report, rows);
+        }
+        report.write();
+    }
+
+    private void runAtSize(BenchmarkReport report, final int rows) throws Exception {
+        final List<Note> notes = BenchmarkData.createNotes(rows);
+        final int singleRowOps = Math.min(rows, SINGLE_ROW_OPS);
+        final Random random = new Random(rows);
+
+        // batch insert of the whole table in one transaction
+        report.add(BenchmarkRunner.measure("insertNotes (batch)", rows, rows,
+                new BenchmarkRunner.Setup() {
+                    @Override
+                    public void run() throws Exception {
+                        noteDatabase.clearAllTables();
+                    }
+                },
+                new BenchmarkRunner.Operation() {
+                    @Override
+                    public void run() throws Exception {
+                        noteDao.insertNotes(notes).blockingGet();
+                    }
+                }));
+
+        // everything below runs against a full table
+        noteDatabase.clearAllTables();
+        final List<Note> inserted = BenchmarkData.withIds(notes, noteDao.insertNotes(notes).blockingGet());
+
+        report.add(BenchmarkRunner.measure("insertNote (transaction per row)", rows, singleRowOps,
+                BenchmarkRunner.NO_SETUP,
+                new BenchmarkRunner.Operation() {
+                    @Override
+                    public void run() throws Exception {
+                        for(int i = 0; i < singleRowOps; i++){
+                            noteDao.insertNote(new Note(notes.get(i))).blockingGet();
+                        }
+                    }
+                }));
+
+        report.add(BenchmarkRunner.measure("updateNote (transaction per row)", rows, singleRowOps,
+                BenchmarkRunner.NO_SETUP,
+                new BenchmarkRunner.Operation() {
+                    @Override
+                    public void run() throws Exception {
+                        for(int i = 0; i < singleRowOps; i++){
+                            Note note = inserted.get(random.nextInt(inserted.size()));
+                            note.setTimestamp(note.getTimestamp() + 1);
+                            noteDao.updateNote(note).blockingGet();
+                        }
+                    }
+                }));
+
+        report.add(BenchmarkRunner.measure("updateNotes (batch)", rows, rows,
+                BenchmarkRunner.NO_SETUP,
+                new BenchmarkRunner.Operation() {
+                    @Override
+                    public void run() throws Exception {
+                        noteDao.updateNotes(inserted).blockingGet();
+                    }
+                }));
+
+        report.add(BenchmarkRunner.measure("getNoteById", rows, singleRowOps,
+                BenchmarkRunner.NO_SETUP,
+                new BenchmarkRunner.Operation() {
+                    @Override
+                    public void run() throws Exception {
+                        for(int i = 0; i < singleRowOps; i++){
+                            noteDao.getNoteById(inserted.get(random.nextInt(inserted.size())).getId()).blockingGet();
+                        }
+                    }
+                }));
+
+        report.add(BenchmarkRunner.measure("getNotesAfter (keyset scan)", rows, rows,
+                BenchmarkRunner.NO_SETUP,
+                new BenchmarkRunner.Operation() {
+                    @Override
+                    public void run() throws Exception {
+                        int afterId = 0;
+                        List<Note> page;
+                        do {
+                            page = noteDao.getNotesAfter(afterId, PAGE_SIZE).blockingGet();
+                            if(!page.isEmpty()){
+                                afterId = page.get(page.size() - 1).getId();
+                            }
+                        } while(page.size() == PAGE_SIZE);
+                    }
+                }));
+
+        // batch delete of the whole table, refilled before every iteration
+        final AtomicReference<List<Note>> toDelete = new AtomicReference<>();
+        report.add(BenchmarkRunner.measure("deleteNotes (batch)", rows, rows,
+                new BenchmarkRunner.Setup() {
+                    @Override
+                    public void run() throws Exception {
+                        noteDatabase.clearAllTables();
+                        toDelete.set(BenchmarkData.withIds(notes, noteDao.insertNotes(notes).blockingGet()));
+                    }
+                },
+                new BenchmarkRunner.Operation() {
+                    @Override
+                    public void run() throws Exception {
+                        noteDao.deleteNotes(toDelete.get()).blockingGet();
+                    }
+                }));
+
+        noteDatabase.clearAllTables();
+    }
+}
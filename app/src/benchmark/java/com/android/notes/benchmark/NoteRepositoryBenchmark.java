@@ -0,0 +1,81 @@
+package com.android.notes.benchmark;
+
+import com.android.notes.models.Note;
+import com.android.notes.persistence.NoteChunkDao;
+import com.android.notes.persistence.NoteDao;
+import com.android.notes.persistence.NoteRevisionDao;
+import com.android.notes.repository.NoteRepository;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import io.reactivex.Maybe;
+import io.reactivex.Single;
+
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/*
+* overhead of the NoteRepository rx chains on their own: the dao is a mock that answers
+* immediately, so what's measured is validation, operators and the scheduler hop per call.*/
+public class NoteRepositoryBenchmark {
+
+    private NoteRepository noteRepository;
+
+    @Before
+    public void init() throws Exception {
+        assumeTrue(BenchmarkConfig.isEnabled());
+        NoteDao noteDao = mock(NoteDao.class);
+        when(noteDao.insertNote(any(Note.class))).thenReturn(Single.just(1L));
+        when(noteDao.updateNote(any(Note.class))).thenReturn(Single.just(1));
+        when(noteDao.getNoteById(anyInt())).thenReturn(Maybe.just(new Note(1, "Title", "Content", 0)));
+        noteRepository = new NoteRepository(noteDao, mock(NoteChunkDao.class), mock(NoteRevisionDao.class));
+    }
+
+    @Test
+    public void noteRepositoryChainOverhead() throws Exception {
+        BenchmarkReport report = new BenchmarkReport("NoteRepository");
+        for(final int rows : BenchmarkConfig.ROW_COUNTS){
+            final List<Note> notes = BenchmarkData.createNotes(rows);
+
+            report.add(BenchmarkRunner.measure("insertNote chain", rows, rows,
+                    BenchmarkRunner.NO_SETUP,
+                    new BenchmarkRunner.Operation() {
+                        @Override
+                        public void run() throws Exception {
+                            for(Note note : notes){
+                                noteRepository.insertNote(note).blockingFirst();
+                            }
+                        }
+                    }));
+
+            report.add(BenchmarkRunner.measure("updateNote chain", rows, rows,
+                    BenchmarkRunner.NO_SETUP,
+                    new BenchmarkRunner.Operation() {
+                        @Override
+                        public void run() throws Exception {
+                            for(Note note : notes){
+                                noteRepository.updateNote(note).blockingFirst();
+                            }
+                        }
+                    }));
+
+            report.add(BenchmarkRunner.measure("getNoteById chain", rows, rows,
+                    BenchmarkRunner.NO_SETUP,
+                    new BenchmarkRunner.Operation() {
+                        @Override
+                        public void run() throws Exception {
+                            for(int i = 0; i < rows; i++){
+                                noteRepository.getNoteById(1).blockingFirst();
+                            }
+                        }
+                    }));
+        }
+        report.write();
+    }
+}
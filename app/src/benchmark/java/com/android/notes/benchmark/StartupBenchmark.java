@@ -0,0 +1,165 @@
+package com.android.notes.benchmark;
+
+import android.app.Application;
+import android.content.Context;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.android.notes.di.DaggerAppComponent;
+import com.android.notes.metrics.StartupTracer;
+import com.android.notes.models.Note;
+import com.android.notes.persistence.DatabaseProfile;
+import com.android.notes.persistence.DatabaseSchedulers;
+import com.android.notes.persistence.NoteDatabase;
+import com.android.notes.repository.NoteRepository;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+
+import static org.junit.Assume.assumeTrue;
+
+/*
+* cost of building the dagger graph (what BaseApplication.onCreate waits for on the main thread,
+* with the database and repository behind dagger.Lazy it doesn't create them).
+*
+* time to first data of a cold start: build the database object, open it, create the repository
+* and get the first page of notes, against a database file that already holds every row.
+* every iteration starts from a closed database, like a new process would.
+*
+* "cold" opens the database on the first query, like before DatabaseProfile.
+* "pre-initialized" opens it and warms it up first (BaseApplication.preInitialize), the first page
+* is then timed on its own: that's what the first screen waits for.
+* the phases of the last iteration are reported from a StartupTracer.*/
+@RunWith(RobolectricTestRunner.class)
+// a plain Application, BaseApplication would pre-initialize the app's own database in the background
+@Config(sdk = 28, application = Application.class)
+public class StartupBenchmark {
+
+    private static final String DATABASE_NAME = "startup_benchmark.db";
+    private static final int FIRST_PAGE_SIZE = NoteRepository.DEFAULT_PAGE_SIZE;
+
+    private Context context;
+    private DatabaseSchedulers databaseSchedulers;
+    private NoteDatabase noteDatabase;
+
+    @Before
+    public void init(){
+        assumeTrue(BenchmarkConfig.isEnabled());
+        context = ApplicationProvider.getApplicationContext();
+        databaseSchedulers = DatabaseSchedulers.create();
+    }
+
+    @After
+    public void finish(){
+        closeDatabase();
+        if(context != null){
+            context.deleteDatabase(DATABASE_NAME);
+        }
+    }
+
+    private NoteDatabase buildDatabase(){
+        return DatabaseProfile.DEFAULT.applyTo(Room.databaseBuilder(context, NoteDatabase.class, DATABASE_NAME))
+                .setQueryExecutor(databaseSchedulers.getReaderExecutor())
+                .setTransactionExecutor(databaseSchedulers.getWriterExecutor())
+                .build();
+    }
+
+    private void closeDatabase(){
+        if(noteDatabase != null){
+            noteDatabase.close();
+            noteDatabase = null;
+        }
+    }
+
+    private NoteRepository createRepository(NoteDatabase database){
+        return new NoteRepository(database.getNoteDao(), database.getNoteChunkDao(), database.getNoteRevisionDao());
+    }
+
+    @Test
+    public void timeToFirstData() throws Exception {
+        BenchmarkReport report = new BenchmarkReport("Startup");
+        final Application application = ApplicationProvider.getApplicationContext();
+        report.add(BenchmarkRunner.measure("component", 0, 1,
+                BenchmarkRunner.NO_SETUP,
+                new BenchmarkRunner.Operation() {
+                    @Override
+                    public void run() throws Exception {
+                        DaggerAppComponent.builder()
+                                .application(application)
+                                .startupTracer(new StartupTracer())
+                                .build();
+                    }
+                }));
+        for(int rows : BenchmarkConfig.ROW_COUNTS){
+            runAtSize(report, rows);
+        }
+        report.write();
+    }
+
+    private void runAtSize(BenchmarkReport report, int rows) throws Exception {
+        context.deleteDatabase(DATABASE_NAME);
+        List<Note> notes = BenchmarkData.createNotes(rows);
+        noteDatabase = buildDatabase();
+        noteDatabase.getNoteDao().insertNotes(notes).blockingGet();
+        closeDatabase();
+
+        BenchmarkRunner.Setup coldStart = new BenchmarkRunner.Setup() {
+            @Override
+            public void run() throws Exception {
+                closeDatabase();
+            }
+        };
+
+        report.add(BenchmarkRunner.measure("first page (cold)", rows, 1,
+                coldStart,
+                new BenchmarkRunner.Operation() {
+                    @Override
+                    public void run() throws Exception {
+                        noteDatabase = buildDatabase();
+                        createRepository(noteDatabase).getNotesPage(0, FIRST_PAGE_SIZE).blockingFirst();
+                    }
+                }));
+
+        final NoteRepository[] preInitialized = new NoteRepository[1];
+        report.add(BenchmarkRunner.measure("first page (pre-initialized)", rows, 1,
+                new BenchmarkRunner.Setup() {
+                    @Override
+                    public void run() throws Exception {
+                        closeDatabase();
+                        noteDatabase = buildDatabase();
+                        DatabaseProfile.DEFAULT.warmUp(noteDatabase);
+                        preInitialized[0] = createRepository(noteDatabase);
+                    }
+                },
+                new BenchmarkRunner.Operation() {
+                    @Override
+                    public void run() throws Exception {
+                        preInitialized[0].getNotesPage(0, FIRST_PAGE_SIZE).blockingFirst();
+                    }
+                }));
+
+        // the phases, the way BaseApplication records them
+        closeDatabase();
+        StartupTracer startupTracer = new StartupTracer();
+        long begin = startupTracer.begin();
+        noteDatabase = buildDatabase();
+        noteDatabase.getOpenHelper().getWritableDatabase();
+        startupTracer.end(StartupTracer.PHASE_DATABASE_OPEN, begin);
+        begin = startupTracer.begin();
+        DatabaseProfile.DEFAULT.warmUp(noteDatabase);
+        startupTracer.end(StartupTracer.PHASE_WARM_UP, begin);
+        begin = startupTracer.begin();
+        createRepository(noteDatabase).getNotesPage(0, FIRST_PAGE_SIZE).blockingFirst();
+        startupTracer.end(StartupTracer.PHASE_FIRST_QUERY, begin);
+        System.out.println(rows + " rows: " + startupTracer);
+        report.addSize("database file", rows, context.getDatabasePath(DATABASE_NAME).length());
+        closeDatabase();
+    }
+}
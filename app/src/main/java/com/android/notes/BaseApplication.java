@@ -1,13 +1,86 @@
 package com.android.notes;
 
+import android.util.Log;
+
 import com.android.notes.di.DaggerAppComponent;
+import com.android.notes.metrics.StartupTracer;
+import com.android.notes.persistence.DatabaseProfile;
+import com.android.notes.persistence.DatabaseSchedulers;
+import com.android.notes.persistence.NoteDatabase;
+import com.android.notes.repository.NoteRepository;
+
+import javax.inject.Inject;
 
+import dagger.Lazy;
 import dagger.android.AndroidInjector;
 import dagger.android.support.DaggerApplication;
 
 public class BaseApplication extends DaggerApplication {
+
+    private static final String TAG = "BaseApplication";
+
+    // starts with the application object, before the dagger graph
+    private final StartupTracer startupTracer = new StartupTracer();
+
+    // the heavy singletons are created by preInitialize, not by the injection on the main thread
+    @Inject
+    Lazy<NoteDatabase> noteDatabase;
+
+    @Inject
+    Lazy<NoteRepository> noteRepository;
+
+    @Inject
+    DatabaseSchedulers databaseSchedulers;
+
+    @Inject
+    DatabaseProfile databaseProfile;
+
+    @Override
+    public void onCreate() {
+        long begin = startupTracer.begin();
+        // builds the graph and injects this
+        super.onCreate();
+        startupTracer.end(StartupTracer.PHASE_COMPONENT, begin);
+        preInitialize();
+    }
+
+    /*
+    * creates and opens the database and the repository on a reader thread while the first activity
+    * is being created, so its first query finds them ready (room opens the database lazily, on
+    * whatever thread touches it first). an activity that needs them sooner waits for the same
+    * instances (dagger's singletons are thread safe).
+    * a failure here only means the first query opens the database, and fails the same way where it
+    * can be handled.*/
+    private void preInitialize(){
+        databaseSchedulers.getReaderExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                try{
+                    long begin = startupTracer.begin();
+                    NoteDatabase database = noteDatabase.get();
+                    database.getOpenHelper().getWritableDatabase();
+                    startupTracer.end(StartupTracer.PHASE_DATABASE_OPEN, begin);
+
+                    if(databaseProfile.isWarmUpEnabled()){
+                        begin = startupTracer.begin();
+                        databaseProfile.warmUp(database);
+                        startupTracer.end(StartupTracer.PHASE_WARM_UP, begin);
+                    }
+
+                    noteRepository.get();
+                    Log.d(TAG, "preInitialize: " + startupTracer);
+                }catch (RuntimeException e){
+                    Log.w(TAG, "preInitialize: failed", e);
+                }
+            }
+        });
+    }
+
     @Override
     protected AndroidInjector<? extends DaggerApplication> applicationInjector() {
-        return DaggerAppComponent.builder().application(this).build();
+        return DaggerAppComponent.builder()
+                .application(this)
+                .startupTracer(startupTracer)
+                .build();
     }
 }
@@ -0,0 +1,136 @@
+package com.android.notes.backup;
+
+import android.database.Cursor;
+import android.util.JsonWriter;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.android.notes.persistence.DatabaseSchedulers;
+import com.android.notes.persistence.NoteChunkDao;
+import com.android.notes.persistence.NoteContentCodec;
+import com.android.notes.persistence.NoteDao;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import javax.inject.Inject;
+
+import io.reactivex.Single;
+
+/*
+* writes every note to a stream as NDJSON, one note per line:
+* {"id":1,"title":"...","content":"...","timestamp":1556668800000}
+*
+* notes are read one row at a time from a cursor and written through a fixed size buffer, so
+* memory doesn't grow with the number of notes (only with the size of the largest note).
+* compressed and chunked notes are written with their full content.
+*
+* the cursor isn't a snapshot: notes saved while the export runs may or may not be in it.*/
+public class NoteExporter {
+
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    // rows between two progress reports
+    public static final int PROGRESS_INTERVAL = 1000;
+
+    static final String FIELD_ID = "id";
+    static final String FIELD_TITLE = "title";
+    static final String FIELD_CONTENT = "content";
+    static final String FIELD_TIMESTAMP = "timestamp";
+
+    @NonNull
+    private final NoteDao noteDao;
+
+    @NonNull
+    private final NoteChunkDao noteChunkDao;
+
+    @NonNull
+    private final DatabaseSchedulers databaseSchedulers;
+
+    @Inject
+    public NoteExporter(@NonNull NoteDao noteDao, @NonNull NoteChunkDao noteChunkDao, @NonNull DatabaseSchedulers databaseSchedulers) {
+        this.noteDao = noteDao;
+        this.noteChunkDao = noteChunkDao;
+        this.databaseSchedulers = databaseSchedulers;
+    }
+
+    /*
+    * exportNotes on a reader thread, emits the number of notes written.*/
+    public Single<Long> export(@NonNull final OutputStream out, final boolean gzip, @Nullable final ProgressListener listener){
+        return Single.fromCallable(new Callable<Long>() {
+                    @Override
+                    public Long call() throws Exception {
+                        return exportNotes(out, gzip, listener);
+                    }
+                })
+                .subscribeOn(databaseSchedulers.reader());
+    }
+
+    /*
+    * writes every note to "out" (gzipped if "gzip") and closes it, returns the number of notes written.
+    * blocks, don't call it from the main thread.*/
+    public long exportNotes(@NonNull OutputStream out, boolean gzip, @Nullable ProgressListener listener) throws IOException{
+        long start = System.nanoTime();
+        long rows = 0;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : out, UTF_8), BUFFER_SIZE);
+        Cursor cursor = noteDao.getNotesCursor();
+        try{
+            // JsonWriter has no buffer of its own, so the newlines can go straight to "writer" between notes.
+            // lenient lets it write more than one top-level value
+            JsonWriter json = new JsonWriter(writer);
+            json.setLenient(true);
+            int id = cursor.getColumnIndexOrThrow("id");
+            int title = cursor.getColumnIndexOrThrow("title");
+            int content = cursor.getColumnIndexOrThrow("content");
+            int contentDeflated = cursor.getColumnIndexOrThrow("content_deflated");
+            int timestamp = cursor.getColumnIndexOrThrow("timestamp");
+            while(cursor.moveToNext()){
+                int noteId = cursor.getInt(id);
+                json.beginObject();
+                json.name(FIELD_ID).value(noteId);
+                json.name(FIELD_TITLE).value(cursor.getString(title));
+                json.name(FIELD_CONTENT).value(readContent(cursor, noteId, content, contentDeflated));
+                json.name(FIELD_TIMESTAMP).value(cursor.getLong(timestamp));
+                json.endObject();
+                writer.write('\n');
+                rows++;
+                if(listener != null && rows % PROGRESS_INTERVAL == 0){
+                    listener.onProgress(rows, rowsPerSecond(rows, start));
+                }
+            }
+        }finally {
+            cursor.close();
+            writer.close();
+        }
+        if(listener != null){
+            listener.onProgress(rows, rowsPerSecond(rows, start));
+        }
+        return rows;
+    }
+
+    // full content of the current row, whatever way it is stored
+    @Nullable
+    private String readContent(Cursor cursor, int noteId, int content, int contentDeflated){
+        if(!cursor.isNull(content)){
+            return cursor.getString(content);
+        }
+        if(!cursor.isNull(contentDeflated)){
+            return NoteContentCodec.inflate(cursor.getBlob(contentDeflated));
+        }
+        return noteChunkDao.loadContent(noteId);
+    }
+
+    static long rowsPerSecond(long rows, long startNanos){
+        long elapsed = Math.max(1, System.nanoTime() - startNanos);
+        return rows * TimeUnit.SECONDS.toNanos(1) / elapsed;
+    }
+}
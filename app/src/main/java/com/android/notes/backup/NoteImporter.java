@@ -0,0 +1,181 @@
+package com.android.notes.backup;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.android.notes.models.Note;
+import com.android.notes.persistence.NoteContentCodec;
+import com.android.notes.repository.NoteRepository;
+import com.android.notes.ui.Resource;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.zip.GZIPInputStream;
+
+import javax.inject.Inject;
+
+import io.reactivex.Single;
+import io.reactivex.schedulers.Schedulers;
+
+/*
+* reads notes written by NoteExporter (plain or gzipped, detected from the stream) and inserts them.
+*
+* the stream is parsed one note at a time and notes are inserted in batches of "batchSize",
+* one transaction per batch, so memory stays at about one batch whatever the size of the backup.
+* notes that will be chunked are inserted on their own as soon as they are read.
+*
+* every batch goes through NoteRepository.insertNotes, like notes saved from the app: content is
+* stored the same way (see NoteContentCodec), revisions are recorded, and the cache and the
+* observers are told about the new notes. each batch is its own task on the writer thread, so saves
+* made during a long import run between two batches instead of waiting for the end.
+* notes get new ids (the database may already have notes).
+*
+* if the import fails half way, the batches inserted before the failure stay.*/
+public class NoteImporter {
+
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    @NonNull
+    private final NoteRepository noteRepository;
+
+    // only to know which notes will be chunked
+    @NonNull
+    private final NoteContentCodec noteContentCodec;
+
+    private final int batchSize;
+
+    @Inject
+    public NoteImporter(@NonNull NoteRepository noteRepository,
+                        @NonNull NoteContentCodec noteContentCodec) {
+        this(noteRepository, noteContentCodec, DEFAULT_BATCH_SIZE);
+    }
+
+    public NoteImporter(@NonNull NoteRepository noteRepository,
+                        @NonNull NoteContentCodec noteContentCodec,
+                        int batchSize) {
+        if(batchSize <= 0){
+            throw new IllegalArgumentException("Batch size must be greater than 0");
+        }
+        this.noteRepository = noteRepository;
+        this.noteContentCodec = noteContentCodec;
+        this.batchSize = batchSize;
+    }
+
+    /*
+    * importNotes on an io thread (the batches are written on the writer thread),
+    * emits the number of notes inserted.*/
+    public Single<Long> importFrom(@NonNull final InputStream in, @Nullable final ProgressListener listener){
+        return Single.fromCallable(new Callable<Long>() {
+                    @Override
+                    public Long call() throws Exception {
+                        return importNotes(in, listener);
+                    }
+                })
+                .subscribeOn(Schedulers.io());
+    }
+
+    /*
+    * inserts every note in "in" and closes it, returns the number of notes inserted.
+    * blocks until the last batch is written: don't call it from the main thread, nor from the
+    * writer thread (it waits for tasks queued there).*/
+    public long importNotes(@NonNull InputStream in, @Nullable ProgressListener listener) throws Exception{
+        long start = System.nanoTime();
+        long rows = 0;
+        JsonReader json = new JsonReader(new BufferedReader(new InputStreamReader(maybeGunzip(in), NoteExporter.UTF_8), NoteExporter.BUFFER_SIZE));
+        try{
+            // lenient: one note per line means many top-level values
+            json.setLenient(true);
+            List<Note> batch = new ArrayList<>(batchSize);
+            while(json.peek() != JsonToken.END_DOCUMENT){
+                Note note = readNote(json, rows + batch.size() + 1);
+                if(noteContentCodec.shouldChunk(note.getContent())){
+                    rows += insert(Collections.singletonList(note));
+                    continue;
+                }
+                batch.add(note);
+                if(batch.size() == batchSize){
+                    rows += insertBatch(batch);
+                    if(listener != null){
+                        listener.onProgress(rows, NoteExporter.rowsPerSecond(rows, start));
+                    }
+                }
+            }
+            rows += insertBatch(batch);
+        }finally {
+            json.close();
+        }
+        if(listener != null){
+            listener.onProgress(rows, NoteExporter.rowsPerSecond(rows, start));
+        }
+        return rows;
+    }
+
+    // inserts and clears "batch", one transaction
+    private int insertBatch(List<Note> batch) throws Exception{
+        if(batch.isEmpty()){
+            return 0;
+        }
+        int inserted = insert(batch);
+        batch.clear();
+        return inserted;
+    }
+
+    private int insert(List<Note> notes) throws Exception{
+        Resource<List<Long>> result = noteRepository.insertNotes(notes).blockingFirst();
+        if(result.status != Resource.Status.SUCCESS || result.data == null){
+            throw new IOException(result.message);
+        }
+        return result.data.size();
+    }
+
+    // "line" is only for the error message
+    private static Note readNote(JsonReader json, long line) throws IOException{
+        String title = null;
+        String content = null;
+        long timestamp = 0;
+        json.beginObject();
+        while(json.hasNext()){
+            String name = json.nextName();
+            if(json.peek() == JsonToken.NULL){
+                json.skipValue();
+            }else if(NoteExporter.FIELD_TITLE.equals(name)){
+                title = json.nextString();
+            }else if(NoteExporter.FIELD_CONTENT.equals(name)){
+                content = json.nextString();
+            }else if(NoteExporter.FIELD_TIMESTAMP.equals(name)){
+                timestamp = json.nextLong();
+            }else{
+                // the id (notes get new ones) and anything this version doesn't know about
+                json.skipValue();
+            }
+        }
+        json.endObject();
+        if(title == null){
+            throw new IOException("Note " + line + " of the backup has no title");
+        }
+        return new Note(title, content, timestamp);
+    }
+
+    // gzip streams start with 0x1f 0x8b
+    private static InputStream maybeGunzip(InputStream in) throws IOException{
+        BufferedInputStream buffered = new BufferedInputStream(in, NoteExporter.BUFFER_SIZE);
+        buffered.mark(2);
+        int first = buffered.read();
+        int second = buffered.read();
+        buffered.reset();
+        if(first == 0x1f && second == 0x8b){
+            return new GZIPInputStream(buffered, NoteExporter.BUFFER_SIZE);
+        }
+        return buffered;
+    }
+}
@@ -0,0 +1,9 @@
+package com.android.notes.backup;
+
+// progress of an export or import, called on the thread doing the work
+public interface ProgressListener {
+
+    /*
+    * "rows" notes done so far, at an average of "rowsPerSecond" since the start.*/
+    void onProgress(long rows, long rowsPerSecond);
+}
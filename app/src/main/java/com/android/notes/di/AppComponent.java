@@ -3,6 +3,7 @@ package com.android.notes.di;
 import android.app.Application;
 
 import com.android.notes.BaseApplication;
+import com.android.notes.metrics.StartupTracer;
 
 import javax.inject.Singleton;
 
@@ -28,6 +29,10 @@ public interface AppComponent extends AndroidInjector<BaseApplication> {
         @BindsInstance
         Builder application (Application application);
 
+        // created by BaseApplication before the graph, it times the graph construction
+        @BindsInstance
+        Builder startupTracer (StartupTracer startupTracer);
+
         AppComponent build();
     }
 }
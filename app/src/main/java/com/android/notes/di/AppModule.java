@@ -6,9 +6,18 @@ import androidx.room.PrimaryKey;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
 
+import com.android.notes.BuildConfig;
+import com.android.notes.metrics.MetricsRegistry;
 import com.android.notes.models.Note;
+import com.android.notes.persistence.DatabaseProfile;
+import com.android.notes.persistence.DatabaseSchedulers;
+import com.android.notes.persistence.NoteChangeLog;
+import com.android.notes.persistence.NoteChunkDao;
+import com.android.notes.persistence.NoteContentCodec;
 import com.android.notes.persistence.NoteDao;
 import com.android.notes.persistence.NoteDatabase;
+import com.android.notes.persistence.NoteRevisionDao;
+import com.android.notes.repository.NoteCache;
 import com.android.notes.repository.NoteRepository;
 
 import javax.inject.Singleton;
@@ -17,6 +26,13 @@ import dagger.Module;
 import dagger.Provides;
 
 import static com.android.notes.persistence.NoteDatabase.DATABASE_NAME;
+import static com.android.notes.persistence.NoteDatabase.MIGRATION_1_2;
+import static com.android.notes.persistence.NoteDatabase.MIGRATION_2_3;
+import static com.android.notes.persistence.NoteDatabase.MIGRATION_3_4;
+import static com.android.notes.persistence.NoteDatabase.MIGRATION_4_5;
+import static com.android.notes.persistence.NoteDatabase.MIGRATION_5_6;
+import static com.android.notes.persistence.NoteDatabase.MIGRATION_6_7;
+import static com.android.notes.persistence.NoteDatabase.MIGRATION_7_8;
 
 @Module
 public class AppModule {
@@ -24,12 +40,31 @@ public class AppModule {
 
     @Singleton
     @Provides
-    static NoteDatabase provideNoteDatabase(Application application){
-        return Room.databaseBuilder(
+    static DatabaseSchedulers provideDatabaseSchedulers(){
+        return DatabaseSchedulers.create();
+    }
+
+    // WAL, PRAGMAs and warm up, see DatabaseProfile
+    @Singleton
+    @Provides
+    static DatabaseProfile provideDatabaseProfile(){
+        return DatabaseProfile.DEFAULT;
+    }
+
+    @Singleton
+    @Provides
+    static NoteDatabase provideNoteDatabase(Application application, DatabaseSchedulers databaseSchedulers, DatabaseProfile databaseProfile){
+        return databaseProfile.applyTo(Room.databaseBuilder(
                 application,
                 NoteDatabase.class,
                 DATABASE_NAME
-        ).build();
+        ))
+                .addMigrations(MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4, MIGRATION_4_5, MIGRATION_5_6, MIGRATION_6_7, MIGRATION_7_8)
+                // drained by NoteCache
+                .addCallback(NoteChangeLog.CALLBACK)
+                .setQueryExecutor(databaseSchedulers.getReaderExecutor())
+                .setTransactionExecutor(databaseSchedulers.getWriterExecutor())
+                .build();
     }
 
     @Singleton
@@ -40,7 +75,50 @@ public class AppModule {
 
     @Singleton
     @Provides
-    static NoteRepository provideNoteRepository(NoteDao noteDao){
-        return new NoteRepository(noteDao);
+    static NoteChunkDao provideNoteChunkDao(NoteDatabase noteDatabase){
+        return noteDatabase.getNoteChunkDao();
+    }
+
+    @Singleton
+    @Provides
+    static NoteRevisionDao provideNoteRevisionDao(NoteDatabase noteDatabase){
+        return noteDatabase.getNoteRevisionDao();
+    }
+
+    @Singleton
+    @Provides
+    static NoteCache provideNoteCache(NoteDatabase noteDatabase){
+        NoteCache noteCache = new NoteCache(NoteCache.DEFAULT_MAX_BYTES, new NoteChangeLog(noteDatabase));
+        // drops the notes changed behind the repository's back
+        noteDatabase.getInvalidationTracker().addObserver(noteCache.getInvalidationObserver());
+        return noteCache;
+    }
+
+    // compression and chunking are opt-in: buildConfigFields COMPRESS_NOTE_CONTENT and CHUNK_LARGE_NOTES in app/build.gradle
+    @Singleton
+    @Provides
+    static NoteContentCodec provideNoteContentCodec(){
+        return new NoteContentCodec(
+                BuildConfig.COMPRESS_NOTE_CONTENT ? NoteContentCodec.DEFAULT_THRESHOLD_CHARS : Integer.MAX_VALUE,
+                BuildConfig.CHUNK_LARGE_NOTES ? NoteContentCodec.DEFAULT_CHUNK_THRESHOLD_CHARS : Integer.MAX_VALUE
+        );
+    }
+
+    @Singleton
+    @Provides
+    static MetricsRegistry provideMetricsRegistry(){
+        return new MetricsRegistry();
+    }
+
+    @Singleton
+    @Provides
+    static NoteRepository provideNoteRepository(NoteDao noteDao,
+                                                NoteChunkDao noteChunkDao,
+                                                NoteRevisionDao noteRevisionDao,
+                                                NoteCache noteCache,
+                                                DatabaseSchedulers databaseSchedulers,
+                                                MetricsRegistry metricsRegistry,
+                                                NoteContentCodec noteContentCodec){
+        return new NoteRepository(noteDao, noteChunkDao, noteRevisionDao, noteCache, databaseSchedulers, metricsRegistry, noteContentCodec);
     }
 }
@@ -0,0 +1,82 @@
+package com.android.notes.metrics;
+
+import androidx.annotation.NonNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/*
+* every OperationMetrics of the app, by operation name.
+* one instance is shared through dagger (see AppModule) so tests and a debug screen can read it.*/
+public class MetricsRegistry {
+
+    private final ConcurrentMap<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+
+    /*
+    * the metrics of "name", created the first time they are asked for.*/
+    public OperationMetrics operation(@NonNull String name){
+        OperationMetrics metrics = operations.get(name);
+        if(metrics == null){
+            OperationMetrics created = new OperationMetrics(name);
+            metrics = operations.putIfAbsent(name, created);
+            if(metrics == null){
+                metrics = created;
+            }
+        }
+        return metrics;
+    }
+
+    // snapshots of every operation, sorted by name
+    public List<OperationSnapshot> snapshot(){
+        List<OperationSnapshot> snapshots = new ArrayList<>();
+        for(OperationMetrics metrics : operations.values()){
+            snapshots.add(metrics.snapshot());
+        }
+        Collections.sort(snapshots, new Comparator<OperationSnapshot>() {
+            @Override
+            public int compare(OperationSnapshot o1, OperationSnapshot o2) {
+                return o1.getName().compareTo(o2.getName());
+            }
+        });
+        return snapshots;
+    }
+
+    public String toJson(){
+        StringBuilder json = new StringBuilder();
+        json.append("{\"timestamp\":").append(System.currentTimeMillis()).append(",\"operations\":[");
+        List<OperationSnapshot> snapshots = snapshot();
+        for(int i = 0; i < snapshots.size(); i++){
+            if(i > 0){
+                json.append(',');
+            }
+            json.append(snapshots.get(i).toJson());
+        }
+        json.append("]}");
+        return json.toString();
+    }
+
+    /*
+    * writes a snapshot of every operation to "file" as json, replacing what's there.*/
+    public void writeSnapshot(@NonNull File file) throws IOException {
+        File parent = file.getParentFile();
+        if(parent != null && !parent.exists() && !parent.mkdirs()){
+            throw new IOException("Can't create " + parent);
+        }
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), Charset.forName("UTF-8"));
+        try{
+            writer.write(toJson());
+        }finally {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.android.notes.metrics;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MediatorLiveData;
+import androidx.lifecycle.Observer;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.reactivex.Flowable;
+import io.reactivex.FlowableTransformer;
+import io.reactivex.Single;
+import io.reactivex.SingleSource;
+import io.reactivex.SingleTransformer;
+import io.reactivex.functions.Consumer;
+
+import org.reactivestreams.Publisher;
+
+/*
+* latency, errors and rows touched of one operation (insertNote, getNotes...).
+* everything is counted with atomics, nothing here takes a lock.*/
+public class OperationMetrics {
+
+    /*
+    * tells how a result of the operation turned out.*/
+    public interface Outcome<T> {
+
+        boolean isError(T result);
+
+        // rows inserted, updated, deleted or read
+        int rowCount(T result);
+    }
+
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final AtomicLong errors = new AtomicLong(0);
+    private final AtomicLong rows = new AtomicLong(0);
+
+    OperationMetrics(@NonNull String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void record(long nanos, boolean error, int rowCount){
+        latency.record(nanos);
+        if(error){
+            errors.incrementAndGet();
+        }
+        if(rowCount > 0){
+            rows.addAndGet(rowCount);
+        }
+    }
+
+    /*
+    * times a Single from subscription to its result.
+    * a Single that fails is recorded as an error.*/
+    public <T> SingleTransformer<T, T> timeSingle(@NonNull final Outcome<T> outcome){
+        return new SingleTransformer<T, T>() {
+            @Override
+            public SingleSource<T> apply(final Single<T> upstream) {
+                return Single.defer(new Callable<SingleSource<T>>() {
+                    @Override
+                    public SingleSource<T> call() throws Exception {
+                        final long start = System.nanoTime();
+                        return upstream
+                                .doOnSuccess(new Consumer<T>() {
+                                    @Override
+                                    public void accept(T result) throws Exception {
+                                        record(System.nanoTime() - start, outcome.isError(result), outcome.rowCount(result));
+                                    }
+                                })
+                                .doOnError(new Consumer<Throwable>() {
+                                    @Override
+                                    public void accept(Throwable throwable) throws Exception {
+                                        record(System.nanoTime() - start, true, 0);
+                                    }
+                                });
+                    }
+                });
+            }
+        };
+    }
+
+    /*
+    * times a query stream from subscription to its first result,
+    * the later emissions are re-runs triggered by table changes and aren't timed.*/
+    public <T> FlowableTransformer<T, T> timeFirst(@NonNull final Outcome<T> outcome){
+        return new FlowableTransformer<T, T>() {
+            @Override
+            public Publisher<T> apply(final Flowable<T> upstream) {
+                return Flowable.defer(new Callable<Publisher<T>>() {
+                    @Override
+                    public Publisher<T> call() throws Exception {
+                        final long start = System.nanoTime();
+                        final boolean[] recorded = {false};
+                        return upstream
+                                .doOnNext(new Consumer<T>() {
+                                    @Override
+                                    public void accept(T result) throws Exception {
+                                        // onNext calls are serialized, no need to synchronize
+                                        if(!recorded[0]){
+                                            recorded[0] = true;
+                                            record(System.nanoTime() - start, outcome.isError(result), outcome.rowCount(result));
+                                        }
+                                    }
+                                })
+                                .doOnError(new Consumer<Throwable>() {
+                                    @Override
+                                    public void accept(Throwable throwable) throws Exception {
+                                        if(!recorded[0]){
+                                            recorded[0] = true;
+                                            record(System.nanoTime() - start, true, 0);
+                                        }
+                                    }
+                                });
+                    }
+                });
+            }
+        };
+    }
+
+    /*
+    * times a LiveData query from this call to its first value.*/
+    public <T> LiveData<T> timeFirst(@NonNull final LiveData<T> source, @NonNull final Outcome<T> outcome){
+        final long start = System.nanoTime();
+        final MediatorLiveData<T> timed = new MediatorLiveData<>();
+        timed.addSource(source, new Observer<T>() {
+
+            private boolean recorded = false;
+
+            @Override
+            public void onChanged(T result) {
+                if(!recorded){
+                    recorded = true;
+                    record(System.nanoTime() - start, outcome.isError(result), outcome.rowCount(result));
+                }
+                timed.setValue(result);
+            }
+        });
+        return timed;
+    }
+
+    public OperationSnapshot snapshot(){
+        return new OperationSnapshot(
+                name,
+                latency.getCount(),
+                errors.get(),
+                rows.get(),
+                latency.getMeanNanos(),
+                latency.getPercentileNanos(50),
+                latency.getPercentileNanos(95),
+                latency.getPercentileNanos(99),
+                latency.getMaxNanos()
+        );
+    }
+}
@@ -0,0 +1,86 @@
+package com.android.notes.metrics;
+
+import java.util.Locale;
+
+// the metrics of one operation at one point in time
+public class OperationSnapshot {
+
+    private final String name;
+    private final long count;
+    private final long errors;
+    private final long rows;
+    private final long meanNanos;
+    private final long p50Nanos;
+    private final long p95Nanos;
+    private final long p99Nanos;
+    private final long maxNanos;
+
+    public OperationSnapshot(String name, long count, long errors, long rows, long meanNanos,
+                             long p50Nanos, long p95Nanos, long p99Nanos, long maxNanos) {
+        this.name = name;
+        this.count = count;
+        this.errors = errors;
+        this.rows = rows;
+        this.meanNanos = meanNanos;
+        this.p50Nanos = p50Nanos;
+        this.p95Nanos = p95Nanos;
+        this.p99Nanos = p99Nanos;
+        this.maxNanos = maxNanos;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getMeanNanos() {
+        return meanNanos;
+    }
+
+    public long getP50Nanos() {
+        return p50Nanos;
+    }
+
+    public long getP95Nanos() {
+        return p95Nanos;
+    }
+
+    public long getP99Nanos() {
+        return p99Nanos;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    public String toJson(){
+        return String.format(Locale.ROOT,
+                "{\"name\":\"%s\",\"count\":%d,\"errors\":%d,\"rows\":%d," +
+                        "\"meanMs\":%.3f,\"p50Ms\":%.3f,\"p95Ms\":%.3f,\"p99Ms\":%.3f,\"maxMs\":%.3f}",
+                name, count, errors, rows,
+                toMillis(meanNanos), toMillis(p50Nanos), toMillis(p95Nanos), toMillis(p99Nanos), toMillis(maxNanos));
+    }
+
+    private static double toMillis(long nanos){
+        return nanos / 1_000_000.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+                "%s: count=%d errors=%d rows=%d p50=%.3fms p95=%.3fms p99=%.3fms max=%.3fms",
+                name, count, errors, rows,
+                toMillis(p50Nanos), toMillis(p95Nanos), toMillis(p99Nanos), toMillis(maxNanos));
+    }
+}
@@ -0,0 +1,93 @@
+package com.android.notes.metrics;
+
+import androidx.annotation.NonNull;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+* how long the phases of a cold start took: building the dagger graph, opening the database and
+* warming it up (see BaseApplication), and the first query: from the list asking for its first page
+* to the page being delivered to it (see NotesListViewModel).
+*
+* created before the dagger graph (it times it) and handed to it (AppComponent.Builder), so the
+* rest of the app can read it. a phase is recorded once, the first time it ends, later calls are
+* ignored. for every phase it keeps its duration and when it ended, counted from the tracer's start.
+*
+* thread safe.*/
+public class StartupTracer {
+
+    public static final String PHASE_COMPONENT = "component";
+    public static final String PHASE_DATABASE_OPEN = "databaseOpen";
+    public static final String PHASE_WARM_UP = "warmUp";
+    public static final String PHASE_FIRST_QUERY = "firstQuery";
+
+    public static final long NOT_RECORDED = -1;
+
+    private final long startNanos;
+
+    // guarded by this, in the order the phases ended
+    private final Map<String, Long> durations = new LinkedHashMap<>();
+    private final Map<String, Long> endedAt = new LinkedHashMap<>();
+
+    public StartupTracer() {
+        this(System.nanoTime());
+    }
+
+    // "startNanos" from System.nanoTime()
+    public StartupTracer(long startNanos) {
+        this.startNanos = startNanos;
+    }
+
+    // pass the result to end() when the phase is over
+    public long begin(){
+        return System.nanoTime();
+    }
+
+    // the phase that began at "beginNanos" ended now. false if it was already recorded
+    public boolean end(@NonNull String phase, long beginNanos){
+        return record(phase, System.nanoTime() - beginNanos, System.nanoTime() - startNanos);
+    }
+
+    public synchronized boolean record(@NonNull String phase, long durationNanos, long endedAtNanos){
+        if(durations.containsKey(phase)){
+            return false;
+        }
+        durations.put(phase, durationNanos);
+        endedAt.put(phase, endedAtNanos);
+        return true;
+    }
+
+    // NOT_RECORDED if the phase hasn't ended yet
+    public synchronized long getDurationNanos(@NonNull String phase){
+        Long duration = durations.get(phase);
+        return duration == null ? NOT_RECORDED : duration;
+    }
+
+    // when the phase ended, counted from the start. NOT_RECORDED if it hasn't ended yet
+    public synchronized long getEndedAtNanos(@NonNull String phase){
+        Long ended = endedAt.get(phase);
+        return ended == null ? NOT_RECORDED : ended;
+    }
+
+    public synchronized Map<String, Long> getDurations(){
+        return Collections.unmodifiableMap(new LinkedHashMap<>(durations));
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder text = new StringBuilder("StartupTracer{");
+        boolean first = true;
+        for(Map.Entry<String, Long> phase : durations.entrySet()){
+            if(!first){
+                text.append(", ");
+            }
+            first = false;
+            text.append(phase.getKey())
+                    .append('=').append(phase.getValue() / 1_000_000).append("ms")
+                    .append(" (at ").append(endedAt.get(phase.getKey()) / 1_000_000).append("ms)");
+        }
+        return text.append('}').toString();
+    }
+}
@@ -9,10 +9,11 @@ import androidx.annotation.Nullable;
 import androidx.room.ColumnInfo;
 import androidx.room.Entity;
 import androidx.room.Ignore;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
 // notes model
-@Entity(tableName = "notes")
+@Entity(tableName = "notes", indices = {@Index(value = "timestamp")})
 public class Note  implements Parcelable {
     @PrimaryKey(autoGenerate = true)
     private int id;
@@ -24,17 +25,30 @@ public class Note  implements Parcelable {
     @ColumnInfo(name = "content")
     private String content;
 
+    // set instead of "content" for notes stored compressed, see NoteContentCodec
+    @Nullable
+    @ColumnInfo(name = "content_deflated", typeAffinity = ColumnInfo.BLOB)
+    private byte[] contentDeflated;
+
+    /*
+    * only for notes stored without "content" (compressed or chunked): what the full-text index and the
+    * list previews read instead, see NoteContentCodec.searchTextOf. NULL for the rest.*/
+    @Nullable
+    @ColumnInfo(name = "search_text")
+    private String searchText;
+
+    // last modified time, epoch millis. indexed for "recently modified" and date range queries
     @ColumnInfo(name = "timestamp")
-    private String timestamp;
+    private long timestamp;
 
-    public Note(@NonNull String title, String content, String timestamp) {
+    public Note(@NonNull String title, String content, long timestamp) {
         this.title = title;
         this.content = content;
         this.timestamp = timestamp;
     }
 
     @Ignore
-    public Note(int id, @NonNull String title, String content, String timestamp) {
+    public Note(int id, @NonNull String title, String content, long timestamp) {
         this.id = id;
         this.title = title;
         this.content = content;
@@ -45,19 +59,35 @@ public class Note  implements Parcelable {
     public Note() {
     }
 
+    /*
+    * dirty tracking, not persisted.
+    * "version" goes up every time the title or content actually changes, "persistedVersion" is the
+    * version known to be in the database (-1 = unknown, so a note is dirty until marked persisted).*/
+    @Ignore
+    private int version;
+
+    @Ignore
+    private volatile int persistedVersion = -1;
+
     @Ignore
     public Note(Note note) {
         id = note.id;
         title = note.title;
         content = note.content;
+        contentDeflated = note.contentDeflated;
+        searchText = note.searchText;
         timestamp = note.timestamp;
+        version = note.version;
+        persistedVersion = note.persistedVersion;
     }
 
     protected Note(Parcel in) {
         id = in.readInt();
         title = in.readString();
         content = in.readString();
-        timestamp = in.readString();
+        contentDeflated = in.createByteArray();
+        searchText = in.readString();
+        timestamp = in.readLong();
     }
 
     public static final Creator<Note> CREATOR = new Creator<Note>() {
@@ -78,7 +108,7 @@ public class Note  implements Parcelable {
                 "id=" + id +
                 ", title='" + title + '\'' +
                 ", content='" + content + '\'' +
-                ", timestamp='" + timestamp + '\'' +
+                ", timestamp=" + timestamp +
                 '}';
     }
 
@@ -96,6 +126,9 @@ public class Note  implements Parcelable {
     }
 
     public void setTitle(@NonNull String title) {
+        if(!equalsOrBothNull(this.title, title)){
+            version++;
+        }
         this.title = title;
     }
 
@@ -104,17 +137,61 @@ public class Note  implements Parcelable {
     }
 
     public void setContent(String content) {
+        if(!equalsOrBothNull(this.content, content)){
+            version++;
+        }
         this.content = content;
     }
 
-    public String getTimestamp() {
+    @Nullable
+    public byte[] getContentDeflated() {
+        return contentDeflated;
+    }
+
+    public void setContentDeflated(@Nullable byte[] contentDeflated) {
+        this.contentDeflated = contentDeflated;
+    }
+
+    @Nullable
+    public String getSearchText() {
+        return searchText;
+    }
+
+    public void setSearchText(@Nullable String searchText) {
+        this.searchText = searchText;
+    }
+
+    public long getTimestamp() {
         return timestamp;
     }
 
-    public void setTimestamp(String timestamp) {
+    public void setTimestamp(long timestamp) {
         this.timestamp = timestamp;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    // true if the title or content changed since the note was last marked persisted
+    public boolean isDirty() {
+        return version != persistedVersion;
+    }
+
+    // the note as it is now matches the database
+    public void markPersisted() {
+        persistedVersion = version;
+    }
+
+    // "writtenVersion" was written to the database (the note may have changed since)
+    public void markPersisted(int writtenVersion) {
+        persistedVersion = writtenVersion;
+    }
+
+    private static boolean equalsOrBothNull(String a, String b){
+        return a == null ? b == null : a.equals(b);
+    }
+
     @Override
     public int describeContents() {
         return 0;
@@ -125,7 +202,9 @@ public class Note  implements Parcelable {
         parcel.writeInt(id);
         parcel.writeString(title);
         parcel.writeString(content);
-        parcel.writeString(timestamp);
+        parcel.writeByteArray(contentDeflated);
+        parcel.writeString(searchText);
+        parcel.writeLong(timestamp);
     }
 
     @Override
@@ -138,6 +217,7 @@ public class Note  implements Parcelable {
         }
         Note note = (Note) obj;
 
-        return note.getId() == getId() && note.getTitle().equals(getTitle() ) && note.getContent().equals(getContent());
+        // content is null for notes read without it (chunked notes, see NoteChunkDao)
+        return note.getId() == getId() && note.getTitle().equals(getTitle() ) && equalsOrBothNull(note.getContent(), getContent());
     }
 }
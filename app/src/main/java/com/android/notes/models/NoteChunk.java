@@ -0,0 +1,73 @@
+package com.android.notes.models;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+
+/*
+* one piece of the content of a chunked note (see NoteChunkDao).
+* "seq" only orders the chunks of a note, the values have gaps so chunks can be
+* inserted between two others without renumbering the rest.*/
+@Entity(tableName = "note_chunks",
+        primaryKeys = {"note_id", "seq"},
+        foreignKeys = @ForeignKey(entity = Note.class, parentColumns = "id", childColumns = "note_id", onDelete = ForeignKey.CASCADE))
+public class NoteChunk {
+
+    @ColumnInfo(name = "note_id")
+    private int noteId;
+
+    @ColumnInfo(name = "seq")
+    private long seq;
+
+    // 64 bit hash of "data", compared instead of the data to find the chunks that changed
+    @ColumnInfo(name = "hash")
+    private long hash;
+
+    // length of "data" in chars
+    @ColumnInfo(name = "length")
+    private int length;
+
+    @NonNull
+    @ColumnInfo(name = "data")
+    private String data;
+
+    public NoteChunk(int noteId, long seq, long hash, int length, @NonNull String data) {
+        this.noteId = noteId;
+        this.seq = seq;
+        this.hash = hash;
+        this.length = length;
+        this.data = data;
+    }
+
+    public int getNoteId() {
+        return noteId;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public long getHash() {
+        return hash;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    @NonNull
+    public String getData() {
+        return data;
+    }
+
+    @Override
+    public String toString() {
+        return "NoteChunk{" +
+                "noteId=" + noteId +
+                ", seq=" + seq +
+                ", hash=" + hash +
+                ", length=" + length +
+                '}';
+    }
+}
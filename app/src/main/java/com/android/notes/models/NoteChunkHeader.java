@@ -0,0 +1,43 @@
+package com.android.notes.models;
+
+import androidx.room.ColumnInfo;
+
+// a NoteChunk without its data, enough to tell which chunks of a note changed
+public class NoteChunkHeader {
+
+    @ColumnInfo(name = "seq")
+    private long seq;
+
+    @ColumnInfo(name = "hash")
+    private long hash;
+
+    @ColumnInfo(name = "length")
+    private int length;
+
+    public NoteChunkHeader(long seq, long hash, int length) {
+        this.seq = seq;
+        this.hash = hash;
+        this.length = length;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public long getHash() {
+        return hash;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    @Override
+    public String toString() {
+        return "NoteChunkHeader{" +
+                "seq=" + seq +
+                ", hash=" + hash +
+                ", length=" + length +
+                '}';
+    }
+}
@@ -0,0 +1,55 @@
+package com.android.notes.models;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Fts4;
+
+// full-text index over the title and content of the notes table.
+// the content lives in "notes", room keeps this index in sync with triggers.
+// notes stored without content (compressed or chunked) are indexed through search_text.
+@Fts4(contentEntity = Note.class)
+@Entity(tableName = "notes_fts")
+public class NoteFts {
+
+    @NonNull
+    @ColumnInfo(name = "title")
+    private String title;
+
+    @ColumnInfo(name = "content")
+    private String content;
+
+    @ColumnInfo(name = "search_text")
+    private String searchText;
+
+    public NoteFts(@NonNull String title, String content, String searchText) {
+        this.title = title;
+        this.content = content;
+        this.searchText = searchText;
+    }
+
+    @NonNull
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(@NonNull String title) {
+        this.title = title;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public void setContent(String content) {
+        this.content = content;
+    }
+
+    public String getSearchText() {
+        return searchText;
+    }
+
+    public void setSearchText(String searchText) {
+        this.searchText = searchText;
+    }
+}
@@ -0,0 +1,167 @@
+package com.android.notes.models;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+import com.android.notes.util.TextDelta;
+
+/*
+* one saved version of a note (see NoteRevisionDao).
+* a SNAPSHOT holds the whole content, a DELTA only the change from the revision before it.
+* a snapshot's content may be stored deflated, like a note's (see NoteContentCodec).*/
+@Entity(tableName = "note_revisions",
+        foreignKeys = @ForeignKey(entity = Note.class, parentColumns = "id", childColumns = "note_id", onDelete = ForeignKey.CASCADE),
+        indices = {@Index(value = {"note_id", "revision"}, unique = true)})
+public class NoteRevision {
+
+    public static final int SNAPSHOT = 0;
+    public static final int DELTA = 1;
+
+    @PrimaryKey(autoGenerate = true)
+    private long id;
+
+    @ColumnInfo(name = "note_id")
+    private int noteId;
+
+    // 1, 2, 3... per note. compaction leaves gaps
+    @ColumnInfo(name = "revision")
+    private int revision;
+
+    @ColumnInfo(name = "timestamp")
+    private long timestamp;
+
+    @NonNull
+    @ColumnInfo(name = "title")
+    private String title;
+
+    @ColumnInfo(name = "kind")
+    private int kind;
+
+    // SNAPSHOT only
+    @Nullable
+    @ColumnInfo(name = "content")
+    private String content;
+
+    // SNAPSHOT only, instead of content when it is stored deflated
+    @Nullable
+    @ColumnInfo(name = "content_deflated", typeAffinity = ColumnInfo.BLOB)
+    private byte[] contentDeflated;
+
+    // DELTA only, see TextDelta
+    @ColumnInfo(name = "prefix_length")
+    private int prefixLength;
+
+    @ColumnInfo(name = "suffix_length")
+    private int suffixLength;
+
+    @Nullable
+    @ColumnInfo(name = "inserted")
+    private String inserted;
+
+    public NoteRevision(long id, int noteId, int revision, long timestamp, @NonNull String title, int kind,
+                        @Nullable String content, @Nullable byte[] contentDeflated,
+                        int prefixLength, int suffixLength, @Nullable String inserted) {
+        this.id = id;
+        this.noteId = noteId;
+        this.revision = revision;
+        this.timestamp = timestamp;
+        this.title = title;
+        this.kind = kind;
+        this.content = content;
+        this.contentDeflated = contentDeflated;
+        this.prefixLength = prefixLength;
+        this.suffixLength = suffixLength;
+        this.inserted = inserted;
+    }
+
+    public static NoteRevision snapshot(int noteId, int revision, long timestamp, @NonNull String title, @NonNull String content){
+        return new NoteRevision(0, noteId, revision, timestamp, title, SNAPSHOT, content, null, 0, 0, null);
+    }
+
+    public static NoteRevision delta(int noteId, int revision, long timestamp, @NonNull String title, @NonNull TextDelta delta){
+        return new NoteRevision(0, noteId, revision, timestamp, title, DELTA, null, null,
+                delta.getPrefixLength(), delta.getSuffixLength(), delta.getInserted());
+    }
+
+    public boolean isSnapshot(){
+        return kind == SNAPSHOT;
+    }
+
+    public TextDelta getDelta(){
+        return new TextDelta(prefixLength, suffixLength, inserted == null ? "" : inserted);
+    }
+
+    // this revision turned into a snapshot of "fullContent"
+    public NoteRevision toSnapshot(@NonNull String fullContent){
+        return new NoteRevision(id, noteId, revision, timestamp, title, SNAPSHOT, fullContent, null, 0, 0, null);
+    }
+
+    // this snapshot with its content stored deflated
+    public NoteRevision toDeflatedSnapshot(@NonNull byte[] deflated){
+        return new NoteRevision(id, noteId, revision, timestamp, title, SNAPSHOT, null, deflated, 0, 0, null);
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public int getNoteId() {
+        return noteId;
+    }
+
+    public int getRevision() {
+        return revision;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @NonNull
+    public String getTitle() {
+        return title;
+    }
+
+    public int getKind() {
+        return kind;
+    }
+
+    @Nullable
+    public String getContent() {
+        return content;
+    }
+
+    @Nullable
+    public byte[] getContentDeflated() {
+        return contentDeflated;
+    }
+
+    public int getPrefixLength() {
+        return prefixLength;
+    }
+
+    public int getSuffixLength() {
+        return suffixLength;
+    }
+
+    @Nullable
+    public String getInserted() {
+        return inserted;
+    }
+
+    @Override
+    public String toString() {
+        return "NoteRevision{" +
+                "noteId=" + noteId +
+                ", revision=" + revision +
+                ", timestamp=" + timestamp +
+                ", title='" + title + '\'' +
+                ", kind=" + kind +
+                '}';
+    }
+}
@@ -0,0 +1,55 @@
+package com.android.notes.models;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+
+// a NoteRevision without its content, for listing the history of a note
+public class NoteRevisionInfo {
+
+    @ColumnInfo(name = "note_id")
+    private int noteId;
+
+    @ColumnInfo(name = "revision")
+    private int revision;
+
+    @ColumnInfo(name = "timestamp")
+    private long timestamp;
+
+    @NonNull
+    @ColumnInfo(name = "title")
+    private String title;
+
+    public NoteRevisionInfo(int noteId, int revision, long timestamp, @NonNull String title) {
+        this.noteId = noteId;
+        this.revision = revision;
+        this.timestamp = timestamp;
+        this.title = title;
+    }
+
+    public int getNoteId() {
+        return noteId;
+    }
+
+    public int getRevision() {
+        return revision;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @NonNull
+    public String getTitle() {
+        return title;
+    }
+
+    @Override
+    public String toString() {
+        return "NoteRevisionInfo{" +
+                "noteId=" + noteId +
+                ", revision=" + revision +
+                ", timestamp=" + timestamp +
+                ", title='" + title + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,97 @@
+package com.android.notes.models;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Ignore;
+
+// a note matching a full-text search, with a highlighted snippet of where it matched.
+public class NoteSearchResult {
+
+    @ColumnInfo(name = "id")
+    private int id;
+
+    @NonNull
+    @ColumnInfo(name = "title")
+    private String title;
+
+    @ColumnInfo(name = "timestamp")
+    private long timestamp;
+
+    @ColumnInfo(name = "snippet")
+    private String snippet;
+
+    // raw matchinfo(notes_fts, 'pcx') blob, used to rank the results
+    @ColumnInfo(name = "match_info")
+    private byte[] matchInfo;
+
+    @Ignore
+    private double rank;
+
+    public NoteSearchResult(int id, @NonNull String title, long timestamp, String snippet, byte[] matchInfo) {
+        this.id = id;
+        this.title = title;
+        this.timestamp = timestamp;
+        this.snippet = snippet;
+        this.matchInfo = matchInfo;
+    }
+
+    @Override
+    public String toString() {
+        return "NoteSearchResult{" +
+                "id=" + id +
+                ", title='" + title + '\'' +
+                ", timestamp=" + timestamp +
+                ", snippet='" + snippet + '\'' +
+                ", rank=" + rank +
+                '}';
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    @NonNull
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(@NonNull String title) {
+        this.title = title;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public String getSnippet() {
+        return snippet;
+    }
+
+    public void setSnippet(String snippet) {
+        this.snippet = snippet;
+    }
+
+    public byte[] getMatchInfo() {
+        return matchInfo;
+    }
+
+    public void setMatchInfo(byte[] matchInfo) {
+        this.matchInfo = matchInfo;
+    }
+
+    public double getRank() {
+        return rank;
+    }
+
+    public void setRank(double rank) {
+        this.rank = rank;
+    }
+}
@@ -0,0 +1,90 @@
+package com.android.notes.models;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.room.ColumnInfo;
+
+// lightweight projection of a note for the list screen.
+// only carries a short preview of the content, the full note is loaded by id when it's opened.
+public class NoteSummary {
+
+    public static final int PREVIEW_LENGTH = 100;
+
+    @ColumnInfo(name = "id")
+    private int id;
+
+    @NonNull
+    @ColumnInfo(name = "title")
+    private String title;
+
+    @ColumnInfo(name = "timestamp")
+    private long timestamp;
+
+    @ColumnInfo(name = "preview")
+    private String preview;
+
+    public NoteSummary(int id, @NonNull String title, long timestamp, String preview) {
+        this.id = id;
+        this.title = title;
+        this.timestamp = timestamp;
+        this.preview = preview;
+    }
+
+    @Override
+    public String toString() {
+        return "NoteSummary{" +
+                "id=" + id +
+                ", title='" + title + '\'' +
+                ", timestamp=" + timestamp +
+                ", preview='" + preview + '\'' +
+                '}';
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    @NonNull
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(@NonNull String title) {
+        this.title = title;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public String getPreview() {
+        return preview;
+    }
+
+    public void setPreview(String preview) {
+        this.preview = preview;
+    }
+
+    @Override
+    public boolean equals(@Nullable Object obj) {
+        if (obj == null) {
+            return false;
+        }
+        if(getClass() != obj.getClass()){
+            return false;
+        }
+        NoteSummary summary = (NoteSummary) obj;
+
+        return summary.getId() == getId()
+                && summary.getTitle().equals(getTitle())
+                && (summary.getPreview() == null ? getPreview() == null : summary.getPreview().equals(getPreview()));
+    }
+}
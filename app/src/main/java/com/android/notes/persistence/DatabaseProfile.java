@@ -0,0 +1,169 @@
+package com.android.notes.persistence;
+
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
+import androidx.room.RoomDatabase;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+/*
+* how the notes database is opened and tuned (see AppModule.provideNoteDatabase).
+*
+* - journal mode: WAL lets the reader threads query while the writer thread writes, instead of
+*   waiting for each other (see DatabaseSchedulers).
+* - synchronous: with WAL, NORMAL only syncs at checkpoints. a crash can't corrupt the database,
+*   a power loss can lose the last few commits.
+* - cache size: pages sqlite keeps in memory, in KiB. per connection (see below).
+* - mmap size: bytes of the database file read through memory mapping instead of read() calls,
+*   0 turns it off. sqlite builds that don't support it ignore it. per connection (see below).
+*
+* the PRAGMAs are applied every time room opens the database (onOpen), on the primary connection
+* only: room's onOpen gets that one connection, and android opens the extra WAL connections (the
+* ones the reader threads query on) inside its connection pool, with no hook to run SQL on them.
+* so every write (the writer thread and room's transactions run on the primary connection) gets
+* the profile, and the readers keep android's defaults: its own synchronous mode, sqlite's default
+* cache size, and no mmap unless the platform turns it on.
+* synchronous and the journal mode are the ones that matter for writes, cache and mmap mostly help
+* the primary connection's reads (the reads inside transactions).
+*
+* warm up: open the database (and run the migrations) on a background thread during the
+* application start, and read the first pages of the notes table, so the first screen's query
+* doesn't pay for it on its way to the UI (see BaseApplication.preInitialize). the read runs
+* outside a transaction, on whichever connection the pool hands out, like the list's own query:
+* what it leaves behind is the open database and the file's pages in the OS cache, not a warm
+* sqlite page cache on the connection the list will use.*/
+public class DatabaseProfile {
+
+    public enum Synchronous {
+        OFF, NORMAL, FULL
+    }
+
+    public static final int DEFAULT_CACHE_SIZE_KIB = 2 * 1024;
+    public static final long DEFAULT_MMAP_SIZE_BYTES = 32L * 1024 * 1024;
+
+    // rows read by the warm up, about what the list screen loads first
+    public static final int DEFAULT_WARM_UP_ROWS = 100;
+
+    public static final DatabaseProfile DEFAULT = new DatabaseProfile(
+            RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING,
+            Synchronous.NORMAL,
+            DEFAULT_CACHE_SIZE_KIB,
+            DEFAULT_MMAP_SIZE_BYTES,
+            DEFAULT_WARM_UP_ROWS
+    );
+
+    @NonNull
+    private final RoomDatabase.JournalMode journalMode;
+
+    @NonNull
+    private final Synchronous synchronous;
+
+    private final int cacheSizeKib;
+    private final long mmapSizeBytes;
+
+    // 0: no warm up
+    private final int warmUpRows;
+
+    public DatabaseProfile(@NonNull RoomDatabase.JournalMode journalMode,
+                           @NonNull Synchronous synchronous,
+                           int cacheSizeKib,
+                           long mmapSizeBytes,
+                           int warmUpRows) {
+        if(cacheSizeKib <= 0){
+            throw new IllegalArgumentException("Cache size must be greater than 0");
+        }
+        if(mmapSizeBytes < 0 || warmUpRows < 0){
+            throw new IllegalArgumentException("Mmap size and warm up rows can't be negative");
+        }
+        this.journalMode = journalMode;
+        this.synchronous = synchronous;
+        this.cacheSizeKib = cacheSizeKib;
+        this.mmapSizeBytes = mmapSizeBytes;
+        this.warmUpRows = warmUpRows;
+    }
+
+    // sets the journal mode and the PRAGMAs on a room builder
+    public <T extends RoomDatabase> RoomDatabase.Builder<T> applyTo(@NonNull RoomDatabase.Builder<T> builder){
+        return builder
+                .setJournalMode(journalMode)
+                .addCallback(new RoomDatabase.Callback() {
+                    @Override
+                    public void onOpen(@NonNull SupportSQLiteDatabase db) {
+                        applyPragmas(db);
+                    }
+                });
+    }
+
+    // on "db"'s connection only, see the class comment
+    void applyPragmas(@NonNull SupportSQLiteDatabase db){
+        // some PRAGMAs return a row, which execSQL doesn't allow
+        pragma(db, "PRAGMA synchronous = " + synchronous.name());
+        // negative: in KiB instead of pages
+        pragma(db, "PRAGMA cache_size = -" + cacheSizeKib);
+        pragma(db, "PRAGMA mmap_size = " + mmapSizeBytes);
+    }
+
+    private static void pragma(SupportSQLiteDatabase db, String sql){
+        Cursor cursor = db.query(sql);
+        try{
+            cursor.moveToFirst();
+        }finally {
+            cursor.close();
+        }
+    }
+
+    public boolean isWarmUpEnabled(){
+        return warmUpRows > 0;
+    }
+
+    /*
+    * opens the database and reads the first "warmUpRows" notes (id, title, timestamp and the start
+    * of the content, what the list shows), which leaves their pages in the OS file cache.
+    * blocks, call it on a background thread.*/
+    public void warmUp(@NonNull RoomDatabase database){
+        if(!isWarmUpEnabled()){
+            return;
+        }
+        Cursor cursor = database.query("SELECT id, title, timestamp, substr(COALESCE(content, search_text), 1, 100) FROM notes ORDER BY id ASC LIMIT " + warmUpRows, null);
+        try{
+            while (cursor.moveToNext()){
+                // reading the rows is the point
+            }
+        }finally {
+            cursor.close();
+        }
+    }
+
+    @NonNull
+    public RoomDatabase.JournalMode getJournalMode() {
+        return journalMode;
+    }
+
+    @NonNull
+    public Synchronous getSynchronous() {
+        return synchronous;
+    }
+
+    public int getCacheSizeKib() {
+        return cacheSizeKib;
+    }
+
+    public long getMmapSizeBytes() {
+        return mmapSizeBytes;
+    }
+
+    public int getWarmUpRows() {
+        return warmUpRows;
+    }
+
+    @Override
+    public String toString() {
+        return "DatabaseProfile{" +
+                "journalMode=" + journalMode +
+                ", synchronous=" + synchronous +
+                ", cacheSizeKib=" + cacheSizeKib +
+                ", mmapSizeBytes=" + mmapSizeBytes +
+                ", warmUpRows=" + warmUpRows +
+                '}';
+    }
+}
@@ -0,0 +1,91 @@
+package com.android.notes.persistence;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+
+/*
+* the threads the database is used from.
+*
+* sqlite only lets one connection write at a time, so every write goes through one writer thread
+* and queued writes run back to back instead of fighting over the write lock (SQLITE_BUSY).
+* reads can run in parallel on a small fixed pool, so a burst of queries can't create a thread each
+* like Schedulers.io() does.
+*
+* the same executors are given to room (setTransactionExecutor / setQueryExecutor)
+* so room's own observable queries use them too.*/
+public class DatabaseSchedulers {
+
+    public static final int MAX_READER_THREADS = 4;
+
+    private final Executor writerExecutor;
+    private final Executor readerExecutor;
+    private final Scheduler writer;
+    private final Scheduler reader;
+
+    public DatabaseSchedulers(@NonNull Executor writerExecutor, @NonNull Executor readerExecutor) {
+        this.writerExecutor = writerExecutor;
+        this.readerExecutor = readerExecutor;
+        this.writer = Schedulers.from(writerExecutor);
+        this.reader = Schedulers.from(readerExecutor);
+    }
+
+    /*
+    * one writer thread and up to MAX_READER_THREADS reader threads (fewer on devices with fewer cores).*/
+    public static DatabaseSchedulers create(){
+        int readers = Math.max(2, Math.min(MAX_READER_THREADS, Runtime.getRuntime().availableProcessors()));
+        return create(readers);
+    }
+
+    public static DatabaseSchedulers create(int readerThreads){
+        if(readerThreads <= 0){
+            throw new IllegalArgumentException("Reader threads must be greater than 0");
+        }
+        ExecutorService writerExecutor = Executors.newSingleThreadExecutor(new NamedThreadFactory("notes-db-writer"));
+        ExecutorService readerExecutor = Executors.newFixedThreadPool(readerThreads, new NamedThreadFactory("notes-db-reader"));
+        return new DatabaseSchedulers(writerExecutor, readerExecutor);
+    }
+
+    // inserts, updates and deletes
+    public Scheduler writer(){
+        return writer;
+    }
+
+    // queries
+    public Scheduler reader(){
+        return reader;
+    }
+
+    public Executor getWriterExecutor() {
+        return writerExecutor;
+    }
+
+    public Executor getReaderExecutor() {
+        return readerExecutor;
+    }
+
+    private static class NamedThreadFactory implements ThreadFactory {
+
+        private final String name;
+        private final AtomicInteger count = new AtomicInteger(0);
+
+        NamedThreadFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            // never keeps the process alive
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.android.notes.persistence;
+
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.room.RoomDatabase;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import com.android.notes.models.Note;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+* the rows of the notes table written since the last drain(): id and timestamp of every insert and
+* update, id of every delete. room's InvalidationTracker only says that the table changed, this says
+* which notes, so the repository can tell its own writes from anyone else's (see NoteCache).
+*
+* recorded by temporary triggers into a temporary table. those only exist on the connection that
+* created them, so CALLBACK creates them on the connection room opens the database with, the one
+* every write goes through, and drain() reads inside a transaction, which runs on that connection too.
+*
+* the log grows until it is drained, only add CALLBACK to a database something drains.*/
+public class NoteChangeLog {
+
+    public static final RoomDatabase.Callback CALLBACK = new RoomDatabase.Callback() {
+        @Override
+        public void onOpen(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TEMP TABLE IF NOT EXISTS note_change_log (note_id INTEGER NOT NULL, timestamp INTEGER)");
+            db.execSQL("CREATE TEMP TRIGGER IF NOT EXISTS note_change_log_INSERT AFTER INSERT ON notes " +
+                    "BEGIN INSERT INTO note_change_log VALUES (NEW.id, NEW.timestamp); END");
+            db.execSQL("CREATE TEMP TRIGGER IF NOT EXISTS note_change_log_UPDATE AFTER UPDATE ON notes " +
+                    "BEGIN INSERT INTO note_change_log VALUES (NEW.id, NEW.timestamp); END");
+            db.execSQL("CREATE TEMP TRIGGER IF NOT EXISTS note_change_log_DELETE AFTER DELETE ON notes " +
+                    "BEGIN INSERT INTO note_change_log VALUES (OLD.id, NULL); END");
+        }
+    };
+
+    // one row written: a note with this id and timestamp was inserted or updated, or deleted (no timestamp)
+    public static final class Change {
+
+        private final int noteId;
+
+        @Nullable
+        private final Long timestamp;
+
+        public Change(int noteId, @Nullable Long timestamp) {
+            this.noteId = noteId;
+            this.timestamp = timestamp;
+        }
+
+        public static Change written(@NonNull Note note){
+            return new Change(note.getId(), note.getTimestamp());
+        }
+
+        public static Change deleted(int noteId){
+            return new Change(noteId, null);
+        }
+
+        public int getNoteId() {
+            return noteId;
+        }
+
+        @Nullable
+        public Long getTimestamp() {
+            return timestamp;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Change change = (Change) o;
+            return noteId == change.noteId
+                    && (timestamp == null ? change.timestamp == null : timestamp.equals(change.timestamp));
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * noteId + (timestamp == null ? 0 : timestamp.hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return "Change{" +
+                    "noteId=" + noteId +
+                    ", timestamp=" + timestamp +
+                    '}';
+        }
+    }
+
+    @NonNull
+    private final RoomDatabase database;
+
+    public NoteChangeLog(@NonNull RoomDatabase database) {
+        this.database = database;
+    }
+
+    // the rows written since the last call, in the order they were written. blocks, not on the main thread
+    @NonNull
+    public List<Change> drain(){
+        SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+        List<Change> changes = new ArrayList<>();
+        db.beginTransactionNonExclusive();
+        try{
+            Cursor cursor = db.query("SELECT note_id, timestamp FROM note_change_log ORDER BY rowid ASC");
+            try{
+                while (cursor.moveToNext()){
+                    changes.add(new Change(cursor.getInt(0), cursor.isNull(1) ? null : cursor.getLong(1)));
+                }
+            }finally {
+                cursor.close();
+            }
+            db.execSQL("DELETE FROM note_change_log");
+            db.setTransactionSuccessful();
+        }finally {
+            db.endTransaction();
+        }
+        return changes;
+    }
+}
@@ -0,0 +1,266 @@
+package com.android.notes.persistence;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.Query;
+import androidx.room.Transaction;
+import androidx.room.Update;
+
+import com.android.notes.models.Note;
+import com.android.notes.models.NoteChunk;
+import com.android.notes.models.NoteChunkHeader;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+* chunked storage of very large notes.
+*
+* the content of a chunked note lives in note_chunks (see NoteChunker), its row in notes has
+* NULL content. a save compares the hashes of the new chunks with the stored ones and only
+* deletes/inserts the chunks in between the unchanged head and tail, so a small edit to a huge
+* note writes a few KB instead of the whole note.*/
+@Dao
+public abstract class NoteChunkDao {
+
+    // distance between the seq of consecutive chunks when they're (re)numbered
+    static final long SEQ_GAP = 1L << 20;
+
+    // sqlite allows 999 bound variables per statement
+    private static final int MAX_IDS_PER_QUERY = 500;
+
+    @Insert
+    abstract long insertNoteRow(Note note);
+
+    @Update
+    abstract int updateNoteRow(Note note);
+
+    // the row of a chunked note whose search_text didn't change
+    @Query("UPDATE notes SET title = :title, content = NULL, content_deflated = NULL, timestamp = :timestamp WHERE id = :noteId")
+    abstract int updateNoteRowKeepSearchText(int noteId, String title, long timestamp);
+
+    @Query("SELECT search_text FROM notes WHERE id = :noteId")
+    abstract String getSearchText(int noteId);
+
+    @Insert
+    abstract void insertChunks(List<NoteChunk> chunks);
+
+    @Query("SELECT seq, hash, length FROM note_chunks WHERE note_id = :noteId ORDER BY seq ASC")
+    abstract List<NoteChunkHeader> getChunkHeaders(int noteId);
+
+    @Query("DELETE FROM note_chunks WHERE note_id = :noteId AND seq > :afterSeq AND seq < :beforeSeq")
+    abstract int deleteChunksBetween(int noteId, long afterSeq, long beforeSeq);
+
+    @Query("DELETE FROM note_chunks WHERE note_id = :noteId")
+    public abstract int deleteChunks(int noteId);
+
+    @Query("SELECT * FROM note_chunks WHERE note_id = :noteId ORDER BY seq ASC")
+    public abstract List<NoteChunk> getChunks(int noteId);
+
+    @Query("SELECT * FROM note_chunks WHERE note_id IN (:noteIds) ORDER BY note_id ASC, seq ASC")
+    abstract List<NoteChunk> getChunksOfNotes(List<Integer> noteIds);
+
+    /*
+    * inserts "note" (stored without content) with "content" in chunks, returns the new row id.*/
+    @Transaction
+    public long insertChunkedNote(@NonNull Note note, @NonNull String content){
+        long rowId = insertNoteRow(note);
+        if(rowId > 0){
+            saveContent((int) rowId, content);
+        }
+        return rowId;
+    }
+
+    /*
+    * updates the row of "note" and its chunks, returns the number of rows updated.
+    * "content" null means the note is stored in its row again (small enough, or not chunked
+    * anymore), its chunks are deleted.
+    * search_text is only written when it changed: most edits of a big note keep its head and its
+    * words (room's FTS triggers still reindex the row, search_text is capped for that, see
+    * NoteContentCodec.searchTextOf).*/
+    @Transaction
+    public int updateChunkedNote(@NonNull Note note, @Nullable String content){
+        int rows;
+        if(content != null && note.getSearchText() != null && note.getSearchText().equals(getSearchText(note.getId()))){
+            rows = updateNoteRowKeepSearchText(note.getId(), note.getTitle(), note.getTimestamp());
+        }else{
+            rows = updateNoteRow(note);
+        }
+        if(rows > 0){
+            if(content == null){
+                deleteChunks(note.getId());
+            }else{
+                saveContent(note.getId(), content);
+            }
+        }
+        return rows;
+    }
+
+    /*
+    * insertChunkedNote for a batch, in one transaction. "contents" goes with "notes": the content
+    * to chunk, or null for a note stored in its row (already encoded).
+    * returns the new row ids, in the order of "notes".*/
+    @Transaction
+    public List<Long> insertChunkedNotes(@NonNull List<Note> notes, @NonNull List<String> contents){
+        List<Long> rowIds = new ArrayList<>(notes.size());
+        for(int i = 0; i < notes.size(); i++){
+            long rowId = insertNoteRow(notes.get(i));
+            if(rowId > 0 && contents.get(i) != null){
+                saveContent((int) rowId, contents.get(i));
+            }
+            rowIds.add(rowId);
+        }
+        return rowIds;
+    }
+
+    /*
+    * updateChunkedNote for a batch, in one transaction ("contents" as in insertChunkedNotes).
+    * returns the number of rows updated.*/
+    @Transaction
+    public int updateChunkedNotes(@NonNull List<Note> notes, @NonNull List<String> contents){
+        int rows = 0;
+        for(int i = 0; i < notes.size(); i++){
+            rows += updateChunkedNote(notes.get(i), contents.get(i));
+        }
+        return rows;
+    }
+
+    /*
+    * stores "content" as the chunks of note "noteId", returns the number of chunks written.
+    * the chunks at the start and at the end that didn't change are kept as they are.*/
+    @Transaction
+    public int saveContent(int noteId, @NonNull String content){
+        List<NoteChunker.Chunk> chunks = NoteChunker.split(content);
+        List<NoteChunkHeader> stored = getChunkHeaders(noteId);
+        int storedCount = stored.size();
+        int count = chunks.size();
+
+        int head = 0;
+        while(head < storedCount && head < count && sameChunk(stored.get(head), chunks.get(head))){
+            head++;
+        }
+        int tail = 0;
+        while(tail < storedCount - head && tail < count - head
+                && sameChunk(stored.get(storedCount - 1 - tail), chunks.get(count - 1 - tail))){
+            tail++;
+        }
+        int changed = count - head - tail;
+        if(changed == 0 && storedCount == count){
+            return 0;
+        }
+
+        if(head == 0 && tail == 0){
+            return rewrite(noteId, chunks);
+        }
+
+        // seqs of the chunks around the changed part, or open ended
+        long afterSeq = head > 0 ? stored.get(head - 1).getSeq() : Long.MIN_VALUE;
+        long beforeSeq = tail > 0 ? stored.get(storedCount - tail).getSeq() : Long.MAX_VALUE;
+
+        long firstSeq;
+        long step;
+        if(head == 0){
+            step = SEQ_GAP;
+            firstSeq = beforeSeq - changed * SEQ_GAP;
+        }else if(tail == 0){
+            step = SEQ_GAP;
+            firstSeq = afterSeq + SEQ_GAP;
+        }else{
+            step = (beforeSeq - afterSeq) / (changed + 1);
+            firstSeq = afterSeq + step;
+            if(step < 1){
+                // no room left between the two, renumber everything (rare, the gaps are wide)
+                return rewrite(noteId, chunks);
+            }
+        }
+
+        deleteChunksBetween(noteId, afterSeq, beforeSeq);
+        List<NoteChunk> written = new ArrayList<>(changed);
+        for(int i = 0; i < changed; i++){
+            NoteChunker.Chunk chunk = chunks.get(head + i);
+            written.add(new NoteChunk(noteId, firstSeq + i * step, chunk.getHash(), chunk.getData().length(), chunk.getData()));
+        }
+        insertChunks(written);
+        return changed;
+    }
+
+    private int rewrite(int noteId, List<NoteChunker.Chunk> chunks){
+        deleteChunks(noteId);
+        List<NoteChunk> written = new ArrayList<>(chunks.size());
+        for(int i = 0; i < chunks.size(); i++){
+            NoteChunker.Chunk chunk = chunks.get(i);
+            written.add(new NoteChunk(noteId, i * SEQ_GAP, chunk.getHash(), chunk.getData().length(), chunk.getData()));
+        }
+        insertChunks(written);
+        return written.size();
+    }
+
+    private static boolean sameChunk(NoteChunkHeader stored, NoteChunker.Chunk chunk){
+        return stored.getHash() == chunk.getHash() && stored.getLength() == chunk.getData().length();
+    }
+
+    /*
+    * the content of note "noteId" put back together, null if it has no chunks.*/
+    @Nullable
+    public String loadContent(int noteId){
+        List<NoteChunk> chunks = getChunks(noteId);
+        if(chunks.isEmpty()){
+            return null;
+        }
+        return join(chunks, 0, chunks.size());
+    }
+
+    /*
+    * fills in the content of the chunked notes in "notes" (content and content_deflated NULL),
+    * with one query per MAX_IDS_PER_QUERY notes. other notes are left alone.*/
+    public List<Note> loadContent(@NonNull List<Note> notes){
+        List<Integer> ids = new ArrayList<>();
+        List<Note> chunked = new ArrayList<>();
+        for(Note note : notes){
+            if(isChunked(note)){
+                ids.add(note.getId());
+                chunked.add(note);
+            }
+        }
+        for(int from = 0; from < ids.size(); from += MAX_IDS_PER_QUERY){
+            int to = Math.min(ids.size(), from + MAX_IDS_PER_QUERY);
+            List<NoteChunk> chunks = getChunksOfNotes(ids.subList(from, to));
+            int start = 0;
+            while(start < chunks.size()){
+                int noteId = chunks.get(start).getNoteId();
+                int end = start;
+                while(end < chunks.size() && chunks.get(end).getNoteId() == noteId){
+                    end++;
+                }
+                String content = join(chunks, start, end);
+                for(int i = from; i < to; i++){
+                    if(chunked.get(i).getId() == noteId){
+                        chunked.get(i).setContent(content);
+                        chunked.get(i).setSearchText(null);
+                    }
+                }
+                start = end;
+            }
+        }
+        return notes;
+    }
+
+    // a note row without content may have its content in chunks
+    public static boolean isChunked(@NonNull Note note){
+        return note.getContent() == null && note.getContentDeflated() == null;
+    }
+
+    private static String join(List<NoteChunk> chunks, int start, int end){
+        int length = 0;
+        for(int i = start; i < end; i++){
+            length += chunks.get(i).getLength();
+        }
+        StringBuilder content = new StringBuilder(length);
+        for(int i = start; i < end; i++){
+            content.append(chunks.get(i).getData());
+        }
+        return content.toString();
+    }
+}
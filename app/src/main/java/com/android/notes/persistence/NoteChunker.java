@@ -0,0 +1,96 @@
+package com.android.notes.persistence;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/*
+* content-defined chunking of note content.
+*
+* a rolling (gear) hash runs over the chars and a chunk ends where the top bits of the hash are
+* all zero. boundaries depend only on the 64 chars before them, so inserting or deleting
+* text only changes the chunks around the edit, the chunks after it are found again unchanged
+* (fixed-size chunks would all shift).
+* chunks are MIN_CHUNK_CHARS to MAX_CHUNK_CHARS long (one more to keep a surrogate pair whole),
+* about 4K chars on average.*/
+public class NoteChunker {
+
+    public static final int MIN_CHUNK_CHARS = 1024;
+    public static final int MAX_CHUNK_CHARS = 16 * 1024;
+
+    // 12 bits -> a boundary every 4096 chars on average (after MIN_CHUNK_CHARS).
+    // the top bits, they depend on the last 64 chars where the low ones only see the last few
+    private static final long BOUNDARY_MASK = ((1L << 12) - 1) << 52;
+
+    // fixed seed, the boundaries must never change between app versions
+    private static final long[] GEAR = new long[256];
+
+    static {
+        Random random = new Random(0x6e6f746573L);
+        for(int i = 0; i < GEAR.length; i++){
+            GEAR[i] = random.nextLong();
+        }
+    }
+
+    public static class Chunk {
+
+        private final String data;
+        private final long hash;
+
+        Chunk(String data, long hash) {
+            this.data = data;
+            this.hash = hash;
+        }
+
+        public String getData() {
+            return data;
+        }
+
+        public long getHash() {
+            return hash;
+        }
+    }
+
+    public static List<Chunk> split(@NonNull String content){
+        List<Chunk> chunks = new ArrayList<>(content.length() / (4 * 1024) + 1);
+        int start = 0;
+        long rolling = 0;
+        int length = content.length();
+        for(int i = 0; i < length; i++){
+            char c = content.charAt(i);
+            // the low byte is enough, the high byte of most text is 0
+            rolling = (rolling << 1) + GEAR[(c ^ (c >>> 8)) & 0xFF];
+            int size = i + 1 - start;
+            boolean boundary = size >= MAX_CHUNK_CHARS || (size >= MIN_CHUNK_CHARS && (rolling & BOUNDARY_MASK) == 0);
+            // never split a surrogate pair
+            if(boundary && !Character.isHighSurrogate(c)){
+                chunks.add(createChunk(content.substring(start, i + 1)));
+                start = i + 1;
+                rolling = 0;
+            }
+        }
+        if(start < length){
+            chunks.add(createChunk(content.substring(start)));
+        }
+        return chunks;
+    }
+
+    private static Chunk createChunk(String data){
+        return new Chunk(data, hash(data));
+    }
+
+    // 64 bit FNV-1a over the chars
+    public static long hash(@NonNull String data){
+        long hash = 0xcbf29ce484222325L;
+        for(int i = 0; i < data.length(); i++){
+            char c = data.charAt(i);
+            hash ^= c & 0xFF;
+            hash *= 0x100000001b3L;
+            hash ^= c >>> 8;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,236 @@
+package com.android.notes.persistence;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.android.notes.models.Note;
+import com.android.notes.models.NoteSummary;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/*
+* opt-in compressed storage of note content.
+*
+* when enabled, content of at least "thresholdChars" characters is stored deflated in the
+* content_deflated column and the content column is left NULL. small notes don't shrink enough
+* to be worth the cpu, they stay plain text.
+*
+* encode() runs on the way into the database, decode() only where a full note body is read
+* (the repository's Note queries). summaries, previews and search never touch content_deflated,
+* so compressed notes are listed without being inflated: they read the search_text column
+* instead, the start of the text and its distinct words (searchTextOf), far smaller than the text.
+*
+* decode() works whether or not compression is enabled, so turning it off never loses notes.
+*
+* content of at least "chunkThresholdChars" characters isn't deflated, it goes into note_chunks
+* instead (see NoteChunkDao) so an edit only rewrites the chunks it touched.*/
+public class NoteContentCodec {
+
+    public static final int DEFAULT_THRESHOLD_CHARS = 4 * 1024;
+    public static final int DEFAULT_CHUNK_THRESHOLD_CHARS = 256 * 1024;
+
+    // never compresses or chunks, still decodes
+    public static final NoteContentCodec DISABLED = new NoteContentCodec(Integer.MAX_VALUE, Integer.MAX_VALUE);
+
+    // the start of the text kept in search_text, what the list previews show
+    public static final int SEARCH_TEXT_HEAD_CHARS = NoteSummary.PREVIEW_LENGTH;
+
+    // search_text is rewritten and reindexed on every save of the note, this keeps that bounded
+    public static final int MAX_SEARCH_TEXT_CHARS = 64 * 1024;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final int thresholdChars;
+    private final int chunkThresholdChars;
+
+    // compression only, no chunking
+    public NoteContentCodec(int thresholdChars) {
+        this(thresholdChars, Integer.MAX_VALUE);
+    }
+
+    public NoteContentCodec(int thresholdChars, int chunkThresholdChars) {
+        if(thresholdChars <= 0 || chunkThresholdChars <= 0){
+            throw new IllegalArgumentException("Threshold must be greater than 0");
+        }
+        this.thresholdChars = thresholdChars;
+        this.chunkThresholdChars = chunkThresholdChars;
+    }
+
+    public boolean isEnabled(){
+        return thresholdChars != Integer.MAX_VALUE;
+    }
+
+    public boolean isChunkingEnabled(){
+        return chunkThresholdChars != Integer.MAX_VALUE;
+    }
+
+    // deflated, in the note row. checked after shouldChunk: a note that gets chunked isn't deflated
+    public boolean shouldCompress(String content){
+        return content != null && content.length() >= thresholdChars;
+    }
+
+    // in note_chunks. single notes and batches alike (NoteRepository.insertNoteRows, updateNoteRows)
+    public boolean shouldChunk(String content){
+        return content != null && content.length() >= chunkThresholdChars;
+    }
+
+    /*
+    * the row of a chunked note: a copy of "note" without content.*/
+    public static Note withoutContent(@NonNull Note note){
+        Note stored = new Note(note);
+        stored.setSearchText(searchTextOf(note.getContent()));
+        stored.setContent(null);
+        stored.setContentDeflated(null);
+        return stored;
+    }
+
+    /*
+    * search_text of a note stored without content: the first SEARCH_TEXT_HEAD_CHARS chars as they
+    * are (the preview), then every distinct word of the text once, in order of first appearance.
+    * words are split the way the "simple" FTS tokenizer splits them (ascii letters and digits, and
+    * any non-ascii char), so every word of the note can be found.
+    * at most about MAX_SEARCH_TEXT_CHARS: the words that first appear past that aren't searchable,
+    * it only happens to notes with a very large vocabulary.*/
+    @Nullable
+    public static String searchTextOf(@Nullable String content){
+        if(content == null){
+            return null;
+        }
+        int head = Math.min(content.length(), SEARCH_TEXT_HEAD_CHARS);
+        if(head < content.length() && Character.isHighSurrogate(content.charAt(head - 1))){
+            head--;
+        }
+        if(head == content.length()){
+            return content;
+        }
+        StringBuilder searchText = new StringBuilder(head + 1024).append(content, 0, head).append('\n');
+        Set<String> words = new HashSet<>();
+        int start = -1;
+        for(int i = 0; i <= content.length(); i++){
+            if(i < content.length() && isWordChar(content.charAt(i))){
+                if(start < 0){
+                    start = i;
+                }
+            }else if(start >= 0){
+                String word = content.substring(start, i);
+                if(words.add(word)){
+                    searchText.append(word).append(' ');
+                    if(searchText.length() >= MAX_SEARCH_TEXT_CHARS){
+                        break;
+                    }
+                }
+                start = -1;
+            }
+        }
+        return searchText.toString();
+    }
+
+    private static boolean isWordChar(char c){
+        return c >= 128 || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+    }
+
+    /*
+    * the note to hand to the dao: "note" itself when it is stored as is,
+    * otherwise a copy with the content moved into content_deflated.*/
+    public Note encode(@NonNull Note note){
+        if(shouldCompress(note.getContent())){
+            Note stored = new Note(note);
+            stored.setContentDeflated(deflate(note.getContent()));
+            stored.setSearchText(searchTextOf(note.getContent()));
+            stored.setContent(null);
+            return stored;
+        }
+        if(note.getContentDeflated() != null || note.getSearchText() != null){
+            // content was edited down below the threshold (or compression turned off)
+            Note stored = new Note(note);
+            stored.setContentDeflated(null);
+            stored.setSearchText(null);
+            return stored;
+        }
+        return note;
+    }
+
+    public List<Note> encode(@NonNull List<Note> notes){
+        List<Note> stored = null;
+        for(int i = 0; i < notes.size(); i++){
+            Note note = notes.get(i);
+            Note encoded = encode(note);
+            if(encoded != note && stored == null){
+                stored = new ArrayList<>(notes.subList(0, i));
+            }
+            if(stored != null){
+                stored.add(encoded);
+            }
+        }
+        return stored == null ? notes : stored;
+    }
+
+    /*
+    * inflates the content of a note read from the database, in place.
+    * does nothing for notes stored as plain text.*/
+    public static Note decode(@NonNull Note note){
+        byte[] deflated = note.getContentDeflated();
+        if(deflated != null){
+            note.setContent(inflate(deflated));
+            note.setContentDeflated(null);
+            note.setSearchText(null);
+        }
+        return note;
+    }
+
+    public static List<Note> decode(@NonNull List<Note> notes){
+        for(Note note : notes){
+            decode(note);
+        }
+        return notes;
+    }
+
+    public static byte[] deflate(@NonNull String content){
+        byte[] input = content.getBytes(UTF_8);
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        try{
+            deflater.setInput(input);
+            deflater.finish();
+            ByteArrayOutputStream output = new ByteArrayOutputStream(input.length / 2 + 16);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while(!deflater.finished()){
+                int length = deflater.deflate(buffer);
+                output.write(buffer, 0, length);
+            }
+            return output.toByteArray();
+        }finally {
+            // frees the native zlib memory now instead of at finalization
+            deflater.end();
+        }
+    }
+
+    public static String inflate(@NonNull byte[] deflated){
+        Inflater inflater = new Inflater();
+        try{
+            inflater.setInput(deflated);
+            ByteArrayOutputStream output = new ByteArrayOutputStream(deflated.length * 4);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while(!inflater.finished()){
+                int length = inflater.inflate(buffer);
+                if(length == 0 && (inflater.needsInput() || inflater.needsDictionary())){
+                    throw new IllegalStateException("Truncated note content");
+                }
+                output.write(buffer, 0, length);
+            }
+            return new String(output.toByteArray(), UTF_8);
+        }catch (DataFormatException e){
+            throw new IllegalStateException("Corrupt note content", e);
+        }finally {
+            inflater.end();
+        }
+    }
+}
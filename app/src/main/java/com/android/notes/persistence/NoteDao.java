@@ -1,6 +1,9 @@
 package com.android.notes.persistence;
 
+import android.database.Cursor;
+
 import androidx.lifecycle.LiveData;
+import androidx.paging.DataSource;
 import androidx.room.Dao;
 import androidx.room.Delete;
 import androidx.room.Insert;
@@ -8,11 +11,15 @@ import androidx.room.Query;
 import androidx.room.Update;
 
 import com.android.notes.models.Note;
+import com.android.notes.models.NoteSearchResult;
+import com.android.notes.models.NoteSummary;
 
 import java.util.List;
 
 import javax.inject.Singleton;
 
+import io.reactivex.Flowable;
+import io.reactivex.Maybe;
 import io.reactivex.Single;
 
 @Dao
@@ -23,10 +30,77 @@ public interface NoteDao {
     @Query("SELECT * FROM notes")
     LiveData<List<Note>> getNotes();
 
+    // all notes ordered by id, re-emitted every time the table changes
+    @Query("SELECT * FROM notes ORDER BY id ASC")
+    Flowable<List<Note>> observeNotes();
+
+    // paged list of notes, ordered by id so pages stay stable while the table grows
+    @Query("SELECT * FROM notes ORDER BY id ASC")
+    DataSource.Factory<Integer, Note> getNotesPaged();
+
+    // paged list of summaries, the content is cut down to a short preview inside SQLite.
+    // notes stored without content take it from search_text, which starts with their first
+    // NoteContentCodec.SEARCH_TEXT_HEAD_CHARS chars (previewLength must not be longer)
+    @Query("SELECT id, title, timestamp, substr(COALESCE(content, search_text), 1, :previewLength) AS preview FROM notes ORDER BY id ASC")
+    DataSource.Factory<Integer, NoteSummary> getNoteSummariesPaged(int previewLength);
+
+    // summaries of the notes modified between "from" and "to" (epoch millis, inclusive), newest first.
+    // served by the timestamp index, no full table sort
+    @Query("SELECT id, title, timestamp, substr(COALESCE(content, search_text), 1, :previewLength) AS preview FROM notes " +
+            "WHERE timestamp BETWEEN :from AND :to ORDER BY timestamp DESC")
+    Flowable<List<NoteSummary>> getNoteSummariesModifiedBetween(long from, long to, int previewLength);
+
+    // summaries of the "limit" most recently modified notes, newest first
+    @Query("SELECT id, title, timestamp, substr(COALESCE(content, search_text), 1, :previewLength) AS preview FROM notes " +
+            "ORDER BY timestamp DESC LIMIT :limit")
+    Flowable<List<NoteSummary>> getRecentNoteSummaries(int limit, int previewLength);
+
+    // every note ordered by id, read row by row (see NoteExporter). the caller closes the cursor
+    @Query("SELECT * FROM notes ORDER BY id ASC")
+    Cursor getNotesCursor();
+
+    // full note, including the whole content. completes empty if there is no note with that id
+    @Query("SELECT * FROM notes WHERE id = :id")
+    Maybe<Note> getNoteById(int id);
+
+    // keyset page: the next "limit" notes after "afterId" (use 0 for the first page)
+    @Query("SELECT * FROM notes WHERE id > :afterId ORDER BY id ASC LIMIT :limit")
+    Single<List<Note>> getNotesAfter(int afterId, int limit);
+
+    // full notes with an id from "fromId" to "toId" (inclusive), read on the calling thread (see NoteChangeRouter)
+    @Query("SELECT * FROM notes WHERE id BETWEEN :fromId AND :toId ORDER BY id ASC")
+    List<Note> getNotesInRange(int fromId, int toId);
+
+    // full notes with these ids, the ones that don't exist are left out. read on the calling thread
+    @Query("SELECT * FROM notes WHERE id IN (:ids)")
+    List<Note> getNotesByIds(List<Integer> ids);
+
     @Delete
     Single<Integer> deleteNote (Note note) throws Exception;
 
     @Update
     Single<Integer> updateNote (Note note) throws Exception;
 
+    // batch variants: each call runs in a single transaction, so one commit for the whole list
+
+    @Insert
+    Single<List<Long>> insertNotes(List<Note> notes) throws Exception;
+
+    @Update
+    Single<Integer> updateNotes(List<Note> notes) throws Exception;
+
+    @Delete
+    Single<Integer> deleteNotes(List<Note> notes) throws Exception;
+
+    // full-text search, "query" must be an FTS MATCH expression (see SearchUtil.toMatchQuery).
+    // rows come back roughly ranked by number of hits, the repository refines the order with match_info
+    @Query("SELECT notes.id, notes.title, notes.timestamp, " +
+            "snippet(notes_fts, '[', ']', '...', -1, 12) AS snippet, " +
+            "matchinfo(notes_fts, 'pcx') AS match_info " +
+            "FROM notes_fts JOIN notes ON notes.id = notes_fts.docid " +
+            "WHERE notes_fts MATCH :query " +
+            "ORDER BY length(offsets(notes_fts)) DESC " +
+            "LIMIT :limit")
+    Flowable<List<NoteSearchResult>> search(String query, int limit);
+
 }
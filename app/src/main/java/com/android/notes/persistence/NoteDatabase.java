@@ -1,15 +1,188 @@
 package com.android.notes.persistence;
 
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
 import androidx.room.Database;
 import androidx.room.RoomDatabase;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
 
 import com.android.notes.models.Note;
+import com.android.notes.models.NoteChunk;
+import com.android.notes.models.NoteFts;
+import com.android.notes.models.NoteRevision;
+
+import java.util.ArrayList;
+import java.util.List;
 
-@Database(entities = {Note.class}, version =1)
+@Database(entities = {Note.class, NoteFts.class, NoteChunk.class, NoteRevision.class}, version = 8)
 public abstract  class NoteDatabase  extends RoomDatabase {
 
     public static final String DATABASE_NAME = "notes_db";
 
     public abstract NoteDao getNoteDao();
 
+    public abstract NoteChunkDao getNoteChunkDao();
+
+    public abstract NoteRevisionDao getNoteRevisionDao();
+
+    /*
+    * 1 -> 2: full-text index over notes (title, content).
+    * same statements room generates for the NoteFts entity, then the index is filled from the existing notes.*/
+    public static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `notes_fts` USING FTS4(`title` TEXT NOT NULL, `content` TEXT, content=`notes`)");
+            createNotesFtsTriggers(database, FTS_COLUMNS_V2);
+            database.execSQL("INSERT INTO `notes_fts`(`notes_fts`) VALUES('rebuild')");
+        }
+    };
+
+    /*
+    * 2 -> 3: timestamp goes from a "MM-yyyy" string to epoch millis (INTEGER) with an index.
+    * sqlite can't change a column type in place, so the table is rebuilt. ids are kept, so the
+    * full-text index (keyed by docid = id) stays valid, only its triggers have to be recreated.
+    * old values become the first day of their month (UTC), anything unparsable becomes 0.*/
+    public static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `notes_new` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `title` TEXT NOT NULL, `content` TEXT, `timestamp` INTEGER NOT NULL)");
+            database.execSQL("INSERT INTO `notes_new` (`id`, `title`, `content`, `timestamp`) " +
+                    "SELECT `id`, `title`, `content`, " +
+                    "COALESCE(CAST(strftime('%s', substr(`timestamp`, 4, 4) || '-' || substr(`timestamp`, 1, 2) || '-01') AS INTEGER) * 1000, 0) " +
+                    "FROM `notes`");
+            database.execSQL("DROP TABLE `notes`");
+            database.execSQL("ALTER TABLE `notes_new` RENAME TO `notes`");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_notes_timestamp` ON `notes` (`timestamp`)");
+            createNotesFtsTriggers(database, FTS_COLUMNS_V2);
+        }
+    };
+
+    /*
+    * 3 -> 4: content_deflated column for notes stored compressed (see NoteContentCodec).
+    * existing notes stay plain text.*/
+    public static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE `notes` ADD COLUMN `content_deflated` BLOB");
+        }
+    };
+
+    /*
+    * 4 -> 5: note_chunks table for chunked notes (see NoteChunkDao).*/
+    public static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `note_chunks` (`note_id` INTEGER NOT NULL, `seq` INTEGER NOT NULL, `hash` INTEGER NOT NULL, `length` INTEGER NOT NULL, `data` TEXT NOT NULL, " +
+                    "PRIMARY KEY(`note_id`, `seq`), FOREIGN KEY(`note_id`) REFERENCES `notes`(`id`) ON UPDATE NO ACTION ON DELETE CASCADE )");
+        }
+    };
+
+    /*
+    * 5 -> 6: note_revisions table for the revision history (see NoteRevisionDao).
+    * existing notes start their history at their next save.*/
+    public static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `note_revisions` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `note_id` INTEGER NOT NULL, " +
+                    "`revision` INTEGER NOT NULL, `timestamp` INTEGER NOT NULL, `title` TEXT NOT NULL, `kind` INTEGER NOT NULL, `content` TEXT, " +
+                    "`prefix_length` INTEGER NOT NULL, `suffix_length` INTEGER NOT NULL, `inserted` TEXT, " +
+                    "FOREIGN KEY(`note_id`) REFERENCES `notes`(`id`) ON UPDATE NO ACTION ON DELETE CASCADE )");
+            database.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_note_revisions_note_id_revision` ON `note_revisions` (`note_id`, `revision`)");
+        }
+    };
+
+    /*
+    * 6 -> 7: search_text column, so compressed and chunked notes (content NULL) are searchable and
+    * have a preview (see NoteContentCodec.searchTextOf). it is filled for the existing ones, and
+    * the full-text index is rebuilt with it as a third column.*/
+    public static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            dropNotesFtsTriggers(database);
+            database.execSQL("DROP TABLE IF EXISTS `notes_fts`");
+            database.execSQL("ALTER TABLE `notes` ADD COLUMN `search_text` TEXT");
+
+            for(int id : queryIds(database, "SELECT `id` FROM `notes` WHERE `content` IS NULL AND `content_deflated` IS NOT NULL")){
+                Cursor cursor = database.query("SELECT `content_deflated` FROM `notes` WHERE `id` = ?", new Object[]{id});
+                try{
+                    if(cursor.moveToFirst()){
+                        setSearchText(database, id, NoteContentCodec.inflate(cursor.getBlob(0)));
+                    }
+                }finally {
+                    cursor.close();
+                }
+            }
+            for(int id : queryIds(database, "SELECT DISTINCT `note_id` FROM `note_chunks`")){
+                Cursor cursor = database.query("SELECT `data` FROM `note_chunks` WHERE `note_id` = ? ORDER BY `seq` ASC", new Object[]{id});
+                try{
+                    StringBuilder content = new StringBuilder();
+                    while (cursor.moveToNext()){
+                        content.append(cursor.getString(0));
+                    }
+                    setSearchText(database, id, content.toString());
+                }finally {
+                    cursor.close();
+                }
+            }
+
+            database.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `notes_fts` USING FTS4(`title` TEXT NOT NULL, `content` TEXT, `search_text` TEXT, content=`notes`)");
+            createNotesFtsTriggers(database, FTS_COLUMNS);
+            database.execSQL("INSERT INTO `notes_fts`(`notes_fts`) VALUES('rebuild')");
+        }
+    };
+
+    /*
+    * 7 -> 8: content_deflated column for revision snapshots stored compressed (see NoteRevisionDao).
+    * existing snapshots stay plain text.*/
+    public static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE `note_revisions` ADD COLUMN `content_deflated` BLOB");
+        }
+    };
+
+    private static List<Integer> queryIds(SupportSQLiteDatabase database, String sql){
+        List<Integer> ids = new ArrayList<>();
+        Cursor cursor = database.query(sql);
+        try{
+            while (cursor.moveToNext()){
+                ids.add(cursor.getInt(0));
+            }
+        }finally {
+            cursor.close();
+        }
+        return ids;
+    }
+
+    private static void setSearchText(SupportSQLiteDatabase database, int noteId, String content){
+        database.execSQL("UPDATE `notes` SET `search_text` = ? WHERE `id` = ?", new Object[]{NoteContentCodec.searchTextOf(content), noteId});
+    }
+
+    // the columns of notes_fts from version 2 to 6, and since 7
+    private static final String[] FTS_COLUMNS_V2 = {"title", "content"};
+    private static final String[] FTS_COLUMNS = {"title", "content", "search_text"};
+
+    // keeps notes_fts in sync with the notes table (external content FTS table), same triggers room creates
+    static void createNotesFtsTriggers(SupportSQLiteDatabase database, String[] columns){
+        StringBuilder names = new StringBuilder("`docid`");
+        StringBuilder values = new StringBuilder("NEW.`rowid`");
+        for(String column : columns){
+            names.append(", `").append(column).append('`');
+            values.append(", NEW.`").append(column).append('`');
+        }
+        database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_notes_fts_BEFORE_UPDATE BEFORE UPDATE ON `notes` BEGIN DELETE FROM `notes_fts` WHERE `docid`=OLD.`rowid`; END");
+        database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_notes_fts_BEFORE_DELETE BEFORE DELETE ON `notes` BEGIN DELETE FROM `notes_fts` WHERE `docid`=OLD.`rowid`; END");
+        database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_notes_fts_AFTER_UPDATE AFTER UPDATE ON `notes` BEGIN INSERT INTO `notes_fts`(" + names + ") VALUES (" + values + "); END");
+        database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_notes_fts_AFTER_INSERT AFTER INSERT ON `notes` BEGIN INSERT INTO `notes_fts`(" + names + ") VALUES (" + values + "); END");
+    }
+
+    private static void dropNotesFtsTriggers(SupportSQLiteDatabase database){
+        database.execSQL("DROP TRIGGER IF EXISTS room_fts_content_sync_notes_fts_BEFORE_UPDATE");
+        database.execSQL("DROP TRIGGER IF EXISTS room_fts_content_sync_notes_fts_BEFORE_DELETE");
+        database.execSQL("DROP TRIGGER IF EXISTS room_fts_content_sync_notes_fts_AFTER_UPDATE");
+        database.execSQL("DROP TRIGGER IF EXISTS room_fts_content_sync_notes_fts_AFTER_INSERT");
+    }
+
 }
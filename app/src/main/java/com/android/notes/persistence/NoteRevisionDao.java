@@ -0,0 +1,293 @@
+package com.android.notes.persistence;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.Query;
+import androidx.room.Transaction;
+import androidx.room.Update;
+
+import com.android.notes.models.Note;
+import com.android.notes.models.NoteRevision;
+import com.android.notes.models.NoteRevisionInfo;
+import com.android.notes.util.TextDelta;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.reactivex.Flowable;
+
+/*
+* revision history of the notes.
+*
+* every update adds a revision. most are stored as a TextDelta from the revision before, every
+* SNAPSHOT_INTERVAL-th one as a full snapshot, so any revision is rebuilt from at most
+* SNAPSHOT_INTERVAL rows (the last snapshot before it and the deltas after that). snapshots go
+* through a NoteContentCodec, big ones are stored deflated.
+* inserts add none, the note's row is its only version until it is updated (the caller adds the
+* row as it was as the first revision then, see NoteRepository).
+*
+* a delta needs the previous revision in full. the caller keeps the latest revision of the notes it
+* saves (LatestRevisions), so a save doesn't rebuild it from the rows every time.
+*
+* compaction keeps the last KEEP_RECENT_REVISIONS revisions of a note, drops the deltas before them
+* and thins the snapshots before them out to the last one of every THIN_INTERVAL_MILLIS (a coarser
+* history), then drops those past RETENTION_MILLIS.
+* it is due every COMPACT_INTERVAL revisions of a note (isCompactionDue), the caller runs it after
+* the save, not inside it.*/
+@Dao
+public abstract class NoteRevisionDao {
+
+    public static final int SNAPSHOT_INTERVAL = 16;
+    public static final int KEEP_RECENT_REVISIONS = 64;
+    public static final int COMPACT_INTERVAL = 32;
+    public static final long RETENTION_MILLIS = 90L * 24 * 60 * 60 * 1000;
+    public static final long THIN_INTERVAL_MILLIS = 24L * 60 * 60 * 1000;
+
+    // sqlite allows 999 bound variables per statement
+    private static final int MAX_REVISIONS_PER_QUERY = 500;
+
+    /*
+    * the latest revision of notes rebuilt as snapshots, kept by the caller between saves.
+    * addRevision checks that what it gets is still the latest one before using it.*/
+    public interface LatestRevisions {
+
+        @Nullable
+        NoteRevision get(int noteId);
+
+        void put(@NonNull NoteRevision latest);
+    }
+
+    public static final LatestRevisions NO_LATEST_REVISIONS = new LatestRevisions() {
+        @Nullable
+        @Override
+        public NoteRevision get(int noteId) {
+            return null;
+        }
+
+        @Override
+        public void put(@NonNull NoteRevision latest) {
+        }
+    };
+
+    @Insert
+    abstract long insertRevision(NoteRevision revision);
+
+    @Update
+    abstract int updateRevision(NoteRevision revision);
+
+    @Query("SELECT * FROM note_revisions WHERE note_id = :noteId ORDER BY revision DESC LIMIT 1")
+    abstract NoteRevision getLatestRevision(int noteId);
+
+    // the latest revision without its content or delta
+    @Query("SELECT note_id, revision, timestamp, title FROM note_revisions WHERE note_id = :noteId ORDER BY revision DESC LIMIT 1")
+    abstract NoteRevisionInfo getLatestRevisionInfo(int noteId);
+
+    @Query("SELECT * FROM note_revisions WHERE note_id = :noteId AND revision = :revision")
+    abstract NoteRevision getRevisionRow(int noteId, int revision);
+
+    @Query("SELECT MAX(revision) FROM note_revisions WHERE note_id = :noteId AND kind = " + NoteRevision.SNAPSHOT)
+    abstract int getLatestSnapshotRevision(int noteId);
+
+    // the last snapshot at or before "revision" and every delta after it, up to "revision"
+    @Query("SELECT * FROM note_revisions WHERE note_id = :noteId AND revision <= :revision " +
+            "AND revision >= (SELECT MAX(revision) FROM note_revisions WHERE note_id = :noteId AND revision <= :revision AND kind = " + NoteRevision.SNAPSHOT + ") " +
+            "ORDER BY revision ASC")
+    abstract List<NoteRevision> getRevisionChain(int noteId, int revision);
+
+    @Query("DELETE FROM note_revisions WHERE note_id = :noteId AND revision < :beforeRevision AND kind = " + NoteRevision.DELTA)
+    abstract int deleteDeltasBefore(int noteId, int beforeRevision);
+
+    @Query("DELETE FROM note_revisions WHERE note_id = :noteId AND revision < :beforeRevision AND timestamp < :olderThan")
+    abstract int deleteRevisionsBefore(int noteId, int beforeRevision, long olderThan);
+
+    @Query("SELECT DISTINCT note_id FROM note_revisions")
+    abstract List<Integer> getNoteIdsWithRevisions();
+
+    @Query("SELECT note_id, revision, timestamp, title FROM note_revisions WHERE note_id = :noteId AND revision < :beforeRevision " +
+            "AND kind = " + NoteRevision.SNAPSHOT + " ORDER BY revision ASC")
+    abstract List<NoteRevisionInfo> getSnapshotsBefore(int noteId, int beforeRevision);
+
+    @Query("DELETE FROM note_revisions WHERE note_id = :noteId AND revision IN (:revisions)")
+    abstract int deleteRevisions(int noteId, List<Integer> revisions);
+
+    @Query("SELECT EXISTS(SELECT 1 FROM note_revisions WHERE note_id = :noteId)")
+    public abstract boolean hasRevisions(int noteId);
+
+    // newest first
+    @Query("SELECT note_id, revision, timestamp, title FROM note_revisions WHERE note_id = :noteId ORDER BY revision DESC")
+    public abstract Flowable<List<NoteRevisionInfo>> observeRevisions(int noteId);
+
+    /*
+    * adds the next revision of note "noteId", returns it or null if nothing changed since the last one.
+    * snapshots are stored as plain text.*/
+    @Nullable
+    public NoteRevision addRevision(int noteId, @NonNull String title, @Nullable String content, long timestamp){
+        return addRevision(noteId, title, content, timestamp, NO_LATEST_REVISIONS);
+    }
+
+    @Nullable
+    public NoteRevision addRevision(int noteId, @NonNull String title, @Nullable String content, long timestamp,
+                                    @NonNull LatestRevisions latestRevisions){
+        return addRevision(noteId, title, content, timestamp, latestRevisions, NoteContentCodec.DISABLED);
+    }
+
+    /*
+    * same, the previous revision is taken from "latestRevisions" when it has it, and the added one
+    * is put there. a snapshot is stored deflated if "codec" compresses its content.*/
+    @Transaction
+    @Nullable
+    public NoteRevision addRevision(int noteId, @NonNull String title, @Nullable String content, long timestamp,
+                                    @NonNull LatestRevisions latestRevisions, @NonNull NoteContentCodec codec){
+        if(content == null){
+            content = "";
+        }
+        NoteRevisionInfo latest = getLatestRevisionInfo(noteId);
+        NoteRevision added;
+        if(latest == null){
+            added = NoteRevision.snapshot(noteId, 1, timestamp, title, content);
+        }else{
+            NoteRevision previous = latestRevisions.get(noteId);
+            if(previous == null || !isSameRevision(previous, latest)){
+                previous = getRevision(noteId, latest.getRevision());
+            }
+            if(previous != null && previous.getTitle().equals(title) && content.equals(previous.getContent())){
+                return null;
+            }
+            int revision = latest.getRevision() + 1;
+            if(previous == null || revision - getLatestSnapshotRevision(noteId) >= SNAPSHOT_INTERVAL){
+                added = NoteRevision.snapshot(noteId, revision, timestamp, title, content);
+            }else{
+                added = NoteRevision.delta(noteId, revision, timestamp, title, TextDelta.between(previous.getContent(), content));
+            }
+        }
+        insertRevision(encode(added, codec));
+        latestRevisions.put(added.isSnapshot() ? added : added.toSnapshot(content));
+        return added;
+    }
+
+    // "revision" as it is stored
+    private static NoteRevision encode(NoteRevision revision, NoteContentCodec codec){
+        if(revision.isSnapshot() && codec.shouldCompress(revision.getContent())){
+            return revision.toDeflatedSnapshot(NoteContentCodec.deflate(revision.getContent()));
+        }
+        return revision;
+    }
+
+    // the full content of a stored snapshot
+    private static String contentOf(NoteRevision snapshot){
+        byte[] deflated = snapshot.getContentDeflated();
+        return deflated != null ? NoteContentCodec.inflate(deflated) : snapshot.getContent();
+    }
+
+    /*
+    * addRevision for every note of "notes" (their id, title, content and timestamp), in one transaction.
+    * returns the revisions added, notes that didn't change have none.*/
+    public List<NoteRevision> addRevisions(@NonNull List<Note> notes, @NonNull LatestRevisions latestRevisions){
+        return addRevisions(notes, latestRevisions, NoteContentCodec.DISABLED);
+    }
+
+    @Transaction
+    public List<NoteRevision> addRevisions(@NonNull List<Note> notes, @NonNull LatestRevisions latestRevisions,
+                                           @NonNull NoteContentCodec codec){
+        List<NoteRevision> added = new ArrayList<>(notes.size());
+        for(Note note : notes){
+            NoteRevision revision = addRevision(note.getId(), note.getTitle(), note.getContent(), note.getTimestamp(), latestRevisions, codec);
+            if(revision != null){
+                added.add(revision);
+            }
+        }
+        return added;
+    }
+
+    private static boolean isSameRevision(NoteRevision known, NoteRevisionInfo latest){
+        return known.getNoteId() == latest.getNoteId()
+                && known.getRevision() == latest.getRevision()
+                && known.getTimestamp() == latest.getTimestamp()
+                && known.getTitle().equals(latest.getTitle());
+    }
+
+    // true if "added" is a revision after which its note's history should be compacted
+    public static boolean isCompactionDue(@NonNull NoteRevision added){
+        return added.getRevision() % COMPACT_INTERVAL == 0;
+    }
+
+    /*
+    * revision "revision" of note "noteId" rebuilt as a snapshot, null if it doesn't exist (anymore).*/
+    @Transaction
+    @Nullable
+    public NoteRevision getRevision(int noteId, int revision){
+        List<NoteRevision> chain = getRevisionChain(noteId, revision);
+        if(chain.isEmpty() || !chain.get(0).isSnapshot() || chain.get(chain.size() - 1).getRevision() != revision){
+            return null;
+        }
+        String content = contentOf(chain.get(0));
+        for(int i = 1; i < chain.size(); i++){
+            content = chain.get(i).getDelta().applyTo(content);
+        }
+        return chain.get(chain.size() - 1).toSnapshot(content);
+    }
+
+    /*
+    * compacts the history of note "noteId", see the class comment. snapshots older than "olderThan"
+    * (epoch millis) are deleted too. returns the number of revisions deleted.*/
+    public int compact(int noteId, long olderThan){
+        return compact(noteId, olderThan, NoteContentCodec.DISABLED);
+    }
+
+    // same, the snapshot that replaces the oldest kept delta is stored through "codec"
+    @Transaction
+    public int compact(int noteId, long olderThan, @NonNull NoteContentCodec codec){
+        NoteRevision latest = getLatestRevision(noteId);
+        if(latest == null || latest.getRevision() <= KEEP_RECENT_REVISIONS){
+            return 0;
+        }
+        // oldest revision kept in full detail. revisions from the last compaction on have no gaps, so it exists
+        int keepFrom = latest.getRevision() - KEEP_RECENT_REVISIONS + 1;
+        NoteRevision oldestKept = getRevisionRow(noteId, keepFrom);
+        if(oldestKept == null){
+            return 0;
+        }
+        if(!oldestKept.isSnapshot()){
+            // the deltas it builds on are about to go
+            NoteRevision rebuilt = getRevision(noteId, keepFrom);
+            if(rebuilt == null){
+                return 0;
+            }
+            updateRevision(encode(rebuilt, codec));
+        }
+        return deleteDeltasBefore(noteId, keepFrom) + thinSnapshotsBefore(noteId, keepFrom)
+                + deleteRevisionsBefore(noteId, keepFrom, olderThan);
+    }
+
+    // keeps the last snapshot of every THIN_INTERVAL_MILLIS before "beforeRevision", returns the number deleted
+    private int thinSnapshotsBefore(int noteId, int beforeRevision){
+        List<NoteRevisionInfo> snapshots = getSnapshotsBefore(noteId, beforeRevision);
+        List<Integer> thinned = new ArrayList<>();
+        for(int i = 0; i < snapshots.size() - 1; i++){
+            if(snapshots.get(i).getTimestamp() / THIN_INTERVAL_MILLIS == snapshots.get(i + 1).getTimestamp() / THIN_INTERVAL_MILLIS){
+                thinned.add(snapshots.get(i).getRevision());
+            }
+        }
+        int deleted = 0;
+        for(int from = 0; from < thinned.size(); from += MAX_REVISIONS_PER_QUERY){
+            deleted += deleteRevisions(noteId, thinned.subList(from, Math.min(thinned.size(), from + MAX_REVISIONS_PER_QUERY)));
+        }
+        return deleted;
+    }
+
+    // compact(noteId, olderThan) for every note with a history
+    public int compactAll(long olderThan){
+        return compactAll(olderThan, NoteContentCodec.DISABLED);
+    }
+
+    @Transaction
+    public int compactAll(long olderThan, @NonNull NoteContentCodec codec){
+        int deleted = 0;
+        for(int noteId : getNoteIdsWithRevisions()){
+            deleted += compact(noteId, olderThan, codec);
+        }
+        return deleted;
+    }
+}
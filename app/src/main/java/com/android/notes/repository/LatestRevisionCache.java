@@ -0,0 +1,46 @@
+package com.android.notes.repository;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.collection.LruCache;
+
+import com.android.notes.models.NoteRevision;
+import com.android.notes.persistence.NoteRevisionDao;
+
+/*
+* the latest revision of the recently saved notes, in full, so the next save of the same note can
+* compute its delta without rebuilding the previous revision from the revision rows
+* (see NoteRevisionDao.addRevision). LRU bounded by the bytes of the cached strings, like NoteCache.
+*
+* only read and written on the writer thread, inside the revision transactions.*/
+class LatestRevisionCache implements NoteRevisionDao.LatestRevisions {
+
+    static final int DEFAULT_MAX_BYTES = 1024 * 1024;
+
+    private final LruCache<Integer, NoteRevision> cache;
+
+    LatestRevisionCache(int maxBytes) {
+        cache = new LruCache<Integer, NoteRevision>(maxBytes) {
+            @Override
+            protected int sizeOf(@NonNull Integer key, @NonNull NoteRevision revision) {
+                int chars = revision.getTitle().length() + (revision.getContent() == null ? 0 : revision.getContent().length());
+                return 64 + 2 * chars;
+            }
+        };
+    }
+
+    @Nullable
+    @Override
+    public NoteRevision get(int noteId) {
+        return cache.get(noteId);
+    }
+
+    @Override
+    public void put(@NonNull NoteRevision latest) {
+        cache.put(latest.getNoteId(), latest);
+    }
+
+    void remove(int noteId){
+        cache.remove(noteId);
+    }
+}
@@ -0,0 +1,219 @@
+package com.android.notes.repository;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.collection.LruCache;
+import androidx.room.InvalidationTracker;
+
+import com.android.notes.models.Note;
+import com.android.notes.persistence.NoteChangeLog;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+* in-memory LRU cache of full notes, keyed by Note.id and bounded by the bytes of the cached strings
+* (not by the number of notes, one huge note can take the space of thousands of small ones).
+*
+* the repository writes through it on insert/update/delete. writes that don't go through the
+* repository are caught by the room InvalidationTracker observer: it reads which rows were written
+* from the NoteChangeLog and drops the notes that weren't written by the repository, so the rest
+* of the cache survives. the repository announces the rows it writes (beginLocalWrite) as note id
+* and timestamp, any other row in the log was written by someone else, even when room reports both
+* in the same invalidation. without a change log every invalidation drops the whole cache.
+* notes go in and out as copies, callers can't change what's cached.
+*
+* the external change listener hears about the notes the cache dropped.*/
+public class NoteCache {
+
+    public static final int DEFAULT_MAX_BYTES = 4 * 1024 * 1024;
+
+    // object headers, id, timestamp, references...
+    private static final int NOTE_OVERHEAD_BYTES = 64;
+
+    private final LruCache<Integer, Note> cache;
+
+    // a local write the log hasn't shown after this many drains is forgotten (it failed, or changed
+    // nothing). if it lands later it is taken for an external write, which only costs a reload
+    static final int MAX_DRAINS_PER_LOCAL_WRITE = 16;
+
+    public interface ExternalChangeListener {
+        // "noteIds": the notes written behind the repository's back, null if it isn't known which
+        void onExternalChange(@Nullable List<Integer> noteIds);
+    }
+
+    @Nullable
+    private final NoteChangeLog changeLog;
+
+    // guarded by itself: rows the repository is writing or wrote, and how many drains didn't show them yet
+    private final Map<NoteChangeLog.Change, Integer> localWrites = new HashMap<>();
+
+    @Nullable
+    private volatile ExternalChangeListener externalChangeListener;
+
+    private final InvalidationTracker.Observer invalidationObserver = new InvalidationTracker.Observer("notes") {
+        @Override
+        public void onInvalidated(@NonNull Set<String> tables) {
+            List<Integer> externalIds = null;
+            if(changeLog == null){
+                cache.evictAll();
+            }else{
+                externalIds = externalNoteIds(changeLog.drain());
+                if(externalIds.isEmpty()){
+                    return;
+                }
+                for(int id : externalIds){
+                    cache.remove(id);
+                }
+            }
+            ExternalChangeListener listener = externalChangeListener;
+            if(listener != null){
+                listener.onExternalChange(externalIds);
+            }
+        }
+    };
+
+    // no change log: every invalidation drops the whole cache
+    public NoteCache(int maxBytes) {
+        this(maxBytes, null);
+    }
+
+    public NoteCache(int maxBytes, @Nullable NoteChangeLog changeLog) {
+        this.changeLog = changeLog;
+        cache = new LruCache<Integer, Note>(maxBytes) {
+            @Override
+            protected int sizeOf(@NonNull Integer key, @NonNull Note note) {
+                return sizeInBytes(note);
+            }
+        };
+    }
+
+    public static int sizeInBytes(Note note){
+        int chars = 0;
+        if(note.getTitle() != null){
+            chars += note.getTitle().length();
+        }
+        if(note.getContent() != null){
+            chars += note.getContent().length();
+        }
+        return NOTE_OVERHEAD_BYTES + 2 * chars;
+    }
+
+    @Nullable
+    public Note get(int noteId){
+        Note note = cache.get(noteId);
+        return note == null ? null : new Note(note);
+    }
+
+    public void put(Note note){
+        if(note.getId() <= 0){
+            return;
+        }
+        Note copy = new Note(note);
+        if(sizeInBytes(copy) > cache.maxSize()){
+            // would evict everything else and then itself
+            cache.remove(copy.getId());
+            return;
+        }
+        cache.put(copy.getId(), copy);
+    }
+
+    public void remove(int noteId){
+        cache.remove(noteId);
+    }
+
+    public void clear(){
+        cache.evictAll();
+    }
+
+    // called by the repository before it writes these rows (after, for inserts: the id isn't known before)
+    public void beginLocalWrite(@NonNull List<NoteChangeLog.Change> changes){
+        synchronized (localWrites){
+            for(NoteChangeLog.Change change : changes){
+                localWrites.put(change, 0);
+            }
+        }
+    }
+
+    // called by the repository when a write failed (so the rows won't show up in the log)
+    public void cancelLocalWrite(@NonNull List<NoteChangeLog.Change> changes){
+        synchronized (localWrites){
+            for(NoteChangeLog.Change change : changes){
+                localWrites.remove(change);
+            }
+        }
+    }
+
+    // the ids of the notes changed by rows the repository didn't announce, in log order
+    private List<Integer> externalNoteIds(List<NoteChangeLog.Change> changes){
+        Set<Integer> externalIds = new LinkedHashSet<>();
+        synchronized (localWrites){
+            // two saves of a note with the same timestamp are one local write here and two rows in the log
+            Set<NoteChangeLog.Change> seen = new HashSet<>();
+            for(NoteChangeLog.Change change : changes){
+                if(localWrites.containsKey(change)){
+                    seen.add(change);
+                }else{
+                    externalIds.add(change.getNoteId());
+                }
+            }
+            Iterator<Map.Entry<NoteChangeLog.Change, Integer>> iterator = localWrites.entrySet().iterator();
+            while (iterator.hasNext()){
+                Map.Entry<NoteChangeLog.Change, Integer> localWrite = iterator.next();
+                int drains = localWrite.getValue() + 1;
+                if(seen.contains(localWrite.getKey()) || drains >= MAX_DRAINS_PER_LOCAL_WRITE){
+                    iterator.remove();
+                }else{
+                    localWrite.setValue(drains);
+                }
+            }
+        }
+        return new ArrayList<>(externalIds);
+    }
+
+    // run (on room's invalidation thread) after a write to the notes table that didn't go through the repository
+    public void setExternalChangeListener(@Nullable ExternalChangeListener listener){
+        externalChangeListener = listener;
+    }
+
+    // register with NoteDatabase.getInvalidationTracker()
+    public InvalidationTracker.Observer getInvalidationObserver() {
+        return invalidationObserver;
+    }
+
+    public int hitCount(){
+        return cache.hitCount();
+    }
+
+    public int missCount(){
+        return cache.missCount();
+    }
+
+    public int evictionCount(){
+        return cache.evictionCount();
+    }
+
+    public int sizeBytes(){
+        return cache.size();
+    }
+
+    public int maxSizeBytes(){
+        return cache.maxSize();
+    }
+
+    @Override
+    public String toString() {
+        return "NoteCache{" +
+                "hits=" + hitCount() +
+                ", misses=" + missCount() +
+                ", evictions=" + evictionCount() +
+                ", size=" + sizeBytes() + "/" + maxSizeBytes() +
+                '}';
+    }
+}
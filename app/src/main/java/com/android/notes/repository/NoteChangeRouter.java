@@ -0,0 +1,295 @@
+package com.android.notes.repository;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.android.notes.models.Note;
+import com.android.notes.persistence.NoteChunker;
+import com.android.notes.ui.Resource;
+
+import org.reactivestreams.Publisher;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.reactivex.Flowable;
+import io.reactivex.Scheduler;
+import io.reactivex.functions.Action;
+import io.reactivex.functions.Function;
+import io.reactivex.functions.Predicate;
+import io.reactivex.processors.FlowableProcessor;
+import io.reactivex.processors.PublishProcessor;
+
+import static com.android.notes.repository.NoteRepository.NOTE_FOUND;
+import static com.android.notes.repository.NoteRepository.NOTE_NOT_FOUND;
+
+/*
+* observation of single notes and id ranges without re-reading the notes table on every write.
+*
+* room re-runs every observable query on the notes table after any write to it. here the repository
+* tells the router which ids it wrote (notesChanged), and each observer re-reads only those of its
+* rows, and emits only if a row actually changed (compared by a hash of title, content and timestamp).
+* writes the repository didn't make are routed the same way, by the ids NoteCache found in the
+* change log. when those aren't known (allNotesChanged) every observer re-reads its own rows,
+* still not the whole table.
+*
+* changes arriving while an observer is re-reading are merged into one re-read.
+* observers of the same note share one stream.*/
+class NoteChangeRouter {
+
+    /*
+    * more changed ids than this and the whole range is re-read instead: sqlite allows 999 variables
+    * per statement (see NoteChunkDao), and one range query is cheaper than several IN queries.*/
+    static final int MAX_IDS_PER_LOAD = 500;
+
+    // reads notes straight from the database (full content), called on "scheduler"
+    interface NoteLoader {
+
+        List<Note> loadNotesInRange(int fromId, int toId) throws Exception;
+
+        List<Note> loadNotes(List<Integer> ids) throws Exception;
+    }
+
+    // ids that changed, null for "anything may have changed"
+    private static final class Change {
+
+        static final Change ALL = new Change(null);
+
+        @Nullable
+        final Set<Integer> ids;
+
+        Change(@Nullable Set<Integer> ids) {
+            this.ids = ids;
+        }
+    }
+
+    @NonNull
+    private final NoteLoader loader;
+
+    @NonNull
+    private final Scheduler scheduler;
+
+    private final FlowableProcessor<Change> changes = PublishProcessor.<Change>create().toSerialized();
+
+    private final ConcurrentHashMap<Integer, Flowable<Resource<Note>>> noteStreams = new ConcurrentHashMap<>();
+
+    NoteChangeRouter(@NonNull NoteLoader loader, @NonNull Scheduler scheduler) {
+        this.loader = loader;
+        this.scheduler = scheduler;
+    }
+
+    // the notes with these ids were inserted, updated or deleted
+    void notesChanged(@NonNull Collection<Integer> ids){
+        if(!ids.isEmpty()){
+            changes.onNext(new Change(new HashSet<>(ids)));
+        }
+    }
+
+    void allNotesChanged(){
+        changes.onNext(Change.ALL);
+    }
+
+    /*
+    * note "noteId" now and after every change to it, NOTE_NOT_FOUND while there is no such note.
+    * every subscriber gets its own copy of the note.*/
+    Flowable<Resource<Note>> observeNote(final int noteId){
+        Flowable<Resource<Note>> stream = noteStreams.get(noteId);
+        if(stream == null){
+            final AtomicReference<Flowable<Resource<Note>>> created = new AtomicReference<>();
+            created.set(observeRange(noteId, noteId)
+                    .map(new Function<List<Note>, Resource<Note>>() {
+                        @Override
+                        public Resource<Note> apply(List<Note> notes) throws Exception {
+                            if(notes.isEmpty()){
+                                return Resource.error(null, NOTE_NOT_FOUND);
+                            }
+                            return Resource.success(notes.get(0), NOTE_FOUND);
+                        }
+                    })
+                    .onErrorReturn(new Function<Throwable, Resource<Note>>() {
+                        @Override
+                        public Resource<Note> apply(Throwable throwable) throws Exception {
+                            return Resource.error(null, NOTE_NOT_FOUND);
+                        }
+                    })
+                    .doFinally(new Action() {
+                        @Override
+                        public void run() throws Exception {
+                            // last subscriber gone
+                            noteStreams.remove(noteId, created.get());
+                        }
+                    })
+                    .replay(1)
+                    .refCount());
+            Flowable<Resource<Note>> existing = noteStreams.putIfAbsent(noteId, created.get());
+            stream = existing != null ? existing : created.get();
+        }
+        return stream.map(new Function<Resource<Note>, Resource<Note>>() {
+            @Override
+            public Resource<Note> apply(Resource<Note> resource) throws Exception {
+                if(resource.data == null){
+                    return resource;
+                }
+                return Resource.success(new Note(resource.data), NOTE_FOUND);
+            }
+        });
+    }
+
+    /*
+    * the notes with ids from "fromId" to "toId" (inclusive), ordered by id, now and after every
+    * change to one of them (including notes added to or deleted from the range).*/
+    Flowable<List<Note>> observeRange(final int fromId, final int toId){
+        return Flowable.defer(new Callable<Publisher<List<Note>>>() {
+            @Override
+            public Publisher<List<Note>> call() throws Exception {
+                final RangeState state = new RangeState(fromId, toId);
+                return changes
+                        .filter(new Predicate<Change>() {
+                            @Override
+                            public boolean test(Change change) throws Exception {
+                                return state.offer(change);
+                            }
+                        })
+                        .startWith(Change.ALL)
+                        // one re-read at a time, the changes that came in meanwhile are merged in "state"
+                        .onBackpressureLatest()
+                        .observeOn(scheduler, false, 1)
+                        .filter(new Predicate<Change>() {
+                            @Override
+                            public boolean test(Change change) throws Exception {
+                                return state.refresh(loader);
+                            }
+                        })
+                        .map(new Function<Change, List<Note>>() {
+                            @Override
+                            public List<Note> apply(Change change) throws Exception {
+                                return state.snapshot();
+                            }
+                        });
+            }
+        });
+    }
+
+    static long contentHash(@NonNull Note note){
+        long hash = NoteChunker.hash(note.getTitle());
+        hash = hash * 31 + (note.getContent() == null ? 0 : NoteChunker.hash(note.getContent()));
+        return hash * 31 + note.getTimestamp();
+    }
+
+    /*
+    * the rows of one range observer. changes are recorded from the thread that reports them (offer)
+    * and re-read on "scheduler" (refresh).*/
+    private static final class RangeState {
+
+        final int fromId;
+        final int toId;
+
+        // only touched by refresh/snapshot, which run one at a time
+        private final TreeMap<Integer, Note> rows = new TreeMap<>();
+        private final Map<Integer, Long> hashes = new HashMap<>();
+        private boolean emitted;
+
+        // guarded by this
+        private boolean pendingAll = true;
+        private final Set<Integer> pendingIds = new HashSet<>();
+
+        RangeState(int fromId, int toId) {
+            this.fromId = fromId;
+            this.toId = toId;
+        }
+
+        // true if the change touches the range
+        synchronized boolean offer(Change change){
+            if(change.ids == null){
+                pendingAll = true;
+                return true;
+            }
+            boolean affected = false;
+            for(int id : change.ids){
+                if(id >= fromId && id <= toId){
+                    pendingIds.add(id);
+                    affected = true;
+                }
+            }
+            return affected;
+        }
+
+        // re-reads what changed since the last refresh, true if there is something new to emit
+        boolean refresh(NoteLoader loader) throws Exception{
+            boolean all;
+            List<Integer> ids;
+            synchronized (this){
+                all = pendingAll || pendingIds.size() > MAX_IDS_PER_LOAD;
+                ids = all ? Collections.<Integer>emptyList() : new ArrayList<>(pendingIds);
+                pendingAll = false;
+                pendingIds.clear();
+            }
+            boolean changed = false;
+            if(all){
+                Map<Integer, Note> loaded = byId(loader.loadNotesInRange(fromId, toId));
+                Set<Integer> touched = new HashSet<>(rows.keySet());
+                touched.addAll(loaded.keySet());
+                for(int id : touched){
+                    changed |= put(id, loaded.get(id));
+                }
+            }else if(!ids.isEmpty()){
+                Map<Integer, Note> loaded = byId(loader.loadNotes(ids));
+                for(int id : ids){
+                    changed |= put(id, loaded.get(id));
+                }
+            }
+            if(!emitted){
+                emitted = true;
+                return true;
+            }
+            return changed;
+        }
+
+        // true if the row changed. "note" null: no such note (anymore)
+        private boolean put(int id, @Nullable Note note){
+            Long previous = hashes.get(id);
+            if(note == null){
+                if(previous == null){
+                    return false;
+                }
+                hashes.remove(id);
+                rows.remove(id);
+                return true;
+            }
+            long hash = contentHash(note);
+            rows.put(id, note);
+            if(previous != null && previous == hash){
+                return false;
+            }
+            hashes.put(id, hash);
+            return true;
+        }
+
+        // copies, the rows stay as read
+        List<Note> snapshot(){
+            List<Note> notes = new ArrayList<>(rows.size());
+            for(Note note : rows.values()){
+                notes.add(new Note(note));
+            }
+            return Collections.unmodifiableList(notes);
+        }
+
+        private static Map<Integer, Note> byId(List<Note> notes){
+            Map<Integer, Note> byId = new HashMap<>();
+            for(Note note : notes){
+                byId.put(note.getId(), note);
+            }
+            return byId;
+        }
+    }
+}
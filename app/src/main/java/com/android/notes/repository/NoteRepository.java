@@ -1,21 +1,52 @@
 package com.android.notes.repository;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.LiveDataReactiveStreams;
+import androidx.paging.DataSource;
+import androidx.paging.LivePagedListBuilder;
+import androidx.paging.PagedList;
 
+import com.android.notes.metrics.MetricsRegistry;
+import com.android.notes.metrics.OperationMetrics;
 import com.android.notes.models.Note;
+import com.android.notes.models.NoteRevision;
+import com.android.notes.models.NoteRevisionInfo;
+import com.android.notes.models.NoteSearchResult;
+import com.android.notes.models.NoteSummary;
+import com.android.notes.persistence.DatabaseSchedulers;
+import com.android.notes.persistence.NoteChunkDao;
+import com.android.notes.persistence.NoteChangeLog;
+import com.android.notes.persistence.NoteContentCodec;
 import com.android.notes.persistence.NoteDao;
+import com.android.notes.persistence.NoteRevisionDao;
 import com.android.notes.ui.Resource;
+import com.android.notes.util.SearchUtil;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+import io.reactivex.Completable;
+import io.reactivex.Emitter;
 import io.reactivex.Flowable;
+import io.reactivex.FlowableTransformer;
+import io.reactivex.Maybe;
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import io.reactivex.SingleTransformer;
 import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.functions.Action;
+import io.reactivex.functions.BiFunction;
+import io.reactivex.functions.Consumer;
 import io.reactivex.functions.Function;
 import io.reactivex.schedulers.Schedulers;
 
@@ -29,8 +60,40 @@ public class NoteRepository {
     public static final String DELETE_FAILURE = "Delete failure";
     public static final String UPDATE_SUCCESS = "Update success";
     public static final String UPDATE_FAILURE = "Update failure";
+    public static final String UPDATE_SKIPPED = "No changes to save";
     public static final String INSERT_SUCCESS = "Insert success";
     public static final String INSERT_FAILURE = "Insert failure";
+    public static final String NOTE_FOUND = "Note found";
+    public static final String NOTE_NOT_FOUND = "Note not found";
+    public static final String EMPTY_NOTE_LIST = "Note list cannot be empty";
+    public static final String INVALID_PAGE_SIZE = "Page size must be greater than 0";
+    public static final String INVALID_TIME_RANGE = "Invalid time range";
+    public static final String INVALID_LIMIT = "Limit must be greater than 0";
+    public static final String REVISION_FOUND = "Revision found";
+    public static final String REVISION_NOT_FOUND = "Revision not found";
+    public static final String INVALID_ID_RANGE = "Invalid id range";
+
+    // operation names in the MetricsRegistry
+    public static final String METRIC_INSERT_NOTE = "insertNote";
+    public static final String METRIC_UPDATE_NOTE = "updateNote";
+    public static final String METRIC_DELETE_NOTE = "deleteNote";
+    public static final String METRIC_INSERT_NOTES = "insertNotes";
+    public static final String METRIC_UPDATE_NOTES = "updateNotes";
+    public static final String METRIC_DELETE_NOTES = "deleteNotes";
+    public static final String METRIC_GET_NOTES = "getNotes";
+    public static final String METRIC_OBSERVE_NOTES = "observeNotes";
+    public static final String METRIC_GET_NOTE_BY_ID = "getNoteById";
+    public static final String METRIC_GET_NOTES_PAGE = "getNotesPage";
+    public static final String METRIC_GET_NOTES_MODIFIED_BETWEEN = "getNotesModifiedBetween";
+    public static final String METRIC_GET_RECENT_NOTES = "getRecentNotes";
+    public static final String METRIC_SEARCH = "search";
+    public static final String METRIC_ADD_REVISION = "addRevision";
+    public static final String METRIC_COMPACT_REVISIONS = "compactRevisions";
+    public static final String METRIC_GET_REVISION = "getRevision";
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int SEARCH_RESULT_LIMIT = 100;
+    public static final long SEARCH_DEBOUNCE_MILLIS = 300;
 
     private int timeDelay = 0;
     
@@ -40,16 +103,164 @@ public class NoteRepository {
     @NonNull
     private final NoteDao noteDao;
 
+    @NonNull
+    private final NoteChunkDao noteChunkDao;
+
+    @NonNull
+    private final NoteRevisionDao noteRevisionDao;
+
+    @NonNull
+    private final NoteCache noteCache;
+
+    @NonNull
+    private final DatabaseSchedulers databaseSchedulers;
+
+    @NonNull
+    private final MetricsRegistry metricsRegistry;
+
+    // notes are encoded on the way to the dao and decoded where a full note is read
+    @NonNull
+    private final NoteContentCodec noteContentCodec;
+
+    // per-note observers, told about every write made here
+    @NonNull
+    private final NoteChangeRouter noteChangeRouter;
+
+    // the latest revision of the notes saved lately, the next revision is a delta from it
+    private final LatestRevisionCache latestRevisions = new LatestRevisionCache(LatestRevisionCache.DEFAULT_MAX_BYTES);
+
+    public NoteRepository(@NonNull NoteDao noteDao, @NonNull NoteChunkDao noteChunkDao, @NonNull NoteRevisionDao noteRevisionDao) {
+        this(noteDao, noteChunkDao, noteRevisionDao, new NoteCache(NoteCache.DEFAULT_MAX_BYTES), DatabaseSchedulers.create(),
+                new MetricsRegistry(), NoteContentCodec.DISABLED);
+    }
+
     @Inject
-    public NoteRepository(@NonNull NoteDao noteDao) {
+    public NoteRepository(@NonNull NoteDao noteDao,
+                          @NonNull NoteChunkDao noteChunkDao,
+                          @NonNull NoteRevisionDao noteRevisionDao,
+                          @NonNull NoteCache noteCache,
+                          @NonNull DatabaseSchedulers databaseSchedulers,
+                          @NonNull MetricsRegistry metricsRegistry,
+                          @NonNull NoteContentCodec noteContentCodec) {
         this.noteDao = noteDao;
+        this.noteChunkDao = noteChunkDao;
+        this.noteRevisionDao = noteRevisionDao;
+        this.noteCache = noteCache;
+        this.databaseSchedulers = databaseSchedulers;
+        this.metricsRegistry = metricsRegistry;
+        this.noteContentCodec = noteContentCodec;
+        this.noteChangeRouter = new NoteChangeRouter(new NoteChangeRouter.NoteLoader() {
+            @Override
+            public List<Note> loadNotesInRange(int fromId, int toId) throws Exception {
+                return markPersisted(decode(NoteRepository.this.noteDao.getNotesInRange(fromId, toId)));
+            }
+
+            @Override
+            public List<Note> loadNotes(List<Integer> ids) throws Exception {
+                return markPersisted(decode(NoteRepository.this.noteDao.getNotesByIds(ids)));
+            }
+        }, databaseSchedulers.reader());
+        // writes the repository didn't make, the observers of those notes re-read them
+        noteCache.setExternalChangeListener(new NoteCache.ExternalChangeListener() {
+            @Override
+            public void onExternalChange(@Nullable List<Integer> noteIds) {
+                if(noteIds == null){
+                    noteChangeRouter.allNotesChanged();
+                }else{
+                    noteChangeRouter.notesChanged(noteIds);
+                }
+            }
+        });
+    }
+
+    // full notes as read from the dao -> full notes with their content (deflated or chunked)
+    private final Function<List<Note>, List<Note>> decodeNotes = new Function<List<Note>, List<Note>>() {
+        @Override
+        public List<Note> apply(List<Note> notes) throws Exception {
+            return decode(notes);
+        }
+    };
+
+    private List<Note> decode(List<Note> notes){
+        NoteContentCodec.decode(notes);
+        noteChunkDao.loadContent(notes);
+        return notes;
+    }
+
+    private static List<Note> markPersisted(List<Note> notes){
+        for(Note note : notes){
+            note.markPersisted();
+        }
+        return notes;
+    }
+
+    // a Resource is an error when its status is, rows are the Integer it holds, the size of the List it holds or 1
+    private static final OperationMetrics.Outcome<Resource<?>> RESOURCE_OUTCOME = new OperationMetrics.Outcome<Resource<?>>() {
+        @Override
+        public boolean isError(Resource<?> result) {
+            return result.status == Resource.Status.ERROR;
+        }
+
+        @Override
+        public int rowCount(Resource<?> result) {
+            if(result.status != Resource.Status.SUCCESS || result.data == null){
+                return 0;
+            }
+            if(result.data instanceof Integer){
+                return (Integer) result.data;
+            }
+            if(result.data instanceof List){
+                return ((List<?>) result.data).size();
+            }
+            return 1;
+        }
+    };
+
+    private static final OperationMetrics.Outcome<List<?>> LIST_OUTCOME = new OperationMetrics.Outcome<List<?>>() {
+        @Override
+        public boolean isError(List<?> result) {
+            return false;
+        }
+
+        @Override
+        public int rowCount(List<?> result) {
+            return result == null ? 0 : result.size();
+        }
+    };
+
+    @SuppressWarnings("unchecked")
+    private static <T> OperationMetrics.Outcome<Resource<T>> resourceOutcome(){
+        return (OperationMetrics.Outcome<Resource<T>>) (OperationMetrics.Outcome<?>) RESOURCE_OUTCOME;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> OperationMetrics.Outcome<List<T>> listOutcome(){
+        return (OperationMetrics.Outcome<List<T>>) (OperationMetrics.Outcome<?>) LIST_OUTCOME;
+    }
+
+    private <T> SingleTransformer<Resource<T>, Resource<T>> timeResource(String operation){
+        return metricsRegistry.operation(operation).timeSingle(NoteRepository.<T>resourceOutcome());
+    }
+
+    private <T> FlowableTransformer<List<T>, List<T>> timeFirstList(String operation){
+        return metricsRegistry.operation(operation).timeFirst(NoteRepository.<T>listOutcome());
     }
     /*
     * inserting data into DATABASE using rxjava and
     * returning in flowable because only flowable can be converted into LIVEDATA...*/
     public Flowable<Resource<Integer>> insertNote (final Note note) throws Exception{
         checkTitle(note);
-        return noteDao.insertNote(note)
+        // no revision, the row is the note's only version until it is updated
+        return insertSingleNote(note)
+                .doOnSuccess(new Consumer<Long>() {
+                    @Override
+                    public void accept(Long rowId) throws Exception {
+                        if(rowId > 0){
+                            noteCache.beginLocalWrite(Collections.singletonList(
+                                    new NoteChangeLog.Change((int) (long) rowId, note.getTimestamp())));
+                        }
+                    }
+                })
                 .delaySubscription(timeDelay,timeUnit)
                 .map(new Function<Long, Integer>() {
                     @Override
@@ -70,22 +281,42 @@ public class NoteRepository {
                     @Override
                     public Resource apply(Integer integer) throws Exception {
                         if(integer > 0 ){
+                            cacheWrittenNote(note, integer);
+                            noteChangeRouter.notesChanged(Collections.singletonList(integer));
                             return Resource.success(integer,INSERT_SUCCESS);
                         }
                         return Resource.error(null,INSERT_FAILURE);
                     }
                 })
-                .subscribeOn(Schedulers.io())
+                .compose(this.<Integer>timeResource(METRIC_INSERT_NOTE))
+                .subscribeOn(databaseSchedulers.writer())
                 .toFlowable();
 
                 
     }
 
 
+    /*
+    * notes that haven't changed since they were last persisted (see Note.isDirty) never reach the database,
+    * they get a success with 0 rows and the UPDATE_SKIPPED message.*/
     public Flowable<Resource<Integer>> updateNote(final Note note) throws Exception{
         checkTitle(note);
-        return noteDao.updateNote(note)
+        if(!note.isDirty()){
+            return Flowable.just(Resource.success(0, UPDATE_SKIPPED));
+        }
+        final Revision revision = new Revision(note);
+        final List<NoteChangeLog.Change> changes = Collections.singletonList(NoteChangeLog.Change.written(note));
+        return withBaseRevisions(Collections.singletonList(note.getId()), updateSingleNote(note))
+                .doOnSuccess(new Consumer<Integer>() {
+                    @Override
+                    public void accept(Integer rows) throws Exception {
+                        if(rows > 0){
+                            recordRevision(note.getId(), revision);
+                        }
+                    }
+                })
                 .delaySubscription(timeDelay,timeUnit)
+                .doOnSubscribe(beginLocalWrite(changes))
                 .onErrorReturn(new Function<Throwable, Integer>() {
                     @Override
                     public Integer apply(Throwable throwable) throws Exception {
@@ -96,16 +327,271 @@ public class NoteRepository {
                     @Override
                     public Resource<Integer> apply(Integer integer) throws Exception {
                         if(integer > 0 ){
+                            cacheWrittenNote(note, note.getId());
+                            noteChangeRouter.notesChanged(Collections.singletonList(note.getId()));
                             return Resource.success(integer,UPDATE_SUCCESS);
 
                         }
+                        noteCache.cancelLocalWrite(changes);
                         return Resource.error(null,UPDATE_FAILURE);
 
                     }
                 })
-                .subscribeOn(Schedulers.io())
+                .compose(this.<Integer>timeResource(METRIC_UPDATE_NOTE))
+                .subscribeOn(databaseSchedulers.writer())
                 .toFlowable();
     }
+    /*
+    * huge notes go into note_chunks, the rest through the dao (deflated if big enough).*/
+    private Single<Long> insertSingleNote(final Note note) throws Exception{
+        final String content = note.getContent();
+        if(!noteContentCodec.shouldChunk(content)){
+            return noteDao.insertNote(noteContentCodec.encode(note));
+        }
+        final Note stored = NoteContentCodec.withoutContent(note);
+        return Single.fromCallable(new Callable<Long>() {
+            @Override
+            public Long call() throws Exception {
+                return noteChunkDao.insertChunkedNote(stored, content);
+            }
+        });
+    }
+
+    /*
+    * with chunking on, every update goes through NoteChunkDao so a note that shrank below the
+    * threshold gets its chunks deleted.*/
+    private Single<Integer> updateSingleNote(final Note note) throws Exception{
+        if(!noteContentCodec.isChunkingEnabled()){
+            return noteDao.updateNote(noteContentCodec.encode(note));
+        }
+        final String content = note.getContent();
+        final boolean chunked = noteContentCodec.shouldChunk(content);
+        final Note stored = chunked ? NoteContentCodec.withoutContent(note) : noteContentCodec.encode(note);
+        return Single.fromCallable(new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                return noteChunkDao.updateChunkedNote(stored, chunked ? content : null);
+            }
+        });
+    }
+
+    /*
+    * insertSingleNote for a batch: with chunking on, the huge notes of the batch go into note_chunks
+    * in the same transaction as the rest.*/
+    private Single<List<Long>> insertNoteRows(List<Note> notes) throws Exception{
+        if(!noteContentCodec.isChunkingEnabled()){
+            return noteDao.insertNotes(noteContentCodec.encode(notes));
+        }
+        final List<Note> stored = new ArrayList<>(notes.size());
+        final List<String> contents = new ArrayList<>(notes.size());
+        storeRows(notes, stored, contents);
+        return Single.fromCallable(new Callable<List<Long>>() {
+            @Override
+            public List<Long> call() throws Exception {
+                return noteChunkDao.insertChunkedNotes(stored, contents);
+            }
+        });
+    }
+
+    // updateSingleNote for a batch, notes that shrank below the threshold get their chunks deleted
+    private Single<Integer> updateNoteRows(List<Note> notes) throws Exception{
+        if(!noteContentCodec.isChunkingEnabled()){
+            return noteDao.updateNotes(noteContentCodec.encode(notes));
+        }
+        final List<Note> stored = new ArrayList<>(notes.size());
+        final List<String> contents = new ArrayList<>(notes.size());
+        storeRows(notes, stored, contents);
+        return Single.fromCallable(new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                return noteChunkDao.updateChunkedNotes(stored, contents);
+            }
+        });
+    }
+
+    // the row of every note as it is stored, and its content to chunk (null: not chunked)
+    private void storeRows(List<Note> notes, List<Note> stored, List<String> contents){
+        for(Note note : notes){
+            String content = note.getContent();
+            if(noteContentCodec.shouldChunk(content)){
+                stored.add(NoteContentCodec.withoutContent(note));
+                contents.add(content);
+            }else{
+                stored.add(noteContentCodec.encode(note));
+                contents.add(null);
+            }
+        }
+    }
+
+    // what a save wrote, taken when the save starts (the note can change while it runs)
+    private static class Revision {
+
+        final String title;
+        final String content;
+        final long timestamp;
+
+        Revision(Note note) {
+            title = note.getTitle();
+            content = note.getContent();
+            timestamp = note.getTimestamp();
+        }
+    }
+
+    private static List<Revision> revisionsOf(List<Note> notes){
+        List<Revision> revisions = new ArrayList<>(notes.size());
+        for(Note note : notes){
+            revisions.add(new Revision(note));
+        }
+        return revisions;
+    }
+
+    // "write", once the notes of "ids" have a base revision
+    private <T> Single<T> withBaseRevisions(final List<Integer> ids, Single<T> write){
+        return Completable.fromAction(new Action() {
+                    @Override
+                    public void run() throws Exception {
+                        recordBaseRevisions(ids);
+                    }
+                })
+                .andThen(write);
+    }
+
+    /*
+    * inserts and imports add no revision, so a note's history starts at its first update: right
+    * before it, on the writer, the row as it is then becomes the first revision. notes that already
+    * have a history are skipped (one indexed lookup, none if the latest revision is cached).
+    * a failure here only loses the base (counted in the metrics), the update still runs.*/
+    private void recordBaseRevisions(List<Integer> ids){
+        OperationMetrics metrics = metricsRegistry.operation(METRIC_ADD_REVISION);
+        long start = System.nanoTime();
+        int added = 0;
+        try{
+            for(int id : ids){
+                if(latestRevisions.get(id) != null || noteRevisionDao.hasRevisions(id)){
+                    continue;
+                }
+                Note stored = noteDao.getNoteById(id).blockingGet();
+                if(stored == null){
+                    continue;
+                }
+                NoteContentCodec.decode(stored);
+                noteChunkDao.loadContent(Collections.singletonList(stored));
+                if(noteRevisionDao.addRevision(id, stored.getTitle(), stored.getContent(), stored.getTimestamp(),
+                        latestRevisions, noteContentCodec) != null){
+                    added++;
+                }
+            }
+            if(added > 0){
+                metrics.record(System.nanoTime() - start, false, added);
+            }
+        }catch (Exception e){
+            metrics.record(System.nanoTime() - start, true, 0);
+        }
+    }
+
+    /*
+    * adds a revision right after a save, on the same writer thread so revisions keep the order of the saves.
+    * the save already succeeded, a failure here only loses that revision (counted in the metrics).*/
+    private void recordRevision(int noteId, Revision revision){
+        OperationMetrics metrics = metricsRegistry.operation(METRIC_ADD_REVISION);
+        long start = System.nanoTime();
+        try{
+            NoteRevision added = noteRevisionDao.addRevision(noteId, revision.title, revision.content, revision.timestamp,
+                    latestRevisions, noteContentCodec);
+            metrics.record(System.nanoTime() - start, false, added == null ? 0 : 1);
+            compactIfDue(added);
+        }catch (Exception e){
+            metrics.record(System.nanoTime() - start, true, 0);
+        }
+    }
+
+    // recordRevision for a batch ("ids" and "revisions" in the same order), in one transaction
+    private void recordRevisions(List<Integer> ids, List<Revision> revisions){
+        OperationMetrics metrics = metricsRegistry.operation(METRIC_ADD_REVISION);
+        long start = System.nanoTime();
+        try{
+            List<Note> saved = new ArrayList<>(ids.size());
+            for(int i = 0; i < ids.size(); i++){
+                Revision revision = revisions.get(i);
+                saved.add(new Note(ids.get(i), revision.title, revision.content, revision.timestamp));
+            }
+            List<NoteRevision> added = noteRevisionDao.addRevisions(saved, latestRevisions, noteContentCodec);
+            metrics.record(System.nanoTime() - start, false, added.size());
+            for(NoteRevision revision : added){
+                compactIfDue(revision);
+            }
+        }catch (Exception e){
+            metrics.record(System.nanoTime() - start, true, 0);
+        }
+    }
+
+    /*
+    * compaction is queued on the writer after the save instead of running inside it, so the save
+    * that made it due doesn't wait for it.*/
+    private void compactIfDue(@Nullable NoteRevision added){
+        if(added == null || !NoteRevisionDao.isCompactionDue(added)){
+            return;
+        }
+        final int noteId = added.getNoteId();
+        final long olderThan = added.getTimestamp() - NoteRevisionDao.RETENTION_MILLIS;
+        databaseSchedulers.getWriterExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                OperationMetrics metrics = metricsRegistry.operation(METRIC_COMPACT_REVISIONS);
+                long start = System.nanoTime();
+                try{
+                    int deleted = noteRevisionDao.compact(noteId, olderThan, noteContentCodec);
+                    metrics.record(System.nanoTime() - start, false, deleted);
+                }catch (Exception e){
+                    metrics.record(System.nanoTime() - start, true, 0);
+                }
+            }
+        });
+    }
+
+    private Consumer<Disposable> beginLocalWrite(final List<NoteChangeLog.Change> changes){
+        return new Consumer<Disposable>() {
+            @Override
+            public void accept(Disposable disposable) throws Exception {
+                noteCache.beginLocalWrite(changes);
+            }
+        };
+    }
+
+    // the rows NoteCache should expect from updating "notes"
+    private static List<NoteChangeLog.Change> writtenRows(List<Note> notes){
+        List<NoteChangeLog.Change> changes = new ArrayList<>(notes.size());
+        for(Note note : notes){
+            changes.add(NoteChangeLog.Change.written(note));
+        }
+        return changes;
+    }
+
+    private static List<Integer> idsOf(List<Note> notes){
+        List<Integer> ids = new ArrayList<>(notes.size());
+        for(Note note : notes){
+            ids.add(note.getId());
+        }
+        return ids;
+    }
+
+    private static List<NoteChangeLog.Change> deletedRows(List<Note> notes){
+        List<NoteChangeLog.Change> changes = new ArrayList<>(notes.size());
+        for(Note note : notes){
+            changes.add(NoteChangeLog.Change.deleted(note.getId()));
+        }
+        return changes;
+    }
+
+    /*
+    * the cached copy is what was just written, so it isn't dirty.*/
+    private void cacheWrittenNote(Note note, int noteId){
+        Note written = new Note(note);
+        written.setId(noteId);
+        written.markPersisted();
+        noteCache.put(written);
+    }
+
     private void checkTitle(Note note) throws Exception{
         if(note.getTitle() == null){
             throw new Exception(NOTE_TITLE_NULL);
@@ -114,8 +600,10 @@ public class NoteRepository {
 
     public LiveData<Resource<Integer>> deleteNote(final Note note) throws Exception{
         checkId(note);
+        final List<NoteChangeLog.Change> changes = Collections.singletonList(NoteChangeLog.Change.deleted(note.getId()));
         return LiveDataReactiveStreams.fromPublisher(
                 noteDao.deleteNote(note)
+                .doOnSubscribe(beginLocalWrite(changes))
                 .onErrorReturn(new Function<Throwable, Integer>() {
                     @Override
                     public Integer apply(Throwable throwable) throws Exception {
@@ -126,19 +614,498 @@ public class NoteRepository {
                     @Override
                     public Resource<Integer> apply(Integer integer) throws Exception {
                         if (integer > 0) {
+                            noteCache.remove(note.getId());
+                            latestRevisions.remove(note.getId());
+                            noteChangeRouter.notesChanged(Collections.singletonList(note.getId()));
                             return Resource.success(integer,DELETE_SUCCESS);
                         }
+                        noteCache.cancelLocalWrite(changes);
                         return Resource.error(null,DELETE_FAILURE);
                     }
                 })
-                .subscribeOn(Schedulers.io())
+                .compose(this.<Integer>timeResource(METRIC_DELETE_NOTE))
+                .subscribeOn(databaseSchedulers.writer())
+                .toFlowable()
+        );
+
+    }
+
+    /*
+    * inserts all the notes in one transaction.
+    * the resource holds the new row id of every note, in the same order as "notes".*/
+    public Flowable<Resource<List<Long>>> insertNotes(final List<Note> notes) throws Exception{
+        checkNotes(notes);
+        for(Note note : notes){
+            checkTitle(note);
+        }
+        // the new notes aren't cached, a big import would just push out the notes that are being read.
+        // no revisions either, see insertNote
+        return insertNoteRows(notes)
+                .map(new Function<List<Long>, Resource<List<Long>>>() {
+                    @Override
+                    public Resource<List<Long>> apply(List<Long> rowIds) throws Exception {
+                        if(rowIds.size() != notes.size()){
+                            return Resource.error(rowIds, INSERT_FAILURE);
+                        }
+                        for(Long rowId : rowIds){
+                            if(rowId == null || rowId <= 0){
+                                return Resource.error(rowIds, INSERT_FAILURE);
+                            }
+                        }
+                        List<Integer> ids = new ArrayList<>(rowIds.size());
+                        List<NoteChangeLog.Change> changes = new ArrayList<>(rowIds.size());
+                        for(int i = 0; i < rowIds.size(); i++){
+                            int id = (int) (long) rowIds.get(i);
+                            ids.add(id);
+                            changes.add(new NoteChangeLog.Change(id, notes.get(i).getTimestamp()));
+                        }
+                        noteCache.beginLocalWrite(changes);
+                        noteChangeRouter.notesChanged(ids);
+                        return Resource.success(rowIds, INSERT_SUCCESS);
+                    }
+                })
+                .onErrorReturn(new Function<Throwable, Resource<List<Long>>>() {
+                    @Override
+                    public Resource<List<Long>> apply(Throwable throwable) throws Exception {
+                        return Resource.error(null, INSERT_FAILURE);
+                    }
+                })
+                .compose(this.<List<Long>>timeResource(METRIC_INSERT_NOTES))
+                .subscribeOn(databaseSchedulers.writer())
+                .toFlowable();
+    }
+
+    /*
+    * updates all the notes in one transaction, the resource holds the number of rows updated.*/
+    public Flowable<Resource<Integer>> updateNotes(final List<Note> notes) throws Exception{
+        checkNotes(notes);
+        for(Note note : notes){
+            checkTitle(note);
+        }
+        final List<Revision> revisions = revisionsOf(notes);
+        final List<NoteChangeLog.Change> changes = writtenRows(notes);
+        return withBaseRevisions(idsOf(notes), updateNoteRows(notes))
+                .doOnSubscribe(beginLocalWrite(changes))
+                .onErrorReturn(new Function<Throwable, Integer>() {
+                    @Override
+                    public Integer apply(Throwable throwable) throws Exception {
+                        return -1;
+                    }
+                })
+                .map(new Function<Integer, Resource<Integer>>() {
+                    @Override
+                    public Resource<Integer> apply(Integer integer) throws Exception {
+                        if(integer > 0){
+                            List<Integer> ids = removeFromCache(notes);
+                            recordRevisions(ids, revisions);
+                            noteChangeRouter.notesChanged(ids);
+                            return Resource.success(integer, UPDATE_SUCCESS);
+                        }
+                        noteCache.cancelLocalWrite(changes);
+                        return Resource.error(null, UPDATE_FAILURE);
+                    }
+                })
+                .compose(this.<Integer>timeResource(METRIC_UPDATE_NOTES))
+                .subscribeOn(databaseSchedulers.writer())
+                .toFlowable();
+    }
+
+    /*
+    * deletes all the notes in one transaction, the resource holds the number of rows deleted.*/
+    public LiveData<Resource<Integer>> deleteNotes(final List<Note> notes) throws Exception{
+        checkNotes(notes);
+        for(Note note : notes){
+            checkId(note);
+        }
+        final List<NoteChangeLog.Change> changes = deletedRows(notes);
+        return LiveDataReactiveStreams.fromPublisher(
+                noteDao.deleteNotes(notes)
+                .doOnSubscribe(beginLocalWrite(changes))
+                .onErrorReturn(new Function<Throwable, Integer>() {
+                    @Override
+                    public Integer apply(Throwable throwable) throws Exception {
+                        return -1;
+                    }
+                })
+                .map(new Function<Integer, Resource<Integer>>() {
+                    @Override
+                    public Resource<Integer> apply(Integer integer) throws Exception {
+                        if (integer > 0) {
+                            List<Integer> ids = removeFromCache(notes);
+                            for(int id : ids){
+                                latestRevisions.remove(id);
+                            }
+                            noteChangeRouter.notesChanged(ids);
+                            return Resource.success(integer, DELETE_SUCCESS);
+                        }
+                        noteCache.cancelLocalWrite(changes);
+                        return Resource.error(null, DELETE_FAILURE);
+                    }
+                })
+                .compose(this.<Integer>timeResource(METRIC_DELETE_NOTES))
+                .subscribeOn(databaseSchedulers.writer())
                 .toFlowable()
         );
+    }
 
+    // the ids of the notes, which are no longer cached
+    private List<Integer> removeFromCache(List<Note> notes){
+        List<Integer> ids = new ArrayList<>(notes.size());
+        for(Note note : notes){
+            noteCache.remove(note.getId());
+            ids.add(note.getId());
+        }
+        return ids;
+    }
+
+    private void checkNotes(List<Note> notes) throws Exception{
+        if(notes == null || notes.isEmpty()){
+            throw new Exception(EMPTY_NOTE_LIST);
+        }
     }
 
+    /*
+    * all notes ordered by id, with their content: deflated and chunked notes are decoded on a
+    * reader thread before they reach the main thread.*/
     public LiveData<List<Note>> getNotes(){
-        return noteDao.getNotes();
+        return LiveDataReactiveStreams.fromPublisher(
+                noteDao.observeNotes()
+                .observeOn(databaseSchedulers.reader())
+                .map(decodeNotes)
+                .compose(this.<Note>timeFirstList(METRIC_GET_NOTES))
+        );
+    }
+
+    /*
+    * all notes ordered by id, re-emitted every time the notes table changes.*/
+    public Flowable<List<Note>> observeNotes(){
+        return noteDao.observeNotes()
+                .map(decodeNotes)
+                .compose(this.<Note>timeFirstList(METRIC_OBSERVE_NOTES))
+                .subscribeOn(databaseSchedulers.reader());
+    }
+
+    /*
+    * paged list of notes for the list screen.
+    * only the pages around what is displayed are kept in memory, no matter how big the table gets.*/
+    public LiveData<PagedList<Note>> getPagedNotes(int pageSize) throws Exception{
+        checkPageSize(pageSize);
+        // runs on the fetch executor, one page at a time
+        DataSource.Factory<Integer, Note> notes = noteDao.getNotesPaged().mapByPage(new androidx.arch.core.util.Function<List<Note>, List<Note>>() {
+            @Override
+            public List<Note> apply(List<Note> page) {
+                return decode(page);
+            }
+        });
+        return new LivePagedListBuilder<>(notes, buildPagedListConfig(pageSize))
+                .setFetchExecutor(databaseSchedulers.getReaderExecutor())
+                .build();
+    }
+
+    private PagedList.Config buildPagedListConfig(int pageSize){
+        return new PagedList.Config.Builder()
+                .setPageSize(pageSize)
+                .setPrefetchDistance(pageSize)
+                .setInitialLoadSizeHint(pageSize * 2)
+                .setEnablePlaceholders(false)
+                .build();
+    }
+
+    /*
+    * paged list of note summaries for the list screen.
+    * the content is cut down to a preview by the query so big notes never reach the cursor window.*/
+    public LiveData<PagedList<NoteSummary>> getPagedNoteSummaries(int pageSize) throws Exception{
+        checkPageSize(pageSize);
+        return new LivePagedListBuilder<>(
+                noteDao.getNoteSummariesPaged(NoteSummary.PREVIEW_LENGTH),
+                buildPagedListConfig(pageSize)
+        )
+                .setFetchExecutor(databaseSchedulers.getReaderExecutor())
+                .build();
+    }
+
+    /*
+    * summaries of the notes modified between "from" and "to" (epoch millis, inclusive), newest first.
+    * re-emitted whenever the notes table changes.*/
+    public Flowable<List<NoteSummary>> getNotesModifiedBetween(long from, long to) throws Exception{
+        if(from > to){
+            throw new Exception(INVALID_TIME_RANGE);
+        }
+        return noteDao.getNoteSummariesModifiedBetween(from, to, NoteSummary.PREVIEW_LENGTH)
+                .compose(this.<NoteSummary>timeFirstList(METRIC_GET_NOTES_MODIFIED_BETWEEN))
+                .subscribeOn(databaseSchedulers.reader());
+    }
+
+    /*
+    * summaries of the "limit" most recently modified notes, newest first.*/
+    public Flowable<List<NoteSummary>> getRecentNotes(int limit) throws Exception{
+        if(limit <= 0){
+            throw new Exception(INVALID_LIMIT);
+        }
+        return noteDao.getRecentNoteSummaries(limit, NoteSummary.PREVIEW_LENGTH)
+                .compose(this.<NoteSummary>timeFirstList(METRIC_GET_RECENT_NOTES))
+                .subscribeOn(databaseSchedulers.reader());
+    }
+
+    /*
+    * the note if it is in the cache, without going to the database (null if it isn't).
+    * lets the editor show a note it was opened with right away, getNoteById covers the rest.*/
+    @Nullable
+    public Note peekCachedNote(int noteId){
+        if(noteId < 0){
+            return null;
+        }
+        return noteCache.get(noteId);
+    }
+
+    /*
+    * loads a single note with its full content.
+    * served from the NoteCache when possible, otherwise read from the database and cached.*/
+    public Flowable<Resource<Note>> getNoteById(int noteId) throws Exception{
+        if(noteId < 0){
+            throw new Exception(INVALID_NOTE_ID);
+        }
+        Note cached = noteCache.get(noteId);
+        if(cached != null){
+            return Flowable.just(Resource.success(cached, NOTE_FOUND));
+        }
+        return noteDao.getNoteById(noteId)
+                .map(new Function<Note, Resource<Note>>() {
+                    @Override
+                    public Resource<Note> apply(Note note) throws Exception {
+                        // straight from the database
+                        decode(Collections.singletonList(note));
+                        note.markPersisted();
+                        noteCache.put(note);
+                        return Resource.success(note, NOTE_FOUND);
+                    }
+                })
+                .toSingle(Resource.<Note>error(null, NOTE_NOT_FOUND))
+                .onErrorReturn(new Function<Throwable, Resource<Note>>() {
+                    @Override
+                    public Resource<Note> apply(Throwable throwable) throws Exception {
+                        return Resource.error(null, NOTE_NOT_FOUND);
+                    }
+                })
+                .compose(this.<Note>timeResource(METRIC_GET_NOTE_BY_ID))
+                .subscribeOn(databaseSchedulers.reader())
+                .toFlowable();
+    }
+
+    /*
+    * a single note with its full content, re-emitted only when that note changed (NOTE_NOT_FOUND
+    * while it doesn't exist, e.g. after it was deleted).
+    * unlike a room query on the notes table, writes to other notes don't re-read it. subscribers of
+    * the same note share the reads.*/
+    public Flowable<Resource<Note>> observeNoteById(int noteId) throws Exception{
+        if(noteId < 0){
+            throw new Exception(INVALID_NOTE_ID);
+        }
+        return noteChangeRouter.observeNote(noteId);
+    }
+
+    /*
+    * the notes with an id from "fromId" to "toId" (inclusive), ordered by id, with their full content.
+    * re-emitted only when one of them changed, was added or was deleted, and only the notes that
+    * were written are re-read.*/
+    public Flowable<List<Note>> observeNotesInRange(int fromId, int toId) throws Exception{
+        if(fromId < 0 || fromId > toId){
+            throw new Exception(INVALID_ID_RANGE);
+        }
+        return noteChangeRouter.observeRange(fromId, toId);
+    }
+
+    /*
+    * the revisions of a note, newest first. re-emitted when a revision is added or compacted.*/
+    public Flowable<List<NoteRevisionInfo>> getRevisions(int noteId) throws Exception{
+        if(noteId < 0){
+            throw new Exception(INVALID_NOTE_ID);
+        }
+        return noteRevisionDao.observeRevisions(noteId)
+                .subscribeOn(databaseSchedulers.reader());
+    }
+
+    /*
+    * a past revision of a note rebuilt as a note (id, title, content, timestamp of that revision).
+    * it isn't saved, see restoreRevision.*/
+    public Flowable<Resource<Note>> getRevision(final int noteId, final int revision) throws Exception{
+        if(noteId < 0){
+            throw new Exception(INVALID_NOTE_ID);
+        }
+        return Maybe.fromCallable(new Callable<NoteRevision>() {
+                    @Override
+                    public NoteRevision call() throws Exception {
+                        return noteRevisionDao.getRevision(noteId, revision);
+                    }
+                })
+                .map(new Function<NoteRevision, Resource<Note>>() {
+                    @Override
+                    public Resource<Note> apply(NoteRevision found) throws Exception {
+                        return Resource.success(new Note(noteId, found.getTitle(), found.getContent(), found.getTimestamp()), REVISION_FOUND);
+                    }
+                })
+                .toSingle(Resource.<Note>error(null, REVISION_NOT_FOUND))
+                .onErrorReturn(new Function<Throwable, Resource<Note>>() {
+                    @Override
+                    public Resource<Note> apply(Throwable throwable) throws Exception {
+                        return Resource.error(null, REVISION_NOT_FOUND);
+                    }
+                })
+                .compose(this.<Note>timeResource(METRIC_GET_REVISION))
+                .subscribeOn(databaseSchedulers.reader())
+                .toFlowable();
+    }
+
+    /*
+    * saves the title and content of a past revision as the current note ("timestamp" is the time of
+    * the restore). the restore is a save like any other, it becomes the newest revision.*/
+    public Flowable<Resource<Integer>> restoreRevision(final Note note, int revision, final long timestamp) throws Exception{
+        checkId(note);
+        return getRevision(note.getId(), revision)
+                .switchMap(new Function<Resource<Note>, Flowable<Resource<Integer>>>() {
+                    @Override
+                    public Flowable<Resource<Integer>> apply(Resource<Note> found) throws Exception {
+                        if(found.status != Resource.Status.SUCCESS || found.data == null){
+                            return Flowable.just(Resource.<Integer>error(null, REVISION_NOT_FOUND));
+                        }
+                        Note restored = new Note(note);
+                        restored.setTitle(found.data.getTitle());
+                        restored.setContent(found.data.getContent());
+                        restored.setTimestamp(timestamp);
+                        return updateNote(restored);
+                    }
+                });
+    }
+
+    /*
+    * compacts the history of every note now (it also happens on its own as notes are saved),
+    * the resource holds the number of revisions deleted.*/
+    public Flowable<Resource<Integer>> compactRevisions(final long now){
+        return Single.fromCallable(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        return noteRevisionDao.compactAll(now - NoteRevisionDao.RETENTION_MILLIS, noteContentCodec);
+                    }
+                })
+                .map(new Function<Integer, Resource<Integer>>() {
+                    @Override
+                    public Resource<Integer> apply(Integer deleted) throws Exception {
+                        return Resource.success(deleted, UPDATE_SUCCESS);
+                    }
+                })
+                .onErrorReturn(new Function<Throwable, Resource<Integer>>() {
+                    @Override
+                    public Resource<Integer> apply(Throwable throwable) throws Exception {
+                        return Resource.error(null, UPDATE_FAILURE);
+                    }
+                })
+                .subscribeOn(databaseSchedulers.writer())
+                .toFlowable();
+    }
+
+    /*
+    * one keyset page: the next "pageSize" notes with an id greater than "afterId".
+    * pass 0 to get the first page and the id of the last note of a page to get the next one.*/
+    public Flowable<List<Note>> getNotesPage(int afterId, int pageSize) throws Exception{
+        checkPageSize(pageSize);
+        return noteDao.getNotesAfter(afterId, pageSize)
+                .map(decodeNotes)
+                .compose(metricsRegistry.operation(METRIC_GET_NOTES_PAGE).timeSingle(NoteRepository.<Note>listOutcome()))
+                .subscribeOn(databaseSchedulers.reader())
+                .toFlowable();
+    }
+
+    /*
+    * walks the whole table page by page (keyset on id).
+    * a new page is only queried when the subscriber requests it, so memory stays at one page.*/
+    public Flowable<List<Note>> streamNotePages(final int pageSize) throws Exception{
+        checkPageSize(pageSize);
+        return Flowable.generate(
+                new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        return 0;
+                    }
+                },
+                new BiFunction<Integer, Emitter<List<Note>>, Integer>() {
+                    @Override
+                    public Integer apply(Integer afterId, Emitter<List<Note>> emitter) throws Exception {
+                        List<Note> page = decode(noteDao.getNotesAfter(afterId, pageSize).blockingGet());
+                        if(page.isEmpty()){
+                            emitter.onComplete();
+                            return afterId;
+                        }
+                        emitter.onNext(page);
+                        if(page.size() < pageSize){
+                            emitter.onComplete();
+                        }
+                        return page.get(page.size() - 1).getId();
+                    }
+                })
+                .subscribeOn(databaseSchedulers.reader());
+    }
+
+    /*
+    * full-text search over note titles and content.
+    * "queries" is what the user types: it is debounced, duplicate queries are dropped,
+    * and a new query cancels the search still running for the previous one.
+    * results are re-emitted when the notes change and are sorted by rank (best match first).*/
+    public Flowable<List<NoteSearchResult>> search(Flowable<String> queries){
+        return search(queries, SEARCH_DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS, Schedulers.computation());
+    }
+
+    Flowable<List<NoteSearchResult>> search(Flowable<String> queries, long debounce, TimeUnit unit, Scheduler scheduler){
+        return queries
+                .debounce(debounce, unit, scheduler)
+                .map(new Function<String, String>() {
+                    @Override
+                    public String apply(String query) throws Exception {
+                        return SearchUtil.toMatchQuery(query);
+                    }
+                })
+                .distinctUntilChanged()
+                .switchMap(new Function<String, Flowable<List<NoteSearchResult>>>() {
+                    @Override
+                    public Flowable<List<NoteSearchResult>> apply(String matchQuery) throws Exception {
+                        if(matchQuery.isEmpty()){
+                            return Flowable.just(Collections.<NoteSearchResult>emptyList());
+                        }
+                        return noteDao.search(matchQuery, SEARCH_RESULT_LIMIT)
+                                .compose(NoteRepository.this.<NoteSearchResult>timeFirstList(METRIC_SEARCH))
+                                .map(new Function<List<NoteSearchResult>, List<NoteSearchResult>>() {
+                                    @Override
+                                    public List<NoteSearchResult> apply(List<NoteSearchResult> results) throws Exception {
+                                        return rankSearchResults(results);
+                                    }
+                                })
+                                .onErrorReturn(new Function<Throwable, List<NoteSearchResult>>() {
+                                    @Override
+                                    public List<NoteSearchResult> apply(Throwable throwable) throws Exception {
+                                        return Collections.emptyList();
+                                    }
+                                })
+                                .subscribeOn(databaseSchedulers.reader());
+                    }
+                });
+    }
+
+    private List<NoteSearchResult> rankSearchResults(List<NoteSearchResult> results){
+        for(NoteSearchResult result : results){
+            result.setRank(SearchUtil.rank(result.getMatchInfo(), SearchUtil.COLUMN_WEIGHTS));
+        }
+        Collections.sort(results, new Comparator<NoteSearchResult>() {
+            @Override
+            public int compare(NoteSearchResult r1, NoteSearchResult r2) {
+                return Double.compare(r2.getRank(), r1.getRank());
+            }
+        });
+        return results;
+    }
+
+    private void checkPageSize(int pageSize) throws Exception{
+        if(pageSize <= 0){
+            throw new Exception(INVALID_PAGE_SIZE);
+        }
     }
 
     private void checkId(Note note) throws Exception{
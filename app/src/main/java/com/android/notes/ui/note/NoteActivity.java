@@ -5,6 +5,8 @@ import androidx.lifecycle.Observer;
 import androidx.lifecycle.ViewModelProviders;
 
 import android.app.Activity;
+import android.content.Context;
+import android.content.Intent;
 import android.os.Bundle;
 import android.text.Editable;
 import android.text.TextUtils;
@@ -23,7 +25,6 @@ import com.android.notes.R;
 import com.android.notes.models.Note;
 import com.android.notes.ui.Resource;
 import com.android.notes.ui.note.NoteViewModel;
-import com.android.notes.util.DateUtil;
 import com.android.notes.util.LinedEditText;
 import com.android.notes.viewmodels.ViewModelProviderFactory;
 import com.google.android.material.snackbar.Snackbar;
@@ -57,6 +58,27 @@ public class NoteActivity extends DaggerAppCompatActivity implements
     private NoteViewModel viewModel;
     private GestureDetector mGestureDetector;
 
+    // true while the note is being displayed, those text changes aren't edits
+    private boolean isSettingNoteProperties;
+
+    // id of the last save result shown
+    private static final String LAST_SHOWN_SAVE_ID = "last_shown_save_id";
+    private long lastShownSaveId;
+
+    /*
+    * opens note "noteId". only the id goes in the intent, the note itself is loaded by the viewmodel
+    * (a note of any size, nothing to parcel).*/
+    public static Intent newIntent(Context context, int noteId){
+        Intent intent = new Intent(context, NoteActivity.class);
+        intent.putExtra(context.getString(R.string.intent_note_id), noteId);
+        return intent;
+    }
+
+    // opens the editor on a new note
+    public static Intent newIntent(Context context){
+        return new Intent(context, NoteActivity.class);
+    }
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -78,6 +100,8 @@ public class NoteActivity extends DaggerAppCompatActivity implements
         if(savedInstanceState == null){
             getIncomingIntent();
             enableEditMode();
+        }else{
+            lastShownSaveId = savedInstanceState.getLong(LAST_SHOWN_SAVE_ID);
         }
 
     }
@@ -85,16 +109,13 @@ public class NoteActivity extends DaggerAppCompatActivity implements
 
     private void getIncomingIntent() {
         try {
-            Note note;
-            if(getIntent().hasExtra(getString(R.string.intent_note))){
-                note = new Note((Note)getIntent().getParcelableExtra(getString(R.string.intent_note)));
+            if(getIntent().hasExtra(getString(R.string.intent_note_id))){
                 viewModel.setIsNewNote(false);
+                loadNote(getIntent().getIntExtra(getString(R.string.intent_note_id), -1));
+                return;
             }
-            else{
-                note = new Note("Title", "", DateUtil.getCurrentTimeStamp());
-                viewModel.setIsNewNote(true);
-            }
-            viewModel.setNote(note);
+            viewModel.setIsNewNote(true);
+            viewModel.setNote(new Note("Title", "", System.currentTimeMillis()));
         } catch (Exception e) {
             e.printStackTrace();
             showSnackBar(getString(R.string.error_intent_note));
@@ -102,6 +123,18 @@ public class NoteActivity extends DaggerAppCompatActivity implements
     }
 
 
+    private void loadNote(int noteId) throws Exception{
+        viewModel.loadNote(noteId).observe(this, new Observer<Resource<Note>>() {
+            @Override
+            public void onChanged(Resource<Note> noteResource) {
+                if(noteResource != null && noteResource.status == Resource.Status.ERROR){
+                    Log.e(TAG, "onChanged: load note: error..." );
+                    showSnackBar(getString(R.string.error_intent_note));
+                }
+            }
+        });
+    }
+
     private void setListeners(){
         mGestureDetector = new GestureDetector(this, this);
         linedEditText.setOnTouchListener(this);
@@ -109,12 +142,37 @@ public class NoteActivity extends DaggerAppCompatActivity implements
         viewTitle.setOnClickListener(this);
         backArrow.setOnClickListener(this);
         editText.addTextChangedListener(this);
+        linedEditText.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+                // only the changed range goes to the viewmodel, never the whole text
+                if(isEditing() && !viewModel.editContent(start, before, s.subSequence(start, start + count))){
+                    viewModel.onNoteEdited(editText.getText().toString(), s.toString());
+                }
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+
+            }
+        });
+    }
+
+    // text changes made by the user, the viewmodel decides when to actually write them
+    private boolean isEditing(){
+        return !isSettingNoteProperties && viewModel.observeViewState().getValue() == NoteViewModel.ViewState.EDIT;
     }
 
     @Override
     protected void onSaveInstanceState(Bundle outState) {
         super.onSaveInstanceState(outState);
         outState.putBoolean("has_started", true);
+        outState.putLong(LAST_SHOWN_SAVE_ID, lastShownSaveId);
     }
 
 
@@ -127,6 +185,15 @@ public class NoteActivity extends DaggerAppCompatActivity implements
             }
         });
 
+        viewModel.observeSaveResults().observe(this, new Observer<SaveResult>() {
+            @Override
+            public void onChanged(SaveResult saveResult) {
+                if(saveResult != null){
+                    onSaveResult(saveResult);
+                }
+            }
+        });
+
         viewModel.observeViewState().observe(this, new Observer<NoteViewModel.ViewState>() {
             @Override
             public void onChanged(NoteViewModel.ViewState viewState) {
@@ -148,42 +215,42 @@ public class NoteActivity extends DaggerAppCompatActivity implements
     private void saveNote(){
         Log.d(TAG, "saveNote: called.");
         try {
-            viewModel.saveNote().observe(this, new Observer<Resource<Integer>>() {
-                @Override
-                public void onChanged(Resource<Integer> integerResource) {
-                    try {
-                        if(integerResource != null){
-                            switch (integerResource.status){
-
-                                case SUCCESS:{
-                                    Log.e(TAG, "onChanged: save note: success..." );
-                                    showSnackBar(integerResource.message);
-                                    break;
-                                }
-
-                                case ERROR:{
-                                    Log.e(TAG, "onChanged: save note: error..." );
-                                    showSnackBar(integerResource.message);
-                                    break;
-                                }
-
-                                case LOADING:{
-                                    Log.e(TAG, "onChanged: save note: loading..." );
-                                    break;
-                                }
-                            }
-                        }
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                    }
-                }
-            });
+            viewModel.saveNote();
         } catch (Exception e) {
             e.printStackTrace();
             showSnackBar(e.getMessage());
         }
     }
 
+    // results of the saves started from here, autosaves stay quiet
+    private void onSaveResult(SaveResult result){
+        if(result.isAutosave() || result.getSaveId() <= lastShownSaveId){
+            // the same result is delivered again after a configuration change
+            return;
+        }
+        lastShownSaveId = result.getSaveId();
+        Resource<Integer> integerResource = result.getResource();
+        switch (integerResource.status){
+
+            case SUCCESS:{
+                Log.e(TAG, "onChanged: save note: success..." );
+                showSnackBar(integerResource.message);
+                break;
+            }
+
+            case ERROR:{
+                Log.e(TAG, "onChanged: save note: error..." );
+                showSnackBar(integerResource.message);
+                break;
+            }
+
+            case LOADING:{
+                Log.e(TAG, "onChanged: save note: loading..." );
+                break;
+            }
+        }
+    }
+
     public static void hideKeyboard(Activity activity) {
         InputMethodManager imm = (InputMethodManager) activity.getSystemService(Activity.INPUT_METHOD_SERVICE);
         //Find the currently focused view, so we can grab the correct window token from it.
@@ -203,6 +270,7 @@ public class NoteActivity extends DaggerAppCompatActivity implements
     }
 
     private void setNoteProperties(Note note) {
+        isSettingNoteProperties = true;
         try{
             viewTitle.setText(note.getTitle());
             editText.setText(note.getTitle());
@@ -210,6 +278,8 @@ public class NoteActivity extends DaggerAppCompatActivity implements
         }catch (NullPointerException e){
             e.printStackTrace();
             showSnackBar("Error displaying note properties");
+        }finally {
+            isSettingNoteProperties = false;
         }
 
     }
@@ -223,15 +293,7 @@ public class NoteActivity extends DaggerAppCompatActivity implements
         Log.d(TAG, "disableEditMode: called.");
         viewModel.setViewState(NoteViewModel.ViewState.VIEW);
 
-        if(!TextUtils.isEmpty(linedEditText.getText())){
-            try {
-                viewModel.updateNote(editText.getText().toString(), linedEditText.getText().toString());
-            } catch (Exception e) {
-                e.printStackTrace();
-                showSnackBar("Error setting note properties");
-            }
-        }
-
+        // the viewmodel already has every edit, saveNote builds the note from them
         saveNote();
     }
 
@@ -278,7 +340,9 @@ public class NoteActivity extends DaggerAppCompatActivity implements
 
     @Override
     public void afterTextChanged(Editable s) {
-
+        if(isEditing()){
+            viewModel.editTitle(s.toString());
+        }
     }
 
     @Override
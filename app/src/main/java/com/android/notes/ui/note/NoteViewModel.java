@@ -1,21 +1,38 @@
 package com.android.notes.ui.note;
 
+import android.util.Log;
+
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.LiveDataReactiveStreams;
+import androidx.lifecycle.MediatorLiveData;
 import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Observer;
 import androidx.lifecycle.ViewModel;
 
 import com.android.notes.models.Note;
 import com.android.notes.repository.NoteRepository;
 import com.android.notes.ui.Resource;
-import com.android.notes.util.DateUtil;
+import com.android.notes.util.PieceTable;
+
+import org.reactivestreams.Publisher;
 
-import org.reactivestreams.Subscription;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.inject.Inject;
 
+import dagger.Lazy;
+
+import io.reactivex.Flowable;
+import io.reactivex.Scheduler;
 import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
+import io.reactivex.processors.PublishProcessor;
+import io.reactivex.schedulers.Schedulers;
 
+import static com.android.notes.repository.NoteRepository.NOTE_FOUND;
 import static com.android.notes.repository.NoteRepository.NOTE_TITLE_NULL;
 
 public class NoteViewModel extends ViewModel {
@@ -23,155 +40,448 @@ public class NoteViewModel extends ViewModel {
     private static final String TAG = "NoteViewModel";
 
     public static final String NO_CONTENT_ERROR = "Can't save note with no content";
+    public static final String SAVE_ERROR = "Something went wrong";
+    public static final long AUTOSAVE_WINDOW_MILLIS = 1000;
     public enum ViewState{VIEW,EDIT}
 
     //inject
-    private final NoteRepository noteRepository;
+    // created on first use (or by the pre-initialization in BaseApplication), not with the viewmodel
+    private final Lazy<NoteRepository> noteRepository;
 
     //vars
     private MutableLiveData<Note> note = new MutableLiveData<>();
     private MutableLiveData<ViewState> viewState = new MutableLiveData<>();
-    private boolean isNewNote;
-    private Subscription updateSubscription, insertSubscription;
+    private volatile boolean isNewNote;
+
+    /*
+    * the text being edited. edits go to the piece table as they are typed (editContent), the full
+    * text is only built when it is written (autosave or saveNote). guarded by documentLock, the
+    * autosave reads it off the main thread.*/
+    private final Object documentLock = new Object();
+    private PieceTable content = new PieceTable(null);
+    private String title;
+    // edits since the viewmodel was created, and the last one copied into "note"
+    private int editCount;
+    private int appliedEditCount;
+
+    // autosave
+    private static final int NO_EDIT = 0;
+    private final PublishProcessor<Integer> pendingEdits = PublishProcessor.create();
+    private final AtomicInteger unsavedEdit = new AtomicInteger(NO_EDIT);
+    private final AtomicInteger autosavedNoteId = new AtomicInteger(0);
+
+    /*
+    * every write of the note (saveNote and autosave) goes through one pipeline, one write at a time,
+    * and its results come out of one LiveData (observeSaveResults). manual saves queue up (buffered)
+    * behind the running write, autosaves keep only the latest.
+    * the pipeline is never disposed: onCleared completes its inputs and it ends on its own once
+    * every queued write is done, so no save is dropped when the screen goes away.*/
+    private final PublishProcessor<SaveRequest> saveRequests = PublishProcessor.create();
+    private final AtomicLong lastSaveId = new AtomicLong(0);
+    private final MutableLiveData<SaveResult> saveResults = new MutableLiveData<>();
+
+    /*
+    * a save waiting in the pipeline. "note" is the observed note for manual saves (it is copied when
+    * the save runs, the writer thread never changes it), null for autosaves (the edits are built when
+    * it runs).*/
+    private static class SaveRequest {
+
+        final long saveId;
+        final int edit;
+        final Note note;
+
+        SaveRequest(long saveId, int edit, Note note) {
+            this.saveId = saveId;
+            this.edit = edit;
+            this.note = note;
+        }
+    }
 
 
     @Inject
+    public NoteViewModel(Lazy<NoteRepository> noteRepository) {
+        this(noteRepository, Schedulers.computation());
+    }
+
     public NoteViewModel(NoteRepository noteRepository) {
+        this(noteRepository, Schedulers.computation());
+    }
+
+    NoteViewModel(NoteRepository noteRepository, Scheduler autosaveScheduler) {
+        this(created(noteRepository), autosaveScheduler);
+    }
+
+    NoteViewModel(Lazy<NoteRepository> noteRepository, Scheduler autosaveScheduler) {
         this.noteRepository = noteRepository;
+        startSaving(autosaveScheduler);
+    }
+
+    private static Lazy<NoteRepository> created(final NoteRepository noteRepository){
+        return new Lazy<NoteRepository>() {
+            @Override
+            public NoteRepository get() {
+                return noteRepository;
+            }
+        };
     }
 
-    public LiveData<Resource<Integer>> insertNote () throws Exception{
-        return LiveDataReactiveStreams.fromPublisher(
-                noteRepository.insertNote(note.getValue())
-                .doOnSubscribe(new Consumer<Subscription>() {
+    /*
+    * autosave: edits are debounced, so a burst of keystrokes becomes one write once the user
+    * pauses for AUTOSAVE_WINDOW_MILLIS. while a write is running only the latest edit is kept,
+    * it is written right after (one write at a time, never one per keystroke).
+    * the pipeline only carries edit numbers, the text is built once per write.*/
+    private void startSaving(Scheduler scheduler){
+        Flowable<SaveRequest> autosaves = pendingEdits
+                .debounce(AUTOSAVE_WINDOW_MILLIS, TimeUnit.MILLISECONDS, scheduler)
+                .map(new Function<Integer, SaveRequest>() {
                     @Override
-                    public void accept(Subscription subscription) throws Exception {
-                        insertSubscription = subscription;
+                    public SaveRequest apply(Integer edit) throws Exception {
+                        return new SaveRequest(lastSaveId.incrementAndGet(), edit, null);
                     }
                 })
-        );
+                .onBackpressureLatest();
+        Flowable.merge(autosaves, saveRequests.onBackpressureBuffer())
+                .concatMap(new Function<SaveRequest, Publisher<SaveResult>>() {
+                    @Override
+                    public Publisher<SaveResult> apply(SaveRequest request) throws Exception {
+                        return write(request);
+                    }
+                }, 1)
+                .subscribe(new Consumer<SaveResult>() {
+                    @Override
+                    public void accept(SaveResult result) throws Exception {
+                        saveResults.postValue(result);
+                    }
+                }, new Consumer<Throwable>() {
+                    @Override
+                    public void accept(Throwable throwable) throws Exception {
+                        // write() turns every failed write into a result, this is a bug in the pipeline itself
+                        Log.e(TAG, "save pipeline failed, later saves won't be written", throwable);
+                        saveResults.postValue(new SaveResult(lastSaveId.get(), false, Resource.<Integer>error(null, SAVE_ERROR)));
+                    }
+                });
     }
-    public  LiveData<Resource<Integer>> updateNote() throws  Exception{
-        return LiveDataReactiveStreams.fromPublisher(
-                noteRepository.updateNote(note.getValue())
-                .doOnSubscribe(new Consumer<Subscription>() {
+
+    // a failed write (even one that throws before reaching the repository) is an error result, never the end of the pipeline
+    private Flowable<SaveResult> write(final SaveRequest request){
+        return Flowable.defer(new Callable<Publisher<SaveResult>>() {
                     @Override
-                    public void accept(Subscription subscription) throws Exception {
-                        updateSubscription = subscription;
+                    public Publisher<SaveResult> call() throws Exception {
+                        return writeRequest(request);
                     }
                 })
-        );
+                .onErrorReturn(new Function<Throwable, SaveResult>() {
+                    @Override
+                    public SaveResult apply(Throwable throwable) throws Exception {
+                        return new SaveResult(request.saveId, request.note == null, Resource.<Integer>error(null, SAVE_ERROR));
+                    }
+                });
     }
-    public LiveData<Note> observeNote(){
-        return note;
+
+    private Flowable<SaveResult> writeRequest(final SaveRequest request){
+        Note writtenNote;
+        if(request.note != null){
+            writtenNote = new Note(request.note);
+        }else{
+            // a newer edit or a manual save already covers this one
+            if(!unsavedEdit.compareAndSet(request.edit, NO_EDIT)){
+                return Flowable.empty();
+            }
+            writtenNote = materializeEdits();
+            if(writtenNote == null){
+                return Flowable.empty();
+            }
+        }
+        return writeEdit(writtenNote)
+                .doOnNext(markPersistedOnSuccess(request.note != null ? request.note : writtenNote, writtenNote.getVersion()))
+                .map(new Function<Resource<Integer>, SaveResult>() {
+                    @Override
+                    public SaveResult apply(Resource<Integer> resource) throws Exception {
+                        return new SaveResult(request.saveId, request.note == null, resource);
+                    }
+                });
     }
-    public LiveData<ViewState> observeViewState(){
-        return viewState;
+
+    // "edit" is a copy owned by the pipeline, the id of an insert is kept for the next writes
+    private Flowable<Resource<Integer>> writeEdit(final Note edit){
+        try {
+            int savedId = autosavedNoteId.get();
+            if(edit.getId() <= 0 && savedId > 0){
+                edit.setId(savedId);
+            }
+            if(edit.getId() <= 0 && isNewNote){
+                return noteRepository.get().insertNote(edit)
+                        .doOnNext(new Consumer<Resource<Integer>>() {
+                            @Override
+                            public void accept(Resource<Integer> resource) throws Exception {
+                                if(resource.status == Resource.Status.SUCCESS && resource.data != null){
+                                    autosavedNoteId.set(resource.data);
+                                    edit.setId(resource.data);
+                                    isNewNote = false;
+                                }
+                            }
+                        });
+            }
+            return noteRepository.get().updateNote(edit);
+        } catch (Exception e) {
+            return Flowable.error(e);
+        }
     }
-    public void setViewState(ViewState viewState){
-        this.viewState.setValue(viewState);
+
+    /*
+    * called by the activity for every change to the content while editing, with the arguments of
+    * TextWatcher.onTextChanged: "before" chars at "start" were replaced with "inserted".
+    * doesn't touch the observed note (that would reset the text being typed), the edit only goes
+    * to the document and the autosave pipeline.
+    * returns false if the change doesn't fit the document (out of sync with the view), the caller
+    * should then hand over the whole text with onNoteEdited.*/
+    public boolean editContent(int start, int before, CharSequence inserted){
+        if(note.getValue() == null || inserted == null){
+            return false;
+        }
+        int edit;
+        synchronized (documentLock){
+            if(start < 0 || before < 0 || start + before > content.length()){
+                return false;
+            }
+            content.replace(start, before, inserted);
+            edit = nextEdit();
+        }
+        scheduleAutosave(edit);
+        return true;
     }
-    public void setIsNewNote(boolean isNewNote){
-        this.isNewNote = isNewNote;
+
+    // called by the activity for every change to the title while editing
+    public void editTitle(String title){
+        if(note.getValue() == null || title == null){
+            return;
+        }
+        int edit;
+        synchronized (documentLock){
+            if(title.equals(this.title)){
+                return;
+            }
+            this.title = title;
+            edit = nextEdit();
+        }
+        scheduleAutosave(edit);
     }
-    public LiveData<Resource<Integer>> saveNote() throws Exception{
 
-        if(!shouldAllowSave()){
-            throw new Exception(NO_CONTENT_ERROR);
+    /*
+    * the whole title and content at once. setting the same title and content again (e.g. when the
+    * text is displayed) is not an edit.*/
+    public void onNoteEdited(String title, String content){
+        if(note.getValue() == null || title == null || content == null){
+            return;
         }
-        cancelPendingTransactions();
+        int edit;
+        synchronized (documentLock){
+            boolean sameContent = this.content.contentEquals(content);
+            if(title.equals(this.title) && sameContent){
+                return;
+            }
+            this.title = title;
+            if(!sameContent){
+                this.content.replace(0, this.content.length(), content);
+            }
+            edit = nextEdit();
+        }
+        scheduleAutosave(edit);
+    }
 
+    // the number of this edit, or NO_EDIT if the note can't be saved as it is. call with documentLock held
+    private int nextEdit(){
+        editCount++;
+        if(title == null || title.equals("") || content.isBlank()){
+            return NO_EDIT;
+        }
+        return editCount;
+    }
 
-        return new NoteInsertUpdateHelper<Integer>() {
-            @Override
-            public void setNoteId(int noteId) {
-                isNewNote = false;
-                Note currentNote  =note.getValue();
-                currentNote.setId(noteId);
-                note.setValue(currentNote);
+    private void scheduleAutosave(int edit){
+        if(edit != NO_EDIT){
+            unsavedEdit.set(edit);
+            pendingEdits.onNext(edit);
+        }
+    }
+
+    /*
+    * a copy of the current note with the edited title and content, null if there is no note.
+    * the only place the full text of the document is built: from a snapshot taken under
+    * documentLock, after releasing it, so the edits typed meanwhile don't wait for the copy.*/
+    private Note materializeEdits(){
+        Note currentNote = note.getValue();
+        if(currentNote == null){
+            return null;
+        }
+        Note editedNote = new Note(currentNote);
+        PieceTable document;
+        PieceTable.Snapshot snapshot;
+        synchronized (documentLock){
+            if(title != null && !title.equals("")){
+                editedNote.setTitle(title);
             }
+            document = content;
+            snapshot = content.snapshot();
+        }
+        String text = snapshot.toString();
+        synchronized (documentLock){
+            // cached for the next save, unless it was edited meanwhile
+            document.setText(snapshot, text);
+        }
+        editedNote.setContent(text);
+        editedNote.setTimestamp(System.currentTimeMillis());
+        return editedNote;
+    }
 
-            @Override
-            public LiveData<Resource<Integer>> getAction() throws Exception {
-                if (isNewNote) {
-                    return insertNote();
-                }else {
-                    return updateNote();
-                }
+    // puts the edits made since the note was last set into the observed note (saveNote writes the observed note)
+    private void applyEdits(){
+        int edits;
+        synchronized (documentLock){
+            if(appliedEditCount == editCount){
+                return;
+            }
+            edits = editCount;
+        }
+        Note editedNote = materializeEdits();
+        if(editedNote != null){
+            synchronized (documentLock){
+                appliedEditCount = edits;
             }
+            note.setValue(editedNote);
+        }
+    }
 
-            @Override
-            public String defineAction() {
+    // "note" becomes the current note, the document starts over from its title and content
+    private void setCurrentNote(Note note){
+        synchronized (documentLock){
+            content = new PieceTable(note.getContent());
+            title = note.getTitle();
+            appliedEditCount = editCount;
+        }
+        this.note.setValue(note);
+    }
+
+    /*
+    * results of every save and autosave, one LiveData for the life of the viewmodel (observe it once).
+    * like any LiveData it holds the latest result, a slow observer may miss older ones: compare
+    * the save id with the one saveNote returned.*/
+    public LiveData<SaveResult> observeSaveResults(){
+        return saveResults;
+    }
 
-                if (isNewNote) {
-                    return ACTION_INSERT;
-                }else {
-                    return ACTION_UPDATE;
+    /*
+    * never lose an edit: completing the inputs makes the debounce emit the edit still waiting for
+    * its window right away, and the pipeline goes on with the running write, the manual saves
+    * queued behind it and that last autosave before it ends.*/
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        pendingEdits.onComplete();
+        saveRequests.onComplete();
+    }
+
+    /*
+    * loads the full note, used when the activity is opened with a note id.
+    * a note in the repository cache becomes the current note right away, otherwise it is read
+    * from the database and becomes the current note once the result is observed.*/
+    public LiveData<Resource<Note>> loadNote(int noteId) throws Exception{
+        final MediatorLiveData<Resource<Note>> result = new MediatorLiveData<>();
+        Note cached = noteRepository.get().peekCachedNote(noteId);
+        if(cached != null){
+            setCurrentNote(cached);
+            result.setValue(Resource.success(cached, NOTE_FOUND));
+            return result;
+        }
+        final LiveData<Resource<Note>> source = LiveDataReactiveStreams.fromPublisher(
+                noteRepository.get().getNoteById(noteId)
+        );
+        result.setValue(Resource.<Note>loading(null));
+        result.addSource(source, new Observer<Resource<Note>>() {
+            @Override
+            public void onChanged(Resource<Note> noteResource) {
+                result.removeSource(source);
+                if(noteResource != null
+                        && noteResource.status == Resource.Status.SUCCESS
+                        && noteResource.data != null){
+                    setCurrentNote(noteResource.data);
                 }
+                result.setValue(noteResource);
             }
+        });
+        return result;
+    }
 
+    // once saved, saving the same note again is a no-op (see Note.isDirty, persistedVersion is volatile)
+    private Consumer<Resource<Integer>> markPersistedOnSuccess(final Note writtenNote, final int writtenVersion){
+        return new Consumer<Resource<Integer>>() {
             @Override
-            public void onTransactionComplete() {
-                updateSubscription = null;
-                insertSubscription = null;
+            public void accept(Resource<Integer> resource) throws Exception {
+                if(resource.status == Resource.Status.SUCCESS){
+                    writtenNote.markPersisted(writtenVersion);
+                }
             }
-        }.getAsLiveData();
+        };
     }
 
-    private void cancelPendingTransactions(){
-        if (insertSubscription != null) {
-             cancelInsertTransaction();
-        }
-        if (updateSubscription != null) {
-            cancelUpdateTransaction();
-        }
+    public LiveData<Note> observeNote(){
+        return note;
     }
-    private void cancelUpdateTransaction(){
-        updateSubscription.cancel();
-        updateSubscription = null;
-
+    public LiveData<ViewState> observeViewState(){
+        return viewState;
     }
-    private void cancelInsertTransaction(){
-        insertSubscription.cancel();
-        insertSubscription = null;
-
+    public void setViewState(ViewState viewState){
+        this.viewState.setValue(viewState);
     }
+    public void setIsNewNote(boolean isNewNote){
+        this.isNewNote = isNewNote;
+    }
+    /*
+    * writes the current note with every edit made so far, after the write already running if any.
+    * returns the id of this save, its result comes out of observeSaveResults.*/
+    public long saveNote() throws Exception{
 
-    private boolean shouldAllowSave() throws Exception{
-
-        try {
-            return removeWhiteSpace(note.getValue().getContent()).length() > 0;
-        }catch (NullPointerException e){
+        applyEdits();
+        if(!shouldAllowSave()){
             throw new Exception(NO_CONTENT_ERROR);
         }
+        // this save writes the current note, a pending autosave would only repeat it
+        unsavedEdit.set(NO_EDIT);
 
+        long saveId = lastSaveId.incrementAndGet();
+        saveRequests.onNext(new SaveRequest(saveId, NO_EDIT, note.getValue()));
+        return saveId;
+    }
 
+    // the document always holds the content of the observed note here (see applyEdits)
+    private boolean shouldAllowSave(){
+        synchronized (documentLock){
+            return note.getValue() != null && !content.isBlank();
+        }
     }
     public void updateNote(String title, String content) throws Exception{
         if(title == null || title.equals("")){
             throw new NullPointerException("Title can't be null");
         }
-        String temp = removeWhiteSpace(content);
-        if(temp.length() > 0){
+        Note currentNote = note.getValue();
+        if(currentNote != null && title.equals(currentNote.getTitle()) && content != null && content.equals(currentNote.getContent())){
+            // nothing changed: keep the note (and its timestamp) as it is
+            return;
+        }
+        if(!PieceTable.isBlank(content)){
             Note updatedNote = new Note(note.getValue());
             updatedNote.setTitle(title);
             updatedNote.setContent(content);
-            updatedNote.setTimestamp(DateUtil.getCurrentTimeStamp());
+            updatedNote.setTimestamp(System.currentTimeMillis());
 
-            note.setValue(updatedNote);
+            setCurrentNote(updatedNote);
         }
     }
-
-    private String removeWhiteSpace(String string){
-        string = string.replace("\n", "");
-        string = string.replace(" ", "");
-        return string;
-    }
     public void setNote(Note note) throws Exception{
         if (note.getTitle() == null || note.getTitle().equals("")) {
             throw new Exception(NOTE_TITLE_NULL);
         }
-        this.note.setValue(note);
+        setCurrentNote(note);
     }
 
     public boolean shouldNavigateBack(){
@@ -0,0 +1,46 @@
+package com.android.notes.ui.note;
+
+import androidx.annotation.NonNull;
+
+import com.android.notes.ui.Resource;
+
+/*
+* the outcome of one save of the note being edited, see NoteViewModel.observeSaveResults.
+* "saveId" is the id saveNote returned for that save (autosaves get their own ids), the resource
+* is what the repository returned (row id for an insert, rows for an update).*/
+public class SaveResult {
+
+    private final long saveId;
+    private final boolean autosave;
+    @NonNull
+    private final Resource<Integer> resource;
+
+    public SaveResult(long saveId, boolean autosave, @NonNull Resource<Integer> resource) {
+        this.saveId = saveId;
+        this.autosave = autosave;
+        this.resource = resource;
+    }
+
+    public long getSaveId() {
+        return saveId;
+    }
+
+    public boolean isAutosave() {
+        return autosave;
+    }
+
+    @NonNull
+    public Resource<Integer> getResource() {
+        return resource;
+    }
+
+    @Override
+    public String toString() {
+        return "SaveResult{" +
+                "saveId=" + saveId +
+                ", autosave=" + autosave +
+                ", status=" + resource.status +
+                ", message='" + resource.message + '\'' +
+                '}';
+    }
+}
@@ -1,14 +1,17 @@
 package com.android.notes.ui.noteslist;
 
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.Observer;
+import androidx.lifecycle.ViewModelProviders;
+import androidx.paging.PagedList;
 
-import android.content.Intent;
 import android.os.Bundle;
 import android.util.Log;
 
 import com.android.notes.R;
-import com.android.notes.repository.NoteRepository;
+import com.android.notes.models.NoteSummary;
 import com.android.notes.ui.note.NoteActivity;
+import com.android.notes.viewmodels.ViewModelProviderFactory;
 
 import javax.inject.Inject;
 
@@ -18,16 +21,48 @@ public class NotesListActivity extends DaggerAppCompatActivity {
 
 
     private static final String TAG = "NotesListActivity";
+    // the repository is created with the view model (or by the pre-initialization in BaseApplication), not by the injection
     @Inject
-    NoteRepository noteRepository;
+    ViewModelProviderFactory providerFactory;
+
+    private NotesListViewModel viewModel;
+    // the editor is opened once the first page is in, the list's observer stops with this activity
+    private boolean editorOpened;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_notes_list);
 
-        Log.d(TAG, "onCreate: " + noteRepository);
-        Intent intent =new Intent(this, NoteActivity.class);
-        startActivity(intent);
+        Log.d(TAG, "onCreate: called.");
+        viewModel = ViewModelProviders.of(this, providerFactory).get(NotesListViewModel.class);
+
+        subscribeObservers();
+        try {
+            viewModel.getPagedNotes();
+        } catch (Exception e) {
+            Log.e(TAG, "onCreate: get paged notes: error...", e);
+            openEditor();
+        }
+    }
+
+    private void openEditor(){
+        if(!editorOpened){
+            editorOpened = true;
+            startActivity(NoteActivity.newIntent(this));
+        }
+    }
+
+    private void subscribeObservers(){
+        // the first page reaching this observer ends the startup's first query (StartupTracer.PHASE_FIRST_QUERY)
+        viewModel.observePagedNotes().observe(this, new Observer<PagedList<NoteSummary>>() {
+            @Override
+            public void onChanged(PagedList<NoteSummary> notes) {
+                if(notes != null){
+                    Log.d(TAG, "onChanged: notes: " + notes.size());
+                    openEditor();
+                }
+            }
+        });
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,84 @@
+package com.android.notes.ui.noteslist;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+
+import com.android.notes.models.Note;
+
+import java.util.Collections;
+import java.util.List;
+
+/*
+* a new list of notes together with the patch from the previous list (insert/remove/change ranges,
+* notes matched by id). computed off the main thread, so the ui only has to apply the patch:
+* diff.getDiffResult().dispatchUpdatesTo(adapter), O(changes) instead of re-rendering the list.*/
+public class NotesListDiff {
+
+    public static final NotesListDiff EMPTY = new NotesListDiff(
+            Collections.<Note>emptyList(),
+            DiffUtil.calculateDiff(new NoteDiffCallback(Collections.<Note>emptyList(), Collections.<Note>emptyList()), false)
+    );
+
+    @NonNull
+    private final List<Note> notes;
+
+    @NonNull
+    private final DiffUtil.DiffResult diffResult;
+
+    private NotesListDiff(@NonNull List<Note> notes, @NonNull DiffUtil.DiffResult diffResult) {
+        this.notes = notes;
+        this.diffResult = diffResult;
+    }
+
+    /*
+    * both lists are ordered by id, so notes never move and move detection is left off
+    * (it would cost O(removed * inserted) on top of the diff).*/
+    public static NotesListDiff calculate(@NonNull List<Note> oldNotes, @NonNull List<Note> newNotes){
+        DiffUtil.DiffResult diffResult = DiffUtil.calculateDiff(new NoteDiffCallback(oldNotes, newNotes), false);
+        return new NotesListDiff(newNotes, diffResult);
+    }
+
+    @NonNull
+    public List<Note> getNotes() {
+        return notes;
+    }
+
+    @NonNull
+    public DiffUtil.DiffResult getDiffResult() {
+        return diffResult;
+    }
+
+    private static class NoteDiffCallback extends DiffUtil.Callback {
+
+        private final List<Note> oldNotes;
+        private final List<Note> newNotes;
+
+        NoteDiffCallback(List<Note> oldNotes, List<Note> newNotes) {
+            this.oldNotes = oldNotes;
+            this.newNotes = newNotes;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return oldNotes.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return newNotes.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return oldNotes.get(oldItemPosition).getId() == newNotes.get(newItemPosition).getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            Note oldNote = oldNotes.get(oldItemPosition);
+            Note newNote = newNotes.get(newItemPosition);
+            // Note.equals ignores the timestamp, the list shows it
+            return oldNote.getTimestamp() == newNote.getTimestamp() && oldNote.equals(newNote);
+        }
+    }
+}
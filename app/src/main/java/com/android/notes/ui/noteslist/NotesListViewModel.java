@@ -1,11 +1,17 @@
 package com.android.notes.ui.noteslist;
 
+import androidx.annotation.Nullable;
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.LiveDataReactiveStreams;
 import androidx.lifecycle.MediatorLiveData;
 import androidx.lifecycle.Observer;
 import androidx.lifecycle.ViewModel;
+import androidx.paging.PagedList;
 
+import com.android.notes.metrics.StartupTracer;
 import com.android.notes.models.Note;
+import com.android.notes.models.NoteSearchResult;
+import com.android.notes.models.NoteSummary;
 import com.android.notes.repository.NoteRepository;
 import com.android.notes.ui.Resource;
 
@@ -13,36 +19,133 @@ import java.util.List;
 
 import javax.inject.Inject;
 
+import io.reactivex.functions.BiFunction;
+import io.reactivex.processors.PublishProcessor;
+import io.reactivex.schedulers.Schedulers;
+
+import static com.android.notes.repository.NoteRepository.DEFAULT_PAGE_SIZE;
+
 public class NotesListViewModel extends ViewModel {
 
     private static final String TAG = "NotesListViewModel";
     //inject
     private final NoteRepository noteRepository;
+    // null: the first page isn't timed
+    @Nullable
+    private final StartupTracer startupTracer;
 
     private MediatorLiveData<List<Note>> notes = new MediatorLiveData<>();
+    private MediatorLiveData<PagedList<NoteSummary>> pagedNotes = new MediatorLiveData<>();
+    private LiveData<PagedList<NoteSummary>> pagedNotesSource;
+    private final PublishProcessor<String> searchQueries = PublishProcessor.create();
+    private LiveData<List<NoteSearchResult>> searchResults;
+    private LiveData<NotesListDiff> notesDiff;
 
-    @Inject
     public NotesListViewModel(NoteRepository noteRepository) {
+        this(noteRepository, null);
+    }
+
+    @Inject
+    public NotesListViewModel(NoteRepository noteRepository, @Nullable StartupTracer startupTracer) {
         this.noteRepository = noteRepository;
+        this.startupTracer = startupTracer;
     }
 
     public LiveData<Resource<Integer>>  deleteNote (final Note note) throws Exception{
         return noteRepository.deleteNote(note);
     }
+    public LiveData<Resource<Integer>> deleteNotes(final List<Note> notes) throws Exception{
+        return noteRepository.deleteNotes(notes);
+    }
+
+    public LiveData<Resource<List<Long>>> insertNotes(final List<Note> notes) throws Exception{
+        return LiveDataReactiveStreams.fromPublisher(noteRepository.insertNotes(notes));
+    }
+
     public LiveData<List<Note>> observeNotes(){
         return notes;
     }
 
     public void getNotes(){
+        final long begin = System.nanoTime();
         final LiveData<List<Note>> source = noteRepository.getNotes();
         notes.addSource(source, new Observer<List<Note>>() {
             @Override
             public void onChanged(List<Note> notesList) {
                 if(notesList!= null){
+                    firstPageDelivered(begin);
                     notes.setValue(notesList);
                 }
                 notes.removeSource(source);
             }
         });
     }
+
+    public LiveData<PagedList<NoteSummary>> observePagedNotes(){
+        return pagedNotes;
+    }
+
+    /*
+    * summaries only, the full note is loaded by NoteActivity when it is opened.
+    * unlike getNotes() this source is kept for the lifetime of the viewmodel,
+    * the paged list reloads itself (page by page) whenever the table changes.*/
+    public void getPagedNotes() throws Exception{
+        if(pagedNotesSource != null){
+            return;
+        }
+        final long begin = System.nanoTime();
+        pagedNotesSource = noteRepository.getPagedNoteSummaries(DEFAULT_PAGE_SIZE);
+        pagedNotes.addSource(pagedNotesSource, new Observer<PagedList<NoteSummary>>() {
+            @Override
+            public void onChanged(PagedList<NoteSummary> notesList) {
+                if(notesList != null){
+                    firstPageDelivered(begin);
+                }
+                pagedNotes.setValue(notesList);
+            }
+        });
+    }
+
+    // the first query of the start is over when its first page reaches the list, the tracer ignores the next ones
+    private void firstPageDelivered(long beginNanos){
+        if(startupTracer != null){
+            startupTracer.end(StartupTracer.PHASE_FIRST_QUERY, beginNanos);
+        }
+    }
+
+    /*
+    * called with the text of the search box every time it changes,
+    * the repository debounces it so this can be called on every keystroke.*/
+    public void setSearchQuery(String query){
+        searchQueries.onNext(query == null ? "" : query);
+    }
+
+    public LiveData<List<NoteSearchResult>> observeSearchResults(){
+        if(searchResults == null){
+            searchResults = LiveDataReactiveStreams.fromPublisher(noteRepository.search(searchQueries));
+        }
+        return searchResults;
+    }
+
+    /*
+    * every change to the notes table as the new list plus the patch from the previous one.
+    * diffs are computed on the computation scheduler, one at a time; if the table changes faster
+    * than that, intermediate lists are skipped and the next diff goes straight to the latest list.*/
+    public LiveData<NotesListDiff> observeNotesDiff(){
+        if(notesDiff == null){
+            notesDiff = LiveDataReactiveStreams.fromPublisher(
+                    noteRepository.observeNotes()
+                            .onBackpressureLatest()
+                            .observeOn(Schedulers.computation(), false, 1)
+                            .scan(NotesListDiff.EMPTY, new BiFunction<NotesListDiff, List<Note>, NotesListDiff>() {
+                                @Override
+                                public NotesListDiff apply(NotesListDiff previous, List<Note> notesList) throws Exception {
+                                    return NotesListDiff.calculate(previous.getNotes(), notesList);
+                                }
+                            })
+                            .skip(1)
+            );
+        }
+        return notesDiff;
+    }
 }
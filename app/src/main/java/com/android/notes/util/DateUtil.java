@@ -1,7 +1,7 @@
 package com.android.notes.util;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.util.Calendar;
+import java.util.TimeZone;
 
 public class DateUtil {
 
@@ -13,58 +13,85 @@ public class DateUtil {
     public static final String GET_MONTH_ERROR = "Error. Invalid month number.";
     public static final String DATE_FORMAT = "MM-yyyy";
 
+    // length of a DATE_FORMAT timestamp
+    private static final int TIMESTAMP_LENGTH = 7;
+
+    /*
+    * one calendar and one char buffer per thread, reused by every call on that thread.
+    * SimpleDateFormat isn't thread safe and allocates a lot per call (the pattern is re-applied,
+    * a Date, a StringBuffer and a FieldPosition are created), this formats "MM-yyyy" by hand instead.
+    * the default time zone is read on every call (the user can change it while the app runs), the
+    * calendar only switches zones when it changed.*/
+    private static final ThreadLocal<Calendar> calendar = new ThreadLocal<Calendar>(){
+        @Override
+        protected Calendar initialValue() {
+            return Calendar.getInstance();
+        }
+    };
+
+    private static final ThreadLocal<char[]> buffer = new ThreadLocal<char[]>(){
+        @Override
+        protected char[] initialValue() {
+            return new char[TIMESTAMP_LENGTH];
+        }
+    };
+
     public static String getCurrentTimeStamp() throws Exception{
         try {
-            SimpleDateFormat dateFormat = new SimpleDateFormat(DATE_FORMAT); //MUST USE LOWERCASE 'y'. API 23- can't use uppercase
-            return dateFormat.format(new Date()); // Find todays date
+            return formatTimestamp(System.currentTimeMillis()); // Find todays date
         } catch (Exception e) {
             e.printStackTrace();
             throw new Exception("Couldn't format the date into MM-yyyy");
         }
     }
 
-    public static String getMonthFromNumber(String monthNumber){
-        switch(monthNumber){
-            case "01":{
-                return months[0];
-            }
-            case "02":{
-                return months[1];
-            }
-            case "03":{
-                return months[2];
-            }
-            case "04":{
-                return months[3];
-            }
-            case "05":{
-                return months[4];
-            }
-            case "06":{
-                return months[5];
-            }
-            case "07":{
-                return months[6];
-            }
-            case "08":{
-                return months[7];
-            }
-            case "09":{
-                return months[8];
-            }
-            case "10":{
-                return months[9];
-            }
-            case "11":{
-                return months[10];
-            }
-            case "12":{
-                return months[11];
-            }
+    // formats an epoch millis timestamp (as stored in the notes table) for display: "MM-yyyy"
+    public static String formatTimestamp(long timestamp){
+        char[] chars = buffer.get();
+        writeTimestamp(timestamp, chars);
+        return new String(chars, 0, TIMESTAMP_LENGTH);
+    }
+
+    // same as formatTimestamp but appends to "builder". only allocates the copy TimeZone.getDefault() returns
+    public static StringBuilder appendTimestamp(long timestamp, StringBuilder builder){
+        char[] chars = buffer.get();
+        writeTimestamp(timestamp, chars);
+        return builder.append(chars, 0, TIMESTAMP_LENGTH);
+    }
+
+    private static void writeTimestamp(long timestamp, char[] chars){
+        Calendar c = calendar.get();
+        TimeZone zone = TimeZone.getDefault();
+        if(!zone.getID().equals(c.getTimeZone().getID())){
+            c.setTimeZone(zone);
+        }
+        c.setTimeInMillis(timestamp);
+        int month = c.get(Calendar.MONTH) + 1;
+        int year = c.get(Calendar.YEAR);
+
+        chars[0] = (char) ('0' + month / 10);
+        chars[1] = (char) ('0' + month % 10);
+        chars[2] = '-';
+        chars[3] = (char) ('0' + (year / 1000) % 10);
+        chars[4] = (char) ('0' + (year / 100) % 10);
+        chars[5] = (char) ('0' + (year / 10) % 10);
+        chars[6] = (char) ('0' + year % 10);
+    }
 
-            default:{
-                return GET_MONTH_ERROR;
-            }
+    // "01" -> "Jan" ... "12" -> "Dec", anything else -> GET_MONTH_ERROR
+    public static String getMonthFromNumber(String monthNumber){
+        if(monthNumber == null || monthNumber.length() != 2){
+            return GET_MONTH_ERROR;
+        }
+        int tens = monthNumber.charAt(0) - '0';
+        int units = monthNumber.charAt(1) - '0';
+        if(tens < 0 || tens > 9 || units < 0 || units > 9){
+            return GET_MONTH_ERROR;
+        }
+        int month = tens * 10 + units;
+        if(month < 1 || month > months.length){
+            return GET_MONTH_ERROR;
         }
+        return months[month - 1];
     }
 }
@@ -14,14 +14,32 @@ public class LinedEditText extends AppCompatEditText {
     private static final String TAG = "LinedEditText";
 
     private Rect mRect;
+    private Rect mClip;
     private Paint mPaint;
 
+    /*
+    * the lines of the last frame, 4 floats (x0, y0, x1, y1) per line, for canvas.drawLines.
+    * only the lines inside the clip rect are in it, and it is only refilled when the clip rect
+    * or the layout changed, so scrolling a long note draws a screenful of lines without allocating.*/
+    private float[] mLines = new float[0];
+    private int mLineFloats;
+
+    // what mLines was computed for
+    private int mCachedClipTop;
+    private int mCachedClipBottom;
+    private int mCachedLeft;
+    private int mCachedRight;
+    private int mCachedBaseline;
+    private int mCachedLineHeight;
+    private int mCachedLineCount = -1;
+
 
     // we need this constructor for LayoutInflater
     public LinedEditText(Context context, AttributeSet attrs) {
         super(context, attrs);
 
         mRect = new Rect();
+        mClip = new Rect();
         mPaint = new Paint();
         mPaint.setStyle(Paint.Style.STROKE);
         mPaint.setStrokeWidth(2);
@@ -32,25 +50,62 @@ public class LinedEditText extends AppCompatEditText {
     @Override
     protected void onDraw(Canvas canvas) {
 
-        // get the height of the view
-        int height = ((View)this.getParent()).getHeight();
-
         int lineHeight = getLineHeight();
-        int numberOfLines = height / lineHeight;
-
         Rect r = mRect;
-        Paint paint = mPaint;
+        Rect clip = mClip;
+
+        // clip bounds are in content coordinates (scroll included), same as the line bounds
+        if (lineHeight > 0 && canvas.getClipBounds(clip)) {
 
-        int baseline = getLineBounds(0, r);
+            int baseline = getLineBounds(0, r);
 
-        for (int i = 0; i < numberOfLines; i++) {
+            // lines under the text, and on down to the bottom of the parent so short notes look like a full page
+            int numberOfLines = Math.max(getLineCount(), ((View)this.getParent()).getHeight() / lineHeight);
 
-            canvas.drawLine(r.left, baseline + 1, r.right, baseline + 1, paint);
+            if (clip.top != mCachedClipTop || clip.bottom != mCachedClipBottom
+                    || r.left != mCachedLeft || r.right != mCachedRight
+                    || baseline != mCachedBaseline || lineHeight != mCachedLineHeight
+                    || numberOfLines != mCachedLineCount) {
+                computeLines(clip, r.left, r.right, baseline, lineHeight, numberOfLines);
+            }
 
-            baseline += lineHeight;
+            if (mLineFloats > 0) {
+                canvas.drawLines(mLines, 0, mLineFloats, mPaint);
+            }
         }
 
         super.onDraw(canvas);
     }
 
-}
\ No newline at end of file
+    // fills mLines with the lines crossing "clip", line i is at baseline + 1 + i * lineHeight
+    private void computeLines(Rect clip, int left, int right, int baseline, int lineHeight, int numberOfLines) {
+
+        // one pixel of slack on each side for the stroke width
+        int first = Math.max(0, (clip.top - baseline - 2) / lineHeight);
+        int last = Math.min(numberOfLines - 1, (clip.bottom - baseline) / lineHeight);
+
+        int count = Math.max(0, last - first + 1);
+        if (mLines.length < count * 4) {
+            mLines = new float[count * 4];
+        }
+
+        int y = baseline + 1 + first * lineHeight;
+        for (int i = 0; i < count; i++) {
+            mLines[i * 4] = left;
+            mLines[i * 4 + 1] = y;
+            mLines[i * 4 + 2] = right;
+            mLines[i * 4 + 3] = y;
+            y += lineHeight;
+        }
+        mLineFloats = count * 4;
+
+        mCachedClipTop = clip.top;
+        mCachedClipBottom = clip.bottom;
+        mCachedLeft = left;
+        mCachedRight = right;
+        mCachedBaseline = baseline;
+        mCachedLineHeight = lineHeight;
+        mCachedLineCount = numberOfLines;
+    }
+
+}
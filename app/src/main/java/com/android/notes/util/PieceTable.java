@@ -0,0 +1,299 @@
+package com.android.notes.util;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+* editable text kept as a piece table: the text it started with ("original", never modified),
+* an append-only buffer of everything typed or pasted since ("added"), and the list of pieces of
+* either buffer that make up the current text, in order.
+*
+* an edit splits at most two pieces and appends the inserted text, it never copies the rest of the
+* text, so typing in a note of several MB costs about the size of the keystroke. typing at the
+* same place keeps growing the same piece.
+*
+* the number of non blank chars (blank = space or new line, like the save checks always did) is
+* kept up to date with every edit, so isBlank() doesn't look at the text.
+*
+* toString() is the only full copy of the text. it is cached until the next edit and becomes the
+* new "original" (the pieces collapse back to one).
+*
+* snapshot() copies the pieces and the text added since the last collapse, not the whole text, so
+* it can be taken under a lock and built (Snapshot.toString()) after the lock is released. the
+* built text can be handed back with setText, which caches it like toString() would have.
+*
+* not thread safe. a Snapshot is immutable and can be built on any thread.*/
+public class PieceTable {
+
+    private static final int ORIGINAL = 0;
+    private static final int ADDED = 1;
+
+    /*
+    * the text of a PieceTable at one version. shares the original text (an immutable String),
+    * copies the rest.*/
+    public static final class Snapshot {
+
+        @NonNull
+        private final PieceTable table;
+        private final int version;
+        private final int length;
+        @NonNull
+        private final String original;
+        @NonNull
+        private final String added;
+        // buffer, start and length of every piece, in order
+        @NonNull
+        private final int[] pieces;
+        // the table's cached text, if it had one
+        @Nullable
+        private final String materialized;
+
+        private Snapshot(PieceTable table) {
+            this.table = table;
+            version = table.version;
+            length = table.length;
+            original = table.original;
+            materialized = table.materialized;
+            if(materialized != null){
+                added = "";
+                pieces = new int[0];
+                return;
+            }
+            added = table.added.toString();
+            pieces = new int[table.pieces.size() * 3];
+            for(int i = 0; i < table.pieces.size(); i++){
+                Piece piece = table.pieces.get(i);
+                pieces[i * 3] = piece.buffer;
+                pieces[i * 3 + 1] = piece.start;
+                pieces[i * 3 + 2] = piece.length;
+            }
+        }
+
+        public int length(){
+            return length;
+        }
+
+        // builds the text, every call. the table's toString() is not involved
+        @NonNull
+        @Override
+        public String toString() {
+            if(materialized != null){
+                return materialized;
+            }
+            StringBuilder text = new StringBuilder(length);
+            for(int i = 0; i < pieces.length; i += 3){
+                String buffer = pieces[i] == ORIGINAL ? original : added;
+                text.append(buffer, pieces[i + 1], pieces[i + 1] + pieces[i + 2]);
+            }
+            return text.toString();
+        }
+    }
+
+    private static class Piece {
+
+        final int buffer;
+        int start;
+        int length;
+
+        Piece(int buffer, int start, int length) {
+            this.buffer = buffer;
+            this.start = start;
+            this.length = length;
+        }
+    }
+
+    @NonNull
+    private String original;
+    private final StringBuilder added = new StringBuilder();
+    private final List<Piece> pieces = new ArrayList<>();
+
+    private int length;
+    private int nonBlankCount;
+    private int version;
+
+    // toString() of the current version, null after an edit
+    @Nullable
+    private String materialized;
+
+    public PieceTable(@Nullable CharSequence text) {
+        original = text == null ? "" : text.toString();
+        length = original.length();
+        nonBlankCount = countNonBlank(original, 0, length);
+        materialized = original;
+        if(length > 0){
+            pieces.add(new Piece(ORIGINAL, 0, length));
+        }
+    }
+
+    public int length(){
+        return length;
+    }
+
+    // goes up with every edit that changed something
+    public int getVersion(){
+        return version;
+    }
+
+    // true if the text is empty or only spaces and new lines
+    public boolean isBlank(){
+        return nonBlankCount == 0;
+    }
+
+    // number of pieces the text is currently made of
+    public int getPieceCount(){
+        return pieces.size();
+    }
+
+    /*
+    * replaces the "removeLength" chars at "start" with "inserted", like an EditText change
+    * (TextWatcher.onTextChanged gives start, before, and the "count" new chars at start).*/
+    public void replace(int start, int removeLength, @NonNull CharSequence inserted){
+        if(start < 0 || removeLength < 0 || start + removeLength > length){
+            throw new IndexOutOfBoundsException("Can't replace " + removeLength + " chars at " + start + " in a text of " + length);
+        }
+        if(removeLength == 0 && inserted.length() == 0){
+            return;
+        }
+
+        int first = splitAt(start);
+        int end = splitAt(start + removeLength);
+        for(int i = first; i < end; i++){
+            Piece piece = pieces.get(i);
+            nonBlankCount -= countNonBlank(bufferOf(piece), piece.start, piece.start + piece.length);
+        }
+        pieces.subList(first, end).clear();
+
+        int insertedLength = inserted.length();
+        if(insertedLength > 0){
+            Piece previous = first > 0 ? pieces.get(first - 1) : null;
+            if(previous != null && previous.buffer == ADDED && previous.start + previous.length == added.length()){
+                // typing on at the end of the last insert
+                previous.length += insertedLength;
+            }else{
+                pieces.add(first, new Piece(ADDED, added.length(), insertedLength));
+            }
+            added.append(inserted);
+            nonBlankCount += countNonBlank(inserted, 0, insertedLength);
+        }
+
+        length += insertedLength - removeLength;
+        version++;
+        materialized = null;
+    }
+
+    // same chars as "text", without building the whole text
+    public boolean contentEquals(@Nullable CharSequence text){
+        if(text == null || text.length() != length){
+            return false;
+        }
+        if(materialized != null){
+            return materialized.contentEquals(text);
+        }
+        int offset = 0;
+        for(Piece piece : pieces){
+            CharSequence buffer = bufferOf(piece);
+            for(int i = 0; i < piece.length; i++){
+                if(buffer.charAt(piece.start + i) != text.charAt(offset + i)){
+                    return false;
+                }
+            }
+            offset += piece.length;
+        }
+        return true;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        if(materialized != null){
+            return materialized;
+        }
+        StringBuilder text = new StringBuilder(length);
+        for(Piece piece : pieces){
+            text.append(bufferOf(piece), piece.start, piece.start + piece.length);
+        }
+        collapse(text.toString());
+        return materialized;
+    }
+
+    // the current text, to build later. see the class comment
+    @NonNull
+    public Snapshot snapshot(){
+        return new Snapshot(this);
+    }
+
+    /*
+    * "text" built from "snapshot" becomes the cached text, as if toString() had built it.
+    * ignored if the snapshot is from another table or the text was edited since.*/
+    public void setText(@NonNull Snapshot snapshot, @NonNull String text){
+        if(snapshot.table != this || snapshot.version != version || materialized != null){
+            return;
+        }
+        collapse(text);
+    }
+
+    // the copy is made anyway, start over from it
+    private void collapse(String text){
+        materialized = text;
+        original = text;
+        added.setLength(0);
+        added.trimToSize();
+        pieces.clear();
+        if(length > 0){
+            pieces.add(new Piece(ORIGINAL, 0, length));
+        }
+    }
+
+    // true if "text" is null, empty, or only spaces and new lines. stops at the first other char
+    public static boolean isBlank(@Nullable CharSequence text){
+        if(text == null){
+            return true;
+        }
+        for(int i = 0; i < text.length(); i++){
+            char c = text.charAt(i);
+            if(c != ' ' && c != '\n'){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+    * index of the piece starting at "offset", splitting the piece around it if needed.
+    * pieces.size() for the end of the text.*/
+    private int splitAt(int offset){
+        int position = 0;
+        for(int i = 0; i < pieces.size(); i++){
+            Piece piece = pieces.get(i);
+            if(position == offset){
+                return i;
+            }
+            if(offset < position + piece.length){
+                int head = offset - position;
+                pieces.add(i + 1, new Piece(piece.buffer, piece.start + head, piece.length - head));
+                piece.length = head;
+                return i + 1;
+            }
+            position += piece.length;
+        }
+        return pieces.size();
+    }
+
+    private CharSequence bufferOf(Piece piece){
+        return piece.buffer == ORIGINAL ? original : added;
+    }
+
+    private static int countNonBlank(CharSequence text, int start, int end){
+        int count = 0;
+        for(int i = start; i < end; i++){
+            char c = text.charAt(i);
+            if(c != ' ' && c != '\n'){
+                count++;
+            }
+        }
+        return count;
+    }
+}
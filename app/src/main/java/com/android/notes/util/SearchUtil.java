@@ -0,0 +1,74 @@
+package com.android.notes.util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Locale;
+
+public class SearchUtil {
+
+    private static final String TAG = "SearchUtil";
+
+    // column weights for ranking, in the order of the notes_fts columns (title, content, search_text)
+    public static final double[] COLUMN_WEIGHTS = {2.0, 1.0, 1.0};
+
+    /*
+    * turns what the user typed into an FTS MATCH expression.
+    * every word becomes a lower case prefix term ("garb day" -> "garb* day*"),
+    * anything that isn't a letter or a digit is dropped so user input can't break the query syntax.
+    * returns an empty string when there is nothing to search for.*/
+    public static String toMatchQuery(String query){
+        if(query == null){
+            return "";
+        }
+        StringBuilder matchQuery = new StringBuilder(query.length() + 8);
+        boolean inToken = false;
+        for(int i = 0; i < query.length(); i++){
+            char c = query.charAt(i);
+            if(Character.isLetterOrDigit(c)){
+                if(!inToken && matchQuery.length() > 0){
+                    matchQuery.append(' ');
+                }
+                matchQuery.append(c);
+                inToken = true;
+            }
+            else if(inToken){
+                matchQuery.append('*');
+                inToken = false;
+            }
+        }
+        if(inToken){
+            matchQuery.append('*');
+        }
+        return matchQuery.toString().toLowerCase(Locale.ROOT);
+    }
+
+    /*
+    * scores a row from the blob returned by matchinfo(notes_fts, 'pcx').
+    * for every phrase and column: hits in this row / hits in all rows, times the column weight.
+    * rare terms that show up a lot in a row (especially in the title) score higher.*/
+    public static double rank(byte[] matchInfo, double[] columnWeights){
+        if(matchInfo == null || matchInfo.length < 8){
+            return 0;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(matchInfo).order(ByteOrder.nativeOrder());
+        int phraseCount = buffer.getInt(0);
+        int columnCount = buffer.getInt(4);
+        if(matchInfo.length < 4 * (2 + 3 * phraseCount * columnCount)){
+            return 0;
+        }
+
+        double score = 0;
+        for(int phrase = 0; phrase < phraseCount; phrase++){
+            for(int column = 0; column < columnCount; column++){
+                int offset = 4 * (2 + 3 * (phrase * columnCount + column));
+                long hitsThisRow = buffer.getInt(offset) & 0xFFFFFFFFL;
+                long hitsAllRows = buffer.getInt(offset + 4) & 0xFFFFFFFFL;
+                if(hitsThisRow > 0 && hitsAllRows > 0){
+                    double weight = column < columnWeights.length ? columnWeights[column] : 1.0;
+                    score += weight * ((double) hitsThisRow / (double) hitsAllRows);
+                }
+            }
+        }
+        return score;
+    }
+}
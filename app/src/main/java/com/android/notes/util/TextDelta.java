@@ -0,0 +1,69 @@
+package com.android.notes.util;
+
+import androidx.annotation.NonNull;
+
+/*
+* the difference between two texts as one replaced range: keep "prefixLength" chars from the start
+* and "suffixLength" chars from the end of the old text, put "inserted" in between.
+* an edit session on a note (typing, deleting, pasting in one place) becomes a delta of about the
+* size of the edit, whatever the size of the note.*/
+public class TextDelta {
+
+    private final int prefixLength;
+    private final int suffixLength;
+    @NonNull
+    private final String inserted;
+
+    public TextDelta(int prefixLength, int suffixLength, @NonNull String inserted) {
+        this.prefixLength = prefixLength;
+        this.suffixLength = suffixLength;
+        this.inserted = inserted;
+    }
+
+    public static TextDelta between(@NonNull String from, @NonNull String to){
+        int max = Math.min(from.length(), to.length());
+        int prefix = 0;
+        while(prefix < max && from.charAt(prefix) == to.charAt(prefix)){
+            prefix++;
+        }
+        int suffix = 0;
+        while(suffix < max - prefix
+                && from.charAt(from.length() - 1 - suffix) == to.charAt(to.length() - 1 - suffix)){
+            suffix++;
+        }
+        return new TextDelta(prefix, suffix, to.substring(prefix, to.length() - suffix));
+    }
+
+    public String applyTo(@NonNull String from){
+        if(prefixLength + suffixLength > from.length()){
+            throw new IllegalArgumentException("Delta doesn't fit a text of " + from.length() + " chars");
+        }
+        return new StringBuilder(prefixLength + inserted.length() + suffixLength)
+                .append(from, 0, prefixLength)
+                .append(inserted)
+                .append(from, from.length() - suffixLength, from.length())
+                .toString();
+    }
+
+    public int getPrefixLength() {
+        return prefixLength;
+    }
+
+    public int getSuffixLength() {
+        return suffixLength;
+    }
+
+    @NonNull
+    public String getInserted() {
+        return inserted;
+    }
+
+    @Override
+    public String toString() {
+        return "TextDelta{" +
+                "prefixLength=" + prefixLength +
+                ", suffixLength=" + suffixLength +
+                ", inserted='" + inserted + '\'' +
+                '}';
+    }
+}
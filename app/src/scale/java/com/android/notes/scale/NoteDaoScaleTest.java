@@ -0,0 +1,101 @@
+package com.android.notes.scale;
+
+import com.android.notes.models.Note;
+import com.android.notes.models.NoteSummary;
+import com.android.notes.persistence.NoteDao;
+import com.android.notes.persistence.NoteDatabase;
+import com.android.notes.util.SearchUtil;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+// NoteDao on a table of every size in ScaleConfig
+public class NoteDaoScaleTest extends ScaleTest {
+
+    private static final int PAGE_SIZE = 50;
+    private static final int LOOKUPS = 1_000;
+
+    // batched inserts of the whole corpus, nothing kept in memory but the current batch
+    private static final ScaleBudget INSERT = new ScaleBudget(2_000, 150, 16L * 1024 * 1024, 0);
+    // walks the whole table a page at a time, only one page in memory
+    private static final ScaleBudget KEYSET_WALK = new ScaleBudget(1_000, 100, 8L * 1024 * 1024, 0);
+    private static final ScaleBudget LOOKUP = ScaleBudget.fixed(5_000, 4L * 1024 * 1024);
+    private static final ScaleBudget RECENT = ScaleBudget.fixed(2_000, 4L * 1024 * 1024);
+    private static final ScaleBudget SEARCH = new ScaleBudget(2_000, 20, 4L * 1024 * 1024, 0);
+
+    @Test
+    public void noteDaoAtScale() throws Exception {
+        for(int rows : ScaleConfig.getRowCounts()){
+            runAtSize(rows);
+        }
+    }
+
+    private void runAtSize(final int rows) throws Exception {
+        final NoteDatabase[] database = new NoteDatabase[1];
+        ScaleRunner.measure("insertNotes (batches of " + ScaleConfig.INSERT_BATCH_SIZE + ")", rows, INSERT,
+                new ScaleRunner.Operation() {
+                    @Override
+                    public Object run() throws Exception {
+                        database[0] = openFilledDatabase(rows);
+                        return null;
+                    }
+                });
+        final NoteDao noteDao = database[0].getNoteDao();
+
+        ScaleRunner.measure("getNotesAfter (keyset walk)", rows, KEYSET_WALK,
+                new ScaleRunner.Operation() {
+                    @Override
+                    public Object run() throws Exception {
+                        int afterId = 0;
+                        int read = 0;
+                        List<Note> page;
+                        do{
+                            page = noteDao.getNotesAfter(afterId, PAGE_SIZE).blockingGet();
+                            if(!page.isEmpty()){
+                                afterId = page.get(page.size() - 1).getId();
+                            }
+                            read += page.size();
+                        }while (page.size() == PAGE_SIZE);
+                        assertEquals(rows, read);
+                        return page;
+                    }
+                });
+
+        ScaleRunner.measure("getNoteById x" + LOOKUPS, rows, LOOKUP,
+                new ScaleRunner.Operation() {
+                    @Override
+                    public Object run() throws Exception {
+                        Random random = new Random(rows);
+                        Note note = null;
+                        for(int i = 0; i < LOOKUPS; i++){
+                            int index = random.nextInt(rows);
+                            note = noteDao.getNoteById(index + 1).blockingGet();
+                            assertEquals(corpus.note(index).getTitle(), note.getTitle());
+                        }
+                        return note;
+                    }
+                });
+
+        ScaleRunner.measure("getRecentNoteSummaries", rows, RECENT,
+                new ScaleRunner.Operation() {
+                    @Override
+                    public Object run() throws Exception {
+                        List<NoteSummary> recent = noteDao.getRecentNoteSummaries(PAGE_SIZE, NoteSummary.PREVIEW_LENGTH).blockingFirst();
+                        assertEquals(Math.min(rows, PAGE_SIZE), recent.size());
+                        return recent;
+                    }
+                });
+
+        ScaleRunner.measure("search", rows, SEARCH,
+                new ScaleRunner.Operation() {
+                    @Override
+                    public Object run() throws Exception {
+                        return noteDao.search(SearchUtil.toMatchQuery("anniversary gift"), 100).blockingFirst();
+                    }
+                });
+    }
+}
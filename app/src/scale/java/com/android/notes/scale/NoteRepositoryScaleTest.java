@@ -0,0 +1,107 @@
+package com.android.notes.scale;
+
+import com.android.notes.models.Note;
+import com.android.notes.models.NoteSummary;
+import com.android.notes.repository.NoteRepository;
+import com.android.notes.ui.Resource;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import io.reactivex.subscribers.TestSubscriber;
+
+import static org.junit.Assert.*;
+
+// NoteRepository, with its cache and schedulers, on a table of every size in ScaleConfig
+public class NoteRepositoryScaleTest extends ScaleTest {
+
+    private static final int OPS = 1_000;
+    private static final int RANGE = 100;
+
+    private static final ScaleBudget FIRST_PAGE = ScaleBudget.fixed(2_000, 4L * 1024 * 1024);
+    private static final ScaleBudget LOOKUP = ScaleBudget.fixed(10_000, 8L * 1024 * 1024);
+    private static final ScaleBudget UPDATE = ScaleBudget.fixed(20_000, 8L * 1024 * 1024);
+    private static final ScaleBudget RECENT = ScaleBudget.fixed(2_000, 4L * 1024 * 1024);
+    private static final ScaleBudget OBSERVE_RANGE = ScaleBudget.fixed(5_000, 4L * 1024 * 1024);
+
+    @Test
+    public void noteRepositoryAtScale() throws Exception {
+        for(int rows : ScaleConfig.getRowCounts()){
+            runAtSize(rows);
+        }
+    }
+
+    private void runAtSize(final int rows) throws Exception {
+        openFilledDatabase(rows);
+        final NoteRepository noteRepository = createRepository();
+
+        ScaleRunner.measure("getNotesPage (first page)", rows, FIRST_PAGE,
+                new ScaleRunner.Operation() {
+                    @Override
+                    public Object run() throws Exception {
+                        List<Note> page = noteRepository.getNotesPage(0, NoteRepository.DEFAULT_PAGE_SIZE).blockingFirst();
+                        assertEquals(Math.min(rows, NoteRepository.DEFAULT_PAGE_SIZE), page.size());
+                        return page;
+                    }
+                });
+
+        ScaleRunner.measure("getNoteById x" + OPS + " (cache misses)", rows, LOOKUP,
+                new ScaleRunner.Operation() {
+                    @Override
+                    public Object run() throws Exception {
+                        Random random = new Random(rows);
+                        Resource<Note> found = null;
+                        for(int i = 0; i < OPS; i++){
+                            found = noteRepository.getNoteById(1 + random.nextInt(rows)).blockingFirst();
+                            assertEquals(Resource.Status.SUCCESS, found.status);
+                        }
+                        return found;
+                    }
+                });
+
+        ScaleRunner.measure("updateNote x" + OPS, rows, UPDATE,
+                new ScaleRunner.Operation() {
+                    @Override
+                    public Object run() throws Exception {
+                        Random random = new Random(rows + 1);
+                        Resource<Integer> updated = null;
+                        for(int i = 0; i < OPS; i++){
+                            Note note = noteRepository.getNoteById(1 + random.nextInt(rows)).blockingFirst().data;
+                            note.setTitle(note.getTitle() + " (edited)");
+                            updated = noteRepository.updateNote(note).blockingFirst();
+                            assertEquals(NoteRepository.UPDATE_SUCCESS, updated.message);
+                        }
+                        return updated;
+                    }
+                });
+
+        ScaleRunner.measure("getRecentNotes", rows, RECENT,
+                new ScaleRunner.Operation() {
+                    @Override
+                    public Object run() throws Exception {
+                        List<NoteSummary> recent = noteRepository.getRecentNotes(NoteRepository.DEFAULT_PAGE_SIZE).blockingFirst();
+                        assertEquals(Math.min(rows, NoteRepository.DEFAULT_PAGE_SIZE), recent.size());
+                        return recent;
+                    }
+                });
+
+        // first emission, then a write inside the range: only that note is re-read
+        ScaleRunner.measure("observeNotesInRange (" + RANGE + " notes, one write)", rows, OBSERVE_RANGE,
+                new ScaleRunner.Operation() {
+                    @Override
+                    public Object run() throws Exception {
+                        TestSubscriber<List<Note>> subscriber = noteRepository.observeNotesInRange(1, RANGE).test();
+                        subscriber.awaitCount(1);
+                        Note note = subscriber.values().get(0).get(0);
+                        note.setTitle("observed");
+                        noteRepository.updateNote(note).blockingFirst();
+                        subscriber.awaitCount(2);
+                        subscriber.dispose();
+                        assertEquals("observed", subscriber.values().get(1).get(0).getTitle());
+                        return subscriber.values();
+                    }
+                });
+    }
+}
@@ -0,0 +1,76 @@
+package com.android.notes.scale;
+
+import com.android.notes.models.Note;
+import com.android.notes.repository.NoteRepository;
+import com.android.notes.ui.Resource;
+import com.android.notes.ui.note.NoteViewModel;
+import com.android.notes.ui.note.SaveResult;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/*
+* the editor's flow on a table of every size in ScaleConfig: open a note by id, type into it
+* keystroke by keystroke, save it.*/
+public class NoteViewModelScaleTest extends ScaleTest {
+
+    private static final int KEYSTROKES = 1_000;
+
+    private static final ScaleBudget OPEN_EDIT_SAVE = ScaleBudget.fixed(5_000, 8L * 1024 * 1024);
+
+    @Test
+    public void noteViewModelAtScale() throws Exception {
+        for(int rows : ScaleConfig.getRowCounts()){
+            runAtSize(rows);
+        }
+    }
+
+    private void runAtSize(final int rows) throws Exception {
+        openFilledDatabase(rows);
+        final NoteRepository noteRepository = createRepository();
+        final int noteId = 1 + new Random(rows).nextInt(rows);
+
+        ScaleRunner.measure("open, type " + KEYSTROKES + " chars, save", rows, OPEN_EDIT_SAVE,
+                new ScaleRunner.Operation() {
+                    @Override
+                    public Object run() throws Exception {
+                        NoteViewModel viewModel = new NoteViewModel(noteRepository);
+                        viewModel.setIsNewNote(false);
+                        Resource<Note> loaded = ScaleRunner.await(viewModel.loadNote(noteId), new ScaleRunner.Condition<Resource<Note>>() {
+                            @Override
+                            public boolean isMet(Resource<Note> value) {
+                                return value.status != Resource.Status.LOADING;
+                            }
+                        });
+                        assertEquals(Resource.Status.SUCCESS, loaded.status);
+
+                        String content = loaded.data.getContent() == null ? "" : loaded.data.getContent();
+                        if(content.isEmpty()){
+                            viewModel.onNoteEdited(loaded.data.getTitle(), "typed");
+                            content = "typed";
+                        }
+                        int length = content.length();
+                        for(int i = 0; i < KEYSTROKES; i++){
+                            assertTrue(viewModel.editContent(length, 0, i % 20 == 19 ? "\n" : "a"));
+                            length++;
+                        }
+
+                        final long saveId = viewModel.saveNote();
+                        SaveResult saved = ScaleRunner.await(viewModel.observeSaveResults(), new ScaleRunner.Condition<SaveResult>() {
+                            @Override
+                            public boolean isMet(SaveResult value) {
+                                return value.getSaveId() == saveId;
+                            }
+                        });
+                        assertEquals(NoteRepository.UPDATE_SUCCESS, saved.getResource().message);
+
+                        Note written = noteRepository.getNoteById(noteId).blockingFirst().data;
+                        assertEquals(length, written.getContent().length());
+                        return written;
+                    }
+                });
+    }
+}
@@ -0,0 +1,69 @@
+package com.android.notes.scale;
+
+import androidx.paging.PagedList;
+
+import com.android.notes.models.NoteSummary;
+import com.android.notes.ui.noteslist.NotesListDiff;
+import com.android.notes.ui.noteslist.NotesListViewModel;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/*
+* the list screen's flows on a table of every size in ScaleConfig: the paged summaries at every
+* size, the full list diff (it holds every note, by design) up to ScaleConfig.FULL_LIST_MAX_ROWS.*/
+public class NotesListViewModelScaleTest extends ScaleTest {
+
+    private static final ScaleBudget FIRST_PAGE = ScaleBudget.fixed(3_000, 4L * 1024 * 1024);
+    // every note with its full content, plus the diff
+    private static final ScaleBudget NOTES_DIFF = new ScaleBudget(3_000, 100, 16L * 1024 * 1024, 2 * 1024);
+
+    @Test
+    public void notesListViewModelAtScale() throws Exception {
+        for(int rows : ScaleConfig.getRowCounts()){
+            runAtSize(rows);
+        }
+    }
+
+    private void runAtSize(final int rows) throws Exception {
+        openFilledDatabase(rows);
+
+        ScaleRunner.measure("getPagedNotes (first page)", rows, FIRST_PAGE,
+                new ScaleRunner.Operation() {
+                    @Override
+                    public Object run() throws Exception {
+                        NotesListViewModel viewModel = new NotesListViewModel(createRepository());
+                        viewModel.getPagedNotes();
+                        PagedList<NoteSummary> page = ScaleRunner.await(viewModel.observePagedNotes(), new ScaleRunner.Condition<PagedList<NoteSummary>>() {
+                            @Override
+                            public boolean isMet(PagedList<NoteSummary> value) {
+                                return !value.isEmpty();
+                            }
+                        });
+                        // only the first load, not the table
+                        assertTrue(page.size() <= page.getConfig().initialLoadSizeHint);
+                        return page;
+                    }
+                });
+
+        if(rows > ScaleConfig.FULL_LIST_MAX_ROWS){
+            System.out.println("observeNotesDiff (" + rows + " rows): skipped, over " + ScaleConfig.FULL_LIST_MAX_ROWS);
+            return;
+        }
+        ScaleRunner.measure("observeNotesDiff (first list)", rows, NOTES_DIFF,
+                new ScaleRunner.Operation() {
+                    @Override
+                    public Object run() throws Exception {
+                        NotesListViewModel viewModel = new NotesListViewModel(createRepository());
+                        NotesListDiff diff = ScaleRunner.await(viewModel.observeNotesDiff(), new ScaleRunner.Condition<NotesListDiff>() {
+                            @Override
+                            public boolean isMet(NotesListDiff value) {
+                                return value.getNotes().size() == rows;
+                            }
+                        });
+                        return diff;
+                    }
+                });
+    }
+}
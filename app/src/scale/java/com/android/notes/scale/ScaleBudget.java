@@ -0,0 +1,32 @@
+package com.android.notes.scale;
+
+/*
+* what one operation may cost at a given table size: a fixed part plus a part per row,
+* for the time and for the heap still used once it's done (what it keeps, not what it churns).*/
+public class ScaleBudget {
+
+    private final long baseMillis;
+    private final double microsPerRow;
+    private final long baseBytes;
+    private final long bytesPerRow;
+
+    public ScaleBudget(long baseMillis, double microsPerRow, long baseBytes, long bytesPerRow) {
+        this.baseMillis = baseMillis;
+        this.microsPerRow = microsPerRow;
+        this.baseBytes = baseBytes;
+        this.bytesPerRow = bytesPerRow;
+    }
+
+    // the same at every size
+    public static ScaleBudget fixed(long millis, long bytes){
+        return new ScaleBudget(millis, 0, bytes, 0);
+    }
+
+    public long maxMillis(int rows){
+        return (long) ((baseMillis + microsPerRow * rows / 1000) * ScaleConfig.getBudgetFactor());
+    }
+
+    public long maxBytes(int rows){
+        return baseBytes + bytesPerRow * rows;
+    }
+}
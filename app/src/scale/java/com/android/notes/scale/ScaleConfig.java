@@ -0,0 +1,53 @@
+package com.android.notes.scale;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// switches shared by the scale tests. set from app/build.gradle (testOptions.unitTests)
+public class ScaleConfig {
+
+    // table sizes every scale test is run at, unless notes.scale.sizes says otherwise
+    public static final int[] DEFAULT_ROW_COUNTS = {10_000, 100_000, 1_000_000};
+
+    // flows that load every note at once (the full list and its diff) only run up to this size
+    public static final int FULL_LIST_MAX_ROWS = 100_000;
+
+    public static final int INSERT_BATCH_SIZE = 1_000;
+
+    private static final String ENABLED_PROPERTY = "notes.scale";
+    private static final String SIZES_PROPERTY = "notes.scale.sizes";
+    private static final String BUDGET_FACTOR_PROPERTY = "notes.scale.budgetFactor";
+
+    // scale tests take minutes, they only run with -Pscale
+    public static boolean isEnabled(){
+        return Boolean.parseBoolean(System.getProperty(ENABLED_PROPERTY));
+    }
+
+    // -Pscale.sizes=10000,50000 runs the suite at other sizes
+    public static int[] getRowCounts(){
+        String sizes = System.getProperty(SIZES_PROPERTY);
+        if(sizes == null || sizes.trim().isEmpty()){
+            return DEFAULT_ROW_COUNTS;
+        }
+        List<Integer> parsed = new ArrayList<>();
+        for(String size : sizes.split(",")){
+            if(!size.trim().isEmpty()){
+                parsed.add(Integer.parseInt(size.trim()));
+            }
+        }
+        int[] rowCounts = new int[parsed.size()];
+        for(int i = 0; i < rowCounts.length; i++){
+            rowCounts[i] = parsed.get(i);
+        }
+        return rowCounts;
+    }
+
+    // multiplies every time budget, for slow machines (-Pscale.budgetFactor=2)
+    public static double getBudgetFactor(){
+        String factor = System.getProperty(BUDGET_FACTOR_PROPERTY);
+        if(factor == null || factor.trim().isEmpty()){
+            return 1;
+        }
+        return Double.parseDouble(factor.trim());
+    }
+}
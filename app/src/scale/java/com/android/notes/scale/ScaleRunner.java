@@ -0,0 +1,79 @@
+package com.android.notes.scale;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.Observer;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.fail;
+
+// runs an operation once, fails the test if it went over its time or memory budget
+public class ScaleRunner {
+
+    public static final long AWAIT_TIMEOUT_MINUTES = 10;
+
+    public interface Operation {
+        // returns what the operation keeps, it's counted in the memory used
+        Object run() throws Exception;
+    }
+
+    public interface Condition<T> {
+        boolean isMet(T value);
+    }
+
+    // what the running operation kept, so the JIT can't let it be collected before the heap is measured
+    private static volatile Object kept;
+
+    public static void measure(String name, int rows, ScaleBudget budget, Operation operation) throws Exception{
+        long heapBefore = usedHeap();
+        long start = System.nanoTime();
+        kept = operation.run();
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        long bytes = Math.max(0, usedHeap() - heapBefore);
+        kept = null;
+
+        String result = name + " (" + rows + " rows): " + millis + "ms / " + budget.maxMillis(rows) + "ms, "
+                + bytes / 1024 + "KB / " + budget.maxBytes(rows) / 1024 + "KB";
+        System.out.println(result);
+        if(millis > budget.maxMillis(rows)){
+            fail("Over the time budget: " + result);
+        }
+        if(bytes > budget.maxBytes(rows)){
+            fail("Over the memory budget: " + result);
+        }
+    }
+
+    // heap in use after a full collection (as far as System.gc() goes)
+    private static long usedHeap(){
+        Runtime runtime = Runtime.getRuntime();
+        for(int i = 0; i < 3; i++){
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // the first value of "liveData" that meets "condition". observed forever, call it off the main thread looper
+    public static <T> T await(final LiveData<T> liveData, final Condition<T> condition) throws InterruptedException{
+        final AtomicReference<T> found = new AtomicReference<>();
+        final CountDownLatch latch = new CountDownLatch(1);
+        Observer<T> observer = new Observer<T>() {
+            @Override
+            public void onChanged(T value) {
+                if(value != null && condition.isMet(value) && found.compareAndSet(null, value)){
+                    latch.countDown();
+                }
+            }
+        };
+        liveData.observeForever(observer);
+        try{
+            if(!latch.await(AWAIT_TIMEOUT_MINUTES, TimeUnit.MINUTES)){
+                fail("Timed out waiting for " + liveData);
+            }
+        }finally {
+            liveData.removeObserver(observer);
+        }
+        return found.get();
+    }
+}
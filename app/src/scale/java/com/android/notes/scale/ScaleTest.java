@@ -0,0 +1,112 @@
+package com.android.notes.scale;
+
+import android.app.Application;
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.arch.core.executor.ArchTaskExecutor;
+import androidx.arch.core.executor.TaskExecutor;
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.android.notes.models.Note;
+import com.android.notes.persistence.DatabaseProfile;
+import com.android.notes.persistence.DatabaseSchedulers;
+import com.android.notes.persistence.NoteDatabase;
+import com.android.notes.repository.NoteRepository;
+import com.android.notes.util.NoteCorpusGenerator;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+
+import static org.junit.Assume.assumeTrue;
+
+/*
+* a notes database file (robolectric sqlite) filled with a NoteCorpusGenerator corpus.
+* a file rather than an in-memory database: at a million notes the content alone is hundreds of MB.
+* livedata runs synchronously on the calling thread, like InstantExecutorExtension does for the unit tests.*/
+@RunWith(RobolectricTestRunner.class)
+// a plain Application, BaseApplication would pre-initialize the app's own database in the background
+@Config(sdk = 28, application = Application.class)
+public abstract class ScaleTest {
+
+    private static final String DATABASE_NAME = "notes_scale_test.db";
+
+    private Context context;
+    private DatabaseSchedulers databaseSchedulers;
+    private NoteDatabase noteDatabase;
+
+    protected final NoteCorpusGenerator corpus = new NoteCorpusGenerator();
+
+    @Before
+    public void initScale(){
+        assumeTrue(ScaleConfig.isEnabled());
+        context = ApplicationProvider.getApplicationContext();
+        databaseSchedulers = DatabaseSchedulers.create();
+        ArchTaskExecutor.getInstance().setDelegate(new TaskExecutor() {
+            @Override
+            public void executeOnDiskIO(@NonNull Runnable runnable) {
+                runnable.run();
+            }
+
+            @Override
+            public void postToMainThread(@NonNull Runnable runnable) {
+                runnable.run();
+            }
+
+            @Override
+            public boolean isMainThread() {
+                return true;
+            }
+        });
+    }
+
+    @After
+    public void finishScale(){
+        ArchTaskExecutor.getInstance().setDelegate(null);
+        closeDatabase();
+    }
+
+    // an empty database, the previous one is deleted
+    protected NoteDatabase openEmptyDatabase(){
+        closeDatabase();
+        context.deleteDatabase(DATABASE_NAME);
+        noteDatabase = DatabaseProfile.DEFAULT.applyTo(Room.databaseBuilder(context, NoteDatabase.class, DATABASE_NAME))
+                .setQueryExecutor(databaseSchedulers.getReaderExecutor())
+                .setTransactionExecutor(databaseSchedulers.getWriterExecutor())
+                .allowMainThreadQueries()
+                .build();
+        return noteDatabase;
+    }
+
+    // a database holding the first "rows" notes of the corpus, with ids 1 to "rows"
+    protected NoteDatabase openFilledDatabase(int rows) throws Exception{
+        final NoteDatabase database = openEmptyDatabase();
+        corpus.generate(rows, ScaleConfig.INSERT_BATCH_SIZE, new NoteCorpusGenerator.BatchConsumer() {
+            @Override
+            public void accept(List<Note> batch, int firstIndex) throws Exception {
+                database.getNoteDao().insertNotes(batch).blockingGet();
+            }
+        });
+        return database;
+    }
+
+    protected NoteRepository createRepository(){
+        return new NoteRepository(noteDatabase.getNoteDao(), noteDatabase.getNoteChunkDao(), noteDatabase.getNoteRevisionDao());
+    }
+
+    private void closeDatabase(){
+        if(noteDatabase != null){
+            noteDatabase.close();
+            noteDatabase = null;
+        }
+        if(context != null){
+            context.deleteDatabase(DATABASE_NAME);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.android.notes.util;
+
+import com.android.notes.models.Note;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/*
+* synthetic notes for tests at realistic sizes. the same seed and settings always give the same notes.
+*
+* note i only depends on the seed, the settings and i (every note has its own Random), so a corpus
+* can be generated in batches of any size, or one note at a time, without holding all of it.
+*
+* - titles: "titleMin" to "titleMax" chars.
+* - content: "contentMin" to "contentMax" chars, except "longPercent" percent of the notes which
+*   get "longMin" to "longMax" chars (pasted articles, logs). "emptyPercent" percent get no content.
+* - unicode: "unicodePercent" percent of the words come from a mix of accented latin, greek,
+*   cyrillic, CJK, arabic and emoji (surrogate pairs), the rest are ascii.
+* - timestamps: spread over "timestampSpan" millis from "timestampStart", in no particular order.
+*
+* the setters return the generator, they're meant to be chained before the first note is generated.*/
+public class NoteCorpusGenerator {
+
+    public static final long DEFAULT_SEED = 42;
+
+    public interface BatchConsumer {
+        // "batch" is reused by the generator, copy what has to be kept
+        void accept(List<Note> batch, int firstIndex) throws Exception;
+    }
+
+    private static final String[] ASCII_WORDS = {
+            "the", "quick", "brown", "fox", "jumps", "over", "lazy", "dog", "garbage", "day",
+            "anniversary", "gift", "buy", "milk", "call", "meeting", "notes", "remember", "tomorrow", "list"
+    };
+
+    private static final String[] UNICODE_WORDS = {
+            "café", "naïve", "über", "señal", "προσοχή", "заметка", "笔记", "メモ", "메모",
+            "ملاحظة", "📝", "😀", "👍🏽", "Ωμέγα", "日本語"
+    };
+
+    private final long seed;
+
+    private int titleMin = 8;
+    private int titleMax = 48;
+    private int contentMin = 16;
+    private int contentMax = 512;
+    private int longPercent = 1;
+    private int longMin = 2 * 1024;
+    private int longMax = 8 * 1024;
+    private int emptyPercent = 2;
+    private int unicodePercent = 10;
+    private long timestampStart = TestUtil.TIMESTAMP_1;
+    private long timestampSpan = 5L * 365 * 24 * 60 * 60 * 1000;
+
+    public NoteCorpusGenerator() {
+        this(DEFAULT_SEED);
+    }
+
+    public NoteCorpusGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    public NoteCorpusGenerator titleLength(int min, int max){
+        checkRange(min, max);
+        if(min < 1){
+            throw new IllegalArgumentException("Titles can't be empty");
+        }
+        titleMin = min;
+        titleMax = max;
+        return this;
+    }
+
+    public NoteCorpusGenerator contentLength(int min, int max){
+        checkRange(min, max);
+        contentMin = min;
+        contentMax = max;
+        return this;
+    }
+
+    public NoteCorpusGenerator longContent(int percent, int min, int max){
+        checkPercent(percent);
+        checkRange(min, max);
+        longPercent = percent;
+        longMin = min;
+        longMax = max;
+        return this;
+    }
+
+    public NoteCorpusGenerator emptyContent(int percent){
+        checkPercent(percent);
+        emptyPercent = percent;
+        return this;
+    }
+
+    public NoteCorpusGenerator unicode(int percent){
+        checkPercent(percent);
+        unicodePercent = percent;
+        return this;
+    }
+
+    public NoteCorpusGenerator timestamps(long start, long span){
+        if(span <= 0){
+            throw new IllegalArgumentException("Timestamp span must be greater than 0");
+        }
+        timestampStart = start;
+        timestampSpan = span;
+        return this;
+    }
+
+    // note "index" of the corpus (no id, it isn't inserted)
+    public Note note(int index){
+        Random random = new Random(seed * 1_000_003L + index);
+        String title = "#" + index + " " + text(random, between(random, titleMin, titleMax));
+        if(title.length() > titleMax){
+            title = title.substring(0, titleMax);
+        }
+
+        String content;
+        int kind = random.nextInt(100);
+        if(kind < emptyPercent){
+            content = null;
+        }else if(kind < emptyPercent + longPercent){
+            content = text(random, between(random, longMin, longMax));
+        }else{
+            content = text(random, between(random, contentMin, contentMax));
+        }
+        long timestamp = timestampStart + (long) (random.nextDouble() * timestampSpan);
+        return new Note(title, content, timestamp);
+    }
+
+    public List<Note> generate(int count){
+        List<Note> notes = new ArrayList<>(count);
+        for(int i = 0; i < count; i++){
+            notes.add(note(i));
+        }
+        return notes;
+    }
+
+    // the first "count" notes, "batchSize" at a time
+    public void generate(int count, int batchSize, BatchConsumer consumer) throws Exception{
+        if(batchSize <= 0){
+            throw new IllegalArgumentException("Batch size must be greater than 0");
+        }
+        List<Note> batch = new ArrayList<>(Math.min(count, batchSize));
+        for(int first = 0; first < count; first += batchSize){
+            batch.clear();
+            int end = Math.min(count, first + batchSize);
+            for(int i = first; i < end; i++){
+                batch.add(note(i));
+            }
+            consumer.accept(batch, first);
+        }
+    }
+
+    // "length" chars of words, lines of a few words each. a surrogate pair is never cut in half
+    private String text(Random random, int length){
+        StringBuilder text = new StringBuilder(length + 16);
+        int wordsOnLine = 0;
+        while(text.length() < length){
+            String[] words = random.nextInt(100) < unicodePercent ? UNICODE_WORDS : ASCII_WORDS;
+            if(text.length() > 0){
+                text.append(++wordsOnLine % 12 == 0 ? '\n' : ' ');
+            }
+            text.append(words[random.nextInt(words.length)]);
+        }
+        int end = length;
+        if(end > 0 && end < text.length() && Character.isHighSurrogate(text.charAt(end - 1))){
+            end--;
+        }
+        text.setLength(end);
+        return text.toString();
+    }
+
+    private static int between(Random random, int min, int max){
+        return min + random.nextInt(max - min + 1);
+    }
+
+    private static void checkRange(int min, int max){
+        if(min < 0 || max < min){
+            throw new IllegalArgumentException("Invalid length range " + min + ".." + max);
+        }
+    }
+
+    private static void checkPercent(int percent){
+        if(percent < 0 || percent > 100){
+            throw new IllegalArgumentException("Percent must be between 0 and 100");
+        }
+    }
+}
@@ -11,10 +11,10 @@ import java.util.List;
 
 public class TestUtil {
 
-    public static final String TIMESTAMP_1 = "05-2019";
+    public static final long TIMESTAMP_1 = 1556668800000L; // 05-2019
     public static final Note TEST_NOTE_1 = new Note("Take out the trash", "It's garbage day tomorrow.", TIMESTAMP_1);
 
-    public static final String TIMESTAMP_2 = "06-2019";
+    public static final long TIMESTAMP_2 = 1559347200000L; // 06-2019
     public static final Note TEST_NOTE_2 = new Note("Anniversary gift", "Buy an anniversary gift.", TIMESTAMP_2);
 
     public static final List<Note> TEST_NOTES_LIST = Collections.unmodifiableList(
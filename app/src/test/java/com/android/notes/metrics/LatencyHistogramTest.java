@@ -0,0 +1,106 @@
+package com.android.notes.metrics;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyHistogramTest {
+
+    // system under test
+    private LatencyHistogram histogram;
+
+    @BeforeEach
+    public void initEach(){
+        histogram = new LatencyHistogram();
+    }
+
+    /*
+        every value goes into a bucket whose upper bound is at least the value
+        and at most 25% bigger
+     */
+
+    @Test
+    void bucketIndex_valueWithinBucketBounds() throws Exception {
+        for(long value = 1; value > 0 && value < Long.MAX_VALUE / 3; value = value * 3 + 1){
+            // Act
+            int index = LatencyHistogram.bucketIndex(value);
+            long upperBound = LatencyHistogram.bucketUpperBound(index);
+
+            // Assert
+            assertTrue(index < LatencyHistogram.BUCKET_COUNT);
+            assertTrue(upperBound >= value, "value " + value);
+            assertTrue(upperBound <= value + value / 4 + 1, "value " + value);
+        }
+    }
+
+    /*
+        record 1..1000
+        percentiles are within 25% of the exact ones
+     */
+
+    @Test
+    void getPercentileNanos_uniformValues_withinBucketError() throws Exception {
+        // Arrange
+        for(long value = 1; value <= 1000; value++){
+            histogram.record(value);
+        }
+
+        // Act
+        long p50 = histogram.getPercentileNanos(50);
+        long p95 = histogram.getPercentileNanos(95);
+        long p99 = histogram.getPercentileNanos(99);
+
+        // Assert
+        assertEquals(1000, histogram.getCount());
+        assertTrue(p50 >= 500 && p50 <= 625, "p50 " + p50);
+        assertTrue(p95 >= 950 && p95 <= 1000, "p95 " + p95);
+        assertTrue(p99 >= 990 && p99 <= 1000, "p99 " + p99);
+        assertEquals(1000, histogram.getMaxNanos());
+        assertEquals(500, histogram.getMeanNanos());
+    }
+
+    /*
+        no samples
+        every percentile is 0
+     */
+
+    @Test
+    void getPercentileNanos_empty_returnZero() throws Exception {
+        assertEquals(0, histogram.getPercentileNanos(99));
+        assertEquals(0, histogram.getMeanNanos());
+    }
+
+    /*
+        record from several threads at once
+        no sample is lost
+     */
+
+    @Test
+    void record_concurrentThreads_countEverySample() throws Exception {
+        // Arrange
+        Thread[] threads = new Thread[4];
+        for(int i = 0; i < threads.length; i++){
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for(int j = 0; j < 10_000; j++){
+                        histogram.record(j);
+                    }
+                }
+            });
+        }
+
+        // Act
+        for(Thread thread : threads){
+            thread.start();
+        }
+        for(Thread thread : threads){
+            thread.join();
+        }
+
+        // Assert
+        assertEquals(40_000, histogram.getCount());
+        assertEquals(9_999, histogram.getMaxNanos());
+    }
+}
@@ -0,0 +1,110 @@
+package com.android.notes.metrics;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.List;
+import java.util.Scanner;
+
+import io.reactivex.Single;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsRegistryTest {
+
+    private static final OperationMetrics.Outcome<Integer> ROWS_OUTCOME = new OperationMetrics.Outcome<Integer>() {
+        @Override
+        public boolean isError(Integer result) {
+            return result < 0;
+        }
+
+        @Override
+        public int rowCount(Integer result) {
+            return result;
+        }
+    };
+
+    // system under test
+    private MetricsRegistry metricsRegistry;
+
+    @BeforeEach
+    public void initEach(){
+        metricsRegistry = new MetricsRegistry();
+    }
+
+    /*
+        ask for the same operation twice
+        return the same metrics
+     */
+
+    @Test
+    void operation_sameName_returnSameMetrics() throws Exception {
+        assertSame(metricsRegistry.operation("insertNote"), metricsRegistry.operation("insertNote"));
+    }
+
+    /*
+        time successful, failed and throwing Singles
+        count, errors and rows are recorded
+     */
+
+    @Test
+    void timeSingle_recordCountErrorsAndRows() throws Exception {
+        // Arrange
+        OperationMetrics metrics = metricsRegistry.operation("updateNotes");
+
+        // Act
+        Single.just(3).compose(metrics.timeSingle(ROWS_OUTCOME)).blockingGet();
+        Single.just(-1).compose(metrics.timeSingle(ROWS_OUTCOME)).blockingGet();
+        Single.<Integer>error(new Exception()).compose(metrics.timeSingle(ROWS_OUTCOME)).onErrorReturnItem(0).blockingGet();
+
+        // Assert
+        OperationSnapshot snapshot = metrics.snapshot();
+        assertEquals(3, snapshot.getCount());
+        assertEquals(2, snapshot.getErrors());
+        assertEquals(3, snapshot.getRows());
+    }
+
+    /*
+        snapshot the registry
+        operations are sorted by name
+     */
+
+    @Test
+    void snapshot_sortedByName() throws Exception {
+        // Arrange
+        metricsRegistry.operation("updateNote").record(10, false, 1);
+        metricsRegistry.operation("deleteNote").record(10, false, 1);
+
+        // Act
+        List<OperationSnapshot> snapshots = metricsRegistry.snapshot();
+
+        // Assert
+        assertEquals(2, snapshots.size());
+        assertEquals("deleteNote", snapshots.get(0).getName());
+        assertEquals("updateNote", snapshots.get(1).getName());
+    }
+
+    /*
+        write a snapshot to a file
+        the file holds every operation as json
+     */
+
+    @Test
+    void writeSnapshot_writesJson() throws Exception {
+        // Arrange
+        metricsRegistry.operation("insertNote").record(2_000_000, false, 1);
+        File file = File.createTempFile("metrics", ".json");
+        file.deleteOnExit();
+
+        // Act
+        metricsRegistry.writeSnapshot(file);
+
+        // Assert
+        Scanner scanner = new Scanner(file, "UTF-8");
+        String json = scanner.useDelimiter("\\A").next();
+        scanner.close();
+        assertTrue(json.startsWith("{\"timestamp\":"));
+        assertTrue(json.contains("\"name\":\"insertNote\",\"count\":1,\"errors\":0,\"rows\":1"));
+    }
+}
@@ -0,0 +1,91 @@
+package com.android.notes.metrics;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+
+import static com.android.notes.metrics.StartupTracer.NOT_RECORDED;
+import static com.android.notes.metrics.StartupTracer.PHASE_COMPONENT;
+import static com.android.notes.metrics.StartupTracer.PHASE_DATABASE_OPEN;
+import static com.android.notes.metrics.StartupTracer.PHASE_FIRST_QUERY;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StartupTracerTest {
+
+    // system under test
+    private StartupTracer startupTracer;
+
+    @BeforeEach
+    public void initEach(){
+        startupTracer = new StartupTracer(0);
+    }
+
+    /*
+        record a phase
+        its duration and end are kept
+     */
+
+    @Test
+    void record_phase_durationAndEndKept() throws Exception {
+        // Act
+        boolean recorded = startupTracer.record(PHASE_COMPONENT, 5_000_000, 8_000_000);
+
+        // Assert
+        assertTrue(recorded);
+        assertEquals(5_000_000, startupTracer.getDurationNanos(PHASE_COMPONENT));
+        assertEquals(8_000_000, startupTracer.getEndedAtNanos(PHASE_COMPONENT));
+    }
+
+    /*
+        record the same phase twice
+        the first one is kept
+     */
+
+    @Test
+    void record_samePhaseTwice_keepFirst() throws Exception {
+        // Arrange
+        startupTracer.record(PHASE_DATABASE_OPEN, 1_000, 2_000);
+
+        // Act
+        boolean recorded = startupTracer.record(PHASE_DATABASE_OPEN, 9_000, 9_000);
+
+        // Assert
+        assertFalse(recorded);
+        assertEquals(1_000, startupTracer.getDurationNanos(PHASE_DATABASE_OPEN));
+    }
+
+    /*
+        phase that hasn't ended
+        return NOT_RECORDED
+     */
+
+    @Test
+    void getDurationNanos_phaseNotEnded_notRecorded() throws Exception {
+        assertEquals(NOT_RECORDED, startupTracer.getDurationNanos(PHASE_FIRST_QUERY));
+        assertEquals(NOT_RECORDED, startupTracer.getEndedAtNanos(PHASE_FIRST_QUERY));
+    }
+
+    /*
+        begin then end a phase
+        the duration is measured, the phases are listed in the order they ended
+     */
+
+    @Test
+    void end_afterBegin_phasesInOrder() throws Exception {
+        // Arrange
+        long begin = startupTracer.begin();
+
+        // Act
+        startupTracer.end(PHASE_DATABASE_OPEN, begin);
+        startupTracer.end(PHASE_FIRST_QUERY, startupTracer.begin());
+
+        // Assert
+        Map<String, Long> durations = startupTracer.getDurations();
+        assertEquals(Arrays.asList(PHASE_DATABASE_OPEN, PHASE_FIRST_QUERY), new ArrayList<>(durations.keySet()));
+        assertTrue(durations.get(PHASE_DATABASE_OPEN) >= 0);
+        assertTrue(startupTracer.toString().contains(PHASE_FIRST_QUERY));
+    }
+}
@@ -7,8 +7,8 @@ import static org.junit.jupiter.api.Assertions.*;
 
 public class NoteTest {
 
-    public static final String TIMESTAMP_1 ="05-2019";
-    public static final String TIMESTAMP_2 ="04-2019";
+    public static final long TIMESTAMP_1 = 1556668800000L; // 05-2019
+    public static final long TIMESTAMP_2 = 1554076800000L; // 04-2019
     /*
     * Compare two equal notes...
     */
@@ -104,29 +104,82 @@ public class NoteTest {
         System.out.println("The notes are not  equal! They have different content");
     }
 
-}
-
-
-
-
-
-
+    /*
+    * a new note is dirty until it is marked persisted
+    */
 
+    @Test
+    void isDirty_newNote_returnTrue() throws Exception {
 
+        //Arrange
+        Note note = new Note("Note #1","This is note #1",TIMESTAMP_1);
 
+        //Assert
+        assertTrue(note.isDirty());
+        note.markPersisted();
+        assertFalse(note.isDirty());
+    }
 
+    /*
+    * setting the same title and content keeps the note clean, changing them makes it dirty
+    */
 
+    @Test
+    void isDirty_changeContent_returnTrue() throws Exception {
 
+        //Arrange
+        Note note = new Note("Note #1","This is note #1",TIMESTAMP_1);
+        note.markPersisted();
 
+        //Act
+        note.setTitle("Note #1");
+        note.setContent("This is note #1");
+        note.setTimestamp(TIMESTAMP_2);
 
+        //Assert
+        assertFalse(note.isDirty());
+        note.setContent("This is note #2");
+        assertTrue(note.isDirty());
+    }
 
+    /*
+    * copies keep the dirty state
+    */
 
+    @Test
+    void isDirty_copy_keepState() throws Exception {
 
+        //Arrange
+        Note note = new Note("Note #1","This is note #1",TIMESTAMP_1);
+        note.markPersisted();
 
+        //Act
+        Note copy = new Note(note);
 
+        //Assert
+        assertFalse(copy.isDirty());
+        copy.setTitle("Note #2");
+        assertTrue(copy.isDirty());
+        assertFalse(note.isDirty());
+    }
 
+    /*
+    * an older version written to the database doesn't clean newer changes
+    */
 
+    @Test
+    void isDirty_olderVersionPersisted_returnTrue() throws Exception {
 
+        //Arrange
+        Note note = new Note("Note #1","This is note #1",TIMESTAMP_1);
+        int writtenVersion = note.getVersion();
 
+        //Act
+        note.setContent("changed while saving");
+        note.markPersisted(writtenVersion);
 
+        //Assert
+        assertTrue(note.isDirty());
+    }
 
+}
@@ -0,0 +1,118 @@
+package com.android.notes.persistence;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+import io.reactivex.functions.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DatabaseSchedulersTest {
+
+    private static final int READER_THREADS = 3;
+
+    // system under test
+    private DatabaseSchedulers databaseSchedulers;
+
+    @BeforeEach
+    public void initEach(){
+        databaseSchedulers = DatabaseSchedulers.create(READER_THREADS);
+    }
+
+    /*
+        run many writes at once
+        all of them run on the same thread, one at a time
+     */
+
+    @Test
+    void writer_concurrentWrites_serialized() throws Exception {
+        // Arrange
+        final Set<String> threads = Collections.synchronizedSet(new HashSet<String>());
+        final AtomicInteger running = new AtomicInteger(0);
+        final AtomicInteger maxRunning = new AtomicInteger(0);
+
+        // Act
+        Flowable.range(0, 50)
+                .flatMapSingle(new Function<Integer, Single<Integer>>() {
+                    @Override
+                    public Single<Integer> apply(final Integer i) throws Exception {
+                        return Single.fromCallable(new Callable<Integer>() {
+                            @Override
+                            public Integer call() throws Exception {
+                                threads.add(Thread.currentThread().getName());
+                                maxRunning.set(Math.max(maxRunning.get(), running.incrementAndGet()));
+                                Thread.sleep(1);
+                                running.decrementAndGet();
+                                return i;
+                            }
+                        }).subscribeOn(databaseSchedulers.writer());
+                    }
+                })
+                .blockingLast();
+
+        // Assert
+        assertEquals(1, threads.size());
+        assertEquals(1, maxRunning.get());
+    }
+
+    /*
+        run more reads than reader threads at once
+        reads run in parallel but never on more than the pool size threads
+     */
+
+    @Test
+    void reader_concurrentReads_boundedPool() throws Exception {
+        // Arrange
+        final Set<String> threads = Collections.synchronizedSet(new HashSet<String>());
+        final CountDownLatch allReadersBusy = new CountDownLatch(READER_THREADS);
+
+        // Act
+        Flowable.range(0, 20)
+                .flatMapSingle(new Function<Integer, Single<Integer>>() {
+                    @Override
+                    public Single<Integer> apply(final Integer i) throws Exception {
+                        return Single.fromCallable(new Callable<Integer>() {
+                            @Override
+                            public Integer call() throws Exception {
+                                threads.add(Thread.currentThread().getName());
+                                allReadersBusy.countDown();
+                                // only returns once every reader thread is busy at the same time
+                                allReadersBusy.await(5, TimeUnit.SECONDS);
+                                return i;
+                            }
+                        }).subscribeOn(databaseSchedulers.reader());
+                    }
+                })
+                .blockingLast();
+
+        // Assert
+        assertEquals(0, allReadersBusy.getCount());
+        assertEquals(READER_THREADS, threads.size());
+    }
+
+    /*
+        create schedulers without reader threads
+        throw IllegalArgumentException
+     */
+
+    @Test
+    void create_noReaderThreads_throwException() throws Exception {
+        assertThrows(IllegalArgumentException.class, new Executable() {
+            @Override
+            public void execute() throws Throwable {
+                DatabaseSchedulers.create(0);
+            }
+        });
+    }
+}
@@ -0,0 +1,120 @@
+package com.android.notes.persistence;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NoteChunkerTest {
+
+    private static final String[] WORDS = {"the", "quick", "brown", "fox", "jumps", "over", "lazy", "dog", "garbage", "day"};
+
+    private static String createContent(int length){
+        Random random = new Random(7);
+        StringBuilder content = new StringBuilder(length);
+        while(content.length() < length){
+            content.append(WORDS[random.nextInt(WORDS.length)]).append(random.nextInt(8) == 0 ? '\n' : ' ');
+        }
+        content.setLength(length);
+        return content.toString();
+    }
+
+    private static String join(List<NoteChunker.Chunk> chunks){
+        StringBuilder content = new StringBuilder();
+        for(NoteChunker.Chunk chunk : chunks){
+            content.append(chunk.getData());
+        }
+        return content.toString();
+    }
+
+    /*
+        split content
+        chunks put back together give the content, every chunk is within the size limits
+     */
+
+    @Test
+    void split_joinedChunksEqualContent() throws Exception {
+        // Arrange
+        String content = createContent(500_000);
+
+        // Act
+        List<NoteChunker.Chunk> chunks = NoteChunker.split(content);
+
+        // Assert
+        assertEquals(content, join(chunks));
+        for(int i = 0; i < chunks.size(); i++){
+            int length = chunks.get(i).getData().length();
+            assertTrue(length <= NoteChunker.MAX_CHUNK_CHARS);
+            if(i < chunks.size() - 1){
+                assertTrue(length >= NoteChunker.MIN_CHUNK_CHARS);
+            }
+            assertEquals(NoteChunker.hash(chunks.get(i).getData()), chunks.get(i).getHash());
+        }
+    }
+
+    /*
+        insert one char in the middle of a big note
+        only the chunks around the edit change
+     */
+
+    @Test
+    void split_smallEdit_fewChunksChange() throws Exception {
+        // Arrange
+        String content = createContent(500_000);
+        String edited = content.substring(0, 250_000) + "X" + content.substring(250_000);
+        Set<Long> hashes = new HashSet<>();
+        for(NoteChunker.Chunk chunk : NoteChunker.split(content)){
+            hashes.add(chunk.getHash());
+        }
+
+        // Act
+        List<NoteChunker.Chunk> editedChunks = NoteChunker.split(edited);
+
+        // Assert
+        int changed = 0;
+        for(NoteChunker.Chunk chunk : editedChunks){
+            if(!hashes.contains(chunk.getHash())){
+                changed++;
+            }
+        }
+        assertTrue(changed <= 2, "changed chunks: " + changed);
+        assertTrue(editedChunks.size() > 50);
+    }
+
+    /*
+        split content with surrogate pairs
+        no chunk ends in the middle of a pair
+     */
+
+    @Test
+    void split_neverSplitsSurrogatePairs() throws Exception {
+        // Arrange
+        StringBuilder content = new StringBuilder();
+        while(content.length() < 100_000){
+            content.append("\uD83D\uDCDD");
+        }
+
+        // Act
+        List<NoteChunker.Chunk> chunks = NoteChunker.split(content.toString());
+
+        // Assert
+        for(NoteChunker.Chunk chunk : chunks){
+            assertFalse(Character.isHighSurrogate(chunk.getData().charAt(chunk.getData().length() - 1)));
+        }
+        assertEquals(content.toString(), join(chunks));
+    }
+
+    /*
+        split empty content
+        no chunks
+     */
+
+    @Test
+    void split_empty_noChunks() throws Exception {
+        assertTrue(NoteChunker.split("").isEmpty());
+    }
+}
@@ -0,0 +1,233 @@
+package com.android.notes.persistence;
+
+import com.android.notes.models.Note;
+import com.android.notes.util.TestUtil;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NoteContentCodecTest {
+
+    private static final int THRESHOLD = 64;
+
+    // system under test
+    private NoteContentCodec codec;
+
+    @BeforeEach
+    public void initEach(){
+        codec = new NoteContentCodec(THRESHOLD);
+    }
+
+    private static String createContent(int length){
+        StringBuilder content = new StringBuilder(length);
+        while(content.length() < length){
+            content.append("garbage day \u00e9 ");
+        }
+        content.setLength(length);
+        return content.toString();
+    }
+
+    /*
+        encode a note with content over the threshold
+        content is moved to content_deflated, decoding gives it back
+     */
+
+    @Test
+    void encode_longContent_deflatedAndRestored() throws Exception {
+        // Arrange
+        String content = createContent(THRESHOLD * 10);
+        Note note = new Note("title", content, TestUtil.TIMESTAMP_1);
+
+        // Act
+        Note stored = codec.encode(note);
+
+        // Assert
+        assertNotSame(note, stored);
+        assertNull(stored.getContent());
+        assertTrue(stored.getContentDeflated().length < content.length());
+        assertEquals(content, note.getContent());
+        assertEquals(content, NoteContentCodec.decode(stored).getContent());
+        assertNull(stored.getContentDeflated());
+        assertNull(stored.getSearchText());
+    }
+
+    /*
+        encode a note with content over the threshold
+        search_text holds the start of the content, then each distinct word once
+     */
+
+    @Test
+    void encode_longContent_searchTextSet() throws Exception {
+        // Arrange
+        String content = createContent(NoteContentCodec.SEARCH_TEXT_HEAD_CHARS) + " lást-word 42 garbage";
+        Note note = new Note("title", content, TestUtil.TIMESTAMP_1);
+
+        // Act
+        Note stored = new NoteContentCodec(NoteContentCodec.SEARCH_TEXT_HEAD_CHARS).encode(note);
+
+        // Assert
+        assertEquals(content.substring(0, NoteContentCodec.SEARCH_TEXT_HEAD_CHARS) + "\ngarbage day \u00e9 ga l\u00e1st word 42 ",
+                stored.getSearchText());
+        assertNull(note.getSearchText());
+    }
+
+    /*
+        search text of content no longer than the head
+        the content itself
+     */
+
+    @Test
+    void searchTextOf_shortContent_sameText() throws Exception {
+        // Arrange
+        String content = createContent(NoteContentCodec.SEARCH_TEXT_HEAD_CHARS);
+
+        // Act
+        String searchText = NoteContentCodec.searchTextOf(content);
+
+        // Assert
+        assertEquals(content, searchText);
+        assertNull(NoteContentCodec.searchTextOf(null));
+    }
+
+    /*
+        head ends in the middle of a surrogate pair
+        the pair is left out of the head, its word is still listed
+     */
+
+    @Test
+    void searchTextOf_headEndsInSurrogatePair_pairNotCut() throws Exception {
+        // Arrange
+        String content = createContent(NoteContentCodec.SEARCH_TEXT_HEAD_CHARS - 2) + " \ud83d\udcdd end";
+
+        // Act
+        String searchText = NoteContentCodec.searchTextOf(content);
+
+        // Assert
+        assertTrue(searchText.startsWith(content.substring(0, NoteContentCodec.SEARCH_TEXT_HEAD_CHARS - 1) + "\n"));
+        assertTrue(searchText.contains(" \ud83d\udcdd "));
+    }
+
+    /*
+        content with more distinct words than search_text can hold
+        search_text stops at about MAX_SEARCH_TEXT_CHARS, the first words are kept
+     */
+
+    @Test
+    void searchTextOf_largeVocabulary_capped() throws Exception {
+        // Arrange
+        StringBuilder content = new StringBuilder();
+        for(int i = 0; content.length() < 4 * NoteContentCodec.MAX_SEARCH_TEXT_CHARS; i++){
+            content.append("word").append(i).append(' ');
+        }
+
+        // Act
+        String searchText = NoteContentCodec.searchTextOf(content.toString());
+
+        // Assert
+        assertTrue(searchText.length() < NoteContentCodec.MAX_SEARCH_TEXT_CHARS + 64);
+        assertTrue(searchText.contains(" word1 "));
+    }
+
+    /*
+        encode a note with content under the threshold
+        the note is stored as is
+     */
+
+    @Test
+    void encode_shortContent_sameNote() throws Exception {
+        // Arrange
+        Note note = new Note("title", createContent(THRESHOLD - 1), TestUtil.TIMESTAMP_1);
+
+        // Act
+        Note stored = codec.encode(note);
+
+        // Assert
+        assertSame(note, stored);
+    }
+
+    /*
+        encode a note that was compressed and got shorter
+        the old deflated content is dropped
+     */
+
+    @Test
+    void encode_shrunkContent_clearDeflated() throws Exception {
+        // Arrange
+        Note note = new Note("title", "short", TestUtil.TIMESTAMP_1);
+        note.setContentDeflated(NoteContentCodec.deflate(createContent(THRESHOLD * 2)));
+        note.setSearchText(NoteContentCodec.searchTextOf(createContent(THRESHOLD * 2)));
+
+        // Act
+        Note stored = codec.encode(note);
+
+        // Assert
+        assertEquals("short", stored.getContent());
+        assertNull(stored.getContentDeflated());
+        assertNull(stored.getSearchText());
+    }
+
+    /*
+        disabled codec
+        never compresses
+     */
+
+    @Test
+    void encode_disabled_sameNote() throws Exception {
+        // Arrange
+        Note note = new Note("title", createContent(NoteContentCodec.DEFAULT_THRESHOLD_CHARS * 2), TestUtil.TIMESTAMP_1);
+
+        // Act
+        Note stored = NoteContentCodec.DISABLED.encode(note);
+
+        // Assert
+        assertSame(note, stored);
+        assertFalse(NoteContentCodec.DISABLED.isEnabled());
+    }
+
+    /*
+        encode a list where nothing needs compressing
+        the same list is returned, otherwise a new list with the long notes encoded
+     */
+
+    @Test
+    void encodeList_onlyCopiedWhenNeeded() throws Exception {
+        // Arrange
+        List<Note> shortNotes = new ArrayList<>();
+        shortNotes.add(new Note("1", "short", TestUtil.TIMESTAMP_1));
+        shortNotes.add(new Note("2", "short", TestUtil.TIMESTAMP_1));
+        List<Note> mixedNotes = new ArrayList<>(shortNotes);
+        mixedNotes.add(new Note("3", createContent(THRESHOLD), TestUtil.TIMESTAMP_1));
+
+        // Act
+        List<Note> storedShort = codec.encode(shortNotes);
+        List<Note> storedMixed = codec.encode(mixedNotes);
+
+        // Assert
+        assertSame(shortNotes, storedShort);
+        assertNotSame(mixedNotes, storedMixed);
+        assertEquals(3, storedMixed.size());
+        assertSame(mixedNotes.get(0), storedMixed.get(0));
+        assertNull(storedMixed.get(2).getContent());
+    }
+
+    /*
+        inflate bytes that aren't deflated content
+        throw IllegalStateException
+     */
+
+    @Test
+    void inflate_corruptData_throwException() throws Exception {
+        assertThrows(IllegalStateException.class, new Executable() {
+            @Override
+            public void execute() throws Throwable {
+                NoteContentCodec.inflate(new byte[]{1, 2, 3, 4});
+            }
+        });
+    }
+}
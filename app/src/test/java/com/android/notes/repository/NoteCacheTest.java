@@ -0,0 +1,299 @@
+package com.android.notes.repository;
+
+import com.android.notes.models.Note;
+import com.android.notes.persistence.NoteChangeLog;
+import com.android.notes.util.TestUtil;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class NoteCacheTest {
+
+    private static final int MAX_BYTES = 4 * 1024;
+
+    // system under test
+    private NoteCache noteCache;
+
+    @BeforeEach
+    public void initEach(){
+        noteCache = new NoteCache(MAX_BYTES);
+    }
+
+    private Note createNote(int id, int contentLength){
+        StringBuilder content = new StringBuilder(contentLength);
+        for(int i = 0; i < contentLength; i++){
+            content.append('a');
+        }
+        Note note = new Note("title " + id, content.toString(), TestUtil.TIMESTAMP_1);
+        note.setId(id);
+        return note;
+    }
+
+    /*
+        put a note then get it
+        a copy of the note is returned and counted as a hit
+     */
+
+    @Test
+    void get_cachedNote_returnCopy() throws Exception {
+        // Arrange
+        Note note = createNote(1, 10);
+        noteCache.put(note);
+
+        // Act
+        Note cached = noteCache.get(1);
+
+        // Assert
+        assertEquals(note, cached);
+        assertNotSame(note, cached);
+        assertEquals(1, noteCache.hitCount());
+        assertEquals(0, noteCache.missCount());
+    }
+
+    /*
+        change a note after caching it
+        the cached note is not changed
+     */
+
+    @Test
+    void put_noteChangedAfterwards_cacheUnchanged() throws Exception {
+        // Arrange
+        Note note = createNote(1, 10);
+        noteCache.put(note);
+
+        // Act
+        note.setContent("changed");
+
+        // Assert
+        assertNotEquals("changed", noteCache.get(1).getContent());
+    }
+
+    /*
+        get a note that was never cached
+        return null and count a miss
+     */
+
+    @Test
+    void get_unknownNote_returnNull() throws Exception {
+        // Act
+        Note cached = noteCache.get(5);
+
+        // Assert
+        assertNull(cached);
+        assertEquals(1, noteCache.missCount());
+    }
+
+    /*
+        cache more bytes than the limit
+        the least recently used notes are evicted
+     */
+
+    @Test
+    void put_overByteLimit_evictLeastRecentlyUsed() throws Exception {
+        // Arrange
+        Note note1 = createNote(1, 900);
+        Note note2 = createNote(2, 900);
+        Note note3 = createNote(3, 900);
+        noteCache.put(note1);
+        noteCache.put(note2);
+        noteCache.get(1);
+
+        // Act
+        noteCache.put(note3);
+
+        // Assert
+        assertNotNull(noteCache.get(1));
+        assertNull(noteCache.get(2));
+        assertNotNull(noteCache.get(3));
+        assertEquals(1, noteCache.evictionCount());
+        assertTrue(noteCache.sizeBytes() <= MAX_BYTES);
+    }
+
+    /*
+        cache a note bigger than the whole cache
+        the note isn't cached and nothing is evicted
+     */
+
+    @Test
+    void put_noteBiggerThanCache_notCached() throws Exception {
+        // Arrange
+        noteCache.put(createNote(1, 10));
+
+        // Act
+        noteCache.put(createNote(2, MAX_BYTES));
+
+        // Assert
+        assertNull(noteCache.get(2));
+        assertNotNull(noteCache.get(1));
+    }
+
+    /*
+        notes table invalidated, no change log
+        the cache is cleared, the listener doesn't know which notes changed
+     */
+
+    @Test
+    void onInvalidated_noChangeLog_clearCache() throws Exception {
+        // Arrange
+        final List<List<Integer>> calls = new ArrayList<>();
+        noteCache.setExternalChangeListener(new NoteCache.ExternalChangeListener() {
+            @Override
+            public void onExternalChange(List<Integer> noteIds) {
+                calls.add(noteIds);
+            }
+        });
+        noteCache.put(createNote(1, 10));
+
+        // Act
+        noteCache.getInvalidationObserver().onInvalidated(Collections.singleton("notes"));
+
+        // Assert
+        assertNull(noteCache.get(1));
+        assertEquals(1, calls.size());
+        assertNull(calls.get(0));
+    }
+
+    /*
+        notes table invalidated by a local write
+        the cache is kept, a foreign write of the same note later drops it
+     */
+
+    @Test
+    void onInvalidated_localWrite_keepCache() throws Exception {
+        // Arrange
+        NoteChangeLog changeLog = mock(NoteChangeLog.class);
+        noteCache = new NoteCache(MAX_BYTES, changeLog);
+        Note note = createNote(1, 10);
+        noteCache.put(note);
+        noteCache.beginLocalWrite(Collections.singletonList(NoteChangeLog.Change.written(note)));
+        when(changeLog.drain()).thenReturn(Collections.singletonList(NoteChangeLog.Change.written(note)));
+
+        // Act
+        noteCache.getInvalidationObserver().onInvalidated(Collections.singleton("notes"));
+
+        // Assert
+        assertNotNull(noteCache.get(1));
+        noteCache.getInvalidationObserver().onInvalidated(Collections.singleton("notes"));
+        assertNull(noteCache.get(1));
+    }
+
+    /*
+        a local write and a foreign write reported by the same invalidation
+        only the note written elsewhere is dropped and reported
+     */
+
+    @Test
+    void onInvalidated_localAndForeignWrite_dropForeignOnly() throws Exception {
+        // Arrange
+        NoteChangeLog changeLog = mock(NoteChangeLog.class);
+        noteCache = new NoteCache(MAX_BYTES, changeLog);
+        final List<List<Integer>> calls = new ArrayList<>();
+        noteCache.setExternalChangeListener(new NoteCache.ExternalChangeListener() {
+            @Override
+            public void onExternalChange(List<Integer> noteIds) {
+                calls.add(noteIds);
+            }
+        });
+        Note local = createNote(1, 10);
+        noteCache.put(local);
+        noteCache.put(createNote(2, 10));
+        noteCache.put(createNote(3, 10));
+        noteCache.beginLocalWrite(Collections.singletonList(NoteChangeLog.Change.written(local)));
+        when(changeLog.drain()).thenReturn(Arrays.asList(
+                NoteChangeLog.Change.written(local),
+                new NoteChangeLog.Change(2, TestUtil.TIMESTAMP_2),
+                new NoteChangeLog.Change(4, TestUtil.TIMESTAMP_2)));
+
+        // Act
+        noteCache.getInvalidationObserver().onInvalidated(Collections.singleton("notes"));
+
+        // Assert
+        assertNotNull(noteCache.get(1));
+        assertNull(noteCache.get(2));
+        assertNotNull(noteCache.get(3));
+        assertEquals(Collections.singletonList(Arrays.asList(2, 4)), calls);
+    }
+
+    /*
+        local write of a note, then a foreign write of the same note with another timestamp
+        the foreign one isn't taken for the local one, the note is dropped
+     */
+
+    @Test
+    void onInvalidated_foreignWriteOfLocallyWrittenNote_dropNote() throws Exception {
+        // Arrange
+        NoteChangeLog changeLog = mock(NoteChangeLog.class);
+        noteCache = new NoteCache(MAX_BYTES, changeLog);
+        Note note = createNote(1, 10);
+        noteCache.put(note);
+        noteCache.beginLocalWrite(Collections.singletonList(NoteChangeLog.Change.written(note)));
+        when(changeLog.drain()).thenReturn(Arrays.asList(
+                NoteChangeLog.Change.written(note),
+                new NoteChangeLog.Change(1, TestUtil.TIMESTAMP_2)));
+
+        // Act
+        noteCache.getInvalidationObserver().onInvalidated(Collections.singleton("notes"));
+
+        // Assert
+        assertNull(noteCache.get(1));
+    }
+
+    /*
+        local write failed
+        the row showing up in the log is taken for a foreign write
+     */
+
+    @Test
+    void onInvalidated_cancelledLocalWrite_dropNote() throws Exception {
+        // Arrange
+        NoteChangeLog changeLog = mock(NoteChangeLog.class);
+        noteCache = new NoteCache(MAX_BYTES, changeLog);
+        Note note = createNote(1, 10);
+        noteCache.put(note);
+        List<NoteChangeLog.Change> changes = Collections.singletonList(NoteChangeLog.Change.written(note));
+        noteCache.beginLocalWrite(changes);
+        noteCache.cancelLocalWrite(changes);
+        when(changeLog.drain()).thenReturn(changes);
+
+        // Act
+        noteCache.getInvalidationObserver().onInvalidated(Collections.singleton("notes"));
+
+        // Assert
+        assertNull(noteCache.get(1));
+    }
+
+    /*
+        local write that never shows up in the log
+        forgotten after MAX_DRAINS_PER_LOCAL_WRITE invalidations
+     */
+
+    @Test
+    void onInvalidated_localWriteNeverLogged_forgotten() throws Exception {
+        // Arrange
+        NoteChangeLog changeLog = mock(NoteChangeLog.class);
+        noteCache = new NoteCache(MAX_BYTES, changeLog);
+        Note note = createNote(1, 10);
+        noteCache.put(note);
+        noteCache.beginLocalWrite(Collections.singletonList(NoteChangeLog.Change.written(note)));
+        when(changeLog.drain()).thenReturn(Collections.<NoteChangeLog.Change>emptyList());
+        for(int i = 0; i < NoteCache.MAX_DRAINS_PER_LOCAL_WRITE; i++){
+            noteCache.getInvalidationObserver().onInvalidated(Collections.singleton("notes"));
+        }
+        when(changeLog.drain()).thenReturn(Collections.singletonList(NoteChangeLog.Change.written(note)));
+
+        // Act
+        noteCache.getInvalidationObserver().onInvalidated(Collections.singleton("notes"));
+
+        // Assert
+        assertNull(noteCache.get(1));
+    }
+}
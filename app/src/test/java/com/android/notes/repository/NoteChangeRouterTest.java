@@ -0,0 +1,229 @@
+package com.android.notes.repository;
+
+import com.android.notes.models.Note;
+import com.android.notes.ui.Resource;
+import com.android.notes.util.TestUtil;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subscribers.TestSubscriber;
+
+import static com.android.notes.repository.NoteRepository.NOTE_FOUND;
+import static com.android.notes.repository.NoteRepository.NOTE_NOT_FOUND;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NoteChangeRouterTest {
+
+    // the "database", and what the router asked for
+    private static class FakeLoader implements NoteChangeRouter.NoteLoader {
+
+        final TreeMap<Integer, Note> notes = new TreeMap<>();
+        int rangeLoads;
+        final List<List<Integer>> idLoads = new ArrayList<>();
+
+        @Override
+        public List<Note> loadNotesInRange(int fromId, int toId) {
+            rangeLoads++;
+            List<Note> found = new ArrayList<>();
+            for(Note note : notes.subMap(fromId, true, toId, true).values()){
+                found.add(new Note(note));
+            }
+            return found;
+        }
+
+        @Override
+        public List<Note> loadNotes(List<Integer> ids) {
+            idLoads.add(new ArrayList<>(ids));
+            List<Note> found = new ArrayList<>();
+            for(int id : ids){
+                if(notes.containsKey(id)){
+                    found.add(new Note(notes.get(id)));
+                }
+            }
+            return found;
+        }
+
+        void put(int id, String title){
+            notes.put(id, new Note(id, title, "content " + id, TestUtil.TIMESTAMP_1));
+        }
+    }
+
+    private FakeLoader loader;
+
+    // system under test
+    private NoteChangeRouter noteChangeRouter;
+
+    @BeforeEach
+    public void initEach(){
+        loader = new FakeLoader();
+        noteChangeRouter = new NoteChangeRouter(loader, Schedulers.trampoline());
+    }
+
+    /*
+        observe a range
+        the notes in it are emitted once, read with one range query
+     */
+
+    @Test
+    void observeRange_subscribe_emitNotesInRange() throws Exception {
+        // Arrange
+        loader.put(1, "one");
+        loader.put(2, "two");
+        loader.put(5, "five");
+
+        // Act
+        TestSubscriber<List<Note>> subscriber = noteChangeRouter.observeRange(1, 3).test();
+
+        // Assert
+        subscriber.assertValueCount(1);
+        List<Note> notes = subscriber.values().get(0);
+        assertEquals(2, notes.size());
+        assertEquals("one", notes.get(0).getTitle());
+        assertEquals("two", notes.get(1).getTitle());
+        assertEquals(1, loader.rangeLoads);
+    }
+
+    /*
+        a note in the range changes
+        only that note is re-read and the range is re-emitted
+     */
+
+    @Test
+    void observeRange_noteInRangeChanged_reReadOnlyThatNote() throws Exception {
+        // Arrange
+        loader.put(1, "one");
+        loader.put(2, "two");
+        TestSubscriber<List<Note>> subscriber = noteChangeRouter.observeRange(1, 3).test();
+        loader.put(2, "two edited");
+
+        // Act
+        noteChangeRouter.notesChanged(Collections.singletonList(2));
+
+        // Assert
+        subscriber.assertValueCount(2);
+        assertEquals("two edited", subscriber.values().get(1).get(1).getTitle());
+        assertEquals(1, loader.rangeLoads);
+        assertEquals(Collections.singletonList(Collections.singletonList(2)), loader.idLoads);
+    }
+
+    /*
+        more notes of the range change than one IN query can take
+        the range is re-read instead, no id query
+     */
+
+    @Test
+    void observeRange_manyNotesChanged_rangeReread() throws Exception {
+        // Arrange
+        List<Integer> ids = new ArrayList<>();
+        for(int id = 1; id <= NoteChangeRouter.MAX_IDS_PER_LOAD + 1; id++){
+            loader.put(id, "note " + id);
+            ids.add(id);
+        }
+        TestSubscriber<List<Note>> subscriber = noteChangeRouter.observeRange(1, 2000).test();
+        for(int id : ids){
+            loader.put(id, "edited " + id);
+        }
+
+        // Act
+        noteChangeRouter.notesChanged(ids);
+
+        // Assert
+        subscriber.assertValueCount(2);
+        assertEquals(ids.size(), subscriber.values().get(1).size());
+        assertEquals("edited 1", subscriber.values().get(1).get(0).getTitle());
+        assertEquals(2, loader.rangeLoads);
+        assertTrue(loader.idLoads.isEmpty());
+    }
+
+    /*
+        a note outside the range changes
+        nothing is read, nothing is emitted
+     */
+
+    @Test
+    void observeRange_noteOutsideRangeChanged_ignored() throws Exception {
+        // Arrange
+        loader.put(1, "one");
+        TestSubscriber<List<Note>> subscriber = noteChangeRouter.observeRange(1, 3).test();
+        loader.put(7, "seven");
+
+        // Act
+        noteChangeRouter.notesChanged(Arrays.asList(7, 8));
+
+        // Assert
+        subscriber.assertValueCount(1);
+        assertTrue(loader.idLoads.isEmpty());
+    }
+
+    /*
+        a note is reported as changed but is the same as before
+        it is re-read but nothing is emitted
+     */
+
+    @Test
+    void observeRange_unchangedNote_notEmitted() throws Exception {
+        // Arrange
+        loader.put(1, "one");
+        TestSubscriber<List<Note>> subscriber = noteChangeRouter.observeRange(1, 3).test();
+
+        // Act
+        noteChangeRouter.notesChanged(Collections.singletonList(1));
+        noteChangeRouter.allNotesChanged();
+
+        // Assert
+        subscriber.assertValueCount(1);
+        assertEquals(1, loader.idLoads.size());
+        assertEquals(2, loader.rangeLoads);
+    }
+
+    /*
+        observe a note, then delete it
+        found first, then not found
+     */
+
+    @Test
+    void observeNote_noteDeleted_emitNotFound() throws Exception {
+        // Arrange
+        loader.put(1, "one");
+        TestSubscriber<Resource<Note>> subscriber = noteChangeRouter.observeNote(1).test();
+        loader.notes.remove(1);
+
+        // Act
+        noteChangeRouter.notesChanged(Collections.singletonList(1));
+
+        // Assert
+        subscriber.assertValueCount(2);
+        assertEquals(NOTE_FOUND, subscriber.values().get(0).message);
+        assertEquals("one", subscriber.values().get(0).data.getTitle());
+        assertEquals(Resource.<Note>error(null, NOTE_NOT_FOUND), subscriber.values().get(1));
+    }
+
+    /*
+        two subscribers of the same note
+        the note is read once, each gets its own copy
+     */
+
+    @Test
+    void observeNote_twoSubscribers_shareReads() throws Exception {
+        // Arrange
+        loader.put(1, "one");
+        TestSubscriber<Resource<Note>> first = noteChangeRouter.observeNote(1).test();
+
+        // Act
+        TestSubscriber<Resource<Note>> second = noteChangeRouter.observeNote(1).test();
+
+        // Assert
+        first.assertValueCount(1);
+        second.assertValueCount(1);
+        assertEquals(1, loader.rangeLoads);
+        assertNotSame(first.values().get(0).data, second.values().get(0).data);
+    }
+}
@@ -1,9 +1,18 @@
 package com.android.notes.repository;
 
-import androidx.lifecycle.MutableLiveData;
 
+import com.android.notes.metrics.MetricsRegistry;
+import com.android.notes.metrics.OperationSnapshot;
 import com.android.notes.models.Note;
+import com.android.notes.models.NoteRevision;
+import com.android.notes.models.NoteSearchResult;
+import com.android.notes.models.NoteSummary;
+import com.android.notes.persistence.DatabaseSchedulers;
+import com.android.notes.persistence.NoteChangeLog;
+import com.android.notes.persistence.NoteChunkDao;
+import com.android.notes.persistence.NoteContentCodec;
 import com.android.notes.persistence.NoteDao;
+import com.android.notes.persistence.NoteRevisionDao;
 import com.android.notes.ui.Resource;
 import com.android.notes.util.InstantExecutorExtension;
 import com.android.notes.util.LiveDataTestUtil;
@@ -14,21 +23,35 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.api.function.Executable;
+import org.mockito.ArgumentMatcher;
 import org.mockito.Mockito;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
+import io.reactivex.Flowable;
+import io.reactivex.Maybe;
 import io.reactivex.Single;
+import io.reactivex.subscribers.TestSubscriber;
 import retrofit2.Response;
 
 import static com.android.notes.repository.NoteRepository.DELETE_FAILURE;
 import static com.android.notes.repository.NoteRepository.DELETE_SUCCESS;
+import static com.android.notes.repository.NoteRepository.EMPTY_NOTE_LIST;
 import static com.android.notes.repository.NoteRepository.INSERT_FAILURE;
 import static com.android.notes.repository.NoteRepository.INSERT_SUCCESS;
+import static com.android.notes.repository.NoteRepository.INVALID_ID_RANGE;
 import static com.android.notes.repository.NoteRepository.INVALID_NOTE_ID;
+import static com.android.notes.repository.NoteRepository.INVALID_PAGE_SIZE;
+import static com.android.notes.repository.NoteRepository.INVALID_TIME_RANGE;
+import static com.android.notes.repository.NoteRepository.NOTE_FOUND;
+import static com.android.notes.repository.NoteRepository.NOTE_NOT_FOUND;
 import static com.android.notes.repository.NoteRepository.NOTE_TITLE_NULL;
+import static com.android.notes.repository.NoteRepository.REVISION_NOT_FOUND;
 import static com.android.notes.repository.NoteRepository.UPDATE_FAILURE;
+import static com.android.notes.repository.NoteRepository.UPDATE_SKIPPED;
 import static com.android.notes.repository.NoteRepository.UPDATE_SUCCESS;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -43,10 +66,18 @@ public class NoteRepositoryTest {
 
     private NoteDao noteDao;
 
+    private NoteChunkDao noteChunkDao;
+
+    private NoteRevisionDao noteRevisionDao;
+
     @BeforeEach
     public void initEach(){
         noteDao = mock(NoteDao.class);
-        noteRepository = new NoteRepository(noteDao);
+        noteChunkDao = mock(NoteChunkDao.class);
+        noteRevisionDao = mock(NoteRevisionDao.class);
+        // the notes already have a history, updates don't read their row for a base revision
+        when(noteRevisionDao.hasRevisions(anyInt())).thenReturn(true);
+        noteRepository = new NoteRepository(noteDao, noteChunkDao, noteRevisionDao);
     }
 
     /*
@@ -267,9 +298,7 @@ public class NoteRepositoryTest {
         // Arrange
         List<Note> notes = TestUtil.TEST_NOTES_LIST;
         LiveDataTestUtil<List<Note>> liveDataTestUtil = new LiveDataTestUtil<>();
-        MutableLiveData<List<Note>> returnedData = new MutableLiveData<>();
-        returnedData.setValue(notes);
-        when(noteDao.getNotes()).thenReturn(returnedData);
+        when(noteDao.observeNotes()).thenReturn(Flowable.just(notes));
 
         // Act
         List<Note> observedData = liveDataTestUtil.getValue(noteRepository.getNotes());
@@ -288,9 +317,7 @@ public class NoteRepositoryTest {
         // Arrange
         List<Note> notes = new ArrayList<>();
         LiveDataTestUtil<List<Note>> liveDataTestUtil = new LiveDataTestUtil<>();
-        MutableLiveData<List<Note>> returnedData = new MutableLiveData<>();
-        returnedData.setValue(notes);
-        when(noteDao.getNotes()).thenReturn(returnedData);
+        when(noteDao.observeNotes()).thenReturn(Flowable.just(notes));
 
         // Act
         List<Note> observedData = liveDataTestUtil.getValue(noteRepository.getNotes());
@@ -298,34 +325,790 @@ public class NoteRepositoryTest {
         // Assert
         assertEquals(notes, observedData);
     }
-}
 
 
+    /*
+        retrieve one keyset page
+        return the notes after the given id
+     */
+
+    @Test
+    void getNotesPage_returnPage() throws Exception {
+        // Arrange
+        List<Note> page = TestUtil.TEST_NOTES_LIST;
+        when(noteDao.getNotesAfter(0, 2)).thenReturn(Single.just(page));
+
+        // Act
+        List<Note> observedPage = noteRepository.getNotesPage(0, 2).blockingFirst();
+
+        // Assert
+        verify(noteDao).getNotesAfter(0, 2);
+        verifyNoMoreInteractions(noteDao);
+        assertEquals(page, observedPage);
+    }
+
+    /*
+        stream all pages
+        next page starts after the last id of the previous one
+        stop on a short page
+     */
+
+    @Test
+    void streamNotePages_walkAllPages() throws Exception {
+        // Arrange
+        List<Note> firstPage = TestUtil.TEST_NOTES_LIST;
+        List<Note> secondPage = new ArrayList<>();
+        secondPage.add(new Note(3, "Third note", "Third content", TestUtil.TIMESTAMP_2));
+        when(noteDao.getNotesAfter(0, 2)).thenReturn(Single.just(firstPage));
+        when(noteDao.getNotesAfter(2, 2)).thenReturn(Single.just(secondPage));
+
+        // Act
+        List<List<Note>> pages = noteRepository.streamNotePages(2).toList().blockingGet();
+
+        // Assert
+        assertEquals(2, pages.size());
+        assertEquals(firstPage, pages.get(0));
+        assertEquals(secondPage, pages.get(1));
+        verify(noteDao).getNotesAfter(0, 2);
+        verify(noteDao).getNotesAfter(2, 2);
+        verifyNoMoreInteractions(noteDao);
+    }
+
+    /*
+        retrieve page
+        invalid page size
+        throw exception
+     */
+
+    @Test
+    void getNotesPage_invalidPageSize_throwException() throws Exception {
+        Exception exception = assertThrows(Exception.class, new Executable() {
+            @Override
+            public void execute() throws Throwable {
+                noteRepository.getNotesPage(0, 0);
+            }
+        });
+
+        assertEquals(INVALID_PAGE_SIZE, exception.getMessage());
+    }
+
+    /*
+        retrieve note by id
+        return Resource.success with the full note
+     */
+
+    @Test
+    void getNoteById_returnResourceSuccess() throws Exception {
+        // Arrange
+        Note note = new Note(TestUtil.TEST_NOTES_LIST.get(0));
+        when(noteDao.getNoteById(note.getId())).thenReturn(Maybe.just(note));
+
+        // Act
+        Resource<Note> returnedValue = noteRepository.getNoteById(note.getId()).blockingFirst();
+
+        // Assert
+        assertEquals(Resource.success(note, NOTE_FOUND), returnedValue);
+    }
+
+    /*
+        retrieve note by id
+        no note with that id
+        return Resource.error
+     */
+
+    @Test
+    void getNoteById_noNote_returnResourceError() throws Exception {
+        // Arrange
+        when(noteDao.getNoteById(anyInt())).thenReturn(Maybe.<Note>empty());
+
+        // Act
+        Resource<Note> returnedValue = noteRepository.getNoteById(10).blockingFirst();
+
+        // Assert
+        assertEquals(Resource.error(null, NOTE_NOT_FOUND), returnedValue);
+    }
+
+    /*
+        insert notes, one fails
+        latency, errors and rows are recorded in the metrics registry
+     */
+
+    @Test
+    void insertNote_recordsMetrics() throws Exception {
+        // Arrange
+        MetricsRegistry metricsRegistry = new MetricsRegistry();
+        noteRepository = new NoteRepository(noteDao, noteChunkDao, noteRevisionDao, new NoteCache(NoteCache.DEFAULT_MAX_BYTES),
+                DatabaseSchedulers.create(), metricsRegistry, NoteContentCodec.DISABLED);
+        when(noteDao.insertNote(any(Note.class))).thenReturn(Single.just(1L), Single.<Long>error(new Exception()));
+
+        // Act
+        noteRepository.insertNote(NOTE1).blockingFirst();
+        noteRepository.insertNote(NOTE1).blockingFirst();
+
+        // Assert
+        OperationSnapshot snapshot = metricsRegistry.operation(NoteRepository.METRIC_INSERT_NOTE).snapshot();
+        assertEquals(2, snapshot.getCount());
+        assertEquals(1, snapshot.getErrors());
+        assertEquals(1, snapshot.getRows());
+    }
+
+    /*
+        update a note, room reports it in the same invalidation as a write made elsewhere
+        the cache keeps the updated note and drops the one written elsewhere
+     */
+
+    @Test
+    void updateNote_invalidatedWithForeignWrite_dropForeignNoteOnly() throws Exception {
+        // Arrange
+        NoteChangeLog changeLog = mock(NoteChangeLog.class);
+        NoteCache noteCache = new NoteCache(NoteCache.DEFAULT_MAX_BYTES, changeLog);
+        noteRepository = new NoteRepository(noteDao, noteChunkDao, noteRevisionDao, noteCache,
+                DatabaseSchedulers.create(), new MetricsRegistry(), NoteContentCodec.DISABLED);
+        Note note = new Note(1, "title", "content", TestUtil.TIMESTAMP_1);
+        Note other = new Note(2, "other", "content", TestUtil.TIMESTAMP_1);
+        noteCache.put(other);
+        when(noteDao.updateNote(any(Note.class))).thenReturn(Single.just(1));
+        when(changeLog.drain()).thenReturn(Arrays.asList(
+                NoteChangeLog.Change.written(note),
+                new NoteChangeLog.Change(2, TestUtil.TIMESTAMP_2)));
+
+        // Act
+        noteRepository.updateNote(note).blockingFirst();
+        noteCache.getInvalidationObserver().onInvalidated(Collections.singleton("notes"));
+
+        // Assert
+        assertNotNull(noteCache.get(1));
+        assertNull(noteCache.get(2));
+    }
+
+    /*
+        insert a long note with compression on, then read it back
+        the dao gets the deflated note, the read returns the full content
+     */
+
+    @Test
+    void insertNote_compressionOn_encodeAndDecode() throws Exception {
+        // Arrange
+        NoteContentCodec codec = new NoteContentCodec(8);
+        NoteCache noteCache = new NoteCache(NoteCache.DEFAULT_MAX_BYTES);
+        noteRepository = new NoteRepository(noteDao, noteChunkDao, noteRevisionDao, noteCache, DatabaseSchedulers.create(), new MetricsRegistry(), codec);
+        Note note = new Note("title", "garbage day, garbage day, garbage day", TestUtil.TIMESTAMP_1);
+        Note stored = codec.encode(note);
+        stored.setId(3);
+        when(noteDao.insertNote(any(Note.class))).thenReturn(Single.just(3L));
+        when(noteDao.getNoteById(3)).thenReturn(Maybe.just(stored));
+
+        // Act
+        noteRepository.insertNote(note).blockingFirst();
+        noteCache.clear();
+        Resource<Note> returnedValue = noteRepository.getNoteById(3).blockingFirst();
+
+        // Assert
+        verify(noteDao).insertNote(argThat(new ArgumentMatcher<Note>() {
+            @Override
+            public boolean matches(Note argument) {
+                return argument.getContent() == null && argument.getContentDeflated() != null;
+            }
+        }));
+        assertEquals(note.getContent(), returnedValue.data.getContent());
+        assertNull(returnedValue.data.getContentDeflated());
+        assertFalse(returnedValue.data.isDirty());
+    }
+
+    /*
+        insert and update a huge note with chunking on
+        the note goes through NoteChunkDao, its row without content
+     */
+
+    @Test
+    void insertUpdateNote_chunkingOn_useChunkDao() throws Exception {
+        // Arrange
+        noteRepository = new NoteRepository(noteDao, noteChunkDao, noteRevisionDao, new NoteCache(NoteCache.DEFAULT_MAX_BYTES),
+                DatabaseSchedulers.create(), new MetricsRegistry(), new NoteContentCodec(Integer.MAX_VALUE, 16));
+        Note note = new Note("title", "more than sixteen characters", TestUtil.TIMESTAMP_1);
+        note.setId(4);
+        ArgumentMatcher<Note> withoutContent = new ArgumentMatcher<Note>() {
+            @Override
+            public boolean matches(Note argument) {
+                return argument.getContent() == null;
+            }
+        };
+        when(noteChunkDao.insertChunkedNote(any(Note.class), anyString())).thenReturn(4L);
+        when(noteChunkDao.updateChunkedNote(any(Note.class), nullable(String.class))).thenReturn(1);
+
+        // Act
+        Resource<Integer> inserted = noteRepository.insertNote(note).blockingFirst();
+        Resource<Integer> updated = noteRepository.updateNote(note).blockingFirst();
+        note.setContent("short");
+        noteRepository.updateNote(note).blockingFirst();
+
+        // Assert
+        assertEquals(Resource.success(4, INSERT_SUCCESS), inserted);
+        assertEquals(Resource.success(1, UPDATE_SUCCESS), updated);
+        verify(noteChunkDao).insertChunkedNote(argThat(withoutContent), eq("more than sixteen characters"));
+        verify(noteChunkDao).updateChunkedNote(argThat(withoutContent), eq("more than sixteen characters"));
+        verify(noteChunkDao).updateChunkedNote(any(Note.class), isNull(String.class));
+        verifyZeroInteractions(noteDao);
+    }
+
+    /*
+        insert and update a batch with a huge note, chunking on
+        the batch goes through NoteChunkDao: the huge note without content and its content to chunk,
+        the small one in its row (no content to chunk, an update deletes its chunks)
+     */
+
+    @Test
+    void insertUpdateNotes_chunkingOn_useChunkDao() throws Exception {
+        // Arrange
+        noteRepository = new NoteRepository(noteDao, noteChunkDao, noteRevisionDao, new NoteCache(NoteCache.DEFAULT_MAX_BYTES),
+                DatabaseSchedulers.create(), new MetricsRegistry(), new NoteContentCodec(Integer.MAX_VALUE, 16));
+        Note huge = new Note(1, "huge", "more than sixteen characters", TestUtil.TIMESTAMP_1);
+        Note small = new Note(2, "small", "short", TestUtil.TIMESTAMP_1);
+        List<Note> notes = Arrays.asList(huge, small);
+        ArgumentMatcher<List<Note>> hugeWithoutContent = new ArgumentMatcher<List<Note>>() {
+            @Override
+            public boolean matches(List<Note> argument) {
+                return argument.get(0).getContent() == null && "short".equals(argument.get(1).getContent());
+            }
+        };
+        when(noteChunkDao.insertChunkedNotes(anyList(), anyList())).thenReturn(Arrays.asList(1L, 2L));
+        when(noteChunkDao.updateChunkedNotes(anyList(), anyList())).thenReturn(2);
+
+        // Act
+        Resource<List<Long>> inserted = noteRepository.insertNotes(notes).blockingFirst();
+        Resource<Integer> updated = noteRepository.updateNotes(notes).blockingFirst();
+
+        // Assert
+        assertEquals(Resource.success(Arrays.asList(1L, 2L), INSERT_SUCCESS), inserted);
+        assertEquals(Resource.success(2, UPDATE_SUCCESS), updated);
+        verify(noteChunkDao).insertChunkedNotes(argThat(hugeWithoutContent), eq(Arrays.asList("more than sixteen characters", null)));
+        verify(noteChunkDao).updateChunkedNotes(argThat(hugeWithoutContent), eq(Arrays.asList("more than sixteen characters", null)));
+        verifyZeroInteractions(noteDao);
+    }
+
+    /*
+        insert a note, then update it
+        no revision for the insert, the update first records the row as it was, then what was saved
+     */
+
+    @Test
+    void insertUpdateNote_historyStartsAtUpdate() throws Exception {
+        // Arrange
+        Note note = new Note("title", "content", TestUtil.TIMESTAMP_1);
+        when(noteDao.insertNote(any(Note.class))).thenReturn(Single.just(5L));
+        when(noteDao.updateNote(any(Note.class))).thenReturn(Single.just(1));
+        when(noteRevisionDao.hasRevisions(5)).thenReturn(false);
+        when(noteDao.getNoteById(5)).thenReturn(Maybe.just(new Note(5, "title", "content", TestUtil.TIMESTAMP_1)));
+
+        // Act
+        noteRepository.insertNote(note).blockingFirst();
+        verifyZeroInteractions(noteRevisionDao);
+        note.setId(5);
+        note.setContent("content, edited");
+        note.setTimestamp(TestUtil.TIMESTAMP_2);
+        noteRepository.updateNote(note).blockingFirst();
+
+        // Assert
+        verify(noteRevisionDao).addRevision(eq(5), eq("title"), eq("content"), eq(TestUtil.TIMESTAMP_1), any(NoteRevisionDao.LatestRevisions.class), any(NoteContentCodec.class));
+        verify(noteRevisionDao).addRevision(eq(5), eq("title"), eq("content, edited"), eq(TestUtil.TIMESTAMP_2), any(NoteRevisionDao.LatestRevisions.class), any(NoteContentCodec.class));
+    }
+
+    /*
+        insert notes, then update them
+        no revisions for the insert, one batch after the update, with what was written
+     */
+
+    @Test
+    void insertUpdateNotes_recordsRevisionsOnUpdate() throws Exception {
+        // Arrange
+        List<Note> notes = Arrays.asList(new Note("one", "content one", TestUtil.TIMESTAMP_1),
+                new Note("two", "content two", TestUtil.TIMESTAMP_1));
+        when(noteDao.insertNotes(anyList())).thenReturn(Single.just(Arrays.asList(3L, 4L)));
+        when(noteDao.updateNotes(anyList())).thenReturn(Single.just(2));
+        when(noteRevisionDao.addRevisions(anyList(), any(NoteRevisionDao.LatestRevisions.class), any(NoteContentCodec.class)))
+                .thenReturn(Collections.<NoteRevision>emptyList());
+        ArgumentMatcher<List<Note>> savedNotes = new ArgumentMatcher<List<Note>>() {
+            @Override
+            public boolean matches(List<Note> argument) {
+                return argument.size() == 2
+                        && argument.get(0).getId() == 3 && "content one".equals(argument.get(0).getContent())
+                        && argument.get(1).getId() == 4 && "content two".equals(argument.get(1).getContent());
+            }
+        };
+
+        // Act
+        noteRepository.insertNotes(notes).blockingFirst();
+        notes.get(0).setId(3);
+        notes.get(1).setId(4);
+        noteRepository.updateNotes(notes).blockingFirst();
+
+        // Assert
+        verify(noteRevisionDao).addRevisions(argThat(savedNotes), any(NoteRevisionDao.LatestRevisions.class), any(NoteContentCodec.class));
+    }
+
+    /*
+        a save adds a revision that makes compaction due
+        the note's history is compacted after the save, on the writer
+     */
+
+    @Test
+    void updateNote_compactionDue_compactedAfterSave() throws Exception {
+        // Arrange
+        NoteRevision due = NoteRevision.snapshot(NOTE1.getId(), NoteRevisionDao.COMPACT_INTERVAL, TestUtil.TIMESTAMP_2, "title", "content");
+        when(noteDao.updateNote(any(Note.class))).thenReturn(Single.just(1));
+        when(noteRevisionDao.addRevision(anyInt(), anyString(), nullable(String.class), anyLong(), any(NoteRevisionDao.LatestRevisions.class), any(NoteContentCodec.class)))
+                .thenReturn(due);
+
+        // Act
+        noteRepository.updateNote(new Note(NOTE1)).blockingFirst();
+
+        // Assert
+        verify(noteRevisionDao, timeout(1000)).compact(eq(NOTE1.getId()), eq(TestUtil.TIMESTAMP_2 - NoteRevisionDao.RETENTION_MILLIS), any(NoteContentCodec.class));
+    }
+
+    /*
+        update a note, the dao fails
+        no revision is recorded
+     */
+
+    @Test
+    void updateNote_failure_noRevision() throws Exception {
+        // Arrange
+        when(noteDao.updateNote(any(Note.class))).thenReturn(Single.just(0));
+
+        // Act
+        noteRepository.updateNote(new Note(NOTE1)).blockingFirst();
+
+        // Assert
+        verify(noteRevisionDao, never()).addRevision(anyInt(), anyString(), nullable(String.class), anyLong(), any(NoteRevisionDao.LatestRevisions.class), any(NoteContentCodec.class));
+    }
+
+    /*
+        the revision can't be recorded
+        the save still succeeds
+     */
+
+    @Test
+    void updateNote_revisionFails_saveSucceeds() throws Exception {
+        // Arrange
+        when(noteDao.updateNote(any(Note.class))).thenReturn(Single.just(1));
+        when(noteRevisionDao.addRevision(anyInt(), anyString(), nullable(String.class), anyLong(), any(NoteRevisionDao.LatestRevisions.class), any(NoteContentCodec.class)))
+                .thenThrow(new RuntimeException());
+
+        // Act
+        Resource<Integer> returnedValue = noteRepository.updateNote(new Note(NOTE1)).blockingFirst();
+
+        // Assert
+        assertEquals(Resource.success(1, UPDATE_SUCCESS), returnedValue);
+    }
+
+    /*
+        restore an old revision
+        the note is saved with the title and content of that revision
+     */
+
+    @Test
+    void restoreRevision_savesRevisionContent() throws Exception {
+        // Arrange
+        Note note = new Note(NOTE1);
+        NoteRevision revision = NoteRevision.snapshot(note.getId(), 2, TestUtil.TIMESTAMP_1, "old title", "old content");
+        when(noteRevisionDao.getRevision(note.getId(), 2)).thenReturn(revision);
+        when(noteDao.updateNote(any(Note.class))).thenReturn(Single.just(1));
+
+        // Act
+        Resource<Integer> returnedValue = noteRepository.restoreRevision(note, 2, TestUtil.TIMESTAMP_2).blockingFirst();
+
+        // Assert
+        assertEquals(Resource.success(1, UPDATE_SUCCESS), returnedValue);
+        verify(noteDao).updateNote(argThat(new ArgumentMatcher<Note>() {
+            @Override
+            public boolean matches(Note argument) {
+                return argument.getTitle().equals("old title") && argument.getContent().equals("old content")
+                        && argument.getTimestamp() == TestUtil.TIMESTAMP_2;
+            }
+        }));
+    }
+
+    /*
+        restore a revision that doesn't exist
+        error, nothing is saved
+     */
+
+    @Test
+    void restoreRevision_notFound_returnError() throws Exception {
+        // Arrange
+        Note note = new Note(NOTE1);
+        when(noteRevisionDao.getRevision(note.getId(), 7)).thenReturn(null);
+
+        // Act
+        Resource<Integer> returnedValue = noteRepository.restoreRevision(note, 7, TestUtil.TIMESTAMP_2).blockingFirst();
+
+        // Assert
+        assertEquals(Resource.error(null, REVISION_NOT_FOUND), returnedValue);
+        verify(noteDao, never()).updateNote(any(Note.class));
+    }
+
+    /*
+        retrieve note by id twice
+        second read is served from the cache
+     */
+
+    @Test
+    void getNoteById_secondRead_servedFromCache() throws Exception {
+        // Arrange
+        Note note = new Note(TestUtil.TEST_NOTES_LIST.get(0));
+        when(noteDao.getNoteById(note.getId())).thenReturn(Maybe.just(note));
+        noteRepository.getNoteById(note.getId()).blockingFirst();
+
+        // Act
+        Resource<Note> returnedValue = noteRepository.getNoteById(note.getId()).blockingFirst();
+
+        // Assert
+        verify(noteDao, times(1)).getNoteById(note.getId());
+        assertEquals(Resource.success(note, NOTE_FOUND), returnedValue);
+        assertNotSame(note, returnedValue.data);
+    }
+
+    /*
+        peek at a note before and after it was read
+        null until it is cached, never goes to the database
+     */
+
+    @Test
+    void peekCachedNote_onlyCachedNotes() throws Exception {
+        // Arrange
+        Note note = new Note(TestUtil.TEST_NOTES_LIST.get(0));
+        when(noteDao.getNoteById(note.getId())).thenReturn(Maybe.just(note));
+
+        // Act
+        Note before = noteRepository.peekCachedNote(note.getId());
+        noteRepository.getNoteById(note.getId()).blockingFirst();
+        Note after = noteRepository.peekCachedNote(note.getId());
+
+        // Assert
+        assertNull(before);
+        assertEquals(note, after);
+        verify(noteDao, times(1)).getNoteById(note.getId());
+    }
+
+    /*
+        update a note then retrieve it
+        the updated note is written through to the cache
+     */
 
+    @Test
+    void updateNote_success_writesThroughCache() throws Exception {
+        // Arrange
+        Note note = new Note(TestUtil.TEST_NOTES_LIST.get(0));
+        note.setContent("updated content");
+        when(noteDao.updateNote(any(Note.class))).thenReturn(Single.just(1));
+        noteRepository.updateNote(note).blockingFirst();
 
+        // Act
+        Resource<Note> returnedValue = noteRepository.getNoteById(note.getId()).blockingFirst();
 
+        // Assert
+        verify(noteDao, never()).getNoteById(anyInt());
+        assertEquals("updated content", returnedValue.data.getContent());
+        assertFalse(returnedValue.data.isDirty());
+    }
 
+    /*
+        delete a cached note then retrieve it
+        the note is read from the database again
+     */
 
+    @Test
+    void deleteNote_success_evictsFromCache() throws Exception {
+        // Arrange
+        Note note = new Note(TestUtil.TEST_NOTES_LIST.get(0));
+        when(noteDao.getNoteById(note.getId())).thenReturn(Maybe.just(note), Maybe.<Note>empty());
+        when(noteDao.deleteNote(any(Note.class))).thenReturn(Single.just(1));
+        noteRepository.getNoteById(note.getId()).blockingFirst();
+        new LiveDataTestUtil<Resource<Integer>>().getValue(noteRepository.deleteNote(note));
 
+        // Act
+        Resource<Note> returnedValue = noteRepository.getNoteById(note.getId()).blockingFirst();
 
+        // Assert
+        verify(noteDao, times(2)).getNoteById(note.getId());
+        assertEquals(Resource.error(null, NOTE_NOT_FOUND), returnedValue);
+    }
 
+    /*
+        search notes
+        query is turned into a match expression
+        results are sorted by rank
+     */
 
+    @Test
+    void search_returnRankedResults() throws Exception {
+        // Arrange
+        List<NoteSearchResult> results = new ArrayList<>();
+        results.add(new NoteSearchResult(1, "Take out the trash", TestUtil.TIMESTAMP_1, "[garbage] day", null));
+        results.add(new NoteSearchResult(2, "Garbage", TestUtil.TIMESTAMP_2, "[Garbage]", new byte[]{
+                1, 0, 0, 0, 1, 0, 0, 0, 1, 0, 0, 0, 1, 0, 0, 0, 1, 0, 0, 0}));
+        when(noteDao.search("garbage*", NoteRepository.SEARCH_RESULT_LIMIT)).thenReturn(Flowable.just(results));
 
+        // Act
+        List<NoteSearchResult> observedResults = noteRepository.search(Flowable.just("Garbage")).blockingFirst();
 
+        // Assert
+        verify(noteDao).search("garbage*", NoteRepository.SEARCH_RESULT_LIMIT);
+        assertEquals(2, observedResults.size());
+        assertEquals(2, observedResults.get(0).getId());
+        assertEquals(1, observedResults.get(1).getId());
+    }
 
+    /*
+        search notes
+        blank query
+        return empty list without touching the database
+     */
 
+    @Test
+    void search_blankQuery_returnEmptyList() throws Exception {
+        // Act
+        List<NoteSearchResult> observedResults = noteRepository.search(Flowable.just("   ")).blockingFirst();
 
+        // Assert
+        assertTrue(observedResults.isEmpty());
+        verifyNoMoreInteractions(noteDao);
+    }
 
+    /*
+        insert notes in one batch
+        return the row id of every note
+     */
 
+    @Test
+    void insertNotes_returnRowIds() throws Exception {
+        // Arrange
+        List<Note> notes = TestUtil.TEST_NOTES_LIST;
+        List<Long> rowIds = new ArrayList<>();
+        rowIds.add(1L);
+        rowIds.add(2L);
+        when(noteDao.insertNotes(anyList())).thenReturn(Single.just(rowIds));
 
+        // Act
+        Resource<List<Long>> returnedValue = noteRepository.insertNotes(notes).blockingFirst();
 
+        // Assert
+        verify(noteDao).insertNotes(notes);
+        verifyNoMoreInteractions(noteDao);
+        assertEquals(Resource.Status.SUCCESS, returnedValue.status);
+        assertEquals(INSERT_SUCCESS, returnedValue.message);
+        assertEquals(rowIds, returnedValue.data);
+    }
 
+    /*
+        insert notes in one batch
+        one row failed
+        return Resource.error with the row ids
+     */
 
+    @Test
+    void insertNotes_rowFailure_returnResourceError() throws Exception {
+        // Arrange
+        List<Note> notes = TestUtil.TEST_NOTES_LIST;
+        List<Long> rowIds = new ArrayList<>();
+        rowIds.add(1L);
+        rowIds.add(-1L);
+        when(noteDao.insertNotes(anyList())).thenReturn(Single.just(rowIds));
 
+        // Act
+        Resource<List<Long>> returnedValue = noteRepository.insertNotes(notes).blockingFirst();
 
+        // Assert
+        assertEquals(Resource.Status.ERROR, returnedValue.status);
+        assertEquals(INSERT_FAILURE, returnedValue.message);
+        assertEquals(rowIds, returnedValue.data);
+    }
 
+    /*
+        insert notes
+        empty list
+        throw exception
+     */
 
+    @Test
+    void insertNotes_emptyList_throwException() throws Exception {
+        Exception exception = assertThrows(Exception.class, new Executable() {
+            @Override
+            public void execute() throws Throwable {
+                noteRepository.insertNotes(new ArrayList<Note>());
+            }
+        });
 
+        assertEquals(EMPTY_NOTE_LIST, exception.getMessage());
+    }
 
+    /*
+        update notes in one batch
+        return number of rows updated
+     */
 
+    @Test
+    void updateNotes_returnNumRowsUpdated() throws Exception {
+        // Arrange
+        List<Note> notes = TestUtil.TEST_NOTES_LIST;
+        when(noteDao.updateNotes(anyList())).thenReturn(Single.just(notes.size()));
 
+        // Act
+        Resource<Integer> returnedValue = noteRepository.updateNotes(notes).blockingFirst();
+
+        // Assert
+        verify(noteDao).updateNotes(notes);
+        verifyNoMoreInteractions(noteDao);
+        assertEquals(Resource.success(notes.size(), UPDATE_SUCCESS), returnedValue);
+    }
+
+    /*
+        delete notes in one batch
+        return Resource.success with the number of rows deleted
+     */
+
+    @Test
+    void deleteNotes_deleteSuccess_returnResourceSuccess() throws Exception {
+        // Arrange
+        List<Note> notes = TestUtil.TEST_NOTES_LIST;
+        Resource<Integer> successResponse = Resource.success(notes.size(), DELETE_SUCCESS);
+        LiveDataTestUtil<Resource<Integer>> liveDataTestUtil = new LiveDataTestUtil<>();
+        when(noteDao.deleteNotes(anyList())).thenReturn(Single.just(notes.size()));
+
+        // Act
+        Resource<Integer> observedResponse = liveDataTestUtil.getValue(noteRepository.deleteNotes(notes));
+
+        // Assert
+        assertEquals(successResponse, observedResponse);
+    }
+
+    /*
+        delete notes
+        one note has an invalid id
+        throw exception
+     */
+
+    @Test
+    void deleteNotes_invalidId_throwException() throws Exception {
+        Exception exception = assertThrows(Exception.class, new Executable() {
+            @Override
+            public void execute() throws Throwable {
+                List<Note> notes = new ArrayList<>(TestUtil.TEST_NOTES_LIST);
+                Note note = new Note(TestUtil.TEST_NOTE_1);
+                note.setId(-1);
+                notes.add(note);
+                noteRepository.deleteNotes(notes);
+            }
+        });
+
+        assertEquals(INVALID_NOTE_ID, exception.getMessage());
+    }
+
+    /*
+        retrieve notes modified in a time range
+        return summaries from the index query
+     */
+
+    @Test
+    void getNotesModifiedBetween_returnSummaries() throws Exception {
+        // Arrange
+        List<NoteSummary> summaries = new ArrayList<>();
+        summaries.add(new NoteSummary(2, "Anniversary gift", TestUtil.TIMESTAMP_2, "Buy an anniversary gift."));
+        when(noteDao.getNoteSummariesModifiedBetween(TestUtil.TIMESTAMP_1, TestUtil.TIMESTAMP_2, NoteSummary.PREVIEW_LENGTH))
+                .thenReturn(Flowable.just(summaries));
+
+        // Act
+        List<NoteSummary> observedSummaries = noteRepository
+                .getNotesModifiedBetween(TestUtil.TIMESTAMP_1, TestUtil.TIMESTAMP_2)
+                .blockingFirst();
+
+        // Assert
+        assertEquals(summaries, observedSummaries);
+    }
+
+    /*
+        retrieve notes modified in a time range
+        "from" after "to"
+        throw exception
+     */
+
+    @Test
+    void getNotesModifiedBetween_invalidRange_throwException() throws Exception {
+        Exception exception = assertThrows(Exception.class, new Executable() {
+            @Override
+            public void execute() throws Throwable {
+                noteRepository.getNotesModifiedBetween(TestUtil.TIMESTAMP_2, TestUtil.TIMESTAMP_1);
+            }
+        });
+
+        assertEquals(INVALID_TIME_RANGE, exception.getMessage());
+    }
+
+    /*
+        update note
+        nothing changed since it was persisted
+        skip the database, return UPDATE_SKIPPED
+     */
+
+    @Test
+    void updateNote_notDirty_skipDatabase() throws Exception {
+        // Arrange
+        Note note = new Note(TestUtil.TEST_NOTE_1);
+        note.markPersisted();
+
+        // Act
+        Resource<Integer> returnedValue = noteRepository.updateNote(note).blockingFirst();
+
+        // Assert
+        verifyNoMoreInteractions(noteDao);
+        assertEquals(Resource.success(0, UPDATE_SKIPPED), returnedValue);
+    }
+
+    /*
+        observe a note, then update it
+        only that note is re-read and re-emitted
+     */
+
+    @Test
+    void observeNoteById_updateNote_reReadOnlyThatNote() throws Exception {
+        // Arrange
+        Note note = new Note(1, TestUtil.TEST_NOTE_1.getTitle(), TestUtil.TEST_NOTE_1.getContent(), TestUtil.TIMESTAMP_1);
+        Note edited = new Note(note);
+        edited.setTitle("edited");
+        when(noteDao.getNotesInRange(1, 1)).thenReturn(new ArrayList<>(Collections.singletonList(new Note(note))));
+        when(noteDao.getNotesByIds(Collections.singletonList(1))).thenReturn(new ArrayList<>(Collections.singletonList(new Note(edited))));
+        when(noteDao.updateNote(any(Note.class))).thenReturn(Single.just(1));
+        TestSubscriber<Resource<Note>> subscriber = noteRepository.observeNoteById(1).test();
+        subscriber.awaitCount(1);
+
+        // Act
+        noteRepository.updateNote(edited).blockingFirst();
+
+        // Assert
+        subscriber.awaitCount(2);
+        subscriber.assertValueCount(2);
+        assertEquals("edited", subscriber.values().get(1).data.getTitle());
+        assertEquals(NOTE_FOUND, subscriber.values().get(1).message);
+        verify(noteDao).getNotesInRange(1, 1);
+        verify(noteDao).getNotesByIds(Collections.singletonList(1));
+        subscriber.dispose();
+    }
+
+    /*
+        observe a range that ends before it starts
+        throw an exception
+     */
+
+    @Test
+    void observeNotesInRange_invalidRange_throwException() throws Exception {
+        Exception exception = assertThrows(Exception.class, new Executable() {
+            @Override
+            public void execute() throws Throwable {
+                noteRepository.observeNotesInRange(5, 1);
+            }
+        });
+
+        assertEquals(INVALID_ID_RANGE, exception.getMessage());
+    }
+}
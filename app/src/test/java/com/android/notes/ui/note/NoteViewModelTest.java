@@ -1,5 +1,7 @@
 package com.android.notes.ui.note;
 
+import androidx.lifecycle.Observer;
+
 import com.android.notes.models.Note;
 import com.android.notes.repository.NoteRepository;
 import com.android.notes.ui.Resource;
@@ -12,21 +14,33 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.api.function.Executable;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 import org.mockito.NotExtensible;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import dagger.Lazy;
 import io.reactivex.Flowable;
+import io.reactivex.processors.PublishProcessor;
 import io.reactivex.internal.operators.single.SingleToFlowable;
+import io.reactivex.schedulers.TestScheduler;
 import retrofit2.Response;
 
 import static com.android.notes.repository.NoteRepository.INSERT_SUCCESS;
+import static com.android.notes.repository.NoteRepository.NOTE_FOUND;
 import static com.android.notes.repository.NoteRepository.UPDATE_SUCCESS;
+import static com.android.notes.ui.note.NoteViewModel.AUTOSAVE_WINDOW_MILLIS;
 import static com.android.notes.ui.note.NoteViewModel.NO_CONTENT_ERROR;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 @ExtendWith(InstantExecutorExtension.class)
@@ -87,7 +101,7 @@ public class NoteViewModelTest {
 
         //Arrange
         Note note = new Note(TestUtil.TEST_NOTE_1);
-        LiveDataTestUtil<Resource<Integer>> liveDataTestUtil = new LiveDataTestUtil<>();
+        LiveDataTestUtil<SaveResult> liveDataTestUtil = new LiveDataTestUtil<>();
         final int insertedrow = 1;
         Flowable<Resource<Integer>> returnedData = SingleToFlowable.just(Resource.success(insertedrow,INSERT_SUCCESS));
         Mockito.when(noteRepository.insertNote(any(Note.class))).thenReturn(returnedData);
@@ -95,10 +109,13 @@ public class NoteViewModelTest {
         //Act
         noteViewModel.setNote(note);
         noteViewModel.setIsNewNote(true);
-        Resource<Integer> returnedValue = liveDataTestUtil.getValue(noteViewModel.saveNote());
+        long saveId = noteViewModel.saveNote();
+        SaveResult returnedValue = liveDataTestUtil.getValue(noteViewModel.observeSaveResults());
 
         //Assert
-        assertEquals(Resource.success(insertedrow,INSERT_SUCCESS),returnedValue);
+        assertEquals(saveId, returnedValue.getSaveId());
+        assertFalse(returnedValue.isAutosave());
+        assertEquals(Resource.success(insertedrow,INSERT_SUCCESS),returnedValue.getResource());
     }
 
     /*
@@ -116,6 +133,74 @@ public class NoteViewModelTest {
         //Assert
         verify(noteRepository,never()).insertNote(any(Note.class));
     }
+    /*
+    * save a new note twice: one insert then an update of the inserted note, every result on the
+    * same LiveData with its save id, one observer for all of them
+    * */
+
+    @Test
+    void saveNote_twice_insertThenUpdate() throws Exception {
+
+        //Arrange
+        final List<SaveResult> results = new ArrayList<>();
+        Mockito.when(noteRepository.insertNote(any(Note.class)))
+                .thenReturn(Flowable.just(Resource.success(7, INSERT_SUCCESS)));
+        Mockito.when(noteRepository.updateNote(any(Note.class)))
+                .thenReturn(Flowable.just(Resource.success(1, UPDATE_SUCCESS)));
+        noteViewModel.observeSaveResults().observeForever(new Observer<SaveResult>() {
+            @Override
+            public void onChanged(SaveResult saveResult) {
+                results.add(saveResult);
+            }
+        });
+        noteViewModel.setNote(new Note(TestUtil.TEST_NOTE_1));
+        noteViewModel.setIsNewNote(true);
+
+        //Act
+        long firstSave = noteViewModel.saveNote();
+        noteViewModel.editContent(0, 0, "Edited. ");
+        long secondSave = noteViewModel.saveNote();
+
+        //Assert
+        assertEquals(2, results.size());
+        assertEquals(firstSave, results.get(0).getSaveId());
+        assertEquals(Resource.success(7, INSERT_SUCCESS), results.get(0).getResource());
+        assertEquals(secondSave, results.get(1).getSaveId());
+        assertEquals(Resource.success(1, UPDATE_SUCCESS), results.get(1).getResource());
+        ArgumentCaptor<Note> captor = ArgumentCaptor.forClass(Note.class);
+        verify(noteRepository, times(1)).insertNote(any(Note.class));
+        verify(noteRepository, times(1)).updateNote(captor.capture());
+        assertEquals(7, captor.getValue().getId());
+    }
+
+    /*
+    * the repository fails: an error result with the save id, the channel keeps working
+    * */
+
+    @Test
+    void saveNote_repositoryThrows_errorResult() throws Exception {
+
+        //Arrange
+        LiveDataTestUtil<SaveResult> liveDataTestUtil = new LiveDataTestUtil<>();
+        Mockito.when(noteRepository.updateNote(any(Note.class)))
+                .thenReturn(Flowable.<Resource<Integer>>error(new Exception()), Flowable.just(Resource.success(1, UPDATE_SUCCESS)));
+        noteViewModel.setNote(new Note(TestUtil.TEST_NOTE_1));
+        noteViewModel.setIsNewNote(false);
+
+        //Act
+        long failedSave = noteViewModel.saveNote();
+        SaveResult failed = liveDataTestUtil.getValue(noteViewModel.observeSaveResults());
+        noteViewModel.editContent(0, 0, "Edited. ");
+        long nextSave = noteViewModel.saveNote();
+        SaveResult next = liveDataTestUtil.getValue(noteViewModel.observeSaveResults());
+
+        //Assert
+        assertEquals(failedSave, failed.getSaveId());
+        assertEquals(Resource.Status.ERROR, failed.getResource().status);
+        assertEquals(nextSave, next.getSaveId());
+        assertEquals(Resource.Status.SUCCESS, next.getResource().status);
+    }
+
     /*
     * set note, null title,throw exception
     */
@@ -146,7 +231,7 @@ public class NoteViewModelTest {
 
         //Arrange
         Note note = new Note(TestUtil.TEST_NOTE_1);
-        LiveDataTestUtil<Resource<Integer>> liveDataTestUtil = new LiveDataTestUtil<>();
+        LiveDataTestUtil<SaveResult> liveDataTestUtil = new LiveDataTestUtil<>();
         final int updatedRow = 1;
         Flowable<Resource<Integer>> returnedData = SingleToFlowable.just(Resource.success(updatedRow,UPDATE_SUCCESS));
         Mockito.when(noteRepository.updateNote(any(Note.class))).thenReturn(returnedData);
@@ -154,10 +239,12 @@ public class NoteViewModelTest {
         //Act
         noteViewModel.setNote(note);
         noteViewModel.setIsNewNote(false);
-        Resource<Integer> returnedValue = liveDataTestUtil.getValue(noteViewModel.saveNote());
+        long saveId = noteViewModel.saveNote();
+        SaveResult returnedValue = liveDataTestUtil.getValue(noteViewModel.observeSaveResults());
 
         //Assert
-        assertEquals(Resource.success( updatedRow,UPDATE_SUCCESS),returnedValue);
+        assertEquals(saveId, returnedValue.getSaveId());
+        assertEquals(Resource.success( updatedRow,UPDATE_SUCCESS),returnedValue.getResource());
     }
 
     /*
@@ -200,4 +287,300 @@ public class NoteViewModelTest {
 
         assertEquals(NO_CONTENT_ERROR,exception.getMessage());
     }
+
+    /*
+    * load a note by id and observe it as the current note
+    * */
+
+    @Test
+    void loadNote_setCurrentNote() throws Exception {
+
+        //Arrange
+        Note note = new Note(TestUtil.TEST_NOTES_LIST.get(0));
+        LiveDataTestUtil<Note> liveDataTestUtil = new LiveDataTestUtil<>();
+        Flowable<Resource<Note>> returnedData = Flowable.just(Resource.success(note, NOTE_FOUND));
+        Mockito.when(noteRepository.getNoteById(note.getId())).thenReturn(returnedData);
+
+        //Act
+        noteViewModel.loadNote(note.getId()).observeForever(new Observer<Resource<Note>>() {
+            @Override
+            public void onChanged(Resource<Note> noteResource) {
+            }
+        });
+        Note observedNote = liveDataTestUtil.getValue(noteViewModel.observeNote());
+
+        //Assert
+        assertEquals(note, observedNote);
+    }
+
+    /*
+    * load a note that is already cached: it is the current note right away, no database read
+    * */
+
+    @Test
+    void loadNote_cachedNote_setImmediately() throws Exception {
+
+        //Arrange
+        Note note = new Note(TestUtil.TEST_NOTES_LIST.get(0));
+        Mockito.when(noteRepository.peekCachedNote(note.getId())).thenReturn(note);
+
+        //Act
+        Resource<Note> returnedValue = noteViewModel.loadNote(note.getId()).getValue();
+
+        //Assert
+        assertEquals(Resource.success(note, NOTE_FOUND), returnedValue);
+        assertEquals(note, noteViewModel.observeNote().getValue());
+        verify(noteRepository, never()).getNoteById(note.getId());
+    }
+
+    /*
+    * autosave: a burst of edits inside the quiet window becomes a single update with the last edit
+    * */
+
+    @Test
+    void onNoteEdited_burstOfEdits_updateOnce() throws Exception {
+
+        //Arrange
+        TestScheduler scheduler = new TestScheduler();
+        noteViewModel = new NoteViewModel(noteRepository, scheduler);
+        Note note = new Note(TestUtil.TEST_NOTES_LIST.get(0));
+        Mockito.when(noteRepository.updateNote(any(Note.class)))
+                .thenReturn(Flowable.just(Resource.success(1, UPDATE_SUCCESS)));
+        noteViewModel.setNote(note);
+        noteViewModel.setIsNewNote(false);
+
+        //Act
+        noteViewModel.onNoteEdited(note.getTitle(), "a");
+        noteViewModel.onNoteEdited(note.getTitle(), "ab");
+        scheduler.advanceTimeBy(AUTOSAVE_WINDOW_MILLIS / 2, TimeUnit.MILLISECONDS);
+        noteViewModel.onNoteEdited(note.getTitle(), "abc");
+        scheduler.advanceTimeBy(AUTOSAVE_WINDOW_MILLIS / 2, TimeUnit.MILLISECONDS);
+
+        //Assert: the window restarted with the last edit
+        verify(noteRepository, never()).updateNote(any(Note.class));
+
+        scheduler.advanceTimeBy(AUTOSAVE_WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+        ArgumentCaptor<Note> captor = ArgumentCaptor.forClass(Note.class);
+        verify(noteRepository, times(1)).updateNote(captor.capture());
+        assertEquals("abc", captor.getValue().getContent());
+    }
+
+    /*
+    * autosave: an edit still waiting for the quiet window is written when the viewmodel is cleared
+    * */
+
+    @Test
+    void onCleared_pendingEdit_flushed() throws Exception {
+
+        //Arrange
+        TestScheduler scheduler = new TestScheduler();
+        noteViewModel = new NoteViewModel(noteRepository, scheduler);
+        Note note = new Note(TestUtil.TEST_NOTES_LIST.get(0));
+        Mockito.when(noteRepository.updateNote(any(Note.class)))
+                .thenReturn(Flowable.just(Resource.success(1, UPDATE_SUCCESS)));
+        noteViewModel.setNote(note);
+        noteViewModel.setIsNewNote(false);
+
+        //Act
+        noteViewModel.onNoteEdited(note.getTitle(), "unsaved edit");
+        noteViewModel.onCleared();
+        scheduler.advanceTimeBy(AUTOSAVE_WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+
+        //Assert: written once, by the flush
+        ArgumentCaptor<Note> captor = ArgumentCaptor.forClass(Note.class);
+        verify(noteRepository, times(1)).updateNote(captor.capture());
+        assertEquals("unsaved edit", captor.getValue().getContent());
+    }
+
+    /*
+    * a save queued behind a running write, then the viewmodel is cleared: both writes go through
+    * */
+
+    @Test
+    void onCleared_saveQueuedBehindRunningWrite_written() throws Exception {
+
+        //Arrange
+        PublishProcessor<Resource<Integer>> runningWrite = PublishProcessor.create();
+        Mockito.when(noteRepository.updateNote(any(Note.class)))
+                .thenReturn(runningWrite, Flowable.just(Resource.success(1, UPDATE_SUCCESS)));
+        Note note = new Note(TestUtil.TEST_NOTES_LIST.get(0));
+        noteViewModel.setNote(note);
+        noteViewModel.setIsNewNote(false);
+        noteViewModel.saveNote();
+        noteViewModel.editContent(0, 0, "Edited. ");
+        noteViewModel.saveNote();
+
+        //Act
+        noteViewModel.onCleared();
+        runningWrite.onNext(Resource.success(1, UPDATE_SUCCESS));
+        runningWrite.onComplete();
+
+        //Assert
+        ArgumentCaptor<Note> captor = ArgumentCaptor.forClass(Note.class);
+        verify(noteRepository, times(2)).updateNote(captor.capture());
+        assertEquals("Edited. " + note.getContent(), captor.getAllValues().get(1).getContent());
+    }
+
+    /*
+    * autosave: setting the same title and content again (e.g. when the text is displayed) doesn't write
+    * */
+
+    @Test
+    void onNoteEdited_noChange_dontWrite() throws Exception {
+
+        //Arrange
+        TestScheduler scheduler = new TestScheduler();
+        noteViewModel = new NoteViewModel(noteRepository, scheduler);
+        Note note = new Note(TestUtil.TEST_NOTES_LIST.get(0));
+        noteViewModel.setNote(note);
+
+        //Act
+        noteViewModel.onNoteEdited(note.getTitle(), note.getContent());
+        scheduler.advanceTimeBy(AUTOSAVE_WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+        noteViewModel.onCleared();
+
+        //Assert
+        verify(noteRepository, never()).updateNote(any(Note.class));
+        verify(noteRepository, never()).insertNote(any(Note.class));
+    }
+
+    /*
+    * autosave: edits given as ranges (like the EditText reports them) are written as the full text
+    * */
+
+    @Test
+    void editContent_rangeEdits_writeFullText() throws Exception {
+
+        //Arrange
+        TestScheduler scheduler = new TestScheduler();
+        noteViewModel = new NoteViewModel(noteRepository, scheduler);
+        Note note = new Note(1, "Take out the trash", "garbage day", TestUtil.TIMESTAMP_1);
+        Mockito.when(noteRepository.updateNote(any(Note.class)))
+                .thenReturn(Flowable.just(Resource.success(1, UPDATE_SUCCESS)));
+        noteViewModel.setNote(note);
+        noteViewModel.setIsNewNote(false);
+
+        //Act
+        noteViewModel.editContent(8, 0, "collection ");
+        noteViewModel.editContent(0, 7, "trash");
+        noteViewModel.editTitle("Trash");
+        scheduler.advanceTimeBy(AUTOSAVE_WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+
+        //Assert
+        ArgumentCaptor<Note> captor = ArgumentCaptor.forClass(Note.class);
+        verify(noteRepository, times(1)).updateNote(captor.capture());
+        assertEquals("Trash", captor.getValue().getTitle());
+        assertEquals("trash collection day", captor.getValue().getContent());
+    }
+
+    /*
+    * an edit range that doesn't fit the current text is refused
+    * */
+
+    @Test
+    void editContent_outOfRange_returnFalse() throws Exception {
+
+        //Arrange
+        noteViewModel.setNote(new Note(TestUtil.TEST_NOTE_1));
+
+        //Act
+        boolean applied = noteViewModel.editContent(1000, 1, "x");
+
+        //Assert
+        assertFalse(applied);
+    }
+
+    /*
+    * save: the edits are put into the observed note before it is written
+    * */
+
+    @Test
+    void saveNote_afterEdits_writeEditedNote() throws Exception {
+
+        //Arrange
+        Note note = new Note(1, "Take out the trash", "garbage day", TestUtil.TIMESTAMP_1);
+        Mockito.when(noteRepository.updateNote(any(Note.class)))
+                .thenReturn(Flowable.just(Resource.success(1, UPDATE_SUCCESS)));
+        noteViewModel.setNote(note);
+        noteViewModel.setIsNewNote(false);
+
+        //Act
+        noteViewModel.editContent(0, 7, "trash");
+        noteViewModel.saveNote();
+
+        //Assert
+        ArgumentCaptor<Note> captor = ArgumentCaptor.forClass(Note.class);
+        verify(noteRepository).updateNote(captor.capture());
+        assertEquals("trash day", captor.getValue().getContent());
+        assertEquals("trash day", noteViewModel.observeNote().getValue().getContent());
+    }
+
+    /*
+    * save: edits that leave only blank content can't be saved
+    * */
+
+    @Test
+    void saveNote_editedToBlank_throwException() throws Exception {
+
+        //Arrange
+        noteViewModel.setNote(new Note(1, "Take out the trash", "garbage day", TestUtil.TIMESTAMP_1));
+        noteViewModel.editContent(0, 11, " \n ");
+
+        //Act
+        Exception exception = assertThrows(Exception.class, new Executable() {
+            @Override
+            public void execute() throws Throwable {
+                noteViewModel.saveNote();
+            }
+        });
+
+        //Assert
+        assertEquals(NO_CONTENT_ERROR, exception.getMessage());
+    }
+
+    /*
+    * update with the same title and content keeps the current note (no copy, no new timestamp)
+    * */
+
+    @Test
+    void updateNote_noChange_keepNote() throws Exception {
+
+        //Arrange
+        Note note = new Note(TestUtil.TEST_NOTE_1);
+        LiveDataTestUtil<Note> liveDataTestUtil = new LiveDataTestUtil<>();
+        noteViewModel.setNote(note);
+
+        //Act
+        noteViewModel.updateNote(note.getTitle(), note.getContent());
+        Note observedNote = liveDataTestUtil.getValue(noteViewModel.observeNote());
+
+        //Assert
+        assertSame(note, observedNote);
+        assertEquals(TestUtil.TEST_NOTE_1.getTimestamp(), observedNote.getTimestamp());
+    }
+
+    /*
+    * the repository is only created when the viewmodel first needs it, not with the viewmodel
+    * */
+
+    @Test
+    void lazyRepository_notCreatedUntilUsed() throws Exception {
+
+        //Arrange
+        final AtomicInteger created = new AtomicInteger();
+        Lazy<NoteRepository> lazyRepository = new Lazy<NoteRepository>() {
+            @Override
+            public NoteRepository get() {
+                created.incrementAndGet();
+                return noteRepository;
+            }
+        };
+
+        //Act
+        noteViewModel = new NoteViewModel(lazyRepository);
+        noteViewModel.setNote(new Note(TestUtil.TEST_NOTE_1));
+
+        //Assert
+        assertEquals(0, created.get());
+    }
 }
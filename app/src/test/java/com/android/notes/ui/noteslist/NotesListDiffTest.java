@@ -0,0 +1,118 @@
+package com.android.notes.ui.noteslist;
+
+import androidx.recyclerview.widget.ListUpdateCallback;
+
+import com.android.notes.models.Note;
+import com.android.notes.util.TestUtil;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NotesListDiffTest {
+
+    /*
+        diff from an empty list
+        every note is an insert
+     */
+
+    @Test
+    void calculate_fromEmpty_insertAll() throws Exception {
+        // Arrange
+        List<Note> notes = TestUtil.TEST_NOTES_LIST;
+
+        // Act
+        NotesListDiff diff = NotesListDiff.calculate(NotesListDiff.EMPTY.getNotes(), notes);
+        RecordingCallback callback = new RecordingCallback();
+        diff.getDiffResult().dispatchUpdatesTo(callback);
+
+        // Assert
+        assertEquals(notes, diff.getNotes());
+        assertEquals(notes.size(), callback.inserted);
+        assertEquals(0, callback.removed);
+        assertEquals(0, callback.changed);
+    }
+
+    /*
+        one note edited, one removed, one added
+        patch only covers those
+     */
+
+    @Test
+    void calculate_singleChanges_patchOnlyChanges() throws Exception {
+        // Arrange
+        List<Note> oldNotes = new ArrayList<>();
+        for(int i = 1; i <= 100; i++){
+            oldNotes.add(new Note(i, "Note #" + i, "Content #" + i, TestUtil.TIMESTAMP_1));
+        }
+        List<Note> newNotes = new ArrayList<>(oldNotes);
+        Note edited = new Note(newNotes.get(10));
+        edited.setContent("Edited");
+        newNotes.set(10, edited);
+        newNotes.remove(50);
+        newNotes.add(new Note(101, "Note #101", "Content #101", TestUtil.TIMESTAMP_2));
+
+        // Act
+        NotesListDiff diff = NotesListDiff.calculate(oldNotes, newNotes);
+        RecordingCallback callback = new RecordingCallback();
+        diff.getDiffResult().dispatchUpdatesTo(callback);
+
+        // Assert
+        assertEquals(1, callback.inserted);
+        assertEquals(1, callback.removed);
+        assertEquals(1, callback.changed);
+        assertEquals(0, callback.moved);
+    }
+
+    /*
+        only the timestamp changed
+        still a change, the list shows it
+     */
+
+    @Test
+    void calculate_timestampChanged_patchChange() throws Exception {
+        // Arrange
+        List<Note> oldNotes = new ArrayList<>(TestUtil.TEST_NOTES_LIST);
+        List<Note> newNotes = new ArrayList<>(oldNotes);
+        Note touched = new Note(newNotes.get(0));
+        touched.setTimestamp(TestUtil.TIMESTAMP_2);
+        newNotes.set(0, touched);
+
+        // Act
+        NotesListDiff diff = NotesListDiff.calculate(oldNotes, newNotes);
+        RecordingCallback callback = new RecordingCallback();
+        diff.getDiffResult().dispatchUpdatesTo(callback);
+
+        // Assert
+        assertEquals(1, callback.changed);
+        assertEquals(0, callback.inserted);
+        assertEquals(0, callback.removed);
+    }
+
+    private static class RecordingCallback implements ListUpdateCallback {
+        int inserted, removed, moved, changed;
+
+        @Override
+        public void onInserted(int position, int count) {
+            inserted += count;
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            removed += count;
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            moved++;
+        }
+
+        @Override
+        public void onChanged(int position, int count, Object payload) {
+            changed += count;
+        }
+    }
+}
@@ -1,8 +1,11 @@
 package com.android.notes.ui.noteslist;
 
 import androidx.lifecycle.MutableLiveData;
+import androidx.paging.PagedList;
 
+import com.android.notes.metrics.StartupTracer;
 import com.android.notes.models.Note;
+import com.android.notes.models.NoteSummary;
 import com.android.notes.repository.NoteRepository;
 import com.android.notes.ui.Resource;
 import com.android.notes.util.InstantExecutorExtension;
@@ -19,9 +22,13 @@ import org.mockito.MockitoAnnotations;
 import java.util.ArrayList;
 import java.util.List;
 
+import io.reactivex.Flowable;
+
 import static com.android.notes.repository.NoteRepository.DELETE_FAILURE;
 import static com.android.notes.repository.NoteRepository.DELETE_SUCCESS;
+import static com.android.notes.repository.NoteRepository.DEFAULT_PAGE_SIZE;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(InstantExecutorExtension.class)
@@ -132,4 +139,95 @@ public class NotesListViewModelTest {
         assertEquals(returnedData, observedValue);
     }
 
+    /*
+        retrieve paged notes
+        observe the paged list
+        only query the repository once
+     */
+
+    @Test
+    void retrievePagedNotes_returnPagedList() throws Exception {
+        // Arrange
+        PagedList<NoteSummary> returnedData = mock(PagedList.class);
+        LiveDataTestUtil<PagedList<NoteSummary>> liveDataTestUtil = new LiveDataTestUtil<>();
+        MutableLiveData<PagedList<NoteSummary>> returnedValue = new MutableLiveData<>();
+        returnedValue.setValue(returnedData);
+        when(noteRepository.getPagedNoteSummaries(DEFAULT_PAGE_SIZE)).thenReturn(returnedValue);
+
+        // Act
+        viewModel.getPagedNotes();
+        viewModel.getPagedNotes();
+        PagedList<NoteSummary> observedData = liveDataTestUtil.getValue(viewModel.observePagedNotes());
+
+        // Assert
+        assertEquals(returnedData, observedData);
+        verify(noteRepository, times(1)).getPagedNoteSummaries(DEFAULT_PAGE_SIZE);
+    }
+
+    /*
+        retrieve paged notes with a startup tracer
+        the first query is recorded when the first page is delivered
+     */
+
+    @Test
+    void retrievePagedNotes_firstPageRecordsFirstQuery() throws Exception {
+        // Arrange
+        StartupTracer startupTracer = new StartupTracer();
+        viewModel = new NotesListViewModel(noteRepository, startupTracer);
+        LiveDataTestUtil<PagedList<NoteSummary>> liveDataTestUtil = new LiveDataTestUtil<>();
+        MutableLiveData<PagedList<NoteSummary>> returnedValue = new MutableLiveData<>();
+        when(noteRepository.getPagedNoteSummaries(DEFAULT_PAGE_SIZE)).thenReturn(returnedValue);
+        viewModel.getPagedNotes();
+        long beforePage = startupTracer.getDurationNanos(StartupTracer.PHASE_FIRST_QUERY);
+
+        // Act
+        returnedValue.setValue(mock(PagedList.class));
+        liveDataTestUtil.getValue(viewModel.observePagedNotes());
+
+        // Assert
+        assertEquals(StartupTracer.NOT_RECORDED, beforePage);
+        assertNotEquals(StartupTracer.NOT_RECORDED, startupTracer.getDurationNanos(StartupTracer.PHASE_FIRST_QUERY));
+    }
+
+    /*
+        delete a batch of notes
+        observe Resource.success
+     */
+
+    @Test
+    void deleteNotes_observeResourceSuccess() throws Exception {
+        // Arrange
+        List<Note> deletedNotes = TestUtil.TEST_NOTES_LIST;
+        Resource<Integer> returnedData = Resource.success(deletedNotes.size(), DELETE_SUCCESS);
+        LiveDataTestUtil<Resource<Integer>> liveDataTestUtil = new LiveDataTestUtil<>();
+        MutableLiveData<Resource<Integer>> returnedValue = new MutableLiveData<>();
+        returnedValue.setValue(returnedData);
+        when(noteRepository.deleteNotes(anyList())).thenReturn(returnedValue);
+
+        // Act
+        Resource<Integer> observedValue = liveDataTestUtil.getValue(viewModel.deleteNotes(deletedNotes));
+
+        // Assert
+        assertEquals(returnedData, observedValue);
+    }
+
+    /*
+        observe the notes diff
+        first emission is the whole list, patched from empty
+     */
+
+    @Test
+    void observeNotesDiff_returnListAndPatch() throws Exception {
+        // Arrange
+        List<Note> returnedData = TestUtil.TEST_NOTES_LIST;
+        LiveDataTestUtil<NotesListDiff> liveDataTestUtil = new LiveDataTestUtil<>();
+        when(noteRepository.observeNotes()).thenReturn(Flowable.just(returnedData));
+
+        // Act
+        NotesListDiff observedDiff = liveDataTestUtil.getValue(viewModel.observeNotesDiff());
+
+        // Assert
+        assertEquals(returnedData, observedDiff.getNotes());
+    }
+
 }
@@ -10,6 +10,7 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 
 import java.util.Random;
+import java.util.TimeZone;
 
 import static com.android.notes.util.DateUtil.GET_MONTH_ERROR;
 import static com.android.notes.util.DateUtil.getMonthFromNumber;
@@ -34,6 +35,31 @@ public class DateUtilTest {
         });
     }
 
+    /*
+    * the default time zone changes after the thread already formatted a date: the new zone is used
+    * */
+
+    @Test
+    public void formatTimestamp_defaultTimeZoneChanged_useNewZone() throws Exception {
+
+        //Arrange: 2020-12-31 20:00 UTC is already 2021-01 in Tokyo
+        TimeZone defaultZone = TimeZone.getDefault();
+        long timestamp = 1609444800000L;
+        try {
+            TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+            assertEquals("12-2020", DateUtil.formatTimestamp(timestamp));
+
+            //Act
+            TimeZone.setDefault(TimeZone.getTimeZone("Asia/Tokyo"));
+            String formatted = DateUtil.formatTimestamp(timestamp);
+
+            //Assert
+            assertEquals("01-2021", formatted);
+        } finally {
+            TimeZone.setDefault(defaultZone);
+        }
+    }
+
     @ParameterizedTest
     @ValueSource(ints = {0,1,2,3,4,5,6,7,8,9,10,11})
     public void getMonthFromNumber_returnSuccess(int monthNumber, TestInfo testInfo, TestReporter testReporter){
@@ -0,0 +1,125 @@
+package com.android.notes.util;
+
+import com.android.notes.models.Note;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NoteCorpusGeneratorTest {
+
+    private static void assertSameNotes(List<Note> expected, List<Note> actual){
+        assertEquals(expected.size(), actual.size());
+        for(int i = 0; i < expected.size(); i++){
+            assertEquals(expected.get(i).getTitle(), actual.get(i).getTitle());
+            assertEquals(expected.get(i).getContent(), actual.get(i).getContent());
+            assertEquals(expected.get(i).getTimestamp(), actual.get(i).getTimestamp());
+        }
+    }
+
+    /*
+        two generators with the same seed
+        the same notes
+     */
+
+    @Test
+    void generate_sameSeed_sameNotes() throws Exception {
+        // Act
+        List<Note> first = new NoteCorpusGenerator(7).generate(500);
+        List<Note> second = new NoteCorpusGenerator(7).generate(500);
+
+        // Assert
+        assertSameNotes(first, second);
+    }
+
+    /*
+        another seed
+        other notes
+     */
+
+    @Test
+    void generate_otherSeed_otherNotes() throws Exception {
+        // Act
+        Note first = new NoteCorpusGenerator(7).note(3);
+        Note second = new NoteCorpusGenerator(8).note(3);
+
+        // Assert
+        assertNotEquals(first.getTitle() + first.getContent(), second.getTitle() + second.getContent());
+    }
+
+    /*
+        generate in batches
+        the same notes as all at once
+     */
+
+    @Test
+    void generate_inBatches_sameNotesAsAllAtOnce() throws Exception {
+        // Arrange
+        final List<Note> batched = new ArrayList<>();
+
+        // Act
+        new NoteCorpusGenerator().generate(1_000, 333, new NoteCorpusGenerator.BatchConsumer() {
+            @Override
+            public void accept(List<Note> batch, int firstIndex) throws Exception {
+                assertEquals(batched.size(), firstIndex);
+                batched.addAll(batch);
+            }
+        });
+
+        // Assert
+        assertSameNotes(new NoteCorpusGenerator().generate(1_000), batched);
+    }
+
+    /*
+        lengths, empty content and timestamps configured
+        every note within them
+     */
+
+    @Test
+    void generate_configured_notesWithinSettings() throws Exception {
+        // Arrange
+        NoteCorpusGenerator generator = new NoteCorpusGenerator()
+                .titleLength(10, 20)
+                .contentLength(100, 200)
+                .longContent(0, 0, 0)
+                .emptyContent(0)
+                .timestamps(TestUtil.TIMESTAMP_1, 1_000);
+
+        // Act
+        List<Note> notes = generator.generate(1_000);
+
+        // Assert
+        for(Note note : notes){
+            assertTrue(note.getTitle().length() <= 20);
+            assertTrue(note.getContent().length() >= 99 && note.getContent().length() <= 200);
+            assertTrue(note.getTimestamp() >= TestUtil.TIMESTAMP_1 && note.getTimestamp() < TestUtil.TIMESTAMP_1 + 1_000);
+        }
+    }
+
+    /*
+        all unicode words
+        non ascii chars, and no content ends in half a surrogate pair
+     */
+
+    @Test
+    void generate_unicode_noBrokenSurrogatePairs() throws Exception {
+        // Act
+        List<Note> notes = new NoteCorpusGenerator().unicode(100).emptyContent(0).generate(1_000);
+
+        // Assert
+        boolean nonAscii = false;
+        for(Note note : notes){
+            String content = note.getContent();
+            for(int i = 0; i < content.length(); i++){
+                nonAscii |= content.charAt(i) > 127;
+            }
+            if(!content.isEmpty()){
+                assertFalse(Character.isHighSurrogate(content.charAt(content.length() - 1)));
+            }
+        }
+        assertTrue(nonAscii);
+    }
+}
@@ -0,0 +1,156 @@
+package com.android.notes.util;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PieceTableTest {
+
+    /*
+    * random inserts and deletes, same as the same edits on a StringBuilder
+    */
+
+    @Test
+    void replace_randomEdits_sameAsStringBuilder() throws Exception {
+        Random random = new Random(1);
+        StringBuilder expected = new StringBuilder("Take out the trash\nIt's garbage day tomorrow.");
+        PieceTable pieceTable = new PieceTable(expected);
+
+        for(int i = 0; i < 2_000; i++){
+            int start = random.nextInt(expected.length() + 1);
+            int removeLength = random.nextInt(Math.min(5, expected.length() - start) + 1);
+            String inserted = random.nextInt(3) == 0 ? "" : "ab \n".substring(random.nextInt(4));
+            expected.replace(start, start + removeLength, inserted);
+            pieceTable.replace(start, removeLength, inserted);
+
+            assertEquals(expected.length(), pieceTable.length());
+            assertTrue(pieceTable.contentEquals(expected));
+            if(i % 100 == 0){
+                assertEquals(expected.toString(), pieceTable.toString());
+            }
+        }
+        assertEquals(expected.toString(), pieceTable.toString());
+    }
+
+    /*
+    * typing at the same place
+    * grows one piece instead of adding one per char
+    */
+
+    @Test
+    void replace_typingInMiddle_fewPieces() throws Exception {
+        PieceTable pieceTable = new PieceTable("garbage day");
+
+        String typed = "collection ";
+        for(int i = 0; i < typed.length(); i++){
+            pieceTable.replace(8 + i, 0, typed.substring(i, i + 1));
+        }
+
+        assertEquals(3, pieceTable.getPieceCount());
+        assertEquals("garbage collection day", pieceTable.toString());
+    }
+
+    /*
+    * text built
+    * cached, and the pieces collapse into one
+    */
+
+    @Test
+    void toString_compactsPieces() throws Exception {
+        PieceTable pieceTable = new PieceTable("garbage day");
+        pieceTable.replace(0, 7, "trash");
+        pieceTable.replace(6, 3, "night");
+
+        String text = pieceTable.toString();
+
+        assertEquals("trash night", text);
+        assertSame(text, pieceTable.toString());
+        assertEquals(1, pieceTable.getPieceCount());
+    }
+
+    /*
+    * snapshot taken, then more edits
+    * the snapshot builds the text as it was, the table isn't touched
+    */
+
+    @Test
+    void snapshot_editedAfter_textAsTaken() throws Exception {
+        PieceTable pieceTable = new PieceTable("garbage day");
+        pieceTable.replace(0, 7, "trash");
+
+        PieceTable.Snapshot snapshot = pieceTable.snapshot();
+        pieceTable.replace(6, 3, "night");
+
+        assertEquals("trash day", snapshot.toString());
+        assertEquals(9, snapshot.length());
+        assertEquals(3, pieceTable.getPieceCount());
+        assertEquals("trash night", pieceTable.toString());
+    }
+
+    /*
+    * text built from a snapshot handed back
+    * cached if the table wasn't edited since, ignored if it was
+    */
+
+    @Test
+    void setText_currentOrStaleSnapshot() throws Exception {
+        PieceTable pieceTable = new PieceTable("garbage day");
+        pieceTable.replace(0, 7, "trash");
+        PieceTable.Snapshot snapshot = pieceTable.snapshot();
+        String text = snapshot.toString();
+
+        pieceTable.setText(snapshot, text);
+
+        assertSame(text, pieceTable.toString());
+        assertEquals(1, pieceTable.getPieceCount());
+
+        PieceTable.Snapshot stale = pieceTable.snapshot();
+        pieceTable.replace(0, 5, "recycling");
+        pieceTable.setText(stale, stale.toString());
+
+        assertEquals("recycling day", pieceTable.toString());
+    }
+
+    /*
+    * only spaces and new lines left
+    * blank, without looking at the text
+    */
+
+    @Test
+    void isBlank_followsEdits() throws Exception {
+        PieceTable pieceTable = new PieceTable(" \n");
+        assertTrue(pieceTable.isBlank());
+
+        pieceTable.replace(1, 0, "a");
+        assertFalse(pieceTable.isBlank());
+
+        pieceTable.replace(1, 1, "  ");
+        assertTrue(pieceTable.isBlank());
+        assertTrue(new PieceTable(null).isBlank());
+        assertTrue(PieceTable.isBlank("\n \n"));
+        assertFalse(PieceTable.isBlank(" x"));
+    }
+
+    /*
+    * range past the end of the text
+    * exception thrown, text unchanged
+    */
+
+    @Test
+    void replace_outOfRange_throwException() throws Exception {
+        final PieceTable pieceTable = new PieceTable("garbage day");
+
+        Assertions.assertThrows(IndexOutOfBoundsException.class, new Executable() {
+            @Override
+            public void execute() throws Throwable {
+                pieceTable.replace(8, 10, "");
+            }
+        });
+        assertEquals("garbage day", pieceTable.toString());
+        assertEquals(0, pieceTable.getVersion());
+    }
+}
@@ -0,0 +1,75 @@
+package com.android.notes.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SearchUtilTest {
+
+    /*
+    * words become lower case prefix terms
+    */
+
+    @Test
+    void toMatchQuery_words_returnPrefixTerms() throws Exception {
+        assertEquals("garbage* day*", SearchUtil.toMatchQuery("Garbage DAY"));
+    }
+
+    /*
+    * fts syntax typed by the user is dropped
+    */
+
+    @Test
+    void toMatchQuery_ftsSyntax_returnOnlyWords() throws Exception {
+        assertEquals("take* out* trash*", SearchUtil.toMatchQuery("\"take\" -out (trash*)"));
+    }
+
+    /*
+    * nothing to search for
+    */
+
+    @Test
+    void toMatchQuery_blankOrNull_returnEmpty() throws Exception {
+        assertEquals("", SearchUtil.toMatchQuery("  ,;  "));
+        assertEquals("", SearchUtil.toMatchQuery(null));
+    }
+
+    /*
+    * hits in the title weigh more than the same hits in the content
+    */
+
+    @Test
+    void rank_titleHit_rankHigherThanContentHit() throws Exception {
+        // 1 phrase, 2 columns (title, content)
+        byte[] titleHit = matchInfo(1, 2, 1, 2, 1, 0, 5, 3);
+        byte[] contentHit = matchInfo(1, 2, 0, 2, 1, 1, 5, 3);
+
+        double titleRank = SearchUtil.rank(titleHit, SearchUtil.COLUMN_WEIGHTS);
+        double contentRank = SearchUtil.rank(contentHit, SearchUtil.COLUMN_WEIGHTS);
+
+        assertEquals(1.0, titleRank, 0.0001);
+        assertEquals(0.2, contentRank, 0.0001);
+        assertTrue(titleRank > contentRank);
+    }
+
+    /*
+    * missing or truncated matchinfo
+    */
+
+    @Test
+    void rank_invalidMatchInfo_returnZero() throws Exception {
+        assertEquals(0, SearchUtil.rank(null, SearchUtil.COLUMN_WEIGHTS), 0);
+        assertEquals(0, SearchUtil.rank(matchInfo(1, 2, 1), SearchUtil.COLUMN_WEIGHTS), 0);
+    }
+
+    private byte[] matchInfo(int... values){
+        ByteBuffer buffer = ByteBuffer.allocate(values.length * 4).order(ByteOrder.nativeOrder());
+        for(int value : values){
+            buffer.putInt(value);
+        }
+        return buffer.array();
+    }
+}
@@ -0,0 +1,77 @@
+package com.android.notes.util;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TextDeltaTest {
+
+    /*
+    * a word typed in the middle
+    * the delta holds only that word
+    */
+
+    @Test
+    void between_insertInMiddle_returnInsertedText() throws Exception {
+        TextDelta delta = TextDelta.between("garbage day", "garbage collection day");
+
+        assertEquals(8, delta.getPrefixLength());
+        assertEquals(3, delta.getSuffixLength());
+        assertEquals("collection ", delta.getInserted());
+        assertEquals("garbage collection day", delta.applyTo("garbage day"));
+    }
+
+    /*
+    * text deleted, replaced, added at either end, or nothing changed
+    * applying the delta to the old text gives the new text
+    */
+
+    @Test
+    void applyTo_anyEdit_returnNewText() throws Exception {
+        String[][] edits = {
+                {"garbage day", "garbage"},
+                {"garbage day", "trash day"},
+                {"day", "garbage day"},
+                {"garbage", "garbage day"},
+                {"", "garbage day"},
+                {"garbage day", ""},
+                {"aaaa", "aaa"},
+                {"garbage day", "garbage day"},
+        };
+        for(String[] edit : edits){
+            assertEquals(edit[1], TextDelta.between(edit[0], edit[1]).applyTo(edit[0]));
+        }
+    }
+
+    /*
+    * repeated chars around the edit
+    * prefix and suffix don't overlap
+    */
+
+    @Test
+    void between_repeatedChars_prefixAndSuffixFit() throws Exception {
+        TextDelta delta = TextDelta.between("aaaa", "aaaaaa");
+
+        assertTrue(delta.getPrefixLength() + delta.getSuffixLength() <= 4);
+        assertEquals("aa", delta.getInserted());
+    }
+
+    /*
+    * delta applied to a text shorter than what it keeps
+    * exception thrown
+    */
+
+    @Test
+    void applyTo_textTooShort_throwException() throws Exception {
+        final TextDelta delta = TextDelta.between("garbage day", "garbage collection day");
+
+        Assertions.assertThrows(IllegalArgumentException.class, new Executable() {
+            @Override
+            public void execute() throws Throwable {
+                delta.applyTo("day");
+            }
+        });
+    }
+}